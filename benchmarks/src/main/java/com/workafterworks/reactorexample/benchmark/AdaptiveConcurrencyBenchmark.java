@@ -0,0 +1,82 @@
+package com.workafterworks.reactorexample.benchmark;
+
+import com.workafterworks.reactorexample.limit.ConcurrencyLimiter;
+import com.workafterworks.reactorexample.limit.GradientLimit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * CALLS calls to a simulated backend that serves CAPACITY calls in parallel at 1ms each and slows down
+ * quadratically beyond that (latency * (inflight / CAPACITY)^2), like a service thrashing under overload.
+ * fixed-4 leaves capacity idle, fixed-256 oversubscribes, adaptive is ConcurrencyLimiter.flatMap with a
+ * GradientLimit between 1 and 256 that keeps learning across invocations.
+ * Average time of all calls, lower is better.
+ *
+ * java -jar benchmarks/target/benchmarks.jar AdaptiveConcurrencyBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AdaptiveConcurrencyBenchmark {
+
+    private static final int CALLS = 2000;
+    private static final int CAPACITY = 32;
+    private static final long LATENCY_MICROS = 1000;
+
+    @Param({"fixed-4", "fixed-256", "adaptive"})
+    String concurrency;
+
+    final AtomicInteger backendInflight = new AtomicInteger();
+    ConcurrencyLimiter limiter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        limiter = new ConcurrencyLimiter(GradientLimit.builder().initialLimit(20).limits(1, 256).build());
+    }
+
+    @Benchmark
+    public Integer calls() {
+        Flux<Integer> ids = Flux.range(0, CALLS);
+        Flux<Integer> results;
+        switch (concurrency) {
+            case "fixed-4":
+                results = ids.flatMap(this::backend, 4);
+                break;
+            case "fixed-256":
+                results = ids.flatMap(this::backend, 256);
+                break;
+            default:
+                results = ids.transform(limiter.flatMap(this::backend));
+        }
+        return results.count().map(Long::intValue).block();
+    }
+
+    private Mono<Integer> backend(int id) {
+        return Mono.defer(() -> {
+            double load = (double) backendInflight.incrementAndGet() / CAPACITY;
+            long latency = (long) (LATENCY_MICROS * Math.max(1, load * load));
+            return Mono.delay(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(latency)))
+                    .doOnTerminate(backendInflight::decrementAndGet)
+                    .thenReturn(id);
+        });
+    }
+}
@@ -0,0 +1,67 @@
+package com.workafterworks.reactorexample.benchmark;
+
+import com.workafterworks.reactorexample.persistence.ConnectionPools;
+import com.workafterworks.reactorexample.persistence.NumberRepository;
+import com.workafterworks.reactorexample.pipeline.ExamplePipelines;
+import io.r2dbc.pool.ConnectionPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * ROWS numbers from fluxSubscriberNumbers saved into an in-memory H2 table by NumberRepository.saveAll,
+ * by rows per insert (1 is a statement per element). Average time per ROWS rows, lower is better.
+ *
+ * java -jar benchmarks/target/benchmarks.jar BatchInsertBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchInsertBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    @Param({"1", "50", "500"})
+    int maxBatch;
+
+    ConnectionPool pool;
+    NumberRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pool = ConnectionPools.h2InMemory("benchmark-" + maxBatch, 4);
+        repository = new NumberRepository(pool, maxBatch, Duration.ofMillis(10));
+        repository.createTable().block();
+    }
+
+    @Setup(Level.Iteration)
+    public void emptyTable() {
+        repository.deleteAll().block();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.dispose();
+    }
+
+    @Benchmark
+    public Long saveAll() {
+        return repository.saveAll(ExamplePipelines.numbers(ROWS)).block();
+    }
+}
@@ -0,0 +1,40 @@
+package com.workafterworks.reactorexample.benchmark;
+
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+
+/*
+ * The fluxSubscriberBackPressure2 subscriber with a configurable requestCount, elements go to the Blackhole.
+ */
+final class BatchSubscriber<T> extends BaseSubscriber<T> {
+
+    private final Blackhole blackhole;
+    private final int requestCount;
+    private int count;
+
+    BatchSubscriber(Blackhole blackhole, int requestCount) {
+        this.blackhole = blackhole;
+        this.requestCount = requestCount;
+    }
+
+    @Override
+    protected void hookOnSubscribe(Subscription subscription) {
+        request(requestCount);
+    }
+
+    @Override
+    protected void hookOnNext(T value) {
+        blackhole.consume(value);
+        count++;
+        if (count >= requestCount) {
+            count = 0;
+            request(requestCount);
+        }
+    }
+
+    @Override
+    protected void hookOnError(Throwable throwable) {
+        blackhole.consume(throwable);
+    }
+}
@@ -0,0 +1,63 @@
+package com.workafterworks.reactorexample.benchmark;
+
+import com.workafterworks.reactorexample.circuit.CircuitBreaker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * One Mono call as is and behind a closed CircuitBreaker with a count or a time window, from 4 threads sharing
+ * the breaker: the cost of the permission check and of recording the outcome on the hot path.
+ *
+ * java -jar benchmarks/target/benchmarks.jar CircuitBreakerBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class CircuitBreakerBenchmark {
+
+    @Param({"none", "count", "time"})
+    String window;
+
+    Mono<Integer> call;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Mono<Integer> source = Mono.fromSupplier(() -> 42);
+        CircuitBreaker.Builder builder = CircuitBreaker.builder("benchmark");
+        switch (window) {
+            case "count":
+                call = source.transformDeferred(builder.countWindow(100).build().operator());
+                break;
+            case "time":
+                call = source.transformDeferred(builder.timeWindow(Duration.ofSeconds(10), 10).build().operator());
+                break;
+            default:
+                call = source;
+        }
+    }
+
+    @Benchmark
+    public void call(Blackhole blackhole) {
+        call.subscribe(new BatchSubscriber<>(blackhole, 1));
+    }
+}
@@ -0,0 +1,80 @@
+package com.workafterworks.reactorexample.benchmark;
+
+import com.workafterworks.reactorexample.eventlog.EventLog;
+import com.workafterworks.reactorexample.pipeline.ExamplePipelines;
+import com.workafterworks.reactorexample.spill.SpillSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/*
+ * RECORDS numbers from fluxSubscriberNumbers appended to an EventLog on local disk, by group commit size
+ * (flushEvery 1 is an fsync per record), and the same records replayed. Segments past 4 are deleted by retention.
+ * Average time per RECORDS records, lower is better. The gap depends on how expensive fsync is on the disk under test.
+ *
+ * java -jar benchmarks/target/benchmarks.jar EventLogBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventLogBenchmark {
+
+    private static final int RECORDS = 10_000;
+
+    @Param({"1", "100", "10000"})
+    int flushEvery;
+
+    Path directory;
+    EventLog<Integer> log;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("event-log-benchmark");
+        log = EventLog.builder(directory, SpillSerializer.ints())
+                .segmentBytes(1024 * 1024)
+                .groupCommit(flushEvery, null)
+                .retainSegments(4)
+                .open();
+        //each benchmark method gets its own trial, replay needs records to read
+        log.append(ExamplePipelines.numbers(RECORDS)).block();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        log.dispose();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Long append() {
+        return log.append(ExamplePipelines.numbers(RECORDS)).block();
+    }
+
+    @Benchmark
+    public Long replay() {
+        long from = Math.max(log.startOffset(), log.durableOffset() - RECORDS);
+        return log.replay(from).count().block();
+    }
+}
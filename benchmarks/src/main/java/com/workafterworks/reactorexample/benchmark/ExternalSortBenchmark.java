@@ -0,0 +1,70 @@
+package com.workafterworks.reactorexample.benchmark;
+
+import com.workafterworks.reactorexample.pipeline.ExamplePipelines;
+import com.workafterworks.reactorexample.sort.ExternalSort;
+import com.workafterworks.reactorexample.spill.SpillSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/*
+ * COUNT shuffled numbers from fluxSubscriberFomList sorted with Flux.sort, and with sortExternal in runs of
+ * runElements (COUNT keeps everything on the heap, the smaller ones spill COUNT / runElements runs to disk).
+ * Average time to sort and consume everything, lower is better; run with -prof gc to compare the heap used.
+ *
+ * java -jar benchmarks/target/benchmarks.jar ExternalSortBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExternalSortBenchmark {
+
+    private static final int COUNT = 1_000_000;
+
+    @Param({"10000", "100000", "1000000"})
+    int runElements;
+
+    List<Integer> numbers;
+    ExternalSort<Integer> sort;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        numbers = IntStream.range(0, COUNT).boxed().collect(Collectors.toList());
+        Collections.shuffle(numbers, new Random(42));
+        sort = ExternalSort.builder(Comparator.<Integer>naturalOrder(), SpillSerializer.ints())
+                .memoryBudget((long) runElements * (Integer.BYTES + ExternalSort.ELEMENT_OVERHEAD_BYTES))
+                .build();
+    }
+
+    @Benchmark
+    public Long fluxSort() {
+        return ExamplePipelines.fromList(numbers).sort().count().block();
+    }
+
+    @Benchmark
+    public Long sortExternal() {
+        Flux<Integer> sorted = ExamplePipelines.fromList(numbers).transform(sort::sortExternal);
+        return sorted.count().block();
+    }
+}
@@ -0,0 +1,85 @@
+package com.workafterworks.reactorexample.benchmark;
+
+import com.workafterworks.reactorexample.file.FileRecords;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/*
+ * Streaming a file of lines lines through a Flux and counting them (the file stays in the page cache).
+ * filesLines is Files.lines wrapped in Flux.fromStream, fileRecordsLines decodes every line to a String as well,
+ * fileRecordsRecords counts the record slices without decoding them.
+ *
+ * java -jar benchmarks/target/benchmarks.jar FileRecordsBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileRecordsBenchmark {
+
+    @Param({"1000", "1000000"})
+    int lines;
+
+    Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("lines", ".txt");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < lines; i++) {
+                writer.write(i + ",Pascal,Martin,james");
+                writer.newLine();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Long filesLines() {
+        return Flux.using(() -> Files.lines(file), Flux::fromStream, Stream::close)
+                .count()
+                .block();
+    }
+
+    @Benchmark
+    public Long fileRecordsLines() {
+        return FileRecords.lines(file)
+                .count()
+                .block();
+    }
+
+    @Benchmark
+    public Long fileRecordsRecords() {
+        return FileRecords.records(file, (byte) '\n')
+                .doOnNext(DataBufferUtils::release)
+                .count()
+                .block();
+    }
+}
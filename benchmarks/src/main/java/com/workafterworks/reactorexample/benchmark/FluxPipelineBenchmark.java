@@ -0,0 +1,147 @@
+package com.workafterworks.reactorexample.benchmark;
+
+import com.workafterworks.reactorexample.error.StacklessErrors;
+import com.workafterworks.reactorexample.error.StacklessIndexOutOfBoundsException;
+import com.workafterworks.reactorexample.subscriber.AdaptiveDemandSubscriber;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * One benchmark per pipeline of FluxExampleTests, without .log() and println so the operators themselves are measured.
+ * count is the number of elements emitted, batch the request(n) of the subscriber.
+ *
+ * java -jar benchmarks/target/benchmarks.jar FluxPipelineBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FluxPipelineBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    int count;
+
+    @Param({"2", "32", "256"})
+    int batch;
+
+    String[] names;
+    List<Integer> numbers;
+
+    @Setup
+    public void setup() {
+        names = new String[count];
+        numbers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names[i] = "name" + i;
+            numbers.add(i);
+        }
+    }
+
+    //fluxSubscriber
+    @Benchmark
+    public void just(Blackhole blackhole) {
+        Flux.just(names).subscribe(new BatchSubscriber<>(blackhole, batch));
+    }
+
+    //fluxSubscriberNumbers
+    @Benchmark
+    public void range(Blackhole blackhole) {
+        Flux.range(1, count).subscribe(new BatchSubscriber<>(blackhole, batch));
+    }
+
+    //fluxSubscriberFomList
+    @Benchmark
+    public void fromIterable(Blackhole blackhole) {
+        Flux.fromIterable(numbers).subscribe(new BatchSubscriber<>(blackhole, batch));
+    }
+
+    //fluxSubscriberError, the last element fails so every element goes through map
+    @Benchmark
+    public void rangeError(Blackhole blackhole) {
+        int failing = count;
+        Flux.range(1, count)
+                .map(number -> {
+                    if (number == failing) {
+                        throw new IndexOutOfBoundsException("Out of bound exception thrown");
+                    }
+                    return number;
+                })
+                .subscribe(new BatchSubscriber<>(blackhole, batch));
+    }
+
+    //fluxSubscriberError with a stackless error, to compare the cost of the failure path
+    @Benchmark
+    public void rangeErrorStackless(Blackhole blackhole) {
+        int failing = count;
+        Flux.range(1, count)
+                .handle(StacklessErrors.failWhen(number -> number == failing,
+                        number -> new StacklessIndexOutOfBoundsException("Out of bound exception thrown")))
+                .subscribe(new BatchSubscriber<>(blackhole, batch));
+    }
+
+    //fluxSubscriberBackPressure, a plain reactive-streams Subscriber
+    @Benchmark
+    public void backPressureSubscriber(Blackhole blackhole) {
+        int requestCount = batch;
+        Flux.range(1, count).subscribe(new Subscriber<Integer>() {
+            private int received;
+            private Subscription subscription;
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(requestCount);
+            }
+
+            @Override
+            public void onNext(Integer integer) {
+                blackhole.consume(integer);
+                received++;
+                if (received >= requestCount) {
+                    received = 0;
+                    subscription.request(requestCount);
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                blackhole.consume(t);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+    }
+
+    //fluxSubscriberBackPressure2, a BaseSubscriber
+    @Benchmark
+    public void backPressureBaseSubscriber(Blackhole blackhole) {
+        Flux.range(1, count).subscribe(new BatchSubscriber<>(blackhole, batch));
+    }
+
+    //the back-pressure examples with AdaptiveDemandSubscriber, batch is its upper bound
+    @Benchmark
+    public void backPressureAdaptive(Blackhole blackhole) {
+        Flux.range(1, count).subscribe(new AdaptiveDemandSubscriber<Integer>(blackhole::consume, 1, batch));
+    }
+}
@@ -0,0 +1,69 @@
+package com.workafterworks.reactorexample.benchmark;
+
+import com.workafterworks.reactorexample.primitive.IntFlux;
+import com.workafterworks.reactorexample.primitive.LongFlux;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Boxed Flux.range pipelines against the same pipelines on IntFlux and LongFlux.
+ * Run with -prof gc to compare gc.alloc.rate.norm, the boxed version allocates for every element above the Integer cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntFluxBenchmark {
+
+    @Param({"1000", "1000000"})
+    int count;
+
+    @Benchmark
+    public Integer boxedRange() {
+        return Flux.range(1, count)
+                .map(number -> number * 3)
+                .filter(number -> number % 2 == 0)
+                .reduce(0, Integer::sum)
+                .block();
+    }
+
+    @Benchmark
+    public Integer intFluxRange() {
+        return IntFlux.range(1, count)
+                .map(number -> number * 3)
+                .filter(number -> number % 2 == 0)
+                .reduce(0, Integer::sum)
+                .block();
+    }
+
+    @Benchmark
+    public Long boxedLongRange() {
+        return Flux.range(1, count)
+                .map(number -> number * 3L)
+                .filter(number -> number % 2 == 0)
+                .reduce(0L, Long::sum)
+                .block();
+    }
+
+    @Benchmark
+    public Long longFluxRange() {
+        return LongFlux.range(1, count)
+                .map(number -> number * 3)
+                .filter(number -> number % 2 == 0)
+                .reduce(0, Long::sum)
+                .block();
+    }
+}
@@ -0,0 +1,75 @@
+package com.workafterworks.reactorexample.benchmark;
+
+import com.workafterworks.reactorexample.jfr.JfrSignals;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * fluxSubscriberNumbers as is and with JfrSignals.record, with or without a JFR recording running
+ * at the default settings (the reactor.* events are enabled by their annotations).
+ *
+ * java -jar benchmarks/target/benchmarks.jar JfrSignalsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JfrSignalsBenchmark {
+
+    @Param({"1000"})
+    int count;
+
+    @Param({"false", "true"})
+    boolean recording;
+
+    Recording jfr;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ParseException {
+        if (recording) {
+            jfr = new Recording(Configuration.getConfiguration("default"));
+            jfr.start();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (jfr != null) {
+            jfr.close();
+        }
+    }
+
+    @Benchmark
+    public void plain(Blackhole blackhole) {
+        Flux.range(1, count)
+                .subscribe(new BatchSubscriber<>(blackhole, 256));
+    }
+
+    @Benchmark
+    public void recorded(Blackhole blackhole) {
+        Flux.range(1, count)
+                .transform(JfrSignals.record("numbers"))
+                .subscribe(new BatchSubscriber<>(blackhole, 256));
+    }
+}
@@ -0,0 +1,92 @@
+package com.workafterworks.reactorexample.benchmark;
+
+import com.workafterworks.reactorexample.hooks.SignalHooks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * The Mono pipelines of MonoExampleTests. A Mono emits at most one element, so count is the number of
+ * subscriptions made per operation (Flux.range(...).concatMap(...)) and batch the request(n) of the outer subscriber.
+ *
+ * java -jar benchmarks/target/benchmarks.jar MonoPipelineBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MonoPipelineBenchmark {
+
+    @Param({"1", "1000"})
+    int count;
+
+    @Param({"2", "32", "256"})
+    int batch;
+
+    //monoSubscriberConsumerCompleted
+    @Benchmark
+    public void justMap(Blackhole blackhole) {
+        Flux.range(0, count)
+                .concatMap(i -> Mono.just("Pascal").map(String::toUpperCase))
+                .subscribe(new BatchSubscriber<>(blackhole, batch));
+    }
+
+    //monoDoOnMethods, the callbacks consume instead of printing
+    @Benchmark
+    public void doOnChain(Blackhole blackhole) {
+        Flux.range(0, count)
+                .concatMap(i -> Mono.just("Pascal")
+                        .doOnSubscribe(blackhole::consume)
+                        .doOnRequest(blackhole::consume)
+                        .doOnNext(blackhole::consume)
+                        .flatMap(value -> Mono.empty())
+                        .doOnNext(blackhole::consume)
+                        .doOnSuccess(blackhole::consume))
+                .subscribe(new BatchSubscriber<>(blackhole, batch));
+    }
+
+    //monoDoOnMethods with the doOn* stacks replaced by SignalHooks
+    @Benchmark
+    public void signalHooksChain(Blackhole blackhole) {
+        SignalHooks<String> before = SignalHooks.<String>builder()
+                .onSubscribe(blackhole::consume)
+                .onRequest(blackhole::consume)
+                .onNext(blackhole::consume)
+                .build();
+        SignalHooks<Object> after = SignalHooks.builder()
+                .onNext(blackhole::consume)
+                .onSuccess(blackhole::consume)
+                .build();
+        Flux.range(0, count)
+                .concatMap(i -> Mono.just("Pascal")
+                        .transform(before::apply)
+                        .flatMap(value -> Mono.empty())
+                        .transform(after::apply))
+                .subscribe(new BatchSubscriber<>(blackhole, batch));
+    }
+
+    //monoDoOError
+    @Benchmark
+    public void errorFallback(Blackhole blackhole) {
+        IllegalArgumentException error = new IllegalArgumentException("Wrong argument has been passed and caused this exception");
+        Flux.range(0, count)
+                .concatMap(i -> Mono.error(error)
+                        .onErrorReturn("EMPTY")
+                        .onErrorResume(throwable -> Mono.empty()))
+                .subscribe(new BatchSubscriber<>(blackhole, batch));
+    }
+}
@@ -0,0 +1,120 @@
+package com.workafterworks.reactorexample.benchmark;
+
+import com.workafterworks.reactorexample.sink.MpscSink;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+
+/*
+ * producers threads push ELEMENTS elements in total into one pipeline with a single unbounded subscriber.
+ * fluxSink is Flux.create, whose FluxSink.next serializes concurrent producers, mpscSink is MpscSink with BACKOFF.
+ * Average time of one full run, lower is better.
+ *
+ * java -jar benchmarks/target/benchmarks.jar MpscSinkBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MpscSinkBenchmark {
+
+    private static final int ELEMENTS = 1 << 20;
+
+    @Param({"1", "4", "16", "64"})
+    int producers;
+
+    ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(producers);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public long fluxSink() throws InterruptedException {
+        AtomicReference<FluxSink<Integer>> sink = new AtomicReference<>();
+        CountingSubscriber subscriber = new CountingSubscriber();
+        Flux.<Integer>create(sink::set).subscribe(subscriber);
+        FluxSink<Integer> fluxSink = sink.get();
+        return run(subscriber, fluxSink::next, fluxSink::complete);
+    }
+
+    @Benchmark
+    public long mpscSink() throws InterruptedException {
+        MpscSink<Integer> sink = MpscSink.builder().capacity(8192).overflow(MpscSink.Overflow.BACKOFF).build();
+        CountingSubscriber subscriber = new CountingSubscriber();
+        sink.asFlux().subscribe(subscriber);
+        return run(subscriber, sink::tryEmitNext, sink::tryEmitComplete);
+    }
+
+    private long run(CountingSubscriber subscriber, IntConsumer emit, Runnable complete) throws InterruptedException {
+        int perProducer = ELEMENTS / producers;
+        CountDownLatch produced = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            executor.execute(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    emit.accept(i);
+                }
+                produced.countDown();
+            });
+        }
+        produced.await();
+        complete.run();
+        subscriber.completed.await();
+        return subscriber.count;
+    }
+
+    static final class CountingSubscriber implements CoreSubscriber<Integer> {
+
+        final CountDownLatch completed = new CountDownLatch(1);
+        long count;
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            s.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(Integer value) {
+            count++;
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+}
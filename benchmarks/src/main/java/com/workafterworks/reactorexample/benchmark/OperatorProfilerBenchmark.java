@@ -0,0 +1,66 @@
+package com.workafterworks.reactorexample.benchmark;
+
+import com.workafterworks.reactorexample.profile.OperatorProfiler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * fluxSubscriberNumbers plus map and filter, assembled and run as is, under a disabled profiler and under an enabled one.
+ * disabled should match plain, enabled shows the cost of the probes (two nanoTime calls per element and stage).
+ *
+ * java -jar benchmarks/target/benchmarks.jar OperatorProfilerBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OperatorProfilerBenchmark {
+
+    @Param({"1000"})
+    int count;
+
+    final OperatorProfiler disabled = OperatorProfiler.disabled();
+    final OperatorProfiler enabled = OperatorProfiler.enabled();
+
+    private Flux<Integer> numbers() {
+        return Flux.range(1, count)
+                .map(i -> i * 2)
+                .filter(i -> i % 3 != 0);
+    }
+
+    @Benchmark
+    public void plain(Blackhole blackhole) {
+        numbers().subscribe(new BatchSubscriber<>(blackhole, 256));
+    }
+
+    @Benchmark
+    public void disabled(Blackhole blackhole) {
+        disabled.profile("numbers", this::numbers).subscribe(new BatchSubscriber<>(blackhole, 256));
+    }
+
+    @Benchmark
+    public void enabled(Blackhole blackhole) {
+        enabled.profile("numbers", this::numbers).subscribe(new BatchSubscriber<>(blackhole, 256));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        enabled.close();
+    }
+}
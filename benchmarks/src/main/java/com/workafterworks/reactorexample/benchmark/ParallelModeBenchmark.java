@@ -0,0 +1,81 @@
+package com.workafterworks.reactorexample.benchmark;
+
+import com.workafterworks.reactorexample.pipeline.ExamplePipelines;
+import com.workafterworks.reactorexample.pipeline.ParallelMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/*
+ * Throughput scaling of ParallelMode with the rail count, one scheduler worker per rail.
+ * Every element burns CPU, with skewed = true every 16th element burns 32 times as much.
+ * rails = 1 is the sequential baseline plus the cost of handing elements over to another thread.
+ *
+ * java -jar benchmarks/target/benchmarks.jar ParallelModeBenchmark -p rails=1,2,4,8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelModeBenchmark {
+
+    private static final int ELEMENTS = 10_000;
+    private static final long TOKENS = 1_000;
+
+    @Param({"1", "2", "4", "8"})
+    int rails;
+
+    @Param({"true", "false"})
+    boolean ordered;
+
+    @Param({"false", "true"})
+    boolean skewed;
+
+    List<Integer> numbers;
+    Scheduler scheduler;
+    ParallelMode mode;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        numbers = IntStream.range(0, ELEMENTS).boxed().collect(Collectors.toList());
+        scheduler = Schedulers.newParallel("rails", rails);
+        mode = ParallelMode.builder().rails(rails).ordered(ordered).scheduler(scheduler).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scheduler.dispose();
+    }
+
+    private int work(int number) {
+        Blackhole.consumeCPU(skewed && number % 16 == 0 ? TOKENS * 32 : TOKENS);
+        return number;
+    }
+
+    @Benchmark
+    public Long fromList() {
+        return ExamplePipelines.fromList(numbers, this::work, mode)
+                .count()
+                .block();
+    }
+}
@@ -0,0 +1,80 @@
+package com.workafterworks.reactorexample.benchmark;
+
+import com.workafterworks.reactorexample.retry.TimerWheel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * timeouts pending retries scheduled and then disposed, as when a pipeline's subscribers cancel during their backoff.
+ * parallel is Schedulers.parallel(), a ScheduledThreadPoolExecutor heap per worker, wheel is a TimerWheel handing
+ * expired tasks to Schedulers.parallel(). Average time of scheduling and disposing all of them, lower is better.
+ *
+ * java -jar benchmarks/target/benchmarks.jar TimerWheelBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimerWheelBenchmark {
+
+    @Param({"1000", "100000"})
+    int timeouts;
+
+    Scheduler parallel;
+    TimerWheel wheel;
+    Disposable[] pending;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        parallel = Schedulers.newParallel("benchmark-parallel");
+        wheel = TimerWheel.create("benchmark-wheel", Duration.ofMillis(10), 512, parallel);
+        pending = new Disposable[timeouts];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        wheel.dispose();
+        parallel.dispose();
+    }
+
+    @Benchmark
+    public int parallel() {
+        return scheduleAndDispose(parallel);
+    }
+
+    @Benchmark
+    public int wheel() {
+        return scheduleAndDispose(wheel);
+    }
+
+    private int scheduleAndDispose(Scheduler scheduler) {
+        for (int i = 0; i < timeouts; i++) {
+            //spread over 1 to 5 seconds like jittered backoffs, none expires during the run
+            pending[i] = scheduler.schedule(() -> {
+            }, 1000 + i % 4000, TimeUnit.MILLISECONDS);
+        }
+        for (Disposable timeout : pending) {
+            timeout.dispose();
+        }
+        return pending.length;
+    }
+}
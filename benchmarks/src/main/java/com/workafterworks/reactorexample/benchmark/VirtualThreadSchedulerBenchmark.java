@@ -0,0 +1,78 @@
+package com.workafterworks.reactorexample.benchmark;
+
+import com.workafterworks.reactorexample.scheduler.VirtualThreadScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * count concurrent subscriptions each making one blocking call of 10ms, bridged with subscribeOn.
+ * boundedElastic runs at most 10 * cores of them at a time, virtual threads run all of them.
+ *
+ * java -jar benchmarks/target/benchmarks.jar VirtualThreadSchedulerBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class VirtualThreadSchedulerBenchmark {
+
+    @Param({"100", "10000"})
+    int count;
+
+    Scheduler virtualThreads;
+    Scheduler boundedElastic;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        virtualThreads = VirtualThreadScheduler.create("benchmark");
+        boundedElastic = Schedulers.newBoundedElastic(Schedulers.DEFAULT_BOUNDED_ELASTIC_SIZE,
+                Integer.MAX_VALUE, "benchmark");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        virtualThreads.dispose();
+        boundedElastic.dispose();
+    }
+
+    private static Integer blockingCall(int i) throws InterruptedException {
+        Thread.sleep(10);
+        return i;
+    }
+
+    private Long blockingCalls(Scheduler scheduler) {
+        return Flux.range(0, count)
+                .flatMap(i -> Mono.fromCallable(() -> blockingCall(i)).subscribeOn(scheduler), count)
+                .count()
+                .block();
+    }
+
+    @Benchmark
+    public Long virtualThreads() {
+        return blockingCalls(virtualThreads);
+    }
+
+    @Benchmark
+    public Long boundedElastic() {
+        return blockingCalls(boundedElastic);
+    }
+}
@@ -1,13 +1,15 @@
-//package com.workafterworks.reactorexample;
-//
-//import org.springframework.boot.SpringApplication;
-//import org.springframework.boot.autoconfigure.SpringBootApplication;
-//
-//@SpringBootApplication
-//public class ReactorExampleApplication {
-//
-//    public static void main(String[] args) {
-//        SpringApplication.run(ReactorExampleApplication.class, args);
-//    }
-//
-//}
+package com.workafterworks.reactorexample;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+
+@SpringBootApplication
+@ConfigurationPropertiesScan
+public class ReactorExampleApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(ReactorExampleApplication.class, args);
+    }
+
+}
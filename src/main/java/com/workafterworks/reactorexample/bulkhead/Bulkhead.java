@@ -0,0 +1,185 @@
+package com.workafterworks.reactorexample.bulkhead;
+
+import com.workafterworks.reactorexample.limit.PermitQueue;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/*
+ * Semaphore bulkhead for non-blocking stages, which need no threads of their own but must not let one pipeline take
+ * every connection or every slot of a shared downstream:
+ *
+ * Bulkhead inventory = Bulkhead.builder("inventory").maxConcurrent(32).maxQueued(64).build();
+ * inventoryClient.get(id).transformDeferred(inventory.operator())
+ *
+ * Each subscription takes a permit for its whole lifetime and gives it back on completion, error or cancellation.
+ * Beyond maxConcurrent subscriptions, up to maxQueued wait for a permit in FIFO order without holding a thread;
+ * the next ones fail at once with the bulkhead's stackless BulkheadFullException, the source is not subscribed.
+ *
+ * Permits are an AtomicInteger CAS loop, subscriptions waiting for one queue in a PermitQueue.
+ *
+ * With a MeterRegistry, tagged bulkhead=<name>, type=semaphore: reactor.bulkhead.active, reactor.bulkhead.queued,
+ * reactor.bulkhead.saturation (active / maxConcurrent), reactor.bulkhead.queue.wait (subscription until permit)
+ * and reactor.bulkhead.rejected, as BulkheadScheduler's.
+ */
+public final class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final BulkheadFullException rejection;
+    private final AtomicInteger active = new AtomicInteger();
+    private final PermitQueue<Permit> permits;
+    private final LongAdder rejected = new LongAdder();
+    private final Timer queueWait;
+
+    private Bulkhead(Builder builder) {
+        this.name = builder.name;
+        this.maxConcurrent = builder.maxConcurrent;
+        this.rejection = BulkheadFullException.forBulkhead(name);
+        this.permits = new PermitQueue<>(Permit.class, this::tryAcquire, permit -> release(), builder.maxQueued, () -> {
+            rejected.increment();
+            return rejection.signal();
+        });
+        if (builder.registry != null) {
+            Gauge.builder("reactor.bulkhead.active", active, AtomicInteger::get)
+                    .description("subscriptions holding a permit")
+                    .tags("bulkhead", name, "type", "semaphore")
+                    .register(builder.registry);
+            Gauge.builder("reactor.bulkhead.queued", permits, PermitQueue::waiting)
+                    .description("subscriptions waiting for a permit")
+                    .tags("bulkhead", name, "type", "semaphore")
+                    .register(builder.registry);
+            Gauge.builder("reactor.bulkhead.saturation", this, Bulkhead::saturation)
+                    .description("share of the permits taken")
+                    .tags("bulkhead", name, "type", "semaphore")
+                    .register(builder.registry);
+            FunctionCounter.builder("reactor.bulkhead.rejected", rejected, LongAdder::doubleValue)
+                    .description("subscriptions over the permit and queue limits")
+                    .tags("bulkhead", name, "type", "semaphore")
+                    .register(builder.registry);
+            this.queueWait = Timer.builder("reactor.bulkhead.queue.wait")
+                    .description("time from subscription until a permit is granted")
+                    .tags("bulkhead", name, "type", "semaphore")
+                    .register(builder.registry);
+        } else {
+            this.queueWait = null;
+        }
+    }
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int active() {
+        return active.get();
+    }
+
+    public double saturation() {
+        return (double) active.get() / maxConcurrent;
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    //for transform or transformDeferred, keeps a Mono a Mono; a permit is taken per subscription
+    @SuppressWarnings("unchecked")
+    public <T> Function<Publisher<T>, Publisher<T>> operator() {
+        return source -> {
+            if (source instanceof Mono) {
+                Mono<T> mono = (Mono<T>) source;
+                return permit().flatMap(permit -> mono.doFinally(signal -> release()));
+            }
+            Flux<T> flux = Flux.from(source);
+            return permit().flatMapMany(permit -> flux.doFinally(signal -> release()));
+        };
+    }
+
+    //a permit granted while the subscriber cancels is discarded, and given back
+    private Mono<Permit> permit() {
+        return Mono.defer(() -> {
+            long subscribedAt = System.nanoTime();
+            return permits.acquire().doOnNext(permit -> record(System.nanoTime() - subscribedAt));
+        });
+    }
+
+    private Permit tryAcquire() {
+        for (; ; ) {
+            int current = active.get();
+            if (current >= maxConcurrent) {
+                return null;
+            }
+            if (active.compareAndSet(current, current + 1)) {
+                return Permit.GRANTED;
+            }
+        }
+    }
+
+    private void release() {
+        active.decrementAndGet();
+        permits.drain();
+    }
+
+    private void record(long waitNanos) {
+        if (queueWait != null) {
+            queueWait.record(waitNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    enum Permit {
+        GRANTED
+    }
+
+    public static final class Builder {
+
+        private final String name;
+        private int maxConcurrent = 32;
+        private int maxQueued;
+        private MeterRegistry registry;
+
+        private Builder(String name) {
+            this.name = Objects.requireNonNull(name, "name");
+        }
+
+        //subscriptions holding a permit at once, 32 by default
+        public Builder maxConcurrent(int maxConcurrent) {
+            if (maxConcurrent < 1) {
+                throw new IllegalArgumentException("maxConcurrent must be positive, was " + maxConcurrent);
+            }
+            this.maxConcurrent = maxConcurrent;
+            return this;
+        }
+
+        //subscriptions waiting for a permit, none by default: a full bulkhead rejects at once
+        public Builder maxQueued(int maxQueued) {
+            if (maxQueued < 0) {
+                throw new IllegalArgumentException("maxQueued must not be negative, was " + maxQueued);
+            }
+            this.maxQueued = maxQueued;
+            return this;
+        }
+
+        public Builder metrics(MeterRegistry registry) {
+            this.registry = Objects.requireNonNull(registry, "registry");
+            return this;
+        }
+
+        public Bulkhead build() {
+            return new Bulkhead(this);
+        }
+    }
+}
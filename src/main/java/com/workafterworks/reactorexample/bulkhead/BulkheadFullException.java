@@ -0,0 +1,29 @@
+package com.workafterworks.reactorexample.bulkhead;
+
+import com.workafterworks.reactorexample.error.StacklessException;
+
+/*
+ * A subscription refused by a full Bulkhead, without subscribing to the source.
+ * One singleton per bulkhead, sent through signal().
+ */
+public class BulkheadFullException extends StacklessException {
+
+    private static final long serialVersionUID = 1L;
+
+    public BulkheadFullException(String message) {
+        super(message, null, false);
+    }
+
+    private BulkheadFullException(String message, boolean singleton) {
+        super(message, null, singleton);
+    }
+
+    static BulkheadFullException forBulkhead(String name) {
+        return new BulkheadFullException("Bulkhead '" + name + "' is full", true);
+    }
+
+    @Override
+    protected StacklessException copy() {
+        return new BulkheadFullException(getMessage());
+    }
+}
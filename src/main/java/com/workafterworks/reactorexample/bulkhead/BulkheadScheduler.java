@@ -0,0 +1,212 @@
+package com.workafterworks.reactorexample.bulkhead;
+
+import com.workafterworks.reactorexample.scheduler.ExecutorScheduler;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Scheduler owned by one pipeline, so that a noisy pipeline exhausts its own threads and queue instead of the
+ * global Schedulers every other pipeline shares:
+ *
+ * BulkheadScheduler reports = BulkheadScheduler.builder("reports").threads(4).queueCapacity(256).build();
+ * Mono.fromCallable(() -> render(id)).subscribeOn(reports)
+ *
+ * At most threads tasks run at once, up to queueCapacity more wait, the next ones are rejected:
+ * - FAIL: schedule throws RejectedExecutionException, the operator that scheduled signals it as onError
+ * - CALLER_RUNS: the submitting thread runs the task itself and is slowed down to the bulkhead's pace
+ *
+ * Delays and periods are kept by one timer thread that only submits the task when it is due. Workers run their tasks
+ * one at a time in submission order, as Reactor expects from a Worker, each drain is one task of the executor.
+ *
+ * With a MeterRegistry, tagged bulkhead=<name>, type=scheduler:
+ * - reactor.bulkhead.active       gauge, tasks running
+ * - reactor.bulkhead.queued       gauge, tasks waiting for a thread
+ * - reactor.bulkhead.saturation   gauge, active / threads
+ * - reactor.bulkhead.queue.wait   timer, from submission until a thread starts the task
+ * - reactor.bulkhead.rejected     counter, tasks refused (FAIL) or run by the caller (CALLER_RUNS)
+ */
+public final class BulkheadScheduler extends ExecutorScheduler {
+
+    public enum Rejection {
+        FAIL,
+        CALLER_RUNS
+    }
+
+    private final String name;
+    private final int threads;
+    private final ThreadPoolExecutor executor;
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder rejected;
+    private final Timer queueWait;
+
+    private BulkheadScheduler(Builder builder, ThreadPoolExecutor executor, LongAdder rejected) {
+        super(builder.name, executor);
+        this.name = builder.name;
+        this.threads = builder.threads;
+        this.executor = executor;
+        this.rejected = rejected;
+        if (builder.registry != null) {
+            Gauge.builder("reactor.bulkhead.active", active, AtomicInteger::get)
+                    .description("tasks running")
+                    .tags("bulkhead", name, "type", "scheduler")
+                    .register(builder.registry);
+            Gauge.builder("reactor.bulkhead.queued", executor, pool -> pool.getQueue().size())
+                    .description("tasks waiting for a thread")
+                    .tags("bulkhead", name, "type", "scheduler")
+                    .register(builder.registry);
+            Gauge.builder("reactor.bulkhead.saturation", this, BulkheadScheduler::saturation)
+                    .description("share of the threads running a task")
+                    .tags("bulkhead", name, "type", "scheduler")
+                    .register(builder.registry);
+            FunctionCounter.builder("reactor.bulkhead.rejected", rejected, LongAdder::doubleValue)
+                    .description("tasks over the thread and queue limits")
+                    .tags("bulkhead", name, "type", "scheduler")
+                    .register(builder.registry);
+            this.queueWait = Timer.builder("reactor.bulkhead.queue.wait")
+                    .description("time from submission until a thread starts the task")
+                    .tags("bulkhead", name, "type", "scheduler")
+                    .register(builder.registry);
+        } else {
+            this.queueWait = null;
+        }
+    }
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    private static ThreadPoolExecutor pool(Builder builder, LongAdder rejected) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(builder.threads, builder.threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(builder.queueCapacity),
+                task -> {
+                    Thread thread = new Thread(task, builder.name + "-" + threadIndex.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                rejectionHandler(builder, rejected));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static RejectedExecutionHandler rejectionHandler(Builder builder, LongAdder rejected) {
+        String name = builder.name;
+        int threads = builder.threads;
+        if (builder.rejection == Rejection.CALLER_RUNS) {
+            return (task, pool) -> {
+                if (pool.isShutdown()) {
+                    //a task skipped without a throw would leave its caller waiting for it
+                    throw new RejectedExecutionException("BulkheadScheduler '" + name + "' is disposed");
+                }
+                rejected.increment();
+                task.run();
+            };
+        }
+        return (task, pool) -> {
+            rejected.increment();
+            throw new RejectedExecutionException("BulkheadScheduler '" + name + "' is full: " + threads + " threads busy, "
+                    + pool.getQueue().size() + " tasks queued");
+        };
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public double saturation() {
+        return (double) active.get() / threads;
+    }
+
+    public int queued() {
+        return executor.getQueue().size();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    //stamped when the task is scheduled, a worker's tasks each wait for the ones queued before them
+    @Override
+    protected Runnable decorate(Runnable task) {
+        return new TimedTask(task);
+    }
+
+    final class TimedTask implements Runnable {
+
+        final Runnable task;
+        final long submittedAt = System.nanoTime();
+
+        TimedTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            if (queueWait != null) {
+                queueWait.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+            }
+            active.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                active.decrementAndGet();
+            }
+        }
+    }
+
+    public static final class Builder {
+
+        private final String name;
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private int queueCapacity = 1024;
+        private Rejection rejection = Rejection.FAIL;
+        private MeterRegistry registry;
+
+        private Builder(String name) {
+            this.name = Objects.requireNonNull(name, "name");
+        }
+
+        public Builder threads(int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("threads must be positive, was " + threads);
+            }
+            this.threads = threads;
+            return this;
+        }
+
+        //tasks waiting for a thread, 1024 by default
+        public Builder queueCapacity(int queueCapacity) {
+            if (queueCapacity < 1) {
+                throw new IllegalArgumentException("queueCapacity must be positive, was " + queueCapacity);
+            }
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        public Builder rejection(Rejection rejection) {
+            this.rejection = Objects.requireNonNull(rejection, "rejection");
+            return this;
+        }
+
+        public Builder metrics(MeterRegistry registry) {
+            this.registry = Objects.requireNonNull(registry, "registry");
+            return this;
+        }
+
+        public BulkheadScheduler build() {
+            LongAdder rejected = new LongAdder();
+            return new BulkheadScheduler(this, pool(this, rejected), rejected);
+        }
+    }
+}
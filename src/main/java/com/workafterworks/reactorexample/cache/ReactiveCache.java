@@ -0,0 +1,236 @@
+package com.workafterworks.reactorexample.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/*
+ * Bounded cache for Mono results, unlike Mono.cache() which keeps one value forever.
+ *
+ * Mono<String> name = cache.get(key, k -> Mono.just(k).map(String::toUpperCase));
+ *
+ * Backed by a Caffeine AsyncCache, so eviction is W-TinyLFU within maximumSize and concurrent misses of a key share
+ * one load. The loader's Mono is subscribed, never blocked on: callers get Mono.fromFuture of the pending load.
+ *
+ * Per entry, by age since it was written:
+ * - younger than refreshAfterWrite: served as is
+ * - younger than expireAfterWrite: served as is, and reloaded in the background (refresh-ahead)
+ * - older: loaded again, if that load fails the stale value is served for up to staleIfError more
+ *
+ * staleOnError(key) exposes the same fallback for pipelines of their own: .onErrorResume(cache.staleOnError(key))
+ */
+public class ReactiveCache<K, V> {
+
+    private final AsyncCache<K, Entry<V>> cache;
+    private final Ticker ticker;
+    private final long expireAfterWriteNanos;
+    private final long refreshAfterWriteNanos;
+    private final long maxStaleNanos;
+    private final Set<K> refreshing = ConcurrentHashMap.newKeySet();
+
+    private ReactiveCache(Builder builder) {
+        this.ticker = builder.ticker;
+        this.expireAfterWriteNanos = builder.expireAfterWrite.toNanos();
+        this.refreshAfterWriteNanos = builder.refreshAfterWrite == null ? Long.MAX_VALUE : builder.refreshAfterWrite.toNanos();
+        this.maxStaleNanos = builder.expireAfterWrite.plus(builder.staleIfError).toNanos();
+        //entries stay in Caffeine while they can still be served stale
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(builder.maximumSize)
+                .expireAfterWrite(maxStaleNanos, TimeUnit.NANOSECONDS)
+                .ticker(builder.ticker)
+                .recordStats()
+                .buildAsync();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Mono<V> get(K key, Function<? super K, ? extends Mono<V>> loader) {
+        return Mono.defer(() -> {
+            CompletableFuture<Entry<V>> current = cache.getIfPresent(key);
+            if (current instanceof Reload) {
+                return join((Reload<V>) current);
+            }
+            if (current == null || !current.isDone() || current.isCompletedExceptionally()) {
+                //suppressCancel: the load is shared by every caller of key, one cancelling must not cancel it for the others
+                return Mono.fromFuture(cache.get(key, (k, executor) -> load(k, loader)), true).map(Entry::value);
+            }
+            //done, join does not block
+            Entry<V> entry = current.join();
+            long age = ticker.read() - entry.writtenAt;
+            if (age < refreshAfterWriteNanos) {
+                return Mono.just(entry.value);
+            }
+            if (age < expireAfterWriteNanos) {
+                refreshAhead(key, current, loader);
+                return Mono.just(entry.value);
+            }
+            if (age >= maxStaleNanos) {
+                //putting a stale value back after a failed reload restarts Caffeine's expiry, the entry's own age does not
+                cache.asMap().remove(key, current);
+                return get(key, loader);
+            }
+            return reload(key, current, entry, loader);
+        });
+    }
+
+    //fallback for onErrorResume: the cached value of key while within expireAfterWrite + staleIfError, or the original error
+    public Function<Throwable, Mono<V>> staleOnError(K key) {
+        return error -> {
+            CompletableFuture<Entry<V>> current = cache.getIfPresent(key);
+            Entry<V> entry = null;
+            if (current instanceof Reload) {
+                entry = ((Reload<V>) current).stale;
+            } else if (current != null && current.isDone() && !current.isCompletedExceptionally()) {
+                entry = current.join();
+            }
+            if (entry != null && ticker.read() - entry.writtenAt < maxStaleNanos) {
+                return Mono.just(entry.value);
+            }
+            return Mono.error(error);
+        };
+    }
+
+    public void invalidate(K key) {
+        cache.synchronous().invalidate(key);
+    }
+
+    public long estimatedSize() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    //Caffeine keeps the map consistent, cleanUp applies pending evictions (mainly for tests)
+    public void cleanUp() {
+        cache.synchronous().cleanUp();
+    }
+
+    private CompletableFuture<Entry<V>> load(K key, Function<? super K, ? extends Mono<V>> loader) {
+        return loader.apply(key)
+                .map(value -> new Entry<>(value, ticker.read()))
+                .toFuture();
+    }
+
+    //expired entry: the first caller swaps in a new load, the others join it
+    private Mono<V> reload(K key, CompletableFuture<Entry<V>> expired, Entry<V> stale, Function<? super K, ? extends Mono<V>> loader) {
+        Reload<V> reloading = new Reload<>(stale);
+        if (!cache.asMap().replace(key, expired, reloading)) {
+            return Mono.defer(() -> get(key, loader));
+        }
+        load(key, loader).whenComplete((entry, error) -> {
+            if (error != null || entry == null) {
+                //keep the expired value around for staleIfError
+                cache.asMap().replace(key, reloading, expired);
+            }
+            if (error != null) {
+                reloading.completeExceptionally(error);
+            } else {
+                reloading.complete(entry);
+            }
+        });
+        return join(reloading);
+    }
+
+    //every caller of a reload gets the stale fallback, not only the one that started it
+    private Mono<V> join(Reload<V> reloading) {
+        return Mono.fromFuture(reloading, true)
+                .map(Entry::value)
+                .onErrorResume(error -> ticker.read() - reloading.stale.writtenAt < maxStaleNanos
+                        ? Mono.just(reloading.stale.value)
+                        : Mono.error(error));
+    }
+
+    private void refreshAhead(K key, CompletableFuture<Entry<V>> current, Function<? super K, ? extends Mono<V>> loader) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        load(key, loader).whenComplete((entry, error) -> {
+            //a failed or empty refresh keeps the current value until it expires
+            if (error == null && entry != null) {
+                cache.asMap().replace(key, current, CompletableFuture.completedFuture(entry));
+            }
+            refreshing.remove(key);
+        });
+    }
+
+    //a reload in flight, with the expired entry it replaces
+    static final class Reload<V> extends CompletableFuture<Entry<V>> {
+
+        final Entry<V> stale;
+
+        Reload(Entry<V> stale) {
+            this.stale = stale;
+        }
+    }
+
+    static final class Entry<V> {
+
+        final V value;
+        final long writtenAt;
+
+        Entry(V value, long writtenAt) {
+            this.value = value;
+            this.writtenAt = writtenAt;
+        }
+
+        V value() {
+            return value;
+        }
+    }
+
+    public static final class Builder {
+
+        private long maximumSize = 10_000;
+        private Duration expireAfterWrite = Duration.ofMinutes(5);
+        private Duration refreshAfterWrite;
+        private Duration staleIfError = Duration.ZERO;
+        private Ticker ticker = Ticker.systemTicker();
+
+        private Builder() {
+        }
+
+        public Builder maximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        public Builder expireAfterWrite(Duration expireAfterWrite) {
+            this.expireAfterWrite = Objects.requireNonNull(expireAfterWrite, "expireAfterWrite");
+            return this;
+        }
+
+        //must be shorter than expireAfterWrite to have any effect
+        public Builder refreshAfterWrite(Duration refreshAfterWrite) {
+            this.refreshAfterWrite = Objects.requireNonNull(refreshAfterWrite, "refreshAfterWrite");
+            return this;
+        }
+
+        public Builder staleIfError(Duration staleIfError) {
+            this.staleIfError = Objects.requireNonNull(staleIfError, "staleIfError");
+            return this;
+        }
+
+        public Builder ticker(Ticker ticker) {
+            this.ticker = Objects.requireNonNull(ticker, "ticker");
+            return this;
+        }
+
+        public <K, V> ReactiveCache<K, V> build() {
+            return new ReactiveCache<>(this);
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.workafterworks.reactorexample.circuit;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Operators;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/*
+ * Circuit breaker for the calls of a pipeline, so that a failing dependency is not hammered by every subscription:
+ *
+ * CircuitBreaker breaker = CircuitBreaker.builder("inventory")
+ *         .countWindow(100)
+ *         .failureRateThreshold(50)
+ *         .waitInOpen(Duration.ofSeconds(10))
+ *         .build();
+ * inventoryClient.get(id).transformDeferred(breaker.operator())
+ *
+ * CLOSED: every subscription is a call, its outcome goes into the sliding window (the last n calls, or the calls
+ * of the last duration split into buckets). Once the window holds minimumCalls and the failure rate reaches the
+ * threshold the breaker opens.
+ * OPEN: subscriptions fail at once with the breaker's stackless CircuitOpenException, the source is not
+ * subscribed. After waitInOpen the next subscription moves the breaker to HALF_OPEN.
+ * HALF_OPEN: permittedCallsInHalfOpen trial calls, the others are rejected. When they have all terminated the
+ * breaker closes with an empty window, or opens again if their failure rate reaches the threshold.
+ *
+ * A call succeeds on onComplete and fails on an onError matching recordFailure (all errors by default), other errors
+ * count as successes. A cancelled call is not recorded.
+ *
+ * The current state is one immutable phase behind an AtomicReference, replaced by CAS on transitions only: the
+ * permission check is a volatile read in CLOSED and a CAS on the permit count in HALF_OPEN, and a count window
+ * records an outcome in three atomic instructions (a time window also sums its buckets). No locks.
+ *
+ * With a MeterRegistry: reactor.circuit.calls tagged name=<name>, outcome=success|failure|rejected and the
+ * reactor.circuit.state gauge (0 closed, 1 open, 2 half open).
+ */
+public final class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int windowSize;
+    private final long bucketNanos;
+    private final int minimumCalls;
+    private final float failureRateThreshold;
+    private final long waitInOpenNanos;
+    private final int permittedCallsInHalfOpen;
+    private final Predicate<? super Throwable> recordFailure;
+    private final LongSupplier clock;
+    private final CircuitOpenException rejection;
+    private final AtomicReference<Phase> phase;
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private CircuitBreaker(Builder builder) {
+        this.name = builder.name;
+        this.windowSize = builder.windowSize;
+        this.bucketNanos = builder.bucketNanos;
+        this.minimumCalls = builder.minimumCalls;
+        this.failureRateThreshold = builder.failureRateThreshold;
+        this.waitInOpenNanos = builder.waitInOpen.toNanos();
+        this.permittedCallsInHalfOpen = builder.permittedCallsInHalfOpen;
+        this.recordFailure = builder.recordFailure;
+        this.clock = builder.clock;
+        this.rejection = CircuitOpenException.forBreaker(name);
+        this.phase = new AtomicReference<>(closed());
+        if (builder.registry != null) {
+            register(builder.registry, "success", successes);
+            register(builder.registry, "failure", failures);
+            register(builder.registry, "rejected", rejected);
+            Gauge.builder("reactor.circuit.state", this, breaker -> breaker.state().ordinal())
+                    .description("0 closed, 1 open, 2 half open")
+                    .tag("name", name)
+                    .register(builder.registry);
+        }
+    }
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    private void register(MeterRegistry registry, String outcome, LongAdder counter) {
+        FunctionCounter.builder("reactor.circuit.calls", counter, LongAdder::doubleValue)
+                .description("calls by outcome, rejected ones were not subscribed")
+                .tag("name", name)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    //for transform or transformDeferred, keeps a Mono a Mono; the permission is checked per subscription
+    @SuppressWarnings("unchecked")
+    public <T> Function<Publisher<T>, Publisher<T>> operator() {
+        return source -> {
+            if (source instanceof Mono) {
+                Mono<T> mono = (Mono<T>) source;
+                return Mono.defer(() -> Mono.from(guard(mono)));
+            }
+            Flux<T> flux = Flux.from(source);
+            return Flux.defer(() -> guard(flux));
+        };
+    }
+
+    private <T> Publisher<T> guard(Publisher<T> source) {
+        Phase permit = acquire();
+        if (permit == null) {
+            rejected.increment();
+            return Mono.error(rejection.signal());
+        }
+        Function<? super Publisher<T>, ? extends Publisher<T>> lift = Operators.lift((scannable, actual) ->
+                new CircuitBreakerSubscriber<>(actual, this, permit));
+        return lift.apply(source);
+    }
+
+    public State state() {
+        return phase.get().state;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    //the phase the call belongs to, null when it is not permitted
+    Phase acquire() {
+        for (; ; ) {
+            Phase current = phase.get();
+            switch (current.state) {
+                case CLOSED:
+                    return current;
+                case OPEN:
+                    if (clock.getAsLong() - current.openedAt < waitInOpenNanos) {
+                        return null;
+                    }
+                    phase.compareAndSet(current, new Phase(State.HALF_OPEN, 0, null, permittedCallsInHalfOpen));
+                    break;
+                default:
+                    for (; ; ) {
+                        int permits = current.permits.get();
+                        if (permits == 0) {
+                            return null;
+                        }
+                        if (current.permits.compareAndSet(permits, permits - 1)) {
+                            return current;
+                        }
+                    }
+            }
+        }
+    }
+
+    void onSuccess(Phase permit) {
+        successes.increment();
+        record(permit, false);
+    }
+
+    void onError(Phase permit, Throwable error) {
+        boolean failure = recordFailure.test(error);
+        (failure ? failures : successes).increment();
+        record(permit, failure);
+    }
+
+    //a cancelled trial call gives its permit back
+    void onCancel(Phase permit) {
+        if (permit.state == State.HALF_OPEN && phase.get() == permit) {
+            permit.permits.incrementAndGet();
+        }
+    }
+
+    private void record(Phase permit, boolean failure) {
+        if (phase.get() != permit) {
+            //the call started before the last transition
+            return;
+        }
+        if (permit.state == State.CLOSED) {
+            long snapshot = permit.window.record(failure);
+            if (OutcomeWindow.calls(snapshot) >= minimumCalls && exceedsThreshold(snapshot)) {
+                phase.compareAndSet(permit, new Phase(State.OPEN, clock.getAsLong(), null, 0));
+            }
+        } else {
+            long snapshot = permit.trials.addAndGet(OutcomeWindow.snapshot(1, failure ? 1 : 0));
+            if (OutcomeWindow.calls(snapshot) == permittedCallsInHalfOpen) {
+                phase.compareAndSet(permit, exceedsThreshold(snapshot)
+                        ? new Phase(State.OPEN, clock.getAsLong(), null, 0)
+                        : closed());
+            }
+        }
+    }
+
+    private boolean exceedsThreshold(long snapshot) {
+        return OutcomeWindow.failures(snapshot) * 100f >= failureRateThreshold * OutcomeWindow.calls(snapshot);
+    }
+
+    private Phase closed() {
+        OutcomeWindow window = bucketNanos > 0
+                ? new TimeWindow(windowSize, bucketNanos, clock)
+                : new CountWindow(windowSize);
+        return new Phase(State.CLOSED, 0, window, 0);
+    }
+
+    static final class Phase {
+
+        final State state;
+        final long openedAt;
+        //CLOSED
+        final OutcomeWindow window;
+        //HALF_OPEN
+        final AtomicInteger permits;
+        final AtomicLong trials;
+
+        Phase(State state, long openedAt, OutcomeWindow window, int permits) {
+            this.state = state;
+            this.openedAt = openedAt;
+            this.window = window;
+            this.permits = state == State.HALF_OPEN ? new AtomicInteger(permits) : null;
+            this.trials = state == State.HALF_OPEN ? new AtomicLong() : null;
+        }
+    }
+
+    public static final class Builder {
+
+        private final String name;
+        private int windowSize = 100;
+        private long bucketNanos;
+        private int minimumCalls = 20;
+        private float failureRateThreshold = 50;
+        private Duration waitInOpen = Duration.ofSeconds(30);
+        private int permittedCallsInHalfOpen = 5;
+        private Predicate<? super Throwable> recordFailure = e -> true;
+        private LongSupplier clock = System::nanoTime;
+        private MeterRegistry registry;
+
+        private Builder(String name) {
+            this.name = Objects.requireNonNull(name, "name");
+        }
+
+        //the outcomes of the last calls, 100 by default
+        public Builder countWindow(int calls) {
+            if (calls < 1) {
+                throw new IllegalArgumentException("calls must be positive, was " + calls);
+            }
+            this.windowSize = calls;
+            this.bucketNanos = 0;
+            return this;
+        }
+
+        //the outcomes of the last duration, kept in buckets of duration / buckets
+        public Builder timeWindow(Duration duration, int buckets) {
+            if (buckets < 1 || duration.toNanos() < buckets) {
+                throw new IllegalArgumentException("expected buckets >= 1 and a duration of at least 1ns per bucket, was " + duration + ", " + buckets);
+            }
+            this.windowSize = buckets;
+            this.bucketNanos = duration.toNanos() / buckets;
+            return this;
+        }
+
+        //calls in the window before the failure rate is considered, 20 by default
+        public Builder minimumCalls(int minimumCalls) {
+            if (minimumCalls < 1) {
+                throw new IllegalArgumentException("minimumCalls must be positive, was " + minimumCalls);
+            }
+            this.minimumCalls = minimumCalls;
+            return this;
+        }
+
+        //in percent, 50 by default
+        public Builder failureRateThreshold(float percent) {
+            if (!(percent > 0 && percent <= 100)) {
+                throw new IllegalArgumentException("percent must be in (0, 100], was " + percent);
+            }
+            this.failureRateThreshold = percent;
+            return this;
+        }
+
+        public Builder waitInOpen(Duration waitInOpen) {
+            if (waitInOpen.isNegative()) {
+                throw new IllegalArgumentException("waitInOpen must not be negative, was " + waitInOpen);
+            }
+            this.waitInOpen = waitInOpen;
+            return this;
+        }
+
+        public Builder permittedCallsInHalfOpen(int calls) {
+            if (calls < 1) {
+                throw new IllegalArgumentException("calls must be positive, was " + calls);
+            }
+            this.permittedCallsInHalfOpen = calls;
+            return this;
+        }
+
+        //errors counted as failures, the others count as successes
+        public Builder recordFailure(Predicate<? super Throwable> recordFailure) {
+            this.recordFailure = Objects.requireNonNull(recordFailure, "recordFailure");
+            return this;
+        }
+
+        public Builder metrics(MeterRegistry registry) {
+            this.registry = Objects.requireNonNull(registry, "registry");
+            return this;
+        }
+
+        Builder clock(LongSupplier clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public CircuitBreaker build() {
+            return new CircuitBreaker(this);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.workafterworks.reactorexample.circuit;
+
+import com.workafterworks.reactorexample.subscriber.NonFusingSubscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Operators;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/*
+ * Reports the outcome of one permitted call to its CircuitBreaker, at most once. Fusion is refused so that the
+ * termination passes through here.
+ */
+final class CircuitBreakerSubscriber<T> extends NonFusingSubscriber<T> {
+
+    private final CircuitBreaker breaker;
+    private final CircuitBreaker.Phase permit;
+
+    private Subscription s;
+
+    private volatile int done;
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<CircuitBreakerSubscriber> DONE =
+            AtomicIntegerFieldUpdater.newUpdater(CircuitBreakerSubscriber.class, "done");
+
+    CircuitBreakerSubscriber(CoreSubscriber<? super T> actual, CircuitBreaker breaker, CircuitBreaker.Phase permit) {
+        super(actual);
+        this.breaker = breaker;
+        this.permit = permit;
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+        if (Operators.validate(this.s, s)) {
+            this.s = s;
+            actual.onSubscribe(this);
+        }
+    }
+
+    @Override
+    public void onNext(T value) {
+        actual.onNext(value);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        if (DONE.compareAndSet(this, 0, 1)) {
+            breaker.onError(permit, t);
+        }
+        actual.onError(t);
+    }
+
+    @Override
+    public void onComplete() {
+        if (DONE.compareAndSet(this, 0, 1)) {
+            breaker.onSuccess(permit);
+        }
+        actual.onComplete();
+    }
+
+    @Override
+    public void request(long n) {
+        s.request(n);
+    }
+
+    @Override
+    public void cancel() {
+        if (DONE.compareAndSet(this, 0, 1)) {
+            breaker.onCancel(permit);
+        }
+        s.cancel();
+    }
+}
@@ -0,0 +1,29 @@
+package com.workafterworks.reactorexample.circuit;
+
+import com.workafterworks.reactorexample.error.StacklessException;
+
+/*
+ * A call rejected by an open (or saturated half-open) CircuitBreaker, without subscribing to the source.
+ * One singleton per breaker, sent through signal().
+ */
+public class CircuitOpenException extends StacklessException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CircuitOpenException(String message) {
+        super(message, null, false);
+    }
+
+    private CircuitOpenException(String message, boolean singleton) {
+        super(message, null, singleton);
+    }
+
+    static CircuitOpenException forBreaker(String name) {
+        return new CircuitOpenException("CircuitBreaker '" + name + "' does not permit calls", true);
+    }
+
+    @Override
+    protected StacklessException copy() {
+        return new CircuitOpenException(getMessage());
+    }
+}
@@ -0,0 +1,38 @@
+package com.workafterworks.reactorexample.circuit;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * The last size outcomes, in a ring.
+ *
+ * A record claims the next slot with getAndIncrement, swaps its outcome in with getAndSet and applies the
+ * difference to the packed totals with one getAndAdd: three atomic instructions, no lock, no loop. Two records
+ * racing for the same slot (more than size calls in flight) each see the other's outcome as the evicted one, so the
+ * totals stay exact.
+ */
+final class CountWindow implements OutcomeWindow {
+
+    private static final int EMPTY = 0;
+    private static final int SUCCESS = 1;
+    private static final int FAILURE = 2;
+
+    private final AtomicIntegerArray ring;
+    private final int size;
+    private final AtomicLong cursor = new AtomicLong();
+    private final AtomicLong totals = new AtomicLong();
+
+    CountWindow(int size) {
+        this.ring = new AtomicIntegerArray(size);
+        this.size = size;
+    }
+
+    @Override
+    public long record(boolean failure) {
+        int slot = (int) (cursor.getAndIncrement() % size);
+        int evicted = ring.getAndSet(slot, failure ? FAILURE : SUCCESS);
+        long calls = evicted == EMPTY ? 1 : 0;
+        long failures = (failure ? 1 : 0) - (evicted == FAILURE ? 1 : 0);
+        return totals.addAndGet(OutcomeWindow.snapshot(calls, failures));
+    }
+}
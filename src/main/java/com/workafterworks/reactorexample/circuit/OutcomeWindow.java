@@ -0,0 +1,25 @@
+package com.workafterworks.reactorexample.circuit;
+
+/*
+ * Sliding window of call outcomes.
+ *
+ * record returns a snapshot of the window including the recorded outcome, packed in one long as
+ * calls << 32 + failures so that both counts come from the same atomic update. Under concurrent records the
+ * failures half may transiently be one below zero, failures() reads it as a signed int and calls() compensates.
+ */
+interface OutcomeWindow {
+
+    long record(boolean failure);
+
+    static long snapshot(long calls, long failures) {
+        return (calls << 32) + failures;
+    }
+
+    static long calls(long snapshot) {
+        return (snapshot - (int) snapshot) >> 32;
+    }
+
+    static int failures(long snapshot) {
+        return Math.max((int) snapshot, 0);
+    }
+}
@@ -0,0 +1,70 @@
+package com.workafterworks.reactorexample.circuit;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/*
+ * The outcomes of the last buckets * bucketNanos, in a ring of buckets.
+ *
+ * Each bucket is one long: the low 16 bits of its epoch (clock / bucketNanos), 24 bits of calls and 24 bits of
+ * failures. A record is a CAS loop on its bucket that either increments the counts or, when the bucket still holds
+ * an older epoch, restarts it at the current one: rotation needs no lock and no timer. The snapshot sums the
+ * buckets whose tag matches an epoch of the window, stale ones are skipped without being reset.
+ * Counts saturate at 2^24 - 1 calls per bucket.
+ */
+final class TimeWindow implements OutcomeWindow {
+
+    private static final long COUNT_MASK = (1L << 24) - 1;
+    private static final long TAG_MASK = (1L << 16) - 1;
+
+    private final AtomicLongArray buckets;
+    private final long bucketNanos;
+    private final LongSupplier clock;
+    private final long origin;
+
+    TimeWindow(int buckets, long bucketNanos, LongSupplier clock) {
+        this.buckets = new AtomicLongArray(buckets);
+        this.bucketNanos = bucketNanos;
+        this.clock = clock;
+        this.origin = clock.getAsLong();
+    }
+
+    @Override
+    public long record(boolean failure) {
+        long epoch = (clock.getAsLong() - origin) / bucketNanos;
+        int slot = (int) (epoch % buckets.length());
+        long tag = epoch & TAG_MASK;
+        for (; ; ) {
+            long current = buckets.get(slot);
+            long next;
+            if (current >>> 48 != tag) {
+                next = pack(tag, 1, failure ? 1 : 0);
+            } else {
+                long calls = Math.min((current >>> 24 & COUNT_MASK) + 1, COUNT_MASK);
+                long failures = Math.min((current & COUNT_MASK) + (failure ? 1 : 0), calls);
+                next = pack(tag, calls, failures);
+            }
+            if (buckets.compareAndSet(slot, current, next)) {
+                break;
+            }
+        }
+        return snapshot(epoch);
+    }
+
+    private long snapshot(long epoch) {
+        long calls = 0;
+        long failures = 0;
+        for (long e = Math.max(epoch - buckets.length() + 1, 0); e <= epoch; e++) {
+            long bucket = buckets.get((int) (e % buckets.length()));
+            if (bucket >>> 48 == (e & TAG_MASK)) {
+                calls += bucket >>> 24 & COUNT_MASK;
+                failures += bucket & COUNT_MASK;
+            }
+        }
+        return OutcomeWindow.snapshot(calls, failures);
+    }
+
+    private static long pack(long tag, long calls, long failures) {
+        return tag << 48 | calls << 24 | failures;
+    }
+}
@@ -0,0 +1,155 @@
+package com.workafterworks.reactorexample.coalesce;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/*
+ * Coalesces concurrent lookups of the same key into one upstream subscription.
+ *
+ * singleFlight.get(name, key -> Mono.just(key).map(String::toUpperCase))
+ *
+ * The first subscriber for a key subscribes to the loader's Mono, every subscriber arriving while it is in flight
+ * gets the same value, empty completion or error. Nothing is cached: once the flight terminates the key is removed
+ * and the next lookup loads again. When every subscriber of a flight cancels, the upstream is cancelled too.
+ *
+ * The in-flight map is a ConcurrentHashMap: lookups of a key already in flight are lock-free reads plus a CAS on the
+ * flight's subscriber count, only starting and ending a flight write to the map.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public SingleFlight() {
+    }
+
+    //registers reactor.singleflight.loads, reactor.singleflight.coalesced and reactor.singleflight.coalesce.ratio tagged name=<name>
+    public static <K, V> SingleFlight<K, V> metered(String name, MeterRegistry registry) {
+        SingleFlight<K, V> singleFlight = new SingleFlight<>();
+        singleFlight.register(name, registry);
+        return singleFlight;
+    }
+
+    //after construction: the ratio gauge holds on to this
+    private void register(String name, MeterRegistry registry) {
+        FunctionCounter.builder("reactor.singleflight.loads", loads, LongAdder::doubleValue)
+                .description("lookups that subscribed to the loader")
+                .tag("name", name)
+                .register(registry);
+        FunctionCounter.builder("reactor.singleflight.coalesced", coalesced, LongAdder::doubleValue)
+                .description("lookups that joined a load already in flight")
+                .tag("name", name)
+                .register(registry);
+        Gauge.builder("reactor.singleflight.coalesce.ratio", this, SingleFlight::coalesceRatio)
+                .description("share of lookups served by a load already in flight")
+                .tag("name", name)
+                .register(registry);
+    }
+
+    public Mono<V> get(K key, Function<? super K, ? extends Mono<? extends V>> loader) {
+        return Mono.defer(() -> {
+            for (; ; ) {
+                Flight<V> flight = inFlight.get(key);
+                if (flight == null) {
+                    Flight<V> created = new Flight<>();
+                    flight = inFlight.putIfAbsent(key, created);
+                    if (flight == null) {
+                        loads.increment();
+                        //deferred: a loader that throws or returns null fails this flight instead of leaving it in the map
+                        created.start(key, Mono.defer(() -> loader.apply(key)), inFlight);
+                        return created.subscriberMono();
+                    }
+                }
+                if (flight.tryJoin()) {
+                    coalesced.increment();
+                    return flight.subscriberMono();
+                }
+                //every subscriber of that flight cancelled and it is shutting down, start a new one
+                inFlight.remove(key, flight);
+            }
+        });
+    }
+
+    public long loads() {
+        return loads.sum();
+    }
+
+    public long coalesced() {
+        return coalesced.sum();
+    }
+
+    public double coalesceRatio() {
+        long coalescedCount = coalesced.sum();
+        long total = coalescedCount + loads.sum();
+        return total == 0 ? 0 : (double) coalescedCount / total;
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    static final class Flight<V> {
+
+        final Sinks.One<V> result = Sinks.one();
+
+        //subscribers waiting for the result, -1 once abandoned
+        final AtomicInteger subscribers = new AtomicInteger(1);
+
+        volatile Disposable upstream;
+        volatile Runnable remove;
+
+        <K> void start(K key, Mono<? extends V> source, ConcurrentMap<K, Flight<V>> inFlight) {
+            remove = () -> inFlight.remove(key, this);
+            upstream = source.subscribe(
+                    value -> {
+                        remove.run();
+                        result.tryEmitValue(value);
+                    },
+                    error -> {
+                        remove.run();
+                        result.tryEmitError(error);
+                    },
+                    () -> {
+                        remove.run();
+                        result.tryEmitEmpty();
+                    });
+        }
+
+        boolean tryJoin() {
+            for (; ; ) {
+                int current = subscribers.get();
+                if (current < 0) {
+                    return false;
+                }
+                if (subscribers.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        Mono<V> subscriberMono() {
+            return result.asMono().doOnCancel(this::leave);
+        }
+
+        private void leave() {
+            if (subscribers.decrementAndGet() == 0 && subscribers.compareAndSet(0, -1)) {
+                remove.run();
+                Disposable source = upstream;
+                if (source != null) {
+                    source.dispose();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.workafterworks.reactorexample.error;
+
+/*
+ * An element did not pass the check of StacklessErrors.failWhen.
+ */
+public class PredicateFailedException extends StacklessException {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final PredicateFailedException SINGLETON = new PredicateFailedException("Element rejected by predicate", true);
+
+    public PredicateFailedException(String message) {
+        super(message, null, false);
+    }
+
+    private PredicateFailedException(String message, boolean singleton) {
+        super(message, null, singleton);
+    }
+
+    @Override
+    protected StacklessException copy() {
+        return new PredicateFailedException(getMessage());
+    }
+}
@@ -0,0 +1,58 @@
+package com.workafterworks.reactorexample.error;
+
+import reactor.core.publisher.SynchronousSink;
+
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/*
+ * Cheap error signals for expected failures (validation, bounds, control flow).
+ *
+ * Filling in the stack trace is most of the cost of new RuntimeException(...), and for an expected failure
+ * the trace only points at Reactor internals anyway. The exceptions of this package skip it:
+ * - StacklessException: base type, can be shared as a singleton (no stack, no suppressed, fixed cause)
+ * - PredicateFailedException: element rejected by failWhen
+ * - StacklessIndexOutOfBoundsException: for code that has to keep signalling IndexOutOfBoundsException
+ *
+ * Verbose mode (-Dreactorexample.errors.verbose=true or setVerbose(true)) restores full stack traces
+ * and gives every failure its own instance, for debugging.
+ *
+ * Flux.range(1, 5).handle(StacklessErrors.failWhen(number -> number == 4, PredicateFailedException.SINGLETON))
+ */
+public final class StacklessErrors {
+
+    private static volatile boolean verbose = Boolean.getBoolean("reactorexample.errors.verbose");
+
+    private StacklessErrors() {
+    }
+
+    public static boolean isVerbose() {
+        return verbose;
+    }
+
+    public static void setVerbose(boolean verbose) {
+        StacklessErrors.verbose = verbose;
+    }
+
+    //for handle(...): elements matching the predicate terminate the sequence with the given (usually singleton) error
+    public static <T> BiConsumer<T, SynchronousSink<T>> failWhen(Predicate<? super T> predicate, StacklessException error) {
+        Objects.requireNonNull(error, "error");
+        return failWhen(predicate, value -> error.signal());
+    }
+
+    //for handle(...): elements matching the predicate terminate the sequence with the error created for them
+    public static <T> BiConsumer<T, SynchronousSink<T>> failWhen(Predicate<? super T> predicate,
+                                                                Function<? super T, ? extends Throwable> error) {
+        Objects.requireNonNull(predicate, "predicate");
+        Objects.requireNonNull(error, "error");
+        return (value, sink) -> {
+            if (predicate.test(value)) {
+                sink.error(error.apply(value));
+            } else {
+                sink.next(value);
+            }
+        };
+    }
+}
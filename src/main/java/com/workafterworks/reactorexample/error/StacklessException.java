@@ -0,0 +1,49 @@
+package com.workafterworks.reactorexample.error;
+
+/*
+ * RuntimeException without stack trace and without suppressed exceptions.
+ *
+ * Nothing about an instance can change after construction, so one instance can be signalled by every failing
+ * subscription: StacklessException.singleton("...") or a constant like PredicateFailedException.SINGLETON.
+ * Send singletons through signal(): in verbose mode it returns a fresh instance with a stack trace.
+ */
+public class StacklessException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean singleton;
+
+    public StacklessException(String message) {
+        this(message, null, false);
+    }
+
+    public StacklessException(String message, Throwable cause) {
+        this(message, cause, false);
+    }
+
+    protected StacklessException(String message, Throwable cause, boolean singleton) {
+        super(message, cause, false, !singleton && StacklessErrors.isVerbose());
+        this.singleton = singleton;
+    }
+
+    public static StacklessException singleton(String message) {
+        return new StacklessException(message, null, true);
+    }
+
+    public boolean isSingleton() {
+        return singleton;
+    }
+
+    //the instance to signal: itself, or in verbose mode a copy of a singleton that records where it failed
+    public StacklessException signal() {
+        if (singleton && StacklessErrors.isVerbose()) {
+            return copy();
+        }
+        return this;
+    }
+
+    //subclasses with a singleton override this to keep their type in verbose mode
+    protected StacklessException copy() {
+        return new StacklessException(getMessage(), getCause(), false);
+    }
+}
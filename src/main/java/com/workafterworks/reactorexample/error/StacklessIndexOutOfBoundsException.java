@@ -0,0 +1,20 @@
+package com.workafterworks.reactorexample.error;
+
+/*
+ * IndexOutOfBoundsException without stack trace, for pipelines like fluxSubscriberError whose callers
+ * expect that type. IndexOutOfBoundsException has no constructor to disable suppression, so it is not
+ * meant to be shared: create one per failure, it is still only an allocation.
+ */
+public class StacklessIndexOutOfBoundsException extends IndexOutOfBoundsException {
+
+    private static final long serialVersionUID = 1L;
+
+    public StacklessIndexOutOfBoundsException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return StacklessErrors.isVerbose() ? super.fillInStackTrace() : this;
+    }
+}
@@ -0,0 +1,469 @@
+package com.workafterworks.reactorexample.eventlog;
+
+import com.workafterworks.reactorexample.spill.SpillSerializer;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.reactivestreams.Publisher;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/*
+ * A durable, replayable stream in a local directory: an append-only log of segment files.
+ *
+ * EventLog<Integer> log = EventLog.builder(directory, SpillSerializer.ints())
+ *         .groupCommit(1000, Duration.ofMillis(20))
+ *         .retainSegments(8)
+ *         .open();
+ * Mono<Long> next = log.append(ExamplePipelines.numbers(1_000_000));
+ * Flux<Integer> replayed = log.replay(0);
+ *
+ * Every record gets the next offset (0, 1, 2...). Records are written to a memory-mapped segment (see Segment for the
+ * format), a new segment is started when the current one is full and the full one is sealed: flushed, with its
+ * sparse index written next to it.
+ *
+ * Group commit: the pages are forced to disk once per flushEvery records, every flushInterval and when an append
+ * completes, not once per record. Readers only see records up to durableOffset(), what a crash would keep.
+ * append completes with the offset after its last record once that record is durable.
+ *
+ * Reads are driven by request(n): a replay decodes a record per requested element, starting at the closest sparse
+ * index entry of the segment holding the offset, and completes at the durable end it reaches. Records are checked
+ * against their crc again when read.
+ *
+ * Retention applies to sealed segments when a segment is sealed (and on enforceRetention): the oldest ones are
+ * deleted while there are more than retainSegments, they take more than retainBytes, or they were sealed longer than
+ * retainFor ago. A replay from before startOffset() starts at startOffset().
+ *
+ * open recovers the directory: the last segment is scanned up to its first record that fails the crc check,
+ * anything after it (a write torn by a crash) is cleared and appends continue from there.
+ *
+ * Appends and reads run on the scheduler (boundedElastic by default), never on the subscribing thread: page faults
+ * and fsync block. Concurrent appends each keep their own order but interleave with each other.
+ *
+ * With a MeterRegistry, tagged name=<name>: reactor.log.appended, reactor.log.fsync (Timer), reactor.log.segments and
+ * reactor.log.bytes (segment files on disk).
+ */
+public final class EventLog<T> implements Disposable {
+
+    private final Path directory;
+    private final SpillSerializer<T> serializer;
+    private final int segmentBytes;
+    private final int indexIntervalBytes;
+    private final int flushEvery;
+    private final int retainSegments;
+    private final long retainBytes;
+    private final long retainForMillis;
+    private final Scheduler scheduler;
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final Object appendLock = new Object();
+    private final Object flushLock = new Object();
+    private final AtomicLong appended = new AtomicLong();
+    private final Disposable flusher;
+    private final Timer fsyncTime;
+
+    //guarded by appendLock
+    private Segment active;
+    private long nextOffset;
+    private int unflushed;
+    //guarded by flushLock
+    private Segment forcedSegment;
+    private int forcedPosition;
+    private volatile long durableOffset;
+    private volatile boolean disposed;
+
+    private EventLog(Builder<T> builder) {
+        this.directory = builder.directory;
+        this.serializer = builder.serializer;
+        this.segmentBytes = builder.segmentBytes;
+        this.indexIntervalBytes = builder.indexIntervalBytes;
+        this.flushEvery = builder.flushEvery;
+        this.retainSegments = builder.retainSegments;
+        this.retainBytes = builder.retainBytes;
+        this.retainForMillis = builder.retainFor == null ? Long.MAX_VALUE : builder.retainFor.toMillis();
+        this.scheduler = builder.scheduler;
+        recover();
+        this.flusher = builder.flushInterval == null ? Disposables.never() : scheduler.schedulePeriodically(this::commit,
+                builder.flushInterval.toNanos(), builder.flushInterval.toNanos(), TimeUnit.NANOSECONDS);
+        if (builder.registry != null) {
+            FunctionCounter.builder("reactor.log.appended", appended, AtomicLong::get)
+                    .description("records appended")
+                    .tag("name", builder.name)
+                    .register(builder.registry);
+            Gauge.builder("reactor.log.segments", segments, Map::size)
+                    .description("segment files")
+                    .tag("name", builder.name)
+                    .register(builder.registry);
+            Gauge.builder("reactor.log.bytes", this, EventLog::bytes)
+                    .description("size of the segment files")
+                    .tag("name", builder.name)
+                    .register(builder.registry);
+            this.fsyncTime = Timer.builder("reactor.log.fsync")
+                    .description("time to force the appended records to disk, one per group commit")
+                    .tag("name", builder.name)
+                    .register(builder.registry);
+        } else {
+            this.fsyncTime = null;
+        }
+    }
+
+    public static <T> Builder<T> builder(Path directory, SpillSerializer<T> serializer) {
+        return new Builder<>(directory, serializer);
+    }
+
+    //the offset after the last record of source, once it is durable
+    public Mono<Long> append(Publisher<? extends T> source) {
+        return Flux.from(source)
+                .publishOn(scheduler)
+                .doOnNext(this::appendRecord)
+                .then(Mono.fromCallable(this::commit))
+                .subscribeOn(scheduler);
+    }
+
+    public Flux<T> replay(long fromOffset) {
+        return read(fromOffset).map(LogRecord::value);
+    }
+
+    public Flux<LogRecord<T>> read(long fromOffset) {
+        if (fromOffset < 0) {
+            return Flux.error(new IllegalArgumentException("offset must not be negative, was " + fromOffset));
+        }
+        return Flux.<LogRecord<T>, Cursor>generate(() -> new Cursor(fromOffset), (cursor, sink) -> {
+            LogRecord<T> record = cursor.next();
+            if (record != null) {
+                sink.next(record);
+            } else {
+                sink.complete();
+            }
+            return cursor;
+        }).subscribeOn(scheduler);
+    }
+
+    //offset of the oldest record kept
+    public long startOffset() {
+        return segments.firstKey();
+    }
+
+    //offset the next appended record gets
+    public long nextOffset() {
+        synchronized (appendLock) {
+            return nextOffset;
+        }
+    }
+
+    //records before this offset are on disk and visible to readers
+    public long durableOffset() {
+        return durableOffset;
+    }
+
+    public int segments() {
+        return segments.size();
+    }
+
+    long bytes() {
+        long bytes = 0;
+        for (Segment segment : segments.values()) {
+            bytes += segment.capacity;
+        }
+        return bytes;
+    }
+
+    private void appendRecord(T value) {
+        boolean flush;
+        synchronized (appendLock) {
+            if (disposed) {
+                throw new IllegalStateException("EventLog of " + directory + " is disposed");
+            }
+            int size = serializer.sizeOf(value);
+            if (Segment.HEADER_BYTES + size > segmentBytes) {
+                throw new IllegalArgumentException("Record of " + (Segment.HEADER_BYTES + size) + " bytes does not fit a segment of " + segmentBytes);
+            }
+            if (!active.fits(size)) {
+                roll();
+            }
+            ByteBuffer payload = active.startRecord(size);
+            serializer.write(value, payload);
+            active.finishRecord(nextOffset, size);
+            nextOffset++;
+            appended.incrementAndGet();
+            flush = ++unflushed >= flushEvery;
+        }
+        if (flush) {
+            commit();
+        }
+    }
+
+    //guarded by appendLock
+    private void roll() {
+        active.seal(nextOffset);
+        active = Segment.create(directory, nextOffset, segmentBytes, indexIntervalBytes);
+        segments.put(active.baseOffset, active);
+        enforceRetention();
+    }
+
+    //group commit: forces what was appended so far, appenders arriving during a force share the next one
+    long commit() {
+        synchronized (flushLock) {
+            Segment segment;
+            int position;
+            long offset;
+            synchronized (appendLock) {
+                segment = active;
+                position = segment.writePosition;
+                offset = nextOffset;
+                unflushed = 0;
+            }
+            if (offset > durableOffset) {
+                long start = System.nanoTime();
+                //a segment sealed since the last force was flushed by seal
+                segment.force(segment == forcedSegment ? forcedPosition : 0, position);
+                if (fsyncTime != null) {
+                    fsyncTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+                forcedSegment = segment;
+                forcedPosition = position;
+                durableOffset = offset;
+            }
+            return offset;
+        }
+    }
+
+    //deletes the oldest sealed segments past the retention limits
+    public void enforceRetention() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Long, Segment> oldest = segments.firstEntry(); oldest != null; oldest = segments.firstEntry()) {
+            Segment segment = oldest.getValue();
+            if (segment.endOffset == Long.MAX_VALUE) {
+                return;
+            }
+            boolean expired = segments.size() > retainSegments
+                    || bytes() > retainBytes
+                    || now - segment.sealedAtMillis > retainForMillis;
+            if (!expired || !segments.remove(oldest.getKey(), segment)) {
+                return;
+            }
+            segment.delete();
+        }
+    }
+
+    private void recover() {
+        List<Path> files;
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> listed = Files.list(directory)) {
+                files = listed.filter(Segment::isSegmentFile).sorted().collect(Collectors.toList());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        for (Path file : files) {
+            Segment segment = Segment.open(file, indexIntervalBytes);
+            segments.put(segment.baseOffset, segment);
+        }
+        Segment previous = null;
+        for (Segment segment : segments.values()) {
+            if (previous != null) {
+                previous.loadIndex(segment.baseOffset);
+            }
+            previous = segment;
+        }
+        if (previous == null) {
+            active = Segment.create(directory, 0, segmentBytes, indexIntervalBytes);
+            segments.put(0L, active);
+            nextOffset = 0;
+        } else {
+            active = previous;
+            nextOffset = active.recover();
+        }
+        durableOffset = nextOffset;
+        forcedSegment = active;
+        forcedPosition = active.writePosition;
+    }
+
+    //stops the periodic flush after a last group commit, appends fail from now on
+    @Override
+    public void dispose() {
+        if (disposed) {
+            return;
+        }
+        flusher.dispose();
+        commit();
+        disposed = true;
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return disposed;
+    }
+
+    //the read position of one replay, confined to its generate loop
+    private final class Cursor {
+
+        private final CRC32C crc = new CRC32C();
+        //records before it are skipped: the durable end may pass it between the seek and the first read
+        private final long fromOffset;
+        private Segment segment;
+        private ByteBuffer view;
+        private int position;
+        private long offset;
+
+        Cursor(long fromOffset) {
+            Map.Entry<Long, Segment> entry = segments.floorEntry(fromOffset);
+            if (entry == null) {
+                entry = segments.firstEntry();
+            }
+            this.fromOffset = fromOffset;
+            seek(entry.getValue(), fromOffset);
+        }
+
+        //to the closest indexed record at or before target, next() scans forward from there
+        private void seek(Segment target, long targetOffset) {
+            segment = target;
+            view = target.readView();
+            long entry = target.floorEntry(targetOffset);
+            offset = target.baseOffset + (entry >>> 32);
+            position = (int) entry;
+        }
+
+        LogRecord<T> next() {
+            for (;;) {
+                if (offset >= durableOffset) {
+                    return null;
+                }
+                if (offset >= segment.endOffset) {
+                    //sealed: carry on with the next segment, or the oldest one left if retention deleted it
+                    Map.Entry<Long, Segment> following = segments.ceilingEntry(segment.endOffset);
+                    if (following == null) {
+                        return null;
+                    }
+                    seek(following.getValue(), Math.max(fromOffset, following.getKey()));
+                    continue;
+                }
+                int length = checked();
+                int payload = position + Segment.HEADER_BYTES;
+                long recordOffset = offset;
+                position = payload + length;
+                offset++;
+                if (recordOffset >= fromOffset) {
+                    view.limit(payload + length).position(payload);
+                    return new LogRecord<>(recordOffset, serializer.read(view));
+                }
+            }
+        }
+
+        private int checked() {
+            int length = Segment.checkRecord(view, position, crc);
+            if (length < 0) {
+                throw new IllegalStateException("Corrupt record at offset " + offset + " of " + segment.file);
+            }
+            return length;
+        }
+    }
+
+    public static final class Builder<T> {
+
+        private final Path directory;
+        private final SpillSerializer<T> serializer;
+        private int segmentBytes = 16 * 1024 * 1024;
+        private int indexIntervalBytes = 4096;
+        private int flushEvery = 1000;
+        private Duration flushInterval = Duration.ofMillis(50);
+        private int retainSegments = Integer.MAX_VALUE;
+        private long retainBytes = Long.MAX_VALUE;
+        private Duration retainFor;
+        private Scheduler scheduler = Schedulers.boundedElastic();
+        private String name;
+        private MeterRegistry registry;
+
+        private Builder(Path directory, SpillSerializer<T> serializer) {
+            this.directory = Objects.requireNonNull(directory, "directory");
+            this.serializer = Objects.requireNonNull(serializer, "serializer");
+        }
+
+        //size of a segment file, 16MB by default
+        public Builder<T> segmentBytes(int segmentBytes) {
+            if (segmentBytes <= Segment.HEADER_BYTES) {
+                throw new IllegalArgumentException("segmentBytes must exceed the record header, was " + segmentBytes);
+            }
+            this.segmentBytes = segmentBytes;
+            return this;
+        }
+
+        //bytes between two entries of the sparse index, 4KB by default
+        public Builder<T> indexIntervalBytes(int indexIntervalBytes) {
+            if (indexIntervalBytes < 1) {
+                throw new IllegalArgumentException("indexIntervalBytes must be positive, was " + indexIntervalBytes);
+            }
+            this.indexIntervalBytes = indexIntervalBytes;
+            return this;
+        }
+
+        //fsync once per flushEvery records and every flushInterval (null for none), 1000 and 50ms by default
+        public Builder<T> groupCommit(int flushEvery, Duration flushInterval) {
+            if (flushEvery < 1) {
+                throw new IllegalArgumentException("flushEvery must be positive, was " + flushEvery);
+            }
+            if (flushInterval != null && (flushInterval.isNegative() || flushInterval.isZero())) {
+                throw new IllegalArgumentException("flushInterval must be positive, was " + flushInterval);
+            }
+            this.flushEvery = flushEvery;
+            this.flushInterval = flushInterval;
+            return this;
+        }
+
+        //the active segment included
+        public Builder<T> retainSegments(int retainSegments) {
+            if (retainSegments < 1) {
+                throw new IllegalArgumentException("retainSegments must be at least 1, was " + retainSegments);
+            }
+            this.retainSegments = retainSegments;
+            return this;
+        }
+
+        public Builder<T> retainBytes(long retainBytes) {
+            this.retainBytes = retainBytes;
+            return this;
+        }
+
+        public Builder<T> retainFor(Duration retainFor) {
+            this.retainFor = Objects.requireNonNull(retainFor, "retainFor");
+            return this;
+        }
+
+        public Builder<T> scheduler(Scheduler scheduler) {
+            this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+            return this;
+        }
+
+        public Builder<T> metrics(String name, MeterRegistry registry) {
+            this.name = Objects.requireNonNull(name, "name");
+            this.registry = Objects.requireNonNull(registry, "registry");
+            return this;
+        }
+
+        //recovers the segments already in the directory
+        public EventLog<T> open() {
+            return new EventLog<>(this);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.workafterworks.reactorexample.eventlog;
+
+/*
+ * A value read back from an EventLog with its offset, the position to replay from after it is offset + 1.
+ */
+public final class LogRecord<T> {
+
+    private final long offset;
+    private final T value;
+
+    LogRecord(long offset, T value) {
+        this.offset = offset;
+        this.value = value;
+    }
+
+    public long offset() {
+        return offset;
+    }
+
+    public T value() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "LogRecord{offset=" + offset + ", value=" + value + '}';
+    }
+}
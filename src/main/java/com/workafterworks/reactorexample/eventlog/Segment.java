@@ -0,0 +1,270 @@
+package com.workafterworks.reactorexample.eventlog;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/*
+ * One file of the log: <baseOffset>.log, memory-mapped at its full size, holding the records from baseOffset on.
+ *
+ * A record is [int length][int crc][length bytes], the crc is a CRC32C of the length and the payload. The file is
+ * preallocated with zeros and a zero header never passes the crc check, so the end of the records is the first
+ * header that does not check out, which is also where a write torn by a crash stops the recovery.
+ *
+ * The sparse index maps every record that starts indexIntervalBytes after the previously indexed one to its position,
+ * it is kept in memory and written to <baseOffset>.index when the segment is sealed. A lookup starts at the closest
+ * indexed record before the offset and scans forward.
+ *
+ * Only the appending thread writes; readers see the records below the offset the log publishes as durable.
+ */
+final class Segment {
+
+    static final int HEADER_BYTES = 2 * Integer.BYTES;
+
+    final long baseOffset;
+    final Path file;
+    final Path indexFile;
+    final int capacity;
+    private final MappedByteBuffer buffer;
+    private final int indexIntervalBytes;
+    //the writer's view, positioned for bulk puts and crc updates
+    private final ByteBuffer writeView;
+    private final CRC32C writeCrc = new CRC32C();
+
+    //entries are relativeOffset << 32 | position, published by indexSize after the array
+    private volatile long[] index;
+    private volatile int indexSize;
+    private int lastIndexedPosition = -1;
+
+    volatile int writePosition;
+    //offset after the last record, Long.MAX_VALUE until sealed
+    volatile long endOffset = Long.MAX_VALUE;
+    volatile long sealedAtMillis;
+
+    private Segment(long baseOffset, Path file, Path indexFile, MappedByteBuffer buffer, int indexIntervalBytes) {
+        this.baseOffset = baseOffset;
+        this.file = file;
+        this.indexFile = indexFile;
+        this.buffer = buffer;
+        this.capacity = buffer.capacity();
+        this.indexIntervalBytes = indexIntervalBytes;
+        this.writeView = buffer.duplicate();
+        this.index = new long[16];
+    }
+
+    static Segment create(Path directory, long baseOffset, int capacity, int indexIntervalBytes) {
+        Path file = directory.resolve(fileName(baseOffset, ".log"));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            //the mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            return new Segment(baseOffset, file, directory.resolve(fileName(baseOffset, ".index")), buffer, indexIntervalBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //maps an existing file; recover or loadIndex must follow
+    static Segment open(Path file, int indexIntervalBytes) {
+        String name = file.getFileName().toString();
+        long baseOffset = Long.parseLong(name.substring(0, name.length() - ".log".length()));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            Segment segment = new Segment(baseOffset, file, file.resolveSibling(fileName(baseOffset, ".index")), buffer, indexIntervalBytes);
+            segment.sealedAtMillis = Files.getLastModifiedTime(file).toMillis();
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String fileName(long baseOffset, String suffix) {
+        return String.format("%020d%s", baseOffset, suffix);
+    }
+
+    static boolean isSegmentFile(Path file) {
+        return file.getFileName().toString().matches("\\d{20}\\.log");
+    }
+
+    boolean fits(int payloadBytes) {
+        return capacity - writePosition >= HEADER_BYTES + payloadBytes;
+    }
+
+    //the view to serialize the payload into, positioned after the header and limited to the payload
+    ByteBuffer startRecord(int payloadBytes) {
+        int start = writePosition;
+        writeView.limit(start + HEADER_BYTES + payloadBytes).position(start + HEADER_BYTES);
+        return writeView;
+    }
+
+    //checksums the payload serialized into startRecord's view and publishes the record
+    void finishRecord(long offset, int payloadBytes) {
+        int start = writePosition;
+        int end = start + HEADER_BYTES + payloadBytes;
+        if (writeView.position() != end) {
+            throw new IllegalStateException("Serializer wrote " + (writeView.position() - start - HEADER_BYTES) + " bytes, sizeOf was " + payloadBytes);
+        }
+        writeView.clear();
+        writeView.putInt(start, payloadBytes);
+        writeView.putInt(start + Integer.BYTES, crc(writeCrc, writeView, start, payloadBytes));
+        if (lastIndexedPosition < 0 || start - lastIndexedPosition >= indexIntervalBytes) {
+            addIndexEntry((int) (offset - baseOffset), start);
+        }
+        writePosition = end;
+    }
+
+    private void addIndexEntry(int relativeOffset, int position) {
+        long[] entries = index;
+        int size = indexSize;
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, size * 2);
+            index = entries;
+        }
+        entries[size] = (long) relativeOffset << 32 | position;
+        indexSize = size + 1;
+        lastIndexedPosition = position;
+    }
+
+    //position of the closest indexed record at or before offset, with its offset in the high half
+    long floorEntry(long offset) {
+        int size = indexSize;
+        long[] entries = index;
+        long relative = offset - baseOffset;
+        int low = 0;
+        int high = size - 1;
+        long found = 0;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long entry = entries[middle];
+            if ((entry >>> 32) <= relative) {
+                found = entry;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    int indexEntries() {
+        return indexSize;
+    }
+
+    //a read-only view for one reader
+    ByteBuffer readView() {
+        return buffer.asReadOnlyBuffer();
+    }
+
+    //payload length of the record at position, -1 when the header or the crc does not check out
+    static int checkRecord(ByteBuffer view, int position, CRC32C crc) {
+        if (view.capacity() - position < HEADER_BYTES) {
+            return -1;
+        }
+        view.clear();
+        int length = view.getInt(position);
+        if (length < 0 || length > view.capacity() - position - HEADER_BYTES) {
+            return -1;
+        }
+        int expected = view.getInt(position + Integer.BYTES);
+        return crc(crc, view, position, length) == expected ? length : -1;
+    }
+
+    private static int crc(CRC32C crc, ByteBuffer view, int start, int payloadBytes) {
+        crc.reset();
+        view.limit(start + Integer.BYTES).position(start);
+        crc.update(view);
+        view.limit(start + HEADER_BYTES + payloadBytes).position(start + HEADER_BYTES);
+        crc.update(view);
+        view.clear();
+        return (int) crc.getValue();
+    }
+
+    //scans the records from the start, rebuilding the index; zeros whatever follows the last valid record
+    long recover() {
+        ByteBuffer view = buffer.duplicate();
+        CRC32C crc = new CRC32C();
+        int position = 0;
+        long offset = baseOffset;
+        int length;
+        while ((length = checkRecord(view, position, crc)) >= 0) {
+            if (lastIndexedPosition < 0 || position - lastIndexedPosition >= indexIntervalBytes) {
+                addIndexEntry((int) (offset - baseOffset), position);
+            }
+            position += HEADER_BYTES + length;
+            offset++;
+        }
+        writePosition = position;
+        //a torn record may have left bytes anywhere past it, only pages holding some are written
+        for (int i = position; i < capacity; i += Long.BYTES) {
+            if (capacity - i >= Long.BYTES ? view.getLong(i) != 0 : view.get(i) != 0) {
+                view.put(i, new byte[Math.min(Long.BYTES, capacity - i)]);
+            }
+        }
+        return offset;
+    }
+
+    //sealed segments have their index on disk, a missing or partial one (crash while sealing) is rebuilt by a scan
+    void loadIndex(long endOffset) {
+        this.endOffset = endOffset;
+        try {
+            if (Files.exists(indexFile)) {
+                ByteBuffer entries = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+                if (entries.remaining() % Long.BYTES == 0 && (entries.remaining() > 0 || endOffset == baseOffset)) {
+                    while (entries.hasRemaining()) {
+                        long entry = entries.getLong();
+                        addIndexEntry((int) (entry >>> 32), (int) entry);
+                    }
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            //rebuilt below
+        }
+        recover();
+    }
+
+    void force(int from, int to) {
+        if (to > from) {
+            buffer.force(from, to - from);
+        }
+    }
+
+    //flushes the records and writes the index, no record is added afterwards
+    void seal(long endOffset) {
+        buffer.force(0, writePosition);
+        int size = indexSize;
+        long[] entries = index;
+        ByteBuffer bytes = ByteBuffer.allocate(size * Long.BYTES);
+        for (int i = 0; i < size; i++) {
+            bytes.putLong(entries[i]);
+        }
+        bytes.flip();
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.sealedAtMillis = System.currentTimeMillis();
+        this.endOffset = endOffset;
+    }
+
+    //the pages are released when the buffer is collected, a reader still on the segment keeps its mapping
+    void delete() {
+        try {
+            Files.deleteIfExists(indexFile);
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            file.toFile().deleteOnExit();
+            indexFile.toFile().deleteOnExit();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.workafterworks.reactorexample.file;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.core.io.buffer.PooledDataBuffer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * fluxSubscriberFomList for data that does not fit the heap: a file streamed as lines or delimited records.
+ *
+ * Flux<String> lines = FileRecords.lines(path);
+ *
+ * The file is read with an AsynchronousFileChannel in chunks of chunkSize bytes (DataBufferUtils.readAsynchronousFileChannel),
+ * by default into pooled Netty buffers that are recycled once every record of a chunk is consumed. The next chunk is
+ * only read when the records of the previous one have been requested, so memory stays at a few chunks no matter the
+ * size of the file, and a subscriber that stops requesting stops the reads.
+ *
+ * records hands out DataBuffers that are slices of the chunks, the subscriber must release each of them
+ * (DataBufferUtils.release). Chunks and records discarded on cancel or error are released by the source.
+ */
+public final class FileRecords {
+
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    public static final int DEFAULT_MAX_RECORD_LENGTH = 1024 * 1024;
+
+    private static final DataBufferFactory POOLED = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+
+    private FileRecords() {
+    }
+
+    public static Flux<String> lines(Path file) {
+        return lines(file, DEFAULT_CHUNK_SIZE);
+    }
+
+    public static Flux<String> lines(Path file, int chunkSize) {
+        return Flux.defer(() -> {
+            RecordSplitter splitter = new RecordSplitter((byte) '\n', DEFAULT_MAX_RECORD_LENGTH);
+            return chunks(file, POOLED, chunkSize)
+                    .flatMapIterable(splitter::lines, 1)
+                    .concatWith(Mono.fromSupplier(splitter::remainingLine));
+        }).doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
+    }
+
+    public static Flux<DataBuffer> records(Path file, byte delimiter) {
+        return records(file, delimiter, POOLED, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_RECORD_LENGTH);
+    }
+
+    //a record longer than maxRecordLength fails the Flux with a DataBufferLimitException
+    public static Flux<DataBuffer> records(Path file, byte delimiter, DataBufferFactory factory, int chunkSize, int maxRecordLength) {
+        return Flux.defer(() -> {
+            RecordSplitter splitter = new RecordSplitter(delimiter, maxRecordLength);
+            return chunks(file, factory, chunkSize)
+                    .flatMapIterable(splitter::records, 1)
+                    .concatWith(Mono.fromSupplier(splitter::remainingRecord));
+        }).doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
+    }
+
+    private static Flux<DataBuffer> chunks(Path file, DataBufferFactory factory, int chunkSize) {
+        return DataBufferUtils.readAsynchronousFileChannel(
+                () -> AsynchronousFileChannel.open(file, StandardOpenOption.READ), factory, chunkSize);
+    }
+}
@@ -0,0 +1,125 @@
+package com.workafterworks.reactorexample.file;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/*
+ * Cuts the chunks of one file read into delimited records, one instance per subscription.
+ *
+ * A record that lies within one chunk is handed out as a retained slice of that chunk (records) or decoded straight
+ * from it (lines), its bytes are never copied. Only a record crossing a chunk boundary is copied, into a small heap
+ * carry buffer that collects its parts. Every chunk is released once split: with pooled chunks, a chunk goes back to
+ * the pool when the last record sliced from it is released.
+ *
+ * Chunks arrive one at a time (the read completes before the next one starts), so the carry needs no synchronization.
+ */
+final class RecordSplitter {
+
+    private final IntPredicate delimiter;
+    private final int maxRecordLength;
+    private DataBuffer carry;
+
+    RecordSplitter(byte delimiter, int maxRecordLength) {
+        this.delimiter = b -> b == delimiter;
+        this.maxRecordLength = maxRecordLength;
+    }
+
+    //the records completed by this chunk, each to be released by whoever consumes it
+    List<DataBuffer> records(DataBuffer chunk) {
+        List<DataBuffer> records = new ArrayList<>();
+        try {
+            int position = chunk.readPosition();
+            int end;
+            while ((end = chunk.indexOf(delimiter, position)) != -1) {
+                int length = end - position;
+                if (carry != null) {
+                    records.add(completeCarry(chunk, position, length));
+                } else {
+                    checkLength(length);
+                    records.add(chunk.retainedSlice(position, length));
+                }
+                position = end + 1;
+            }
+            append(chunk, position, chunk.writePosition() - position);
+            return records;
+        } catch (RuntimeException e) {
+            records.forEach(DataBufferUtils::release);
+            throw e;
+        } finally {
+            DataBufferUtils.release(chunk);
+        }
+    }
+
+    //lines decoded as UTF-8, a trailing \r is dropped
+    List<String> lines(DataBuffer chunk) {
+        List<String> lines = new ArrayList<>();
+        try {
+            int position = chunk.readPosition();
+            int end;
+            while ((end = chunk.indexOf(delimiter, position)) != -1) {
+                if (carry != null) {
+                    DataBuffer line = completeCarry(chunk, position, end - position);
+                    lines.add(line(line, line.readPosition(), line.readableByteCount()));
+                } else {
+                    checkLength(end - position);
+                    lines.add(line(chunk, position, end - position));
+                }
+                position = end + 1;
+            }
+            append(chunk, position, chunk.writePosition() - position);
+            return lines;
+        } finally {
+            DataBufferUtils.release(chunk);
+        }
+    }
+
+    //what follows the last delimiter of the file, null if nothing does
+    DataBuffer remainingRecord() {
+        DataBuffer last = carry;
+        carry = null;
+        return last;
+    }
+
+    String remainingLine() {
+        DataBuffer last = remainingRecord();
+        return last == null ? null : line(last, last.readPosition(), last.readableByteCount());
+    }
+
+    private static String line(DataBuffer buffer, int start, int length) {
+        if (length > 0 && buffer.getByte(start + length - 1) == '\r') {
+            length--;
+        }
+        return buffer.toString(start, length, StandardCharsets.UTF_8);
+    }
+
+    private DataBuffer completeCarry(DataBuffer chunk, int position, int length) {
+        append(chunk, position, length);
+        DataBuffer record = carry;
+        carry = null;
+        return record;
+    }
+
+    private void append(DataBuffer chunk, int position, int length) {
+        if (length == 0) {
+            return;
+        }
+        if (carry == null) {
+            carry = DefaultDataBufferFactory.sharedInstance.allocateBuffer(Math.max(length, 256));
+        }
+        checkLength(carry.readableByteCount() + length);
+        carry.write(chunk.slice(position, length));
+    }
+
+    private void checkLength(int length) {
+        if (length > maxRecordLength) {
+            throw new DataBufferLimitException("Record longer than " + maxRecordLength + " bytes");
+        }
+    }
+}
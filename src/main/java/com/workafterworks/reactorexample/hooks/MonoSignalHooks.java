@@ -0,0 +1,146 @@
+package com.workafterworks.reactorexample.hooks;
+
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoOperator;
+import reactor.core.publisher.Operators;
+import reactor.util.context.Context;
+
+/*
+ * SignalHooks on any Mono: one subscriber runs every callback.
+ */
+final class MonoSignalHooks<T> extends MonoOperator<T, T> {
+
+    final SignalHooks<T> hooks;
+
+    MonoSignalHooks(Mono<? extends T> source, SignalHooks<T> hooks) {
+        super(source);
+        this.hooks = hooks;
+    }
+
+    @Override
+    public void subscribe(CoreSubscriber<? super T> actual) {
+        source.subscribe(new HooksSubscriber<>(actual, hooks));
+    }
+
+    Mono<? extends T> source() {
+        return source;
+    }
+
+    static final class HooksSubscriber<T> implements CoreSubscriber<T>, Subscription {
+
+        final CoreSubscriber<? super T> actual;
+        final SignalHooks<T> hooks;
+
+        Subscription s;
+        boolean valued;
+        boolean done;
+
+        HooksSubscriber(CoreSubscriber<? super T> actual, SignalHooks<T> hooks) {
+            this.actual = actual;
+            this.hooks = hooks;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (!Operators.validate(this.s, s)) {
+                return;
+            }
+            this.s = s;
+            if (hooks.onSubscribe != null) {
+                try {
+                    hooks.onSubscribe.accept(s);
+                } catch (Throwable e) {
+                    Operators.error(actual, Operators.onOperatorError(s, e, actual.currentContext()));
+                    done = true;
+                    return;
+                }
+            }
+            actual.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(T value) {
+            if (done) {
+                Operators.onNextDropped(value, actual.currentContext());
+                return;
+            }
+            valued = true;
+            try {
+                if (hooks.onValue != null) {
+                    hooks.onValue.accept(value);
+                }
+            } catch (Throwable e) {
+                onError(Operators.onOperatorError(s, e, value, actual.currentContext()));
+                return;
+            }
+            actual.onNext(value);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                Operators.onErrorDropped(t, actual.currentContext());
+                return;
+            }
+            done = true;
+            if (hooks.onError != null) {
+                try {
+                    hooks.onError.accept(t);
+                } catch (Throwable e) {
+                    t = Exceptions.addSuppressed(Operators.onOperatorError(e, actual.currentContext()), t);
+                }
+            }
+            actual.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            try {
+                Runnable onComplete = valued ? hooks.onComplete : hooks.onEmpty;
+                if (onComplete != null) {
+                    onComplete.run();
+                }
+            } catch (Throwable e) {
+                onError(Operators.onOperatorError(e, actual.currentContext()));
+                return;
+            }
+            done = true;
+            actual.onComplete();
+        }
+
+        @Override
+        public void request(long n) {
+            if (hooks.onRequest != null) {
+                try {
+                    hooks.onRequest.accept(n);
+                } catch (Throwable e) {
+                    Operators.onOperatorError(e, actual.currentContext());
+                }
+            }
+            s.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            if (hooks.onCancel != null) {
+                try {
+                    hooks.onCancel.run();
+                } catch (Throwable e) {
+                    Operators.onOperatorError(e, actual.currentContext());
+                }
+            }
+            s.cancel();
+        }
+
+        @Override
+        public Context currentContext() {
+            return actual.currentContext();
+        }
+    }
+}
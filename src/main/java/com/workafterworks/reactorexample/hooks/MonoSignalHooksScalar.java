@@ -0,0 +1,145 @@
+package com.workafterworks.reactorexample.hooks;
+
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.Exceptions;
+import reactor.core.Fuseable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Operators;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/*
+ * SignalHooks macro-fused with Mono.just: the value is read from the scalar source when requested and emitted
+ * directly, so a subscription costs one object instead of the source subscription plus a subscriber per doOn*.
+ */
+final class MonoSignalHooksScalar<T> extends Mono<T> {
+
+    final Fuseable.ScalarCallable<T> source;
+    final SignalHooks<T> hooks;
+
+    MonoSignalHooksScalar(Fuseable.ScalarCallable<T> source, SignalHooks<T> hooks) {
+        this.source = source;
+        this.hooks = hooks;
+    }
+
+    @Override
+    public void subscribe(CoreSubscriber<? super T> actual) {
+        ScalarHooksSubscription<T> subscription = new ScalarHooksSubscription<>(actual, source, hooks);
+        if (hooks.onSubscribe != null) {
+            try {
+                hooks.onSubscribe.accept(subscription);
+            } catch (Throwable e) {
+                Operators.error(actual, Operators.onOperatorError(e, actual.currentContext()));
+                return;
+            }
+        }
+        actual.onSubscribe(subscription);
+    }
+
+    static final class ScalarHooksSubscription<T> implements Subscription {
+
+        final CoreSubscriber<? super T> actual;
+        final Fuseable.ScalarCallable<T> source;
+        final SignalHooks<T> hooks;
+
+        volatile int state;
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<ScalarHooksSubscription> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(ScalarHooksSubscription.class, "state");
+        static final int ACTIVE = 0;
+        static final int REQUESTED = 1;
+        //the value went downstream, a cancel after it has nothing left to cancel
+        static final int DELIVERED = 2;
+        //onComplete or onError went downstream
+        static final int TERMINATED = 3;
+        static final int CANCELLED = 4;
+
+        ScalarHooksSubscription(CoreSubscriber<? super T> actual, Fuseable.ScalarCallable<T> source, SignalHooks<T> hooks) {
+            this.actual = actual;
+            this.source = source;
+            this.hooks = hooks;
+        }
+
+        @Override
+        public void request(long n) {
+            if (!Operators.validate(n)) {
+                return;
+            }
+            if (hooks.onRequest != null) {
+                try {
+                    hooks.onRequest.accept(n);
+                } catch (Throwable e) {
+                    Operators.onOperatorError(e, actual.currentContext());
+                }
+            }
+            if (STATE.compareAndSet(this, ACTIVE, REQUESTED)) {
+                emit();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            int previous = STATE.getAndSet(this, CANCELLED);
+            if ((previous == ACTIVE || previous == REQUESTED) && hooks.onCancel != null) {
+                try {
+                    hooks.onCancel.run();
+                } catch (Throwable e) {
+                    Operators.onOperatorError(e, actual.currentContext());
+                }
+            }
+        }
+
+        private void emit() {
+            T value;
+            try {
+                value = source.call();
+                if (value != null && hooks.onValue != null) {
+                    hooks.onValue.accept(value);
+                }
+            } catch (Throwable e) {
+                error(REQUESTED, Operators.onOperatorError(e, actual.currentContext()));
+                return;
+            }
+            int delivered = REQUESTED;
+            if (value != null) {
+                if (!STATE.compareAndSet(this, REQUESTED, DELIVERED)) {
+                    return;
+                }
+                delivered = DELIVERED;
+                actual.onNext(value);
+                if (state == CANCELLED) {
+                    return;
+                }
+            }
+            try {
+                Runnable onComplete = value == null ? hooks.onEmpty : hooks.onComplete;
+                if (onComplete != null) {
+                    onComplete.run();
+                }
+            } catch (Throwable e) {
+                error(delivered, Operators.onOperatorError(e, actual.currentContext()));
+                return;
+            }
+            if (STATE.compareAndSet(this, delivered, TERMINATED)) {
+                actual.onComplete();
+            }
+        }
+
+        //like doOnError: after a cancel the error is dropped and the hook does not run
+        private void error(int expected, Throwable t) {
+            if (!STATE.compareAndSet(this, expected, TERMINATED)) {
+                Operators.onErrorDropped(t, actual.currentContext());
+                return;
+            }
+            if (hooks.onError != null) {
+                try {
+                    hooks.onError.accept(t);
+                } catch (Throwable e) {
+                    t = Exceptions.addSuppressed(Operators.onOperatorError(e, actual.currentContext()), t);
+                }
+            }
+            actual.onError(t);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.workafterworks.reactorexample.hooks;
+
+import org.reactivestreams.Subscription;
+import reactor.core.Fuseable;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/*
+ * The callbacks of a doOnSubscribe/doOnRequest/doOnNext/doOnSuccess/doOnError/doOnCancel stack, installed as one operator.
+ *
+ * Mono<String> mono = Mono.just(name).transform(SignalHooks.<String>builder()
+ *         .onSubscribe(subscription -> ...)
+ *         .onRequest(n -> ...)
+ *         .onNext(value -> ...)
+ *         .build()::apply);
+ *
+ * Callbacks run in the same order as the equivalent doOn* stack and get the signal's own arguments, nothing is allocated
+ * per signal. A callback that throws turns into onError downstream, like it does for doOn*.
+ *
+ * Macro fusion at assembly time:
+ * - hooks applied on top of hooks become a single operator
+ * - hooks applied on Mono.just (or any other scalar source) emit the value themselves, no subscriber is installed at all
+ */
+public final class SignalHooks<T> {
+
+    final Consumer<? super Subscription> onSubscribe;
+    final LongConsumer onRequest;
+    //onNext then onSuccess of each layer, a layer sees the value before the layers applied on top of it
+    final Consumer<? super T> onValue;
+    //onSuccess(null) then onComplete of each layer, for a Mono that completes empty
+    final Runnable onEmpty;
+    final Consumer<? super Throwable> onError;
+    final Runnable onComplete;
+    final Runnable onCancel;
+
+    private SignalHooks(Builder<T> builder) {
+        Consumer<? super T> onSuccess = builder.onSuccess;
+        this.onSubscribe = builder.onSubscribe;
+        this.onRequest = builder.onRequest;
+        this.onValue = both(builder.onNext, onSuccess);
+        this.onEmpty = both(onSuccess == null ? null : () -> onSuccess.accept(null), builder.onComplete);
+        this.onError = builder.onError;
+        this.onComplete = builder.onComplete;
+        this.onCancel = builder.onCancel;
+    }
+
+    /*
+     * inner is applied first (closer to the source). Signals travelling downstream reach inner's callbacks first,
+     * request and cancel travel upstream and reach outer's callbacks first.
+     */
+    private SignalHooks(SignalHooks<T> inner, SignalHooks<T> outer) {
+        this.onSubscribe = both(inner.onSubscribe, outer.onSubscribe);
+        this.onRequest = inner.onRequest == null ? outer.onRequest
+                : outer.onRequest == null ? inner.onRequest
+                : n -> {
+            outer.onRequest.accept(n);
+            inner.onRequest.accept(n);
+        };
+        this.onValue = both(inner.onValue, outer.onValue);
+        this.onEmpty = both(inner.onEmpty, outer.onEmpty);
+        this.onError = both(inner.onError, outer.onError);
+        this.onComplete = both(inner.onComplete, outer.onComplete);
+        this.onCancel = both(outer.onCancel, inner.onCancel);
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    @SuppressWarnings("unchecked")
+    public Mono<T> apply(Mono<T> source) {
+        if (source instanceof MonoSignalHooks) {
+            MonoSignalHooks<T> upstream = (MonoSignalHooks<T>) source;
+            return new MonoSignalHooks<>(upstream.source(), fuse(upstream.hooks, this));
+        }
+        if (source instanceof MonoSignalHooksScalar) {
+            MonoSignalHooksScalar<T> upstream = (MonoSignalHooksScalar<T>) source;
+            return new MonoSignalHooksScalar<>(upstream.source, fuse(upstream.hooks, this));
+        }
+        if (source instanceof Fuseable.ScalarCallable) {
+            return new MonoSignalHooksScalar<>((Fuseable.ScalarCallable<T>) source, this);
+        }
+        return new MonoSignalHooks<>(source, this);
+    }
+
+    static <T> SignalHooks<T> fuse(SignalHooks<T> inner, SignalHooks<T> outer) {
+        return new SignalHooks<>(inner, outer);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Consumer<V> both(Consumer<? super V> first, Consumer<? super V> second) {
+        if (first == null) {
+            return (Consumer<V>) second;
+        }
+        if (second == null) {
+            return (Consumer<V>) first;
+        }
+        return value -> {
+            first.accept(value);
+            second.accept(value);
+        };
+    }
+
+    private static Runnable both(Runnable first, Runnable second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        return () -> {
+            first.run();
+            second.run();
+        };
+    }
+
+    public static final class Builder<T> {
+
+        private Consumer<? super Subscription> onSubscribe;
+        private LongConsumer onRequest;
+        private Consumer<? super T> onNext;
+        private Consumer<? super T> onSuccess;
+        private Consumer<? super Throwable> onError;
+        private Runnable onComplete;
+        private Runnable onCancel;
+
+        private Builder() {
+        }
+
+        public Builder<T> onSubscribe(Consumer<? super Subscription> onSubscribe) {
+            this.onSubscribe = both(this.onSubscribe, onSubscribe);
+            return this;
+        }
+
+        public Builder<T> onRequest(LongConsumer onRequest) {
+            this.onRequest = this.onRequest == null ? onRequest : this.onRequest.andThen(onRequest);
+            return this;
+        }
+
+        public Builder<T> onNext(Consumer<? super T> onNext) {
+            this.onNext = both(this.onNext, onNext);
+            return this;
+        }
+
+        //like doOnSuccess: the value, or null when the Mono completes empty
+        public Builder<T> onSuccess(Consumer<? super T> onSuccess) {
+            this.onSuccess = both(this.onSuccess, onSuccess);
+            return this;
+        }
+
+        public Builder<T> onError(Consumer<? super Throwable> onError) {
+            this.onError = both(this.onError, onError);
+            return this;
+        }
+
+        public Builder<T> onComplete(Runnable onComplete) {
+            this.onComplete = both(this.onComplete, onComplete);
+            return this;
+        }
+
+        public Builder<T> onCancel(Runnable onCancel) {
+            this.onCancel = both(this.onCancel, onCancel);
+            return this;
+        }
+
+        public SignalHooks<T> build() {
+            return new SignalHooks<>(this);
+        }
+    }
+}
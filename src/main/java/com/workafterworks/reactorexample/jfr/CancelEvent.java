@@ -0,0 +1,26 @@
+package com.workafterworks.reactorexample.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("reactor.Cancel")
+@Label("Cancel")
+@Category({"Reactor", "Signals"})
+@Description("The subscriber of a pipeline cancelled")
+@StackTrace(false)
+final class CancelEvent extends Event {
+
+    @Label("Pipeline")
+    String pipeline;
+
+    @Label("Subscription")
+    long subscription;
+
+    @Label("Delivered")
+    @Description("Elements delivered before the cancel, approximate when it comes from another thread")
+    long delivered;
+}
@@ -0,0 +1,25 @@
+package com.workafterworks.reactorexample.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("reactor.Complete")
+@Label("Complete")
+@Category({"Reactor", "Signals"})
+@Description("A pipeline completed")
+@StackTrace(false)
+final class CompleteEvent extends Event {
+
+    @Label("Pipeline")
+    String pipeline;
+
+    @Label("Subscription")
+    long subscription;
+
+    @Label("Delivered")
+    long delivered;
+}
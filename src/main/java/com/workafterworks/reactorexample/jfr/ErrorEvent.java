@@ -0,0 +1,31 @@
+package com.workafterworks.reactorexample.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("reactor.Error")
+@Label("Error")
+@Category({"Reactor", "Signals"})
+@Description("A pipeline failed")
+@StackTrace(false)
+final class ErrorEvent extends Event {
+
+    @Label("Pipeline")
+    String pipeline;
+
+    @Label("Subscription")
+    long subscription;
+
+    @Label("Delivered")
+    long delivered;
+
+    @Label("Exception Class")
+    Class<?> exceptionClass;
+
+    @Label("Message")
+    String message;
+}
@@ -0,0 +1,94 @@
+package com.workafterworks.reactorexample.jfr;
+
+import jdk.jfr.EventType;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Operators;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/*
+ * JDK Flight Recorder events for the signals of named pipelines, to line reactive stalls up with GC pauses and
+ * safepoints in JMC instead of reading .log() output:
+ *
+ * Flux.range(1, 1000).transform(JfrSignals.record("streams.numbers"))
+ *
+ * Events (category Reactor/Signals), each with the pipeline name and a subscription id:
+ * reactor.Subscribe, reactor.Request, reactor.OnNextBatch (one per batchSize elements, spanning them),
+ * reactor.Complete, reactor.Error, reactor.Cancel and reactor.SchedulerHop (elements start arriving on another thread).
+ * recordScheduledTasks() adds reactor.ScheduledTask for every task run by a Reactor Scheduler.
+ *
+ * The events carry no stack trace and the per element cost is a counter and a thread comparison, so they can stay
+ * enabled at the default JFR settings. When no recording runs, committing an event is a no-op the JIT removes.
+ */
+public final class JfrSignals {
+
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private static final String SCHEDULE_HOOK_KEY = "jfrSignals";
+    private static final AtomicLong SUBSCRIPTIONS = new AtomicLong();
+
+    private JfrSignals() {
+    }
+
+    public static <T> Function<Publisher<T>, Publisher<T>> record(String pipeline) {
+        return record(pipeline, DEFAULT_BATCH_SIZE);
+    }
+
+    public static <T> Function<Publisher<T>, Publisher<T>> record(String pipeline, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive, was " + batchSize);
+        }
+        Function<? super Publisher<T>, ? extends Publisher<T>> lift = Operators.lift((scannable, actual) ->
+                new JfrSubscriber<>(actual, pipeline, SUBSCRIPTIONS.incrementAndGet(), batchSize));
+        return lift::apply;
+    }
+
+    //wraps every task given to a Reactor Scheduler from now on, global like all Schedulers hooks
+    public static void recordScheduledTasks() {
+        Schedulers.onScheduleHook(SCHEDULE_HOOK_KEY, task -> new RecordedTask(task, Thread.currentThread()));
+    }
+
+    public static void stopRecordingScheduledTasks() {
+        Schedulers.resetOnScheduleHook(SCHEDULE_HOOK_KEY);
+    }
+
+    /*
+     * The queue time is known for the first run only: a periodic task is wrapped once and its later runs are due a
+     * period after the previous one, which the hook does not see. They report 0.
+     */
+    private static final class RecordedTask implements Runnable {
+
+        private static final EventType TYPE = EventType.getEventType(ScheduledTaskEvent.class);
+
+        private final Runnable task;
+        private final Thread scheduledBy;
+        //runs of a periodic task never overlap and each one happens-before the next
+        private long scheduledAt = System.nanoTime();
+
+        RecordedTask(Runnable task, Thread scheduledBy) {
+            this.task = task;
+            this.scheduledBy = scheduledBy;
+        }
+
+        @Override
+        public void run() {
+            long queuedSince = scheduledAt;
+            scheduledAt = 0;
+            if (!TYPE.isEnabled()) {
+                task.run();
+                return;
+            }
+            ScheduledTaskEvent event = new ScheduledTaskEvent();
+            event.begin();
+            event.queued = queuedSince == 0 ? 0 : System.nanoTime() - queuedSince;
+            event.scheduledBy = scheduledBy;
+            try {
+                task.run();
+            } finally {
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.workafterworks.reactorexample.jfr;
+
+import jdk.jfr.EventType;
+import com.workafterworks.reactorexample.subscriber.NonFusingSubscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Operators;
+
+/*
+ * Commits the JFR events of one subscription.
+ *
+ * onNext batches and scheduler hops are tracked on the thread delivering onNext, request and cancel may come from
+ * any thread and only commit their own event.
+ */
+final class JfrSubscriber<T> extends NonFusingSubscriber<T> {
+
+    private static final EventType BATCH = EventType.getEventType(OnNextBatchEvent.class);
+
+    private final String pipeline;
+    private final long id;
+    private final int batchSize;
+
+    private Subscription s;
+    private Thread lastThread;
+    private OnNextBatchEvent batch;
+    private int inBatch;
+    private long delivered;
+    private boolean done;
+
+    JfrSubscriber(CoreSubscriber<? super T> actual, String pipeline, long id, int batchSize) {
+        super(actual);
+        this.pipeline = pipeline;
+        this.id = id;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+        if (Operators.validate(this.s, s)) {
+            this.s = s;
+            lastThread = Thread.currentThread();
+            SubscribeEvent event = new SubscribeEvent();
+            if (event.isEnabled()) {
+                event.pipeline = pipeline;
+                event.subscription = id;
+                event.commit();
+            }
+            actual.onSubscribe(this);
+        }
+    }
+
+    @Override
+    public void onNext(T value) {
+        Thread thread = Thread.currentThread();
+        if (thread != lastThread) {
+            hop(thread);
+        }
+        //no event allocated when no recording wants it, the elements are still counted to keep the batches aligned
+        if (inBatch == 0 && BATCH.isEnabled()) {
+            batch = new OnNextBatchEvent();
+            batch.begin();
+        }
+        delivered++;
+        if (++inBatch == batchSize) {
+            flushBatch();
+        }
+        actual.onNext(value);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        if (!done) {
+            done = true;
+            flushBatch();
+            ErrorEvent event = new ErrorEvent();
+            if (event.isEnabled()) {
+                event.pipeline = pipeline;
+                event.subscription = id;
+                event.delivered = delivered;
+                event.exceptionClass = t.getClass();
+                event.message = t.getMessage();
+                event.commit();
+            }
+        }
+        actual.onError(t);
+    }
+
+    @Override
+    public void onComplete() {
+        if (!done) {
+            done = true;
+            flushBatch();
+            CompleteEvent event = new CompleteEvent();
+            if (event.isEnabled()) {
+                event.pipeline = pipeline;
+                event.subscription = id;
+                event.delivered = delivered;
+                event.commit();
+            }
+        }
+        actual.onComplete();
+    }
+
+    @Override
+    public void request(long n) {
+        RequestEvent event = new RequestEvent();
+        if (event.isEnabled()) {
+            event.pipeline = pipeline;
+            event.subscription = id;
+            event.requested = n;
+            event.commit();
+        }
+        s.request(n);
+    }
+
+    //the batch in progress is not committed, it belongs to the thread delivering onNext
+    @Override
+    public void cancel() {
+        CancelEvent event = new CancelEvent();
+        if (event.isEnabled()) {
+            event.pipeline = pipeline;
+            event.subscription = id;
+            event.delivered = delivered;
+            event.commit();
+        }
+        s.cancel();
+    }
+
+    private void hop(Thread thread) {
+        SchedulerHopEvent event = new SchedulerHopEvent();
+        if (event.isEnabled()) {
+            event.pipeline = pipeline;
+            event.subscription = id;
+            event.fromThread = lastThread;
+            event.commit();
+        }
+        lastThread = thread;
+    }
+
+    private void flushBatch() {
+        if (inBatch == 0) {
+            return;
+        }
+        OnNextBatchEvent event = batch;
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.pipeline = pipeline;
+                event.subscription = id;
+                event.elements = inBatch;
+                event.commit();
+            }
+        }
+        batch = null;
+        inBatch = 0;
+    }
+}
@@ -0,0 +1,25 @@
+package com.workafterworks.reactorexample.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("reactor.OnNextBatch")
+@Label("onNext Batch")
+@Category({"Reactor", "Signals"})
+@Description("Elements delivered by a pipeline, one event per batch from the first element to the last")
+@StackTrace(false)
+final class OnNextBatchEvent extends Event {
+
+    @Label("Pipeline")
+    String pipeline;
+
+    @Label("Subscription")
+    long subscription;
+
+    @Label("Elements")
+    int elements;
+}
@@ -0,0 +1,26 @@
+package com.workafterworks.reactorexample.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("reactor.Request")
+@Label("Request")
+@Category({"Reactor", "Signals"})
+@Description("request(n) from the subscriber of a pipeline")
+@StackTrace(false)
+final class RequestEvent extends Event {
+
+    @Label("Pipeline")
+    String pipeline;
+
+    @Label("Subscription")
+    long subscription;
+
+    @Label("Requested")
+    @Description("Long.MAX_VALUE for unbounded")
+    long requested;
+}
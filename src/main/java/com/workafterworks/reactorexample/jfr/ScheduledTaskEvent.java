@@ -0,0 +1,25 @@
+package com.workafterworks.reactorexample.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("reactor.ScheduledTask")
+@Label("Scheduled Task")
+@Category({"Reactor", "Schedulers"})
+@Description("A task run by a Reactor Scheduler, from its start to its end")
+@StackTrace(false)
+final class ScheduledTaskEvent extends Event {
+
+    @Label("Queued")
+    @Description("Time from being scheduled to starting, includes the delay of delayed tasks. 0 for the later runs of a periodic task")
+    @Timespan(Timespan.NANOSECONDS)
+    long queued;
+
+    @Label("Scheduled By")
+    Thread scheduledBy;
+}
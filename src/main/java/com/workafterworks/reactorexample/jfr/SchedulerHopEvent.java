@@ -0,0 +1,25 @@
+package com.workafterworks.reactorexample.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("reactor.SchedulerHop")
+@Label("Scheduler Hop")
+@Category({"Reactor", "Signals"})
+@Description("Elements of a pipeline started arriving on another thread, the event thread")
+@StackTrace(false)
+final class SchedulerHopEvent extends Event {
+
+    @Label("Pipeline")
+    String pipeline;
+
+    @Label("Subscription")
+    long subscription;
+
+    @Label("From Thread")
+    Thread fromThread;
+}
@@ -0,0 +1,22 @@
+package com.workafterworks.reactorexample.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("reactor.Subscribe")
+@Label("Subscribe")
+@Category({"Reactor", "Signals"})
+@Description("A subscriber subscribed to a pipeline")
+@StackTrace(false)
+final class SubscribeEvent extends Event {
+
+    @Label("Pipeline")
+    String pipeline;
+
+    @Label("Subscription")
+    long subscription;
+}
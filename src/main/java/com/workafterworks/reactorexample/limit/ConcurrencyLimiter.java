@@ -0,0 +1,153 @@
+package com.workafterworks.reactorexample.limit;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/*
+ * Bounds the calls in flight to a GradientLimit that follows the latency and the errors of the calls:
+ *
+ * ConcurrencyLimiter limiter = new ConcurrencyLimiter(GradientLimit.builder().limits(1, 256).build());
+ * ids.transform(limiter.flatMap(id -> inventoryClient.get(id)))
+ *
+ * flatMap keeps up to maxLimit inner publishers, but only subscribes to as many as the limit currently allows, the
+ * others wait for a permit in FIFO order. A call completing releases its permit with its latency as a sample, an
+ * error releases it as dropped, a cancellation without a sample.
+ *
+ * tryAcquire is for callers that shed load instead of waiting, like ConcurrencyLimitFilter.
+ *
+ * The in-flight count is a CAS loop against limit(), callers waiting for a permit queue in a PermitQueue.
+ *
+ * With a MeterRegistry: reactor.limit.limit and reactor.limit.inflight gauges and the reactor.limit.rejected counter
+ * (tryAcquire refusals), tagged name=<name>.
+ */
+public final class ConcurrencyLimiter {
+
+    private final GradientLimit limit;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final PermitQueue<Permit> permits = new PermitQueue<>(Permit.class, this::grant, Permit::ignore);
+    private final LongAdder rejected = new LongAdder();
+
+    public ConcurrencyLimiter(GradientLimit limit) {
+        this.limit = Objects.requireNonNull(limit, "limit");
+    }
+
+    public ConcurrencyLimiter(GradientLimit limit, String name, MeterRegistry registry) {
+        this(limit);
+        Gauge.builder("reactor.limit.limit", limit, GradientLimit::limit)
+                .description("current concurrency limit")
+                .tag("name", name)
+                .register(registry);
+        Gauge.builder("reactor.limit.inflight", inflight, AtomicInteger::get)
+                .description("calls holding a permit")
+                .tag("name", name)
+                .register(registry);
+        FunctionCounter.builder("reactor.limit.rejected", rejected, LongAdder::doubleValue)
+                .description("calls refused by tryAcquire")
+                .tag("name", name)
+                .register(registry);
+    }
+
+    public int limit() {
+        return limit.limit();
+    }
+
+    public int inflight() {
+        return inflight.get();
+    }
+
+    //a permit, or null when the limit is reached
+    public Permit tryAcquire() {
+        Permit permit = grant();
+        if (permit == null) {
+            rejected.increment();
+        }
+        return permit;
+    }
+
+    //a permit once one is free, waiters are served in order; one granted while the subscriber cancels is released
+    public Mono<Permit> acquire() {
+        return permits.acquire();
+    }
+
+    //flatMap whose concurrency follows the limit, each inner publisher is one call
+    public <T, R> Function<Flux<T>, Flux<R>> flatMap(Function<? super T, ? extends Publisher<? extends R>> mapper) {
+        Objects.requireNonNull(mapper, "mapper");
+        //released before the signal goes on: flatMap cancels its inner publishers when one of them fails
+        return source -> source.flatMap(value -> acquire().flatMapMany(permit -> Flux.<R>defer(() -> Flux.from(mapper.apply(value)))
+                .doOnComplete(permit::success)
+                .doOnError(error -> permit.dropped())
+                .doOnCancel(permit::ignore)), limit.maxLimit());
+    }
+
+    private Permit grant() {
+        for (; ; ) {
+            int current = inflight.get();
+            if (current >= limit.limit()) {
+                return null;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return new Permit(current + 1);
+            }
+        }
+    }
+
+    public final class Permit {
+
+        private final long startedAt = System.nanoTime();
+        private final int inflightAtStart;
+
+        //-1 while the clock runs
+        private volatile long latency = -1;
+        private volatile int released;
+        private static final AtomicIntegerFieldUpdater<Permit> RELEASED =
+                AtomicIntegerFieldUpdater.newUpdater(Permit.class, "released");
+
+        Permit(int inflightAtStart) {
+            this.inflightAtStart = inflightAtStart;
+        }
+
+        //the latency of the sample ends here, the permit is held until it is released
+        public void stopClock() {
+            if (latency < 0) {
+                latency = System.nanoTime() - startedAt;
+            }
+        }
+
+        //the call succeeded, its latency is a sample
+        public void success() {
+            release(false, true);
+        }
+
+        //the call failed or timed out, the limit backs off
+        public void dropped() {
+            release(true, true);
+        }
+
+        //the call did not finish (cancelled), no sample
+        public void ignore() {
+            release(false, false);
+        }
+
+        private void release(boolean dropped, boolean sample) {
+            if (!RELEASED.compareAndSet(this, 0, 1)) {
+                return;
+            }
+            if (sample) {
+                long stopped = latency;
+                limit.onSample(stopped < 0 ? System.nanoTime() - startedAt : stopped, inflightAtStart, dropped);
+            }
+            inflight.decrementAndGet();
+            permits.drain();
+        }
+    }
+}
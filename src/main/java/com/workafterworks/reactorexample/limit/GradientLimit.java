@@ -0,0 +1,153 @@
+package com.workafterworks.reactorexample.limit;
+
+/*
+ * Concurrency limit estimated from latency, after Netflix's Gradient2:
+ *
+ * longRtt is an exponential moving average of the samples, the no-queueing baseline. Each sample compares it with
+ * its own rtt: gradient = clamp(tolerance * longRtt / rtt, 0.5, 1). A gradient of 1 means no queueing and the limit
+ * grows by its queue allowance (sqrt(limit)), below 1 the backend is queueing and the limit shrinks with it.
+ * The result is smoothed, and clamped to [minLimit, maxLimit].
+ *
+ * Dropped calls (errors, timeouts) cut the limit by backoffRatio, so a backend failing fast is not mistaken for a
+ * fast one. While fewer than half the permits are in use the limit is left alone: the load, not the backend,
+ * decides the latency then.
+ *
+ * Updates are synchronized, limit() is a volatile read.
+ */
+public final class GradientLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final double rttTolerance;
+    private final double backoffRatio;
+    private final double longRttFactor;
+
+    private double estimated;
+    private double longRtt;
+    private long samples;
+    private volatile int limit;
+
+    private GradientLimit(Builder builder) {
+        this.minLimit = builder.minLimit;
+        this.maxLimit = builder.maxLimit;
+        this.smoothing = builder.smoothing;
+        this.rttTolerance = builder.rttTolerance;
+        this.backoffRatio = builder.backoffRatio;
+        this.longRttFactor = 2.0 / (builder.longWindow + 1);
+        this.estimated = builder.initialLimit;
+        this.limit = builder.initialLimit;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public int maxLimit() {
+        return maxLimit;
+    }
+
+    //one finished call: its round trip time, the calls in flight when it started, whether it was dropped
+    public synchronized void onSample(long rttNanos, int inflight, boolean dropped) {
+        if (dropped) {
+            update(estimated * backoffRatio);
+            return;
+        }
+        if (rttNanos <= 0) {
+            return;
+        }
+        samples++;
+        //plain average while warming up, then exponential
+        longRtt = samples <= 10 ? longRtt + (rttNanos - longRtt) / samples : longRtt + (rttNanos - longRtt) * longRttFactor;
+        //after a latency shift the baseline comes back faster than the average would
+        if (longRtt / rttNanos > 2) {
+            longRtt *= 0.95;
+        }
+        if (inflight < estimated / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRtt / rttNanos));
+        double next = estimated * gradient + Math.sqrt(estimated);
+        update(estimated * (1 - smoothing) + next * smoothing);
+    }
+
+    private void update(double next) {
+        estimated = Math.max(minLimit, Math.min(maxLimit, next));
+        limit = (int) estimated;
+    }
+
+    public static final class Builder {
+
+        private int initialLimit = 20;
+        private int minLimit = 1;
+        private int maxLimit = 1000;
+        private double smoothing = 0.2;
+        private double rttTolerance = 1.5;
+        private double backoffRatio = 0.9;
+        private int longWindow = 600;
+
+        private Builder() {
+        }
+
+        public Builder initialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        public Builder limits(int minLimit, int maxLimit) {
+            if (minLimit < 1 || maxLimit < minLimit) {
+                throw new IllegalArgumentException("expected 1 <= minLimit <= maxLimit, was " + minLimit + ", " + maxLimit);
+            }
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        //weight of a new estimate, 0.2 by default
+        public Builder smoothing(double smoothing) {
+            if (!(smoothing > 0 && smoothing <= 1)) {
+                throw new IllegalArgumentException("smoothing must be in (0, 1], was " + smoothing);
+            }
+            this.smoothing = smoothing;
+            return this;
+        }
+
+        //rtt / longRtt ratio accepted before the limit shrinks, 1.5 by default
+        public Builder rttTolerance(double rttTolerance) {
+            if (!(rttTolerance >= 1)) {
+                throw new IllegalArgumentException("rttTolerance must be at least 1, was " + rttTolerance);
+            }
+            this.rttTolerance = rttTolerance;
+            return this;
+        }
+
+        //limit kept after a dropped call, 0.9 by default
+        public Builder backoffRatio(double backoffRatio) {
+            if (!(backoffRatio >= 0.5 && backoffRatio < 1)) {
+                throw new IllegalArgumentException("backoffRatio must be in [0.5, 1), was " + backoffRatio);
+            }
+            this.backoffRatio = backoffRatio;
+            return this;
+        }
+
+        //samples averaged into longRtt, 600 by default
+        public Builder longWindow(int longWindow) {
+            if (longWindow < 1) {
+                throw new IllegalArgumentException("longWindow must be positive, was " + longWindow);
+            }
+            this.longWindow = longWindow;
+            return this;
+        }
+
+        public GradientLimit build() {
+            if (initialLimit < minLimit || initialLimit > maxLimit) {
+                throw new IllegalArgumentException("initialLimit " + initialLimit + " out of [" + minLimit + ", " + maxLimit + "]");
+            }
+            return new GradientLimit(this);
+        }
+    }
+}
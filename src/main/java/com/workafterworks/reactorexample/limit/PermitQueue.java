@@ -0,0 +1,109 @@
+package com.workafterworks.reactorexample.limit;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/*
+ * FIFO queue of the subscribers waiting for a permit, without holding a thread, for ConcurrencyLimiter and Bulkhead.
+ * The owner counts its permits: tryAcquire takes one or returns null, release gives one back and then calls drain.
+ *
+ * Waiters are a lock-free queue. A waiter enqueues before trying again and a release gives its permit back before
+ * looking at the queue, so one of them always sees the other. A waiter is granted or cancelled exactly once, a permit
+ * granted to a waiter that cancelled meanwhile, or discarded by the subscriber, goes back through release.
+ */
+public final class PermitQueue<P> {
+
+    private final Class<P> type;
+    private final Supplier<P> tryAcquire;
+    private final Consumer<? super P> release;
+    private final int maxWaiting;
+    private final Supplier<? extends Throwable> full;
+    private final Queue<Waiter<P>> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    public PermitQueue(Class<P> type, Supplier<P> tryAcquire, Consumer<? super P> release) {
+        this(type, tryAcquire, release, Integer.MAX_VALUE, () -> new IllegalStateException("PermitQueue is full"));
+    }
+
+    //beyond maxWaiting waiters, acquire fails at once with the error of full
+    public PermitQueue(Class<P> type, Supplier<P> tryAcquire, Consumer<? super P> release,
+                       int maxWaiting, Supplier<? extends Throwable> full) {
+        this.type = Objects.requireNonNull(type, "type");
+        this.tryAcquire = Objects.requireNonNull(tryAcquire, "tryAcquire");
+        this.release = Objects.requireNonNull(release, "release");
+        this.maxWaiting = maxWaiting;
+        this.full = Objects.requireNonNull(full, "full");
+    }
+
+    public int waiting() {
+        return waiting.get();
+    }
+
+    //a permit once one is free, waiters are served in order
+    public Mono<P> acquire() {
+        return Mono.<P>create(sink -> {
+            P permit = tryAcquire.get();
+            if (permit != null) {
+                sink.success(permit);
+                return;
+            }
+            if (waiting.incrementAndGet() > maxWaiting) {
+                waiting.decrementAndGet();
+                sink.error(full.get());
+                return;
+            }
+            Waiter<P> waiter = new Waiter<>(sink);
+            sink.onCancel(() -> {
+                if (waiter.cancel()) {
+                    waiters.remove(waiter);
+                    waiting.decrementAndGet();
+                }
+            });
+            waiters.offer(waiter);
+            drain();
+        }).doOnDiscard(type, release);
+    }
+
+    //hands free permits to the waiters, the owner calls it after each release
+    public void drain() {
+        while (!waiters.isEmpty()) {
+            P permit = tryAcquire.get();
+            if (permit == null) {
+                return;
+            }
+            Waiter<P> waiter = waiters.poll();
+            if (waiter == null || !waiter.grant()) {
+                release.accept(permit);
+                continue;
+            }
+            waiting.decrementAndGet();
+            waiter.sink.success(permit);
+        }
+    }
+
+    static final class Waiter<P> {
+
+        final MonoSink<P> sink;
+        //0 waiting, 1 granted, 2 cancelled
+        private final AtomicInteger state = new AtomicInteger();
+
+        Waiter(MonoSink<P> sink) {
+            this.sink = sink;
+        }
+
+        boolean grant() {
+            return state.compareAndSet(0, 1);
+        }
+
+        boolean cancel() {
+            return state.compareAndSet(0, 2);
+        }
+    }
+}
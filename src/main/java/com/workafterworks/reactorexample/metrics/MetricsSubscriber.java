@@ -0,0 +1,139 @@
+package com.workafterworks.reactorexample.metrics;
+
+import com.workafterworks.reactorexample.subscriber.NonFusingSubscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Operators;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/*
+ * Counts one subscription locally and publishes to the shared PipelineMetrics.Meters in batches.
+ *
+ * cancel may come from another thread than onNext. The elements emitted so far are a counter with a single writer
+ * (the onNext thread), any thread can publish what it has seen of it: a CAS on the published mark counts every
+ * element exactly once. The terminal signal that wins the done CAS is the only one counted.
+ */
+final class MetricsSubscriber<T> extends NonFusingSubscriber<T> {
+
+    private final PipelineMetrics.Meters meters;
+
+    private Subscription s;
+    private long firstOnNextAt;
+    private long nextFlushAt = PipelineMetrics.FLUSH_EVERY;
+
+    //a volatile store per element: with a lazySet the read of done after it could see a cancel too late
+    private volatile long emitted;
+
+    private volatile long published;
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<MetricsSubscriber> PUBLISHED =
+            AtomicLongFieldUpdater.newUpdater(MetricsSubscriber.class, "published");
+
+    private volatile int done;
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<MetricsSubscriber> DONE =
+            AtomicIntegerFieldUpdater.newUpdater(MetricsSubscriber.class, "done");
+
+    //request(n) may come from any thread, concurrently with onNext
+    private volatile long pendingRequested;
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<MetricsSubscriber> PENDING_REQUESTED =
+            AtomicLongFieldUpdater.newUpdater(MetricsSubscriber.class, "pendingRequested");
+
+    MetricsSubscriber(CoreSubscriber<? super T> actual, PipelineMetrics.Meters meters) {
+        super(actual);
+        this.meters = meters;
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+        if (Operators.validate(this.s, s)) {
+            this.s = s;
+            meters.subscribed.increment();
+            actual.onSubscribe(this);
+        }
+    }
+
+    @Override
+    public void onNext(T value) {
+        if (firstOnNextAt == 0) {
+            firstOnNextAt = System.nanoTime();
+        }
+        long count = emitted + 1;
+        emitted = count;
+        if (count == nextFlushAt) {
+            nextFlushAt = count + PipelineMetrics.FLUSH_EVERY;
+            publishOnNext();
+        }
+        actual.onNext(value);
+        //cancelled while this element was on its way, the cancelling thread may have published before it was counted
+        if (done != 0) {
+            publishOnNext();
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        if (DONE.compareAndSet(this, 0, 1)) {
+            flush();
+            meters.errors.increment();
+        }
+        actual.onError(t);
+    }
+
+    @Override
+    public void onComplete() {
+        if (DONE.compareAndSet(this, 0, 1)) {
+            flush();
+            meters.completed.increment();
+            if (firstOnNextAt != 0) {
+                meters.latency.record(System.nanoTime() - firstOnNextAt, TimeUnit.NANOSECONDS);
+            }
+        }
+        actual.onComplete();
+    }
+
+    @Override
+    public void request(long n) {
+        if (n == Long.MAX_VALUE) {
+            meters.requestedUnbounded.increment();
+        } else if (n > 0) {
+            Operators.addCap(PENDING_REQUESTED, this, n);
+        }
+        s.request(n);
+    }
+
+    @Override
+    public void cancel() {
+        s.cancel();
+        if (DONE.compareAndSet(this, 0, 1)) {
+            flush();
+            meters.cancelled.increment();
+        }
+    }
+
+    private void flush() {
+        publishOnNext();
+        long requested = PENDING_REQUESTED.getAndSet(this, 0);
+        if (requested > 0) {
+            meters.requested.increment(requested);
+        }
+    }
+
+    private void publishOnNext() {
+        for (; ; ) {
+            long mark = published;
+            long count = emitted;
+            if (count <= mark) {
+                return;
+            }
+            if (PUBLISHED.compareAndSet(this, mark, count)) {
+                meters.onNext.increment(count - mark);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.workafterworks.reactorexample.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.reactivestreams.Publisher;
+import reactor.core.Scannable;
+import reactor.core.publisher.Operators;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/*
+ * Micrometer metrics for pipelines tagged with .name(...):
+ *
+ * Flux<String> names = ExamplePipelines.names().name("streams.names").transform(pipelineMetrics.instrument());
+ *
+ * All meters carry the tag pipeline=<name>:
+ * - reactor.pipeline.subscribed   counter, subscriptions
+ * - reactor.pipeline.requested    counter, sum of bounded request(n), unbounded requests count in reactor.pipeline.requested.unbounded
+ * - reactor.pipeline.onNext       counter, elements emitted (its rate is the onNext rate)
+ * - reactor.pipeline.terminated   counter, tag status=completed|error|cancelled
+ * - reactor.pipeline.latency      timer, first onNext to onComplete, with percentile histograms (HdrHistogram based)
+ *
+ * Recording is striped: each subscription counts in plain fields and adds them to the shared meters every
+ * FLUSH_EVERY elements and on termination. Micrometer counters are LongAdder/DoubleAdder based, so concurrent
+ * subscriptions on different event loops do not contend on a single cache line.
+ */
+@Component
+public class PipelineMetrics {
+
+    public static final String UNNAMED = "unnamed";
+
+    static final int FLUSH_EVERY = 256;
+
+    private final MeterRegistry registry;
+    private final Map<String, Meters> meters = new ConcurrentHashMap<>();
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    //meters are resolved once at assembly time, subscribing only creates the metrics subscriber
+    public <T> Function<Publisher<T>, Publisher<T>> instrument() {
+        return source -> {
+            Meters pipelineMeters = meters(nameOf(source));
+            Function<? super Publisher<T>, ? extends Publisher<T>> lift =
+                    Operators.lift((scannable, actual) -> new MetricsSubscriber<>(actual, pipelineMeters));
+            return lift.apply(source);
+        };
+    }
+
+    public Set<String> pipelines() {
+        return meters.keySet();
+    }
+
+    private Meters meters(String pipeline) {
+        return meters.computeIfAbsent(pipeline, name -> new Meters(registry, name));
+    }
+
+    //the closest .name(...) upstream, like Flux#metrics() does
+    static String nameOf(Publisher<?> source) {
+        Scannable scannable = Scannable.from(source);
+        String name = scannable.scan(Scannable.Attr.NAME);
+        if (name != null) {
+            return name;
+        }
+        return scannable.parents()
+                .map(parent -> parent.scan(Scannable.Attr.NAME))
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(UNNAMED);
+    }
+
+    static final class Meters {
+
+        final Counter subscribed;
+        final Counter requested;
+        final Counter requestedUnbounded;
+        final Counter onNext;
+        final Counter completed;
+        final Counter errors;
+        final Counter cancelled;
+        final Timer latency;
+
+        Meters(MeterRegistry registry, String pipeline) {
+            subscribed = registry.counter("reactor.pipeline.subscribed", "pipeline", pipeline);
+            requested = registry.counter("reactor.pipeline.requested", "pipeline", pipeline);
+            requestedUnbounded = registry.counter("reactor.pipeline.requested.unbounded", "pipeline", pipeline);
+            onNext = registry.counter("reactor.pipeline.onNext", "pipeline", pipeline);
+            completed = registry.counter("reactor.pipeline.terminated", "pipeline", pipeline, "status", "completed");
+            errors = registry.counter("reactor.pipeline.terminated", "pipeline", pipeline, "status", "error");
+            cancelled = registry.counter("reactor.pipeline.terminated", "pipeline", pipeline, "status", "cancelled");
+            latency = Timer.builder("reactor.pipeline.latency")
+                    .description("time from the first onNext to onComplete")
+                    .tag("pipeline", pipeline)
+                    .publishPercentiles(0.5, 0.9, 0.99)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(100))
+                    .maximumExpectedValue(Duration.ofMinutes(1))
+                    .register(registry);
+        }
+    }
+}
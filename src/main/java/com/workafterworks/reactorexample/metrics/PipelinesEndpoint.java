@@ -0,0 +1,75 @@
+package com.workafterworks.reactorexample.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * GET /actuator/pipelines             summary of every instrumented pipeline
+ * GET /actuator/pipelines/{pipeline}  summary of one of them
+ *
+ * The single meters stay available under /actuator/metrics/reactor.pipeline.*?tag=pipeline:{pipeline}
+ */
+@Component
+@Endpoint(id = "pipelines")
+public class PipelinesEndpoint {
+
+    private final PipelineMetrics pipelineMetrics;
+    private final MeterRegistry registry;
+
+    public PipelinesEndpoint(PipelineMetrics pipelineMetrics, MeterRegistry registry) {
+        this.pipelineMetrics = pipelineMetrics;
+        this.registry = registry;
+    }
+
+    @ReadOperation
+    public Map<String, Map<String, Object>> pipelines() {
+        Map<String, Map<String, Object>> pipelines = new TreeMap<>();
+        for (String pipeline : pipelineMetrics.pipelines()) {
+            pipelines.put(pipeline, pipeline(pipeline));
+        }
+        return pipelines;
+    }
+
+    //null (404) for a pipeline that was never instrumented
+    @ReadOperation
+    public Map<String, Object> pipeline(@Selector String pipeline) {
+        if (!pipelineMetrics.pipelines().contains(pipeline)) {
+            return null;
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("subscribed", count("reactor.pipeline.subscribed", pipeline));
+        summary.put("requested", count("reactor.pipeline.requested", pipeline));
+        summary.put("requestedUnbounded", count("reactor.pipeline.requested.unbounded", pipeline));
+        summary.put("onNext", count("reactor.pipeline.onNext", pipeline));
+        summary.put("completed", terminated(pipeline, "completed"));
+        summary.put("errors", terminated(pipeline, "error"));
+        summary.put("cancelled", terminated(pipeline, "cancelled"));
+        Timer latency = registry.find("reactor.pipeline.latency").tag("pipeline", pipeline).timer();
+        if (latency != null) {
+            Map<String, Double> percentiles = new LinkedHashMap<>();
+            for (ValueAtPercentile value : latency.takeSnapshot().percentileValues()) {
+                percentiles.put("p" + (int) (value.percentile() * 100), value.value(TimeUnit.MILLISECONDS));
+            }
+            summary.put("latencyMillis", percentiles);
+        }
+        return summary;
+    }
+
+    private double count(String meter, String pipeline) {
+        return registry.get(meter).tag("pipeline", pipeline).counter().count();
+    }
+
+    private double terminated(String pipeline, String status) {
+        return registry.get("reactor.pipeline.terminated").tag("pipeline", pipeline).tag("status", status).counter().count();
+    }
+}
@@ -0,0 +1,238 @@
+package com.workafterworks.reactorexample.persistence;
+
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Operators;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Batching and insert scheduling of one BatchWriter.write.
+ *
+ * The upstream gets concurrency * maxBatch of credit and an insert hands back the credit of its rows once it
+ * finishes, so current + ready + the running inserts never hold more than that. Batches closed by size or by the
+ * maxWait timer queue up in ready while all concurrency inserts are running.
+ *
+ * State changes are guarded by this, the inserts are subscribed and requests are made outside of the lock.
+ */
+final class BatchWriteSubscriber<T> implements CoreSubscriber<T> {
+
+    private final MonoSink<Long> sink;
+    private final BatchWriter<T> writer;
+    private final int maxBatch;
+    private final long maxWaitNanos;
+    private final int concurrency;
+    private final Scheduler timer;
+    private final Disposable.Composite inserts = Disposables.composite();
+
+    private Subscription upstream;
+    private List<T> current;
+    private final ArrayDeque<List<T>> ready = new ArrayDeque<>();
+    //bumped whenever current is closed, so that a late timer does not close the next batch early
+    private long batchId;
+    private Disposable batchTimer;
+    private int active;
+    private long written;
+    private boolean done;
+    private Throwable error;
+    private boolean terminated;
+
+    BatchWriteSubscriber(MonoSink<Long> sink, BatchWriter<T> writer, int maxBatch, Duration maxWait, int concurrency,
+                         Scheduler timer) {
+        this.sink = sink;
+        this.writer = writer;
+        this.maxBatch = maxBatch;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.concurrency = concurrency;
+        this.timer = timer;
+        this.current = new ArrayList<>(maxBatch);
+    }
+
+    @Override
+    public Context currentContext() {
+        return Context.of(sink.contextView());
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+        if (Operators.validate(upstream, s)) {
+            upstream = s;
+            sink.onCancel(this::cancel);
+            s.request(Operators.multiplyCap(concurrency, maxBatch));
+        }
+    }
+
+    @Override
+    public void onNext(T value) {
+        synchronized (this) {
+            if (terminated) {
+                Operators.onDiscard(value, currentContext());
+                return;
+            }
+            current.add(value);
+            if (current.size() == maxBatch) {
+                closeBatch();
+            } else if (current.size() == 1) {
+                long id = batchId;
+                batchTimer = timer.schedule(() -> timeout(id), maxWaitNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        synchronized (this) {
+            if (done || terminated) {
+                Operators.onErrorDropped(t, currentContext());
+                return;
+            }
+            done = true;
+            //rows already handed to an insert are written, the ones still buffered are not
+            error = t;
+            discardBuffered();
+        }
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        synchronized (this) {
+            if (done || terminated) {
+                return;
+            }
+            done = true;
+            if (!current.isEmpty()) {
+                closeBatch();
+            }
+        }
+        drain();
+    }
+
+    private void timeout(long id) {
+        synchronized (this) {
+            if (id != batchId || terminated || current.isEmpty()) {
+                return;
+            }
+            closeBatch();
+        }
+        drain();
+    }
+
+    //guarded by this
+    private void closeBatch() {
+        ready.add(current);
+        current = new ArrayList<>(maxBatch);
+        batchId++;
+        if (batchTimer != null) {
+            batchTimer.dispose();
+            batchTimer = null;
+        }
+    }
+
+    //guarded by this
+    private void discardBuffered() {
+        if (batchTimer != null) {
+            batchTimer.dispose();
+            batchTimer = null;
+        }
+        batchId++;
+        Operators.onDiscardMultiple(current, currentContext());
+        current = new ArrayList<>(0);
+        for (List<T> batch : ready) {
+            Operators.onDiscardMultiple(batch, currentContext());
+        }
+        ready.clear();
+    }
+
+    private void drain() {
+        for (;;) {
+            List<T> batch;
+            long result;
+            Throwable failure;
+            synchronized (this) {
+                if (terminated) {
+                    return;
+                }
+                if (active < concurrency && !ready.isEmpty()) {
+                    batch = ready.poll();
+                    active++;
+                } else if (done && active == 0 && ready.isEmpty()) {
+                    terminated = true;
+                    batch = null;
+                } else {
+                    return;
+                }
+                result = written;
+                failure = error;
+            }
+            if (batch == null) {
+                if (failure != null) {
+                    sink.error(failure);
+                } else {
+                    sink.success(result);
+                }
+                return;
+            }
+            insert(batch);
+        }
+    }
+
+    private void insert(List<T> batch) {
+        Disposable.Swap running = Disposables.swap();
+        inserts.add(running);
+        running.update(writer.insert(batch).subscribe(
+                rows -> inserted(batch, rows, running),
+                failure -> failed(failure, running)));
+    }
+
+    private void inserted(List<T> batch, long rows, Disposable running) {
+        inserts.remove(running);
+        boolean more;
+        synchronized (this) {
+            active--;
+            written += rows;
+            more = !done;
+        }
+        if (more) {
+            upstream.request(batch.size());
+        }
+        drain();
+    }
+
+    private void failed(Throwable failure, Disposable running) {
+        inserts.remove(running);
+        synchronized (this) {
+            if (terminated) {
+                Operators.onErrorDropped(failure, currentContext());
+                return;
+            }
+            terminated = true;
+            discardBuffered();
+        }
+        upstream.cancel();
+        inserts.dispose();
+        sink.error(failure);
+    }
+
+    private void cancel() {
+        synchronized (this) {
+            if (terminated) {
+                return;
+            }
+            terminated = true;
+            discardBuffered();
+        }
+        upstream.cancel();
+        inserts.dispose();
+    }
+}
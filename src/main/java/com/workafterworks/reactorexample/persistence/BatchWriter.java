@@ -0,0 +1,241 @@
+package com.workafterworks.reactorexample.persistence;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+ * Sinks a Flux into a table with multi-row inserts over pooled R2DBC connections:
+ *
+ * BatchWriter<Integer> writer = BatchWriter.builder(pool, "numbers", "number")
+ *         .binder((number, statement, offset) -> statement.bind(offset, number))
+ *         .maxBatch(500)
+ *         .maxWait(Duration.ofMillis(50))
+ *         .build();
+ * Mono<Long> rows = writer.write(ExamplePipelines.fromList(ExamplePipelines.NUMBERS));
+ *
+ * Elements are grouped into batches of maxBatch, or fewer when maxWait has passed since the first element of the
+ * batch, and every batch is one INSERT INTO table (columns) VALUES (...), (...) on a connection of the pool.
+ *
+ * Demand follows the pool: at most concurrency inserts run at once (the pool's max size by default), and the
+ * upstream is only asked for concurrency * maxBatch elements plus, whenever an insert finishes, as many elements as
+ * it wrote. A slow database slows the source down instead of piling batches up in memory.
+ * Flux.bufferTimeout would fail with an overflow when its timer fires while every insert is busy (no downstream
+ * demand), so BatchWriteSubscriber does the size and time bounded batching itself and holds such batches back.
+ *
+ * The inserts are subscribed on the given scheduler (boundedElastic by default): drivers like r2dbc-h2 run the
+ * statement on the subscribing thread, which must not be a Netty event loop.
+ *
+ * With a MeterRegistry, tagged name=<name>: reactor.r2dbc.batch.size (rows per insert), reactor.r2dbc.batch.insert
+ * (insert latency) and reactor.r2dbc.rows (rows written).
+ */
+public final class BatchWriter<T> {
+
+    private final ConnectionPool pool;
+    private final String insertPrefix;
+    private final int columns;
+    private final RowBinder<? super T> binder;
+    private final int maxBatch;
+    private final Duration maxWait;
+    private final int concurrency;
+    private final Scheduler scheduler;
+    private final Scheduler timer;
+    //statement per batch size, built on first use
+    private final AtomicReferenceArray<String> statements;
+    private final DistributionSummary batchSize;
+    private final Timer insertTime;
+    private final Counter rows;
+
+    private BatchWriter(Builder<T> builder) {
+        this.pool = builder.pool;
+        this.insertPrefix = "INSERT INTO " + builder.table + " (" + String.join(", ", builder.columns) + ") VALUES ";
+        this.columns = builder.columns.length;
+        this.binder = Objects.requireNonNull(builder.binder, "binder");
+        this.maxBatch = builder.maxBatch;
+        this.maxWait = builder.maxWait;
+        this.concurrency = builder.concurrency > 0
+                ? builder.concurrency
+                : pool.getMetrics().map(PoolMetrics::getMaxAllocatedSize).orElse(10);
+        this.scheduler = builder.scheduler;
+        this.timer = builder.timer;
+        this.statements = new AtomicReferenceArray<>(maxBatch + 1);
+        if (builder.registry != null) {
+            this.batchSize = DistributionSummary.builder("reactor.r2dbc.batch.size")
+                    .description("rows per multi-row insert")
+                    .tag("name", builder.name)
+                    .register(builder.registry);
+            this.insertTime = Timer.builder("reactor.r2dbc.batch.insert")
+                    .description("time of one multi-row insert, connection acquisition included")
+                    .tag("name", builder.name)
+                    .register(builder.registry);
+            this.rows = Counter.builder("reactor.r2dbc.rows")
+                    .description("rows written")
+                    .tag("name", builder.name)
+                    .register(builder.registry);
+        } else {
+            this.batchSize = null;
+            this.insertTime = null;
+            this.rows = null;
+        }
+    }
+
+    public static <T> Builder<T> builder(ConnectionPool pool, String table, String... columns) {
+        return new Builder<>(pool, table, columns);
+    }
+
+    //the rows written once the source completed and every insert finished
+    public Mono<Long> write(Publisher<? extends T> source) {
+        return Mono.create(sink -> {
+            //resolved per subscription so that StepVerifier.withVirtualTime can replace Schedulers.parallel()
+            Scheduler clock = timer != null ? timer : Schedulers.parallel();
+            Flux.from(source).subscribe(new BatchWriteSubscriber<T>(sink, this, maxBatch, maxWait, concurrency, clock));
+        });
+    }
+
+    public int concurrency() {
+        return concurrency;
+    }
+
+    Mono<Long> insert(List<T> batch) {
+        Mono<Long> insert = Mono.usingWhen(pool.create(),
+                connection -> execute(connection, batch),
+                Connection::close);
+        if (insertTime != null) {
+            long start = System.nanoTime();
+            insert = insert.doOnSuccess(written -> {
+                insertTime.record(Duration.ofNanos(System.nanoTime() - start));
+                batchSize.record(batch.size());
+                rows.increment(written);
+            });
+        }
+        return insert.subscribeOn(scheduler);
+    }
+
+    private Mono<Long> execute(Connection connection, List<T> batch) {
+        Statement statement = connection.createStatement(statement(batch.size()));
+        int offset = 0;
+        for (T value : batch) {
+            binder.bind(value, statement, offset);
+            offset += columns;
+        }
+        return Flux.from(statement.execute())
+                .flatMap(Result::getRowsUpdated)
+                .reduce(0L, (total, updated) -> total + updated);
+    }
+
+    String statement(int size) {
+        String sql = statements.get(size);
+        if (sql == null) {
+            StringBuilder builder = new StringBuilder(insertPrefix.length() + size * columns * 8);
+            builder.append(insertPrefix);
+            int parameter = 1;
+            for (int row = 0; row < size; row++) {
+                if (row > 0) {
+                    builder.append(", ");
+                }
+                builder.append('(');
+                for (int column = 0; column < columns; column++) {
+                    builder.append(column == 0 ? "$" : ", $").append(parameter++);
+                }
+                builder.append(')');
+            }
+            sql = builder.toString();
+            statements.lazySet(size, sql);
+        }
+        return sql;
+    }
+
+    public static final class Builder<T> {
+
+        private final ConnectionPool pool;
+        private final String table;
+        private final String[] columns;
+        private RowBinder<? super T> binder;
+        private int maxBatch = 500;
+        private Duration maxWait = Duration.ofMillis(50);
+        private int concurrency;
+        private Scheduler scheduler = Schedulers.boundedElastic();
+        private Scheduler timer;
+        private String name;
+        private MeterRegistry registry;
+
+        private Builder(ConnectionPool pool, String table, String[] columns) {
+            if (columns.length == 0) {
+                throw new IllegalArgumentException("at least one column is needed");
+            }
+            this.pool = Objects.requireNonNull(pool, "pool");
+            this.table = Objects.requireNonNull(table, "table");
+            this.columns = columns.clone();
+        }
+
+        public Builder<T> binder(RowBinder<? super T> binder) {
+            this.binder = Objects.requireNonNull(binder, "binder");
+            return this;
+        }
+
+        //rows per insert, 500 by default
+        public Builder<T> maxBatch(int maxBatch) {
+            if (maxBatch < 1) {
+                throw new IllegalArgumentException("maxBatch must be positive, was " + maxBatch);
+            }
+            this.maxBatch = maxBatch;
+            return this;
+        }
+
+        //longest time the first element of a batch waits for the batch to fill, 50ms by default
+        public Builder<T> maxWait(Duration maxWait) {
+            if (maxWait.isNegative() || maxWait.isZero()) {
+                throw new IllegalArgumentException("maxWait must be positive, was " + maxWait);
+            }
+            this.maxWait = maxWait;
+            return this;
+        }
+
+        //inserts running at once, the pool's max size by default
+        public Builder<T> concurrency(int concurrency) {
+            if (concurrency < 1) {
+                throw new IllegalArgumentException("concurrency must be positive, was " + concurrency);
+            }
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        //runs the inserts, boundedElastic by default
+        public Builder<T> scheduler(Scheduler scheduler) {
+            this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+            return this;
+        }
+
+        //runs the maxWait timers, parallel by default
+        public Builder<T> timer(Scheduler timer) {
+            this.timer = Objects.requireNonNull(timer, "timer");
+            return this;
+        }
+
+        public Builder<T> metrics(String name, MeterRegistry registry) {
+            this.name = Objects.requireNonNull(name, "name");
+            this.registry = Objects.requireNonNull(registry, "registry");
+            return this;
+        }
+
+        public BatchWriter<T> build() {
+            return new BatchWriter<>(this);
+        }
+    }
+}
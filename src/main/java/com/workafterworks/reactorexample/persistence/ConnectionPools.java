@@ -0,0 +1,31 @@
+package com.workafterworks.reactorexample.persistence;
+
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+
+import java.time.Duration;
+
+/*
+ * Pools over embedded H2. An in-memory database lives as long as one of its connections is open
+ * (DB_CLOSE_DELAY=-1 keeps it until the JVM exits), so the pool is what keeps the data around.
+ */
+public final class ConnectionPools {
+
+    private ConnectionPools() {
+    }
+
+    public static ConnectionPool h2InMemory(String database, int maxSize) {
+        H2ConnectionFactory factory = new H2ConnectionFactory(H2ConnectionConfiguration.builder()
+                .inMemory(database)
+                .property("DB_CLOSE_DELAY", "-1")
+                .build());
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(factory)
+                .name(database)
+                .initialSize(1)
+                .maxSize(maxSize)
+                .maxIdleTime(Duration.ofMinutes(5))
+                .build());
+    }
+}
@@ -0,0 +1,73 @@
+package com.workafterworks.reactorexample.persistence;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.Connection;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/*
+ * The numbers table: the sink for fluxSubscriberFomList and its sequence number, e.g.
+ *
+ * repository.createTable()
+ *         .then(repository.saveAll(ExamplePipelines.fromList(ExamplePipelines.NUMBERS)))
+ *
+ * Reads run on the same scheduler as the inserts, they are blocking calls in r2dbc-h2 as well.
+ */
+public final class NumberRepository {
+
+    private final ConnectionPool pool;
+    private final BatchWriter<Integer> writer;
+    private final Scheduler scheduler;
+
+    public NumberRepository(ConnectionPool pool, int maxBatch, Duration maxWait) {
+        this.pool = pool;
+        this.scheduler = Schedulers.boundedElastic();
+        this.writer = BatchWriter.<Integer>builder(pool, "numbers", "number")
+                .binder((number, statement, offset) -> statement.bind(offset, number))
+                .maxBatch(maxBatch)
+                .maxWait(maxWait)
+                .scheduler(scheduler)
+                .build();
+    }
+
+    public Mono<Void> createTable() {
+        return withConnection(connection -> Flux.from(connection.createStatement(
+                        "CREATE TABLE IF NOT EXISTS numbers (id BIGINT AUTO_INCREMENT PRIMARY KEY, number INT NOT NULL)")
+                .execute()))
+                .then();
+    }
+
+    //rows written
+    public Mono<Long> saveAll(Publisher<Integer> numbers) {
+        return writer.write(numbers);
+    }
+
+    public Mono<Long> count() {
+        return withConnection(connection -> Flux.from(connection.createStatement("SELECT COUNT(*) FROM numbers").execute())
+                .flatMap(result -> result.map((row, metadata) -> row.get(0, Long.class))))
+                .next();
+    }
+
+    //in insertion order
+    public Flux<Integer> findAll() {
+        return withConnection(connection -> Flux.from(connection.createStatement("SELECT number FROM numbers ORDER BY id").execute())
+                .flatMap(result -> result.map((row, metadata) -> row.get(0, Integer.class))));
+    }
+
+    public Mono<Void> deleteAll() {
+        return withConnection(connection -> Flux.from(connection.createStatement("DELETE FROM numbers").execute())
+                .flatMap(result -> result.getRowsUpdated()))
+                .then();
+    }
+
+    private <R> Flux<R> withConnection(Function<Connection, Publisher<R>> work) {
+        return Flux.usingWhen(pool.create(), work, Connection::close)
+                .subscribeOn(scheduler);
+    }
+}
@@ -0,0 +1,15 @@
+package com.workafterworks.reactorexample.persistence;
+
+import io.r2dbc.spi.Statement;
+
+/*
+ * Binds the columns of one row of a multi-row insert: the row's first parameter is at index offset,
+ * its next ones follow in the order of BatchWriter's columns.
+ *
+ * (number, statement, offset) -> statement.bind(offset, number)
+ */
+@FunctionalInterface
+public interface RowBinder<T> {
+
+    void bind(T value, Statement statement, int offset);
+}
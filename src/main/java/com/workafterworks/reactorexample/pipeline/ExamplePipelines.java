@@ -0,0 +1,43 @@
+package com.workafterworks.reactorexample.pipeline;
+
+import com.workafterworks.reactorexample.primitive.IntFlux;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.function.Function;
+
+/*
+ * The Flux pipelines from FluxExampleTests, extracted so the web layer (and the load tests hitting it)
+ * run exactly the same operator chains the unit tests verify.
+ *
+ * Every pipeline here is cold and lazy: nothing is emitted until a subscriber requests it,
+ * so the downstream request(n) is what decides how fast elements are produced.
+ */
+public final class ExamplePipelines {
+
+    public static final List<String> NAMES = List.of("Pascal", "Martin", "james");
+    public static final List<Integer> NUMBERS = List.of(1, 2, 3, 4, 5);
+
+    private ExamplePipelines() {
+    }
+
+    //fluxSubscriber
+    public static Flux<String> names() {
+        return Flux.just("Pascal", "Martin", "james");
+    }
+
+    //fluxSubscriberNumbers, ints are boxed once at the end instead of by every operator
+    public static Flux<Integer> numbers(int count) {
+        return IntFlux.range(1, count).asFlux();
+    }
+
+    //fluxSubscriberFomList
+    public static Flux<Integer> fromList(List<Integer> numbers) {
+        return Flux.fromIterable(numbers);
+    }
+
+    //fluxSubscriberFomList for batch jobs, work runs on the rails of the given ParallelMode
+    public static <T, R> Flux<R> fromList(List<T> items, Function<? super T, ? extends R> work, ParallelMode mode) {
+        return mode.apply(Flux.fromIterable(items), work);
+    }
+}
@@ -0,0 +1,111 @@
+package com.workafterworks.reactorexample.pipeline;
+
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.function.Function;
+
+/*
+ * Runs the per-element work of a pipeline on several rails instead of the subscribing thread:
+ *
+ * ExamplePipelines.fromList(numbers, n -> n * 2, ParallelMode.builder().rails(4).build())
+ *
+ * The source is split with parallel(rails) and each rail runs on its own worker of the scheduler (runOn).
+ * The source hands an element to a rail only while that rail has outstanding demand, and a rail requests
+ * prefetch elements at a time. With the default prefetch of 1 a rail stuck on an expensive element gets nothing
+ * more until it is done, the other rails take the following ones, so skewed per-element cost balances out much like
+ * work stealing. A larger prefetch trades that balance for less hand-over overhead when elements cost the same.
+ *
+ * Merge back:
+ * - ordered: results come out in source order. Each element carries its index and the rails are merged by it,
+ *   so a slow element holds back the ones after it (not their processing, only their emission).
+ * - unordered: results come out as soon as any rail produces them.
+ */
+public final class ParallelMode {
+
+    private final int rails;
+    private final int prefetch;
+    private final boolean ordered;
+    private final Scheduler scheduler;
+
+    private ParallelMode(Builder builder) {
+        this.rails = builder.rails;
+        this.prefetch = builder.prefetch;
+        this.ordered = builder.ordered;
+        this.scheduler = builder.scheduler;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int rails() {
+        return rails;
+    }
+
+    public boolean ordered() {
+        return ordered;
+    }
+
+    public <T, R> Flux<R> apply(Flux<T> source, Function<? super T, ? extends R> work) {
+        if (!ordered) {
+            return source.parallel(rails)
+                    .runOn(scheduler, prefetch)
+                    .<R>map(work)
+                    .sequential();
+        }
+        return source.index()
+                .parallel(rails)
+                .runOn(scheduler, prefetch)
+                .map(indexed -> Tuples.<Long, R>of(indexed.getT1(), work.apply(indexed.getT2())))
+                .ordered(Comparator.comparingLong(Tuple2::getT1))
+                .map(Tuple2::getT2);
+    }
+
+    public static final class Builder {
+
+        private int rails = Schedulers.DEFAULT_POOL_SIZE;
+        private int prefetch = 1;
+        private boolean ordered = true;
+        private Scheduler scheduler = Schedulers.parallel();
+
+        private Builder() {
+        }
+
+        //more rails than the scheduler has workers only adds queuing, Schedulers.parallel() has one per core
+        public Builder rails(int rails) {
+            if (rails < 1) {
+                throw new IllegalArgumentException("rails must be positive, was " + rails);
+            }
+            this.rails = rails;
+            return this;
+        }
+
+        public Builder prefetch(int prefetch) {
+            if (prefetch < 1) {
+                throw new IllegalArgumentException("prefetch must be positive, was " + prefetch);
+            }
+            this.prefetch = prefetch;
+            return this;
+        }
+
+        public Builder ordered(boolean ordered) {
+            this.ordered = ordered;
+            return this;
+        }
+
+        public Builder scheduler(Scheduler scheduler) {
+            this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+            return this;
+        }
+
+        public ParallelMode build() {
+            return new ParallelMode(this);
+        }
+    }
+}
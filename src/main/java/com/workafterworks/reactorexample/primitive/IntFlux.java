@@ -0,0 +1,171 @@
+package com.workafterworks.reactorexample.primitive;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Operators;
+import reactor.util.context.Context;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+/*
+ * Publisher of primitive ints: the Flux.range(...).map(...) pipelines of FluxExampleTests without one Integer per element.
+ *
+ * Operators between an IntFlux and an IntSubscriber pass ints through onNextInt. Values are boxed only at the
+ * boundaries: when a plain Subscriber subscribes (asFlux) or when reduce emits its single result.
+ * Backpressure works as for any Publisher, nothing is emitted beyond what was requested.
+ *
+ * @see IntSubscriber
+ */
+public abstract class IntFlux implements Publisher<Integer> {
+
+    public static IntFlux range(int start, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count >= 0 required but it was " + count);
+        }
+        if ((long) start + count - 1 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("start + count can not exceed Integer.MAX_VALUE");
+        }
+        return new IntFluxRange(start, count);
+    }
+
+    //elements of a boxed source are unboxed once on the way in
+    public static IntFlux from(Publisher<Integer> source) {
+        if (source instanceof IntFlux) {
+            return (IntFlux) source;
+        }
+        return new IntFlux() {
+            @Override
+            public void subscribe(IntSubscriber actual) {
+                source.subscribe(actual);
+            }
+        };
+    }
+
+    public abstract void subscribe(IntSubscriber actual);
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public final void subscribe(Subscriber<? super Integer> actual) {
+        if (actual instanceof IntSubscriber) {
+            subscribe((IntSubscriber) actual);
+        } else {
+            subscribe(new BoxingSubscriber((Subscriber<Integer>) actual));
+        }
+    }
+
+    public final IntFlux map(IntUnaryOperator mapper) {
+        return new IntFluxMap(this, mapper);
+    }
+
+    public final IntFlux filter(IntPredicate predicate) {
+        return new IntFluxFilter(this, predicate);
+    }
+
+    //accumulates unboxed, only the final result is boxed
+    public final Mono<Integer> reduce(int identity, IntBinaryOperator reducer) {
+        return new IntMonoReduce(this, identity, reducer);
+    }
+
+    public final Flux<Integer> asFlux() {
+        return Flux.from(this);
+    }
+
+    //unbounded request, like Flux#subscribe(Consumer)
+    public final Disposable subscribe(IntConsumer consumer) {
+        ConsumerSubscriber subscriber = new ConsumerSubscriber(consumer);
+        subscribe(subscriber);
+        return subscriber;
+    }
+
+    static final class BoxingSubscriber implements IntSubscriber {
+
+        final Subscriber<Integer> actual;
+
+        BoxingSubscriber(Subscriber<Integer> actual) {
+            this.actual = actual;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            actual.onSubscribe(s);
+        }
+
+        @Override
+        public void onNextInt(int value) {
+            actual.onNext(value);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            actual.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            actual.onComplete();
+        }
+
+        @Override
+        public Context currentContext() {
+            return actual instanceof CoreSubscriber ? ((CoreSubscriber<?>) actual).currentContext() : Context.empty();
+        }
+    }
+
+    static final class ConsumerSubscriber implements IntSubscriber, Disposable {
+
+        final IntConsumer consumer;
+
+        volatile Subscription subscription;
+        static final AtomicReferenceFieldUpdater<ConsumerSubscriber, Subscription> SUBSCRIPTION =
+                AtomicReferenceFieldUpdater.newUpdater(ConsumerSubscriber.class, Subscription.class, "subscription");
+
+        ConsumerSubscriber(IntConsumer consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (Operators.setOnce(SUBSCRIPTION, this, s)) {
+                s.request(Long.MAX_VALUE);
+            }
+        }
+
+        @Override
+        public void onNextInt(int value) {
+            try {
+                consumer.accept(value);
+            } catch (Throwable e) {
+                dispose();
+                onError(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            Operators.onErrorDropped(t, Context.empty());
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        @Override
+        public void dispose() {
+            Operators.terminate(SUBSCRIPTION, this);
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return subscription == Operators.cancelledSubscription();
+        }
+    }
+}
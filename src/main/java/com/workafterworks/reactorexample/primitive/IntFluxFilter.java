@@ -0,0 +1,99 @@
+package com.workafterworks.reactorexample.primitive;
+
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.Operators;
+import reactor.util.context.Context;
+
+import java.util.function.IntPredicate;
+
+final class IntFluxFilter extends IntFlux {
+
+    final IntFlux source;
+    final IntPredicate predicate;
+
+    IntFluxFilter(IntFlux source, IntPredicate predicate) {
+        this.source = source;
+        this.predicate = predicate;
+    }
+
+    @Override
+    public void subscribe(IntSubscriber actual) {
+        source.subscribe(new FilterSubscriber(actual, predicate));
+    }
+
+    static final class FilterSubscriber implements IntSubscriber, Subscription {
+
+        final IntSubscriber actual;
+        final IntPredicate predicate;
+
+        Subscription s;
+        boolean done;
+
+        FilterSubscriber(IntSubscriber actual, IntPredicate predicate) {
+            this.actual = actual;
+            this.predicate = predicate;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (Operators.validate(this.s, s)) {
+                this.s = s;
+                actual.onSubscribe(this);
+            }
+        }
+
+        @Override
+        public void onNextInt(int value) {
+            if (done) {
+                return;
+            }
+            boolean passed;
+            try {
+                passed = predicate.test(value);
+            } catch (Throwable e) {
+                onError(Operators.onOperatorError(s, e, value, currentContext()));
+                return;
+            }
+            if (passed) {
+                actual.onNextInt(value);
+            } else {
+                //the dropped element used one unit of demand, ask for a replacement
+                s.request(1);
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                Operators.onErrorDropped(t, currentContext());
+                return;
+            }
+            done = true;
+            actual.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            actual.onComplete();
+        }
+
+        @Override
+        public Context currentContext() {
+            return actual.currentContext();
+        }
+
+        @Override
+        public void request(long n) {
+            s.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            s.cancel();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.workafterworks.reactorexample.primitive;
+
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.Operators;
+import reactor.util.context.Context;
+
+import java.util.function.IntUnaryOperator;
+
+final class IntFluxMap extends IntFlux {
+
+    final IntFlux source;
+    final IntUnaryOperator mapper;
+
+    IntFluxMap(IntFlux source, IntUnaryOperator mapper) {
+        this.source = source;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public void subscribe(IntSubscriber actual) {
+        source.subscribe(new MapSubscriber(actual, mapper));
+    }
+
+    static final class MapSubscriber implements IntSubscriber, Subscription {
+
+        final IntSubscriber actual;
+        final IntUnaryOperator mapper;
+
+        Subscription s;
+        boolean done;
+
+        MapSubscriber(IntSubscriber actual, IntUnaryOperator mapper) {
+            this.actual = actual;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (Operators.validate(this.s, s)) {
+                this.s = s;
+                actual.onSubscribe(this);
+            }
+        }
+
+        @Override
+        public void onNextInt(int value) {
+            if (done) {
+                return;
+            }
+            int mapped;
+            try {
+                mapped = mapper.applyAsInt(value);
+            } catch (Throwable e) {
+                onError(Operators.onOperatorError(s, e, value, currentContext()));
+                return;
+            }
+            actual.onNextInt(mapped);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                Operators.onErrorDropped(t, currentContext());
+                return;
+            }
+            done = true;
+            actual.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            actual.onComplete();
+        }
+
+        @Override
+        public Context currentContext() {
+            return actual.currentContext();
+        }
+
+        @Override
+        public void request(long n) {
+            s.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            s.cancel();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.workafterworks.reactorexample.primitive;
+
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Operators;
+
+import java.util.function.IntBinaryOperator;
+
+/*
+ * IntFlux.reduce: folds the ints without boxing and emits the result as a single Integer.
+ */
+final class IntMonoReduce extends Mono<Integer> {
+
+    final IntFlux source;
+    final int identity;
+    final IntBinaryOperator reducer;
+
+    IntMonoReduce(IntFlux source, int identity, IntBinaryOperator reducer) {
+        this.source = source;
+        this.identity = identity;
+        this.reducer = reducer;
+    }
+
+    @Override
+    public void subscribe(CoreSubscriber<? super Integer> actual) {
+        source.subscribe(new ReduceSubscriber(actual, identity, reducer));
+    }
+
+    static final class ReduceSubscriber extends Operators.MonoSubscriber<Integer, Integer> implements IntSubscriber {
+
+        final IntBinaryOperator reducer;
+
+        int accumulator;
+        Subscription s;
+        boolean done;
+
+        ReduceSubscriber(CoreSubscriber<? super Integer> actual, int identity, IntBinaryOperator reducer) {
+            super(actual);
+            this.accumulator = identity;
+            this.reducer = reducer;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (Operators.validate(this.s, s)) {
+                this.s = s;
+                actual.onSubscribe(this);
+                s.request(Long.MAX_VALUE);
+            }
+        }
+
+        @Override
+        public void onNext(Integer value) {
+            onNextInt(value);
+        }
+
+        @Override
+        public void onNextInt(int value) {
+            if (done) {
+                return;
+            }
+            try {
+                accumulator = reducer.applyAsInt(accumulator, value);
+            } catch (Throwable e) {
+                onError(Operators.onOperatorError(s, e, value, actual.currentContext()));
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                Operators.onErrorDropped(t, actual.currentContext());
+                return;
+            }
+            done = true;
+            actual.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            complete(accumulator);
+        }
+
+        @Override
+        public void cancel() {
+            super.cancel();
+            s.cancel();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.workafterworks.reactorexample.primitive;
+
+import reactor.core.CoreSubscriber;
+
+/*
+ * Subscriber that receives primitive ints.
+ *
+ * It is still a Subscriber<Integer>, so it can subscribe to any boxed publisher (each element is unboxed once),
+ * but an IntFlux calls onNextInt directly and never boxes.
+ */
+public interface IntSubscriber extends CoreSubscriber<Integer> {
+
+    void onNextInt(int value);
+
+    @Override
+    default void onNext(Integer value) {
+        onNextInt(value);
+    }
+}
@@ -0,0 +1,171 @@
+package com.workafterworks.reactorexample.primitive;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Operators;
+import reactor.util.context.Context;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+
+/*
+ * Publisher of primitive longs, IntFlux for values past Integer.MAX_VALUE (offsets, counters, sums of ints).
+ *
+ * Operators between a LongFlux and a LongSubscriber pass longs through onNextLong. Values are boxed only at the
+ * boundaries: when a plain Subscriber subscribes (asFlux) or when reduce emits its single result.
+ * Backpressure works as for any Publisher, nothing is emitted beyond what was requested.
+ *
+ * @see LongSubscriber
+ */
+public abstract class LongFlux implements Publisher<Long> {
+
+    public static LongFlux range(long start, long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count >= 0 required but it was " + count);
+        }
+        if (start > Long.MAX_VALUE - count) {
+            throw new IllegalArgumentException("start + count can not exceed Long.MAX_VALUE");
+        }
+        return new LongFluxRange(start, count);
+    }
+
+    //elements of a boxed source are unboxed once on the way in
+    public static LongFlux from(Publisher<Long> source) {
+        if (source instanceof LongFlux) {
+            return (LongFlux) source;
+        }
+        return new LongFlux() {
+            @Override
+            public void subscribe(LongSubscriber actual) {
+                source.subscribe(actual);
+            }
+        };
+    }
+
+    public abstract void subscribe(LongSubscriber actual);
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public final void subscribe(Subscriber<? super Long> actual) {
+        if (actual instanceof LongSubscriber) {
+            subscribe((LongSubscriber) actual);
+        } else {
+            subscribe(new BoxingSubscriber((Subscriber<Long>) actual));
+        }
+    }
+
+    public final LongFlux map(LongUnaryOperator mapper) {
+        return new LongFluxMap(this, mapper);
+    }
+
+    public final LongFlux filter(LongPredicate predicate) {
+        return new LongFluxFilter(this, predicate);
+    }
+
+    //accumulates unboxed, only the final result is boxed
+    public final Mono<Long> reduce(long identity, LongBinaryOperator reducer) {
+        return new LongMonoReduce(this, identity, reducer);
+    }
+
+    public final Flux<Long> asFlux() {
+        return Flux.from(this);
+    }
+
+    //unbounded request, like Flux#subscribe(Consumer)
+    public final Disposable subscribe(LongConsumer consumer) {
+        ConsumerSubscriber subscriber = new ConsumerSubscriber(consumer);
+        subscribe(subscriber);
+        return subscriber;
+    }
+
+    static final class BoxingSubscriber implements LongSubscriber {
+
+        final Subscriber<Long> actual;
+
+        BoxingSubscriber(Subscriber<Long> actual) {
+            this.actual = actual;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            actual.onSubscribe(s);
+        }
+
+        @Override
+        public void onNextLong(long value) {
+            actual.onNext(value);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            actual.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            actual.onComplete();
+        }
+
+        @Override
+        public Context currentContext() {
+            return actual instanceof CoreSubscriber ? ((CoreSubscriber<?>) actual).currentContext() : Context.empty();
+        }
+    }
+
+    static final class ConsumerSubscriber implements LongSubscriber, Disposable {
+
+        final LongConsumer consumer;
+
+        volatile Subscription subscription;
+        static final AtomicReferenceFieldUpdater<ConsumerSubscriber, Subscription> SUBSCRIPTION =
+                AtomicReferenceFieldUpdater.newUpdater(ConsumerSubscriber.class, Subscription.class, "subscription");
+
+        ConsumerSubscriber(LongConsumer consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (Operators.setOnce(SUBSCRIPTION, this, s)) {
+                s.request(Long.MAX_VALUE);
+            }
+        }
+
+        @Override
+        public void onNextLong(long value) {
+            try {
+                consumer.accept(value);
+            } catch (Throwable e) {
+                dispose();
+                onError(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            Operators.onErrorDropped(t, Context.empty());
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        @Override
+        public void dispose() {
+            Operators.terminate(SUBSCRIPTION, this);
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return subscription == Operators.cancelledSubscription();
+        }
+    }
+}
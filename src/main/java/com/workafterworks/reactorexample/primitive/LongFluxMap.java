@@ -0,0 +1,94 @@
+package com.workafterworks.reactorexample.primitive;
+
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.Operators;
+import reactor.util.context.Context;
+
+import java.util.function.LongUnaryOperator;
+
+final class LongFluxMap extends LongFlux {
+
+    final LongFlux source;
+    final LongUnaryOperator mapper;
+
+    LongFluxMap(LongFlux source, LongUnaryOperator mapper) {
+        this.source = source;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public void subscribe(LongSubscriber actual) {
+        source.subscribe(new MapSubscriber(actual, mapper));
+    }
+
+    static final class MapSubscriber implements LongSubscriber, Subscription {
+
+        final LongSubscriber actual;
+        final LongUnaryOperator mapper;
+
+        Subscription s;
+        boolean done;
+
+        MapSubscriber(LongSubscriber actual, LongUnaryOperator mapper) {
+            this.actual = actual;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (Operators.validate(this.s, s)) {
+                this.s = s;
+                actual.onSubscribe(this);
+            }
+        }
+
+        @Override
+        public void onNextLong(long value) {
+            if (done) {
+                return;
+            }
+            long mapped;
+            try {
+                mapped = mapper.applyAsLong(value);
+            } catch (Throwable e) {
+                onError(Operators.onOperatorError(s, e, value, currentContext()));
+                return;
+            }
+            actual.onNextLong(mapped);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                Operators.onErrorDropped(t, currentContext());
+                return;
+            }
+            done = true;
+            actual.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            actual.onComplete();
+        }
+
+        @Override
+        public Context currentContext() {
+            return actual.currentContext();
+        }
+
+        @Override
+        public void request(long n) {
+            s.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            s.cancel();
+        }
+    }
+}
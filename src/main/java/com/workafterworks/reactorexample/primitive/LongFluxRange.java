@@ -0,0 +1,107 @@
+package com.workafterworks.reactorexample.primitive;
+
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.Operators;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/*
+ * LongFlux.range: emits start..start+count-1 on request, same demand accounting as Flux.range.
+ */
+final class LongFluxRange extends LongFlux {
+
+    final long start;
+    final long count;
+
+    LongFluxRange(long start, long count) {
+        this.start = start;
+        this.count = count;
+    }
+
+    @Override
+    public void subscribe(LongSubscriber actual) {
+        if (count == 0) {
+            Operators.complete(actual);
+            return;
+        }
+        actual.onSubscribe(new RangeSubscription(actual, start, start + count));
+    }
+
+    static final class RangeSubscription implements Subscription {
+
+        final LongSubscriber actual;
+        final long end;
+
+        long index;
+        volatile boolean cancelled;
+
+        volatile long requested;
+        static final AtomicLongFieldUpdater<RangeSubscription> REQUESTED =
+                AtomicLongFieldUpdater.newUpdater(RangeSubscription.class, "requested");
+
+        RangeSubscription(LongSubscriber actual, long start, long end) {
+            this.actual = actual;
+            this.index = start;
+            this.end = end;
+        }
+
+        @Override
+        public void request(long n) {
+            if (Operators.validate(n) && Operators.addCap(REQUESTED, this, n) == 0) {
+                if (n == Long.MAX_VALUE) {
+                    fastPath();
+                } else {
+                    slowPath(n);
+                }
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        void fastPath() {
+            for (long i = index; i != end; i++) {
+                if (cancelled) {
+                    return;
+                }
+                actual.onNextLong(i);
+            }
+            if (!cancelled) {
+                actual.onComplete();
+            }
+        }
+
+        void slowPath(long n) {
+            long emitted = 0;
+            long i = index;
+            for (; ; ) {
+                while (emitted != n && i != end) {
+                    if (cancelled) {
+                        return;
+                    }
+                    actual.onNextLong(i);
+                    emitted++;
+                    i++;
+                }
+                if (cancelled) {
+                    return;
+                }
+                if (i == end) {
+                    actual.onComplete();
+                    return;
+                }
+                n = requested;
+                if (n == emitted) {
+                    index = i;
+                    n = REQUESTED.addAndGet(this, -emitted);
+                    if (n == 0) {
+                        return;
+                    }
+                    emitted = 0;
+                }
+            }
+        }
+    }
+}
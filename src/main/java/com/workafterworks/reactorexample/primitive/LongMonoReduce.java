@@ -0,0 +1,95 @@
+package com.workafterworks.reactorexample.primitive;
+
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Operators;
+
+import java.util.function.LongBinaryOperator;
+
+/*
+ * LongFlux.reduce: folds the longs without boxing and emits the result as a single Long.
+ */
+final class LongMonoReduce extends Mono<Long> {
+
+    final LongFlux source;
+    final long identity;
+    final LongBinaryOperator reducer;
+
+    LongMonoReduce(LongFlux source, long identity, LongBinaryOperator reducer) {
+        this.source = source;
+        this.identity = identity;
+        this.reducer = reducer;
+    }
+
+    @Override
+    public void subscribe(CoreSubscriber<? super Long> actual) {
+        source.subscribe(new ReduceSubscriber(actual, identity, reducer));
+    }
+
+    static final class ReduceSubscriber extends Operators.MonoSubscriber<Long, Long> implements LongSubscriber {
+
+        final LongBinaryOperator reducer;
+
+        long accumulator;
+        Subscription s;
+        boolean done;
+
+        ReduceSubscriber(CoreSubscriber<? super Long> actual, long identity, LongBinaryOperator reducer) {
+            super(actual);
+            this.accumulator = identity;
+            this.reducer = reducer;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (Operators.validate(this.s, s)) {
+                this.s = s;
+                actual.onSubscribe(this);
+                s.request(Long.MAX_VALUE);
+            }
+        }
+
+        @Override
+        public void onNext(Long value) {
+            onNextLong(value);
+        }
+
+        @Override
+        public void onNextLong(long value) {
+            if (done) {
+                return;
+            }
+            try {
+                accumulator = reducer.applyAsLong(accumulator, value);
+            } catch (Throwable e) {
+                onError(Operators.onOperatorError(s, e, value, actual.currentContext()));
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                Operators.onErrorDropped(t, actual.currentContext());
+                return;
+            }
+            done = true;
+            actual.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            complete(accumulator);
+        }
+
+        @Override
+        public void cancel() {
+            super.cancel();
+            s.cancel();
+        }
+    }
+}
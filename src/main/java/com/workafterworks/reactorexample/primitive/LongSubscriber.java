@@ -0,0 +1,19 @@
+package com.workafterworks.reactorexample.primitive;
+
+import reactor.core.CoreSubscriber;
+
+/*
+ * Subscriber that receives primitive longs.
+ *
+ * It is still a Subscriber<Long>, so it can subscribe to any boxed publisher (each element is unboxed once),
+ * but a LongFlux calls onNextLong directly and never boxes.
+ */
+public interface LongSubscriber extends CoreSubscriber<Long> {
+
+    void onNextLong(long value);
+
+    @Override
+    default void onNext(Long value) {
+        onNextLong(value);
+    }
+}
@@ -0,0 +1,41 @@
+package com.workafterworks.reactorexample.profile;
+
+import java.util.Arrays;
+
+/*
+ * Per-thread stack of the probe calls in progress (onNext down the chain, request up the chain).
+ *
+ * A frame's self time is its elapsed time minus the elapsed time of the frames nested in it, which is the time the
+ * operator between the two probes spent on its own.
+ */
+final class FrameStack {
+
+    private static final ThreadLocal<FrameStack> CURRENT = ThreadLocal.withInitial(FrameStack::new);
+
+    private long[] startedAt = new long[32];
+    private long[] nestedNanos = new long[32];
+    private int depth = -1;
+
+    static FrameStack current() {
+        return CURRENT.get();
+    }
+
+    void enter() {
+        if (++depth == startedAt.length) {
+            startedAt = Arrays.copyOf(startedAt, depth * 2);
+            nestedNanos = Arrays.copyOf(nestedNanos, depth * 2);
+        }
+        nestedNanos[depth] = 0;
+        startedAt[depth] = System.nanoTime();
+    }
+
+    //the self time of the frame left
+    long exit() {
+        long elapsed = System.nanoTime() - startedAt[depth];
+        long self = elapsed - nestedNanos[depth];
+        if (--depth >= 0) {
+            nestedNanos[depth] += elapsed;
+        }
+        return self;
+    }
+}
@@ -0,0 +1,223 @@
+package com.workafterworks.reactorexample.profile;
+
+import org.reactivestreams.Publisher;
+import reactor.core.Scannable;
+import reactor.core.publisher.Hooks;
+import reactor.core.publisher.Operators;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/*
+ * Per-operator latency of the pipelines assembled under it, what monoDoOnMethods does by hand with timestamps:
+ *
+ * OperatorProfiler profiler = OperatorProfiler.fromSystemProperty();
+ * Flux<String> names = profiler.profile("names", () -> Flux.just("Pascal", "Martin").map(String::toUpperCase));
+ * ...
+ * profiler.report().forEach(System.out::println);
+ * profiler.writeFolded(Path.of("names.folded")); //flamegraph.pl names.folded > names.svg
+ *
+ * While the supplier runs, every operator it assembles gets a ProbeSubscriber on its output (through a
+ * Hooks.onEachOperator hook, installed by the first profile() of an enabled profiler and removed when the last
+ * profiler using it is closed). The probes report per stage:
+ * - self time: time spent in the operator itself, its downstream excluded, as percentiles
+ * - queue time: for asynchronous operators (publishOn...), time an element waits in them
+ * Probed operators do not fuse, so a profiled pipeline runs somewhat slower than the original.
+ *
+ * Disabled (the default, -Dreactorexample.profile=true enables it), profile only calls the supplier: one branch
+ * at assembly and nothing per signal. Pipelines assembled outside profile() are never probed, while the hook is
+ * installed they pay a ThreadLocal read per operator at assembly time only.
+ */
+public final class OperatorProfiler implements AutoCloseable {
+
+    private static final String HOOK_KEY = "operatorProfiler";
+    private static final ThreadLocal<Assembly> ASSEMBLING = new ThreadLocal<>();
+    //profilers that installed the hook and are not closed, guarded by the class monitor
+    private static int hookUsers;
+
+    private final boolean enabled;
+    //written under the class monitor
+    private volatile boolean hooked;
+    private volatile boolean closed;
+    private final ConcurrentMap<String, ProfiledStage> stagesByPath = new ConcurrentHashMap<>();
+    private final List<ProfiledStage> stages = new CopyOnWriteArrayList<>();
+
+    private OperatorProfiler(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public static OperatorProfiler enabled() {
+        return new OperatorProfiler(true);
+    }
+
+    public static OperatorProfiler disabled() {
+        return new OperatorProfiler(false);
+    }
+
+    public static OperatorProfiler fromSystemProperty() {
+        return new OperatorProfiler(Boolean.getBoolean("reactorexample.profile"));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    //the operators assembled by the supplier on this thread are probed, the last stage reported is the subscriber
+    public <P extends Publisher<?>> P profile(String pipeline, Supplier<P> assembly) {
+        if (!enabled || closed || !installHook()) {
+            return assembly.get();
+        }
+        Assembly outer = ASSEMBLING.get();
+        Assembly current = new Assembly(this, pipeline);
+        ASSEMBLING.set(current);
+        try {
+            return assembly.get();
+        } finally {
+            if (outer == null) {
+                ASSEMBLING.remove();
+            } else {
+                ASSEMBLING.set(outer);
+            }
+            current.finish();
+        }
+    }
+
+    public List<StageProfile> report() {
+        List<StageProfile> report = new ArrayList<>(stages.size());
+        for (ProfiledStage stage : stages) {
+            report.add(stage.profile());
+        }
+        return report;
+    }
+
+    /*
+     * One line per stage: pipeline;stage0;...;stageN <self time in ns>. A stage calls the next one synchronously,
+     * so nesting them the same way gives a flame graph whose widths are each stage plus what runs below it.
+     */
+    public void writeFolded(Writer out) throws IOException {
+        for (ProfiledStage stage : stages) {
+            long selfNanos = stage.selfTime.totalNanos();
+            if (selfNanos > 0) {
+                out.write(stage.path + " " + selfNanos + "\n");
+            }
+        }
+        out.flush();
+    }
+
+    public void writeFolded(Path file) {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeFolded(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String frame(String name) {
+        return name.replace(';', '_').replace(' ', '_');
+    }
+
+    /*
+     * Pipelines assembled from now on are not probed, the ones assembled before keep their probes and report()
+     * still covers them. The hook is removed once every profiler that installed it is closed.
+     */
+    @Override
+    public void close() {
+        synchronized (OperatorProfiler.class) {
+            closed = true;
+            if (hooked) {
+                hooked = false;
+                if (--hookUsers == 0) {
+                    Hooks.resetOnEachOperator(HOOK_KEY);
+                }
+            }
+        }
+    }
+
+    //false when the profiler was closed meanwhile
+    private boolean installHook() {
+        if (hooked) {
+            return true;
+        }
+        synchronized (OperatorProfiler.class) {
+            if (closed) {
+                return false;
+            }
+            if (!hooked) {
+                hooked = true;
+                if (hookUsers++ == 0) {
+                    Hooks.onEachOperator(HOOK_KEY, OperatorProfiler::probe);
+                }
+            }
+            return true;
+        }
+    }
+
+    static synchronized boolean hookInstalled() {
+        return hookUsers > 0;
+    }
+
+    private static Publisher<Object> probe(Publisher<Object> operator) {
+        Assembly assembly = ASSEMBLING.get();
+        if (assembly == null) {
+            return operator;
+        }
+        ProfiledStage stage = assembly.add(Scannable.from(operator));
+        int index = stage.index;
+        Function<? super Publisher<Object>, ? extends Publisher<Object>> lift =
+                Operators.lift((scannable, actual) -> new ProbeSubscriber<>(actual, stage, assembly.next(index)));
+        return lift.apply(operator);
+    }
+
+    private ProfiledStage stage(String pipeline, int index, String name, String path, boolean async) {
+        return stagesByPath.computeIfAbsent(path, key -> {
+            ProfiledStage stage = new ProfiledStage(pipeline, index, name, path, async);
+            stages.add(stage);
+            return stage;
+        });
+    }
+
+    //the stages of one profile() call, in assembly order
+    private static final class Assembly {
+
+        private final OperatorProfiler profiler;
+        private final String pipeline;
+        private final List<ProfiledStage> stages = new ArrayList<>();
+
+        Assembly(OperatorProfiler profiler, String pipeline) {
+            this.profiler = profiler;
+            this.pipeline = pipeline;
+        }
+
+        ProfiledStage add(Scannable operator) {
+            boolean async = operator.scan(Scannable.Attr.RUN_STYLE) == Scannable.Attr.RunStyle.ASYNC;
+            return add(operator.stepName(), async);
+        }
+
+        void finish() {
+            add("subscriber", false);
+        }
+
+        //the stages of one path can be followed by different ones in other assemblies, so the next one is per assembly
+        ProfiledStage next(int index) {
+            return stages.get(index + 1);
+        }
+
+        private ProfiledStage add(String name, boolean async) {
+            String parent = stages.isEmpty() ? frame(pipeline) : stages.get(stages.size() - 1).path;
+            ProfiledStage stage = profiler.stage(pipeline, stages.size(), name, parent + ";" + frame(name), async);
+            stages.add(stage);
+            return stage;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.workafterworks.reactorexample.profile;
+
+import com.workafterworks.reactorexample.subscriber.NonFusingSubscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.Scannable;
+import reactor.core.publisher.Operators;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/*
+ * Timing probe on the output of one profiled operator (its stage), in front of the next one.
+ *
+ * onNext frames measure the next stage (the time it spends on an element before passing it on), request frames
+ * measure this stage (the time it spends on a request before asking upstream, for a source producing the elements).
+ * For an asynchronous next stage the probe also notes when each element went in, the probe behind that stage takes
+ * the note out when the element comes out: queue time, assuming the asynchronous operator emits one for one.
+ */
+final class ProbeSubscriber<T> extends NonFusingSubscriber<T> {
+
+    private final ProfiledStage stage;
+    private final ProfiledStage next;
+    //arrival times of the elements queued in this (asynchronous) stage
+    final Queue<Long> arrivals;
+    //the arrivals of the probe behind the next stage, when that stage is asynchronous
+    private final Queue<Long> nextArrivals;
+
+    private Subscription s;
+
+    ProbeSubscriber(CoreSubscriber<? super T> actual, ProfiledStage stage, ProfiledStage next) {
+        super(actual);
+        this.stage = stage;
+        this.next = next;
+        this.arrivals = stage.async ? new ConcurrentLinkedQueue<>() : null;
+        //actual is the next operator's subscriber, its own actual the probe behind it
+        Object behindNext = Scannable.from(actual).scanUnsafe(Scannable.Attr.ACTUAL);
+        this.nextArrivals = next.async && behindNext instanceof ProbeSubscriber ? ((ProbeSubscriber<?>) behindNext).arrivals : null;
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+        if (Operators.validate(this.s, s)) {
+            this.s = s;
+            actual.onSubscribe(this);
+        }
+    }
+
+    @Override
+    public void onNext(T value) {
+        stage.onNext.increment();
+        if (arrivals != null) {
+            Long arrivedAt = arrivals.poll();
+            if (arrivedAt != null) {
+                stage.queueTime.record(System.nanoTime() - arrivedAt);
+            }
+        }
+        if (nextArrivals != null) {
+            nextArrivals.offer(System.nanoTime());
+        }
+        FrameStack frames = FrameStack.current();
+        frames.enter();
+        try {
+            actual.onNext(value);
+        } finally {
+            next.selfTime.record(frames.exit());
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        actual.onError(t);
+    }
+
+    @Override
+    public void onComplete() {
+        actual.onComplete();
+    }
+
+    @Override
+    public void request(long n) {
+        FrameStack frames = FrameStack.current();
+        frames.enter();
+        try {
+            s.request(n);
+        } finally {
+            stage.selfTime.record(frames.exit());
+        }
+    }
+
+    @Override
+    public void cancel() {
+        s.cancel();
+    }
+}
@@ -0,0 +1,37 @@
+package com.workafterworks.reactorexample.profile;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * One operator of a profiled pipeline, in assembly order. The last stage of a pipeline is the subscriber.
+ *
+ * path is pipeline;stage0;...;this stage, assembling the same operators under the same pipeline name again
+ * (a pipeline built per request) gets the same stages.
+ */
+final class ProfiledStage {
+
+    final String pipeline;
+    final int index;
+    final String name;
+    final String path;
+    final boolean async;
+    final LatencyHistogram selfTime = new LatencyHistogram();
+    final LatencyHistogram queueTime = new LatencyHistogram();
+    final LongAdder onNext = new LongAdder();
+
+    ProfiledStage(String pipeline, int index, String name, String path, boolean async) {
+        this.pipeline = pipeline;
+        this.index = index;
+        this.name = name;
+        this.path = path;
+        this.async = async;
+    }
+
+    StageProfile profile() {
+        return new StageProfile(pipeline, index, name, onNext.sum(),
+                selfTime.count(), selfTime.totalNanos(), selfTime.percentile(50), selfTime.percentile(90),
+                selfTime.percentile(99), selfTime.maxNanos(),
+                queueTime.count(), queueTime.percentile(50), queueTime.percentile(90), queueTime.percentile(99),
+                queueTime.maxNanos());
+    }
+}
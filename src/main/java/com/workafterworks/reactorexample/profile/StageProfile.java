@@ -0,0 +1,115 @@
+package com.workafterworks.reactorexample.profile;
+
+/*
+ * What OperatorProfiler measured for one stage, durations in nanoseconds.
+ *
+ * Self time is sampled per call into the stage (each onNext from upstream and each request from downstream) and
+ * excludes the stages it calls. Queue time is only measured for asynchronous stages (publishOn, delayElements):
+ * the time from an element reaching the stage to the stage emitting it on its worker.
+ */
+public final class StageProfile {
+
+    private final String pipeline;
+    private final int index;
+    private final String name;
+    private final long onNext;
+    private final long selfTimeSamples;
+    private final long selfTimeTotal;
+    private final long selfTimeP50;
+    private final long selfTimeP90;
+    private final long selfTimeP99;
+    private final long selfTimeMax;
+    private final long queueTimeSamples;
+    private final long queueTimeP50;
+    private final long queueTimeP90;
+    private final long queueTimeP99;
+    private final long queueTimeMax;
+
+    StageProfile(String pipeline, int index, String name, long onNext,
+                 long selfTimeSamples, long selfTimeTotal, long selfTimeP50, long selfTimeP90, long selfTimeP99, long selfTimeMax,
+                 long queueTimeSamples, long queueTimeP50, long queueTimeP90, long queueTimeP99, long queueTimeMax) {
+        this.pipeline = pipeline;
+        this.index = index;
+        this.name = name;
+        this.onNext = onNext;
+        this.selfTimeSamples = selfTimeSamples;
+        this.selfTimeTotal = selfTimeTotal;
+        this.selfTimeP50 = selfTimeP50;
+        this.selfTimeP90 = selfTimeP90;
+        this.selfTimeP99 = selfTimeP99;
+        this.selfTimeMax = selfTimeMax;
+        this.queueTimeSamples = queueTimeSamples;
+        this.queueTimeP50 = queueTimeP50;
+        this.queueTimeP90 = queueTimeP90;
+        this.queueTimeP99 = queueTimeP99;
+        this.queueTimeMax = queueTimeMax;
+    }
+
+    public String pipeline() {
+        return pipeline;
+    }
+
+    public int index() {
+        return index;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    //elements the stage emitted downstream
+    public long onNext() {
+        return onNext;
+    }
+
+    public long selfTimeSamples() {
+        return selfTimeSamples;
+    }
+
+    public long selfTimeTotal() {
+        return selfTimeTotal;
+    }
+
+    public long selfTimeP50() {
+        return selfTimeP50;
+    }
+
+    public long selfTimeP90() {
+        return selfTimeP90;
+    }
+
+    public long selfTimeP99() {
+        return selfTimeP99;
+    }
+
+    public long selfTimeMax() {
+        return selfTimeMax;
+    }
+
+    public long queueTimeSamples() {
+        return queueTimeSamples;
+    }
+
+    public long queueTimeP50() {
+        return queueTimeP50;
+    }
+
+    public long queueTimeP90() {
+        return queueTimeP90;
+    }
+
+    public long queueTimeP99() {
+        return queueTimeP99;
+    }
+
+    public long queueTimeMax() {
+        return queueTimeMax;
+    }
+
+    @Override
+    public String toString() {
+        return pipeline + "#" + index + " " + name + " onNext=" + onNext
+                + " self[p50=" + selfTimeP50 + " p90=" + selfTimeP90 + " p99=" + selfTimeP99 + " max=" + selfTimeMax + "]ns"
+                + (queueTimeSamples == 0 ? "" : " queue[p50=" + queueTimeP50 + " p90=" + queueTimeP90 + " p99=" + queueTimeP99 + " max=" + queueTimeMax + "]ns");
+    }
+}
@@ -0,0 +1,224 @@
+package com.workafterworks.reactorexample.retry;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/*
+ * Retry strategy with exponential backoff, jitter and a retry budget, for pipelines like fluxSubscriberError that
+ * otherwise terminate on their first exception:
+ *
+ * RetryBackoff retry = RetryBackoff.builder()
+ *         .maxAttempts(5)
+ *         .backoff(Duration.ofMillis(100), Duration.ofSeconds(10))
+ *         .jitter(Jitter.FULL)
+ *         .budget(RetryBudget.of(20, 5))
+ *         .build();
+ * flux.retryWhen(retry)
+ *
+ * One instance per pipeline: the budget is shared by every subscription retried with it, so an outage costs at
+ * most the budget's retries however many subscribers fail. Once the attempts or the budget run out the pipeline
+ * fails with Exceptions.retryExhausted, whose cause is the last failure. Errors rejected by the filter are
+ * propagated as they are.
+ *
+ * The delays run on TimerWheel.shared() by default: one timer thread for all pending retries, the resubscription
+ * happens on Schedulers.parallel().
+ *
+ * With a MeterRegistry: reactor.retry.attempts, reactor.retry.give.ups and reactor.retry.budget.exhausted tagged
+ * name=<name>.
+ */
+public final class RetryBackoff extends Retry {
+
+    public enum Jitter {
+        //firstBackoff * 2^attempt, capped by maxBackoff
+        NONE,
+        //uniform between 0 and the exponential delay, spreads out the retries of subscriptions that failed together
+        FULL,
+        //uniform between firstBackoff and 3 times the previous delay, capped by maxBackoff
+        DECORRELATED
+    }
+
+    private final long maxAttempts;
+    private final long firstNanos;
+    private final long maxNanos;
+    private final Jitter jitter;
+    private final RetryBudget budget;
+    private final Scheduler timer;
+    private final Predicate<? super Throwable> filter;
+    private final boolean transientErrors;
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder giveUps = new LongAdder();
+    private final LongAdder budgetExhausted = new LongAdder();
+
+    private RetryBackoff(Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.firstNanos = builder.firstBackoff.toNanos();
+        this.maxNanos = builder.maxBackoff.toNanos();
+        this.jitter = builder.jitter;
+        this.budget = builder.budget;
+        this.timer = builder.timer != null ? builder.timer : TimerWheel.shared();
+        this.filter = builder.filter;
+        this.transientErrors = builder.transientErrors;
+        if (builder.registry != null) {
+            register(builder.name, builder.registry, "reactor.retry.attempts", "retries scheduled", attempts);
+            register(builder.name, builder.registry, "reactor.retry.give.ups", "failures propagated after the last attempt", giveUps);
+            register(builder.name, builder.registry, "reactor.retry.budget.exhausted", "failures propagated because the retry budget was empty", budgetExhausted);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private static void register(String name, MeterRegistry registry, String meter, String description, LongAdder counter) {
+        FunctionCounter.builder(meter, counter, LongAdder::doubleValue)
+                .description(description)
+                .tag("name", name)
+                .register(registry);
+    }
+
+    @Override
+    public Publisher<?> generateCompanion(Flux<RetrySignal> retrySignals) {
+        //per subscription, the previous delay for DECORRELATED
+        long[] previous = {firstNanos};
+        return retrySignals.concatMap(signal -> {
+            Throwable failure = signal.failure();
+            if (!filter.test(failure)) {
+                return Mono.error(failure);
+            }
+            long attempt = transientErrors ? signal.totalRetriesInARow() : signal.totalRetries();
+            if (attempt >= maxAttempts) {
+                giveUps.increment();
+                return Mono.error(Exceptions.retryExhausted("Retries exhausted: " + attempt + "/" + maxAttempts, failure));
+            }
+            if (budget != null && !budget.tryAcquire()) {
+                budgetExhausted.increment();
+                return Mono.error(Exceptions.retryExhausted("Retry budget exhausted after " + attempt + " retries", failure));
+            }
+            if (attempt == 0) {
+                previous[0] = firstNanos;
+            }
+            long delay = delayNanos(attempt, previous[0], ThreadLocalRandom.current());
+            previous[0] = delay;
+            attempts.increment();
+            return Mono.delay(Duration.ofNanos(delay), timer);
+        });
+    }
+
+    long delayNanos(long attempt, long previousNanos, Random random) {
+        switch (jitter) {
+            case FULL:
+                return (long) (random.nextDouble() * exponentialNanos(attempt));
+            case DECORRELATED:
+                long upper = previousNanos > maxNanos / 3 ? maxNanos : Math.max(previousNanos * 3, firstNanos);
+                return Math.min(maxNanos, firstNanos + (long) (random.nextDouble() * (upper - firstNanos)));
+            default:
+                return exponentialNanos(attempt);
+        }
+    }
+
+    private long exponentialNanos(long attempt) {
+        if (attempt >= 62 || firstNanos > maxNanos >> attempt) {
+            return maxNanos;
+        }
+        return firstNanos << attempt;
+    }
+
+    public long attempts() {
+        return attempts.sum();
+    }
+
+    public long giveUps() {
+        return giveUps.sum();
+    }
+
+    public long budgetExhausted() {
+        return budgetExhausted.sum();
+    }
+
+    public static final class Builder {
+
+        private long maxAttempts = 3;
+        private Duration firstBackoff = Duration.ofMillis(100);
+        private Duration maxBackoff = Duration.ofSeconds(10);
+        private Jitter jitter = Jitter.FULL;
+        private RetryBudget budget;
+        private Scheduler timer;
+        private Predicate<? super Throwable> filter = e -> true;
+        private boolean transientErrors;
+        private String name;
+        private MeterRegistry registry;
+
+        private Builder() {
+        }
+
+        //retries per subscription, not counting the first subscription
+        public Builder maxAttempts(long maxAttempts) {
+            if (maxAttempts < 0) {
+                throw new IllegalArgumentException("maxAttempts must not be negative, was " + maxAttempts);
+            }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        public Builder backoff(Duration firstBackoff, Duration maxBackoff) {
+            if (firstBackoff.isNegative() || maxBackoff.compareTo(firstBackoff) < 0) {
+                throw new IllegalArgumentException("expected 0 <= firstBackoff <= maxBackoff, was " + firstBackoff + ", " + maxBackoff);
+            }
+            this.firstBackoff = firstBackoff;
+            this.maxBackoff = maxBackoff;
+            return this;
+        }
+
+        public Builder jitter(Jitter jitter) {
+            this.jitter = Objects.requireNonNull(jitter, "jitter");
+            return this;
+        }
+
+        //shared by every subscription retried with the built RetryBackoff, none by default
+        public Builder budget(RetryBudget budget) {
+            this.budget = Objects.requireNonNull(budget, "budget");
+            return this;
+        }
+
+        //runs the delays, TimerWheel.shared() by default
+        public Builder timer(Scheduler timer) {
+            this.timer = Objects.requireNonNull(timer, "timer");
+            return this;
+        }
+
+        //errors to retry, all by default
+        public Builder filter(Predicate<? super Throwable> filter) {
+            this.filter = Objects.requireNonNull(filter, "filter");
+            return this;
+        }
+
+        //attempts and backoff start over once the source emits again, for long-lived fluxes
+        public Builder transientErrors(boolean transientErrors) {
+            this.transientErrors = transientErrors;
+            return this;
+        }
+
+        public Builder metrics(String name, MeterRegistry registry) {
+            this.name = Objects.requireNonNull(name, "name");
+            this.registry = Objects.requireNonNull(registry, "registry");
+            return this;
+        }
+
+        public RetryBackoff build() {
+            return new RetryBackoff(this);
+        }
+    }
+}
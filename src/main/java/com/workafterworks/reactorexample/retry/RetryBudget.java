@@ -0,0 +1,60 @@
+package com.workafterworks.reactorexample.retry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/*
+ * Token bucket bounding how many retries a pipeline may start, whatever the number of its failing subscriptions.
+ *
+ * RetryBudget.of(20, 5) allows bursts of 20 retries and 5 retries per second after that: during an outage the
+ * retries stop once the bucket is empty instead of multiplying the load on the failing service.
+ *
+ * Lock-free: the bucket is kept as the time at which it will be full again (generic cell rate algorithm), a retry
+ * pushes that time one token interval further with a CAS, and is refused when it would be more than the capacity
+ * ahead of now. No refill thread, no lock.
+ */
+public final class RetryBudget {
+
+    private final long tokenNanos;
+    private final long burstNanos;
+    private final LongSupplier clock;
+    private final AtomicLong fullAt;
+
+    RetryBudget(int capacity, double tokensPerSecond, LongSupplier clock) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive, was " + capacity);
+        }
+        if (!(tokensPerSecond > 0)) {
+            throw new IllegalArgumentException("tokensPerSecond must be positive, was " + tokensPerSecond);
+        }
+        this.tokenNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / tokensPerSecond));
+        this.burstNanos = tokenNanos > Long.MAX_VALUE / 4 / capacity ? Long.MAX_VALUE / 4 : tokenNanos * capacity;
+        this.clock = clock;
+        this.fullAt = new AtomicLong(clock.getAsLong());
+    }
+
+    public static RetryBudget of(int capacity, double tokensPerSecond) {
+        return new RetryBudget(capacity, tokensPerSecond, System::nanoTime);
+    }
+
+    //takes a token, false when the bucket is empty
+    public boolean tryAcquire() {
+        long now = clock.getAsLong();
+        for (; ; ) {
+            long current = fullAt.get();
+            long next = Math.max(current - now, 0) + tokenNanos;
+            if (next > burstNanos) {
+                return false;
+            }
+            if (fullAt.compareAndSet(current, now + next)) {
+                return true;
+            }
+        }
+    }
+
+    public int available() {
+        long used = Math.max(fullAt.get() - clock.getAsLong(), 0);
+        return (int) ((burstNanos - used) / tokenNanos);
+    }
+}
@@ -0,0 +1,328 @@
+package com.workafterworks.reactorexample.retry;
+
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/*
+ * Hashed timer wheel for many short delays, such as the backoff of thousands of retrying subscriptions.
+ *
+ * One daemon thread advances the wheel every tick and hands the expired tasks to the delegate scheduler, instead of
+ * one ScheduledFuture per delay in a ScheduledThreadPoolExecutor's heap. Scheduling is a lock-free enqueue, the
+ * wheel thread moves new timeouts to their bucket (deadline / tick modulo wheel size, plus the rounds left) and
+ * walks one bucket per tick. Delays are rounded up to the next tick, a task never runs early.
+ *
+ * Usable wherever Reactor takes a Scheduler for delays: Mono.delay(duration, wheel), Retry, ...
+ * Tasks without delay go to the delegate directly.
+ */
+public final class TimerWheel implements Scheduler {
+
+    private static final class Shared {
+        static final TimerWheel INSTANCE = new TimerWheel("timer-wheel", TimeUnit.MILLISECONDS.toNanos(10), 512, Schedulers.parallel());
+    }
+
+    private final long tickNanos;
+    private final Bucket[] buckets;
+    private final int mask;
+    private final Scheduler delegate;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    //disposed before expiring, unlinked from their bucket on the next tick
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger state = new AtomicInteger();
+    //incremented when a timeout is scheduled, decremented when it is dispatched or disposed
+    private final AtomicInteger pendingTimeouts = new AtomicInteger();
+    private final Thread thread;
+    private final long startedAt;
+
+    private TimerWheel(String name, long tickNanos, int wheelSize, Scheduler delegate) {
+        int size = Integer.highestOneBit(Math.max(wheelSize, 2) - 1) << 1;
+        this.tickNanos = tickNanos;
+        this.buckets = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.delegate = delegate;
+        this.startedAt = System.nanoTime();
+        this.thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    //tick 10ms, 512 buckets (one round is 5.12s), expired tasks run on Schedulers.parallel()
+    public static TimerWheel shared() {
+        return Shared.INSTANCE;
+    }
+
+    public static TimerWheel create(String name, Duration tick, int wheelSize, Scheduler delegate) {
+        long tickNanos = tick.toNanos();
+        if (tickNanos < TimeUnit.MILLISECONDS.toNanos(1)) {
+            throw new IllegalArgumentException("tick must be at least 1ms, was " + tick);
+        }
+        return new TimerWheel(name, tickNanos, wheelSize, delegate);
+    }
+
+    @Override
+    public Disposable schedule(Runnable task) {
+        return delegate.schedule(task);
+    }
+
+    @Override
+    public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+        return schedule(task, delay, unit, delegate::schedule, null);
+    }
+
+    @Override
+    public Worker createWorker() {
+        return new WheelWorker(delegate.createWorker());
+    }
+
+    @Override
+    public void dispose() {
+        if (state.getAndSet(1) == 0) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return state.get() != 0;
+    }
+
+    //timeouts neither dispatched nor disposed yet, the ones scheduled since the last tick included
+    public int pendingTimeouts() {
+        return pendingTimeouts.get();
+    }
+
+    //owner tracks the timeout until it is dispatched or disposed
+    private Timeout schedule(Runnable task, long delay, TimeUnit unit, Function<Runnable, Disposable> dispatch,
+                             Disposable.Composite owner) {
+        if (isDisposed()) {
+            throw new RejectedExecutionException("TimerWheel disposed");
+        }
+        long deadline = System.nanoTime() - startedAt + Math.max(0, unit.toNanos(delay));
+        Timeout timeout = new Timeout(this, task, deadline, dispatch, owner);
+        //added before the wheel can see it, or an immediate dispatch would remove it before it is there
+        if (owner != null && !owner.add(timeout)) {
+            throw new RejectedExecutionException("Worker disposed");
+        }
+        pendingTimeouts.incrementAndGet();
+        pending.offer(timeout);
+        return timeout;
+    }
+
+    private void run() {
+        long tick = 0;
+        while (!isDisposed()) {
+            long sleepNanos = tickNanos * (tick + 1) - (System.nanoTime() - startedAt);
+            if (sleepNanos > 0) {
+                LockSupport.parkNanos(this, sleepNanos);
+                continue;
+            }
+            unlinkCancelled();
+            transferPending(tick);
+            expire(buckets[(int) (tick & mask)]);
+            tick++;
+        }
+        for (Bucket bucket : buckets) {
+            bucket.head = null;
+            bucket.tail = null;
+        }
+        pending.clear();
+        cancelled.clear();
+    }
+
+    private void transferPending(long tick) {
+        //bounded so that a flood of new timeouts cannot stall the wheel
+        for (int i = 0; i < 100_000; i++) {
+            Timeout timeout = pending.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (!timeout.isPending()) {
+                continue;
+            }
+            //ceiling: a deadline between two ticks expires at the later one
+            long expiresAt = Math.max((timeout.deadline + tickNanos - 1) / tickNanos, tick);
+            timeout.remainingRounds = (expiresAt - tick) / buckets.length;
+            buckets[(int) (expiresAt & mask)].add(timeout);
+        }
+    }
+
+    private void unlinkCancelled() {
+        for (Timeout timeout = cancelled.poll(); timeout != null; timeout = cancelled.poll()) {
+            //null while the timeout is still in pending, transferPending skips it then
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void expire(Bucket bucket) {
+        Timeout timeout = bucket.head;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (!timeout.isPending()) {
+                bucket.remove(timeout);
+            } else if (timeout.remainingRounds <= 0) {
+                bucket.remove(timeout);
+                timeout.dispatch();
+            } else {
+                timeout.remainingRounds--;
+            }
+            timeout = next;
+        }
+    }
+
+    //doubly linked through the timeouts so that a cancelled one is unlinked in O(1), wheel thread only
+    static final class Bucket {
+
+        Timeout head;
+        Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+    }
+
+    static final class Timeout implements Disposable {
+
+        static final int PENDING = 0;
+        static final int DISPATCHED = 1;
+        static final int CANCELLED = 2;
+
+        static final AtomicIntegerFieldUpdater<Timeout> STATE = AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        final TimerWheel wheel;
+        final Runnable task;
+        final long deadline;
+        final Function<Runnable, Disposable> dispatcher;
+        final Disposable.Composite owner;
+        //wheel thread only
+        long remainingRounds;
+        Bucket bucket;
+        Timeout prev;
+        Timeout next;
+        final Disposable.Swap dispatched = Disposables.swap();
+        //leaves PENDING once, for dispatch or dispose, whichever comes first
+        volatile int state;
+
+        Timeout(TimerWheel wheel, Runnable task, long deadline, Function<Runnable, Disposable> dispatcher,
+                Disposable.Composite owner) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadline = deadline;
+            this.dispatcher = dispatcher;
+            this.owner = owner;
+        }
+
+        boolean isPending() {
+            return state == PENDING;
+        }
+
+        void dispatch() {
+            if (!STATE.compareAndSet(this, PENDING, DISPATCHED)) {
+                return;
+            }
+            done();
+            try {
+                dispatched.update(dispatcher.apply(task));
+            } catch (RejectedExecutionException e) {
+                //the delegate is shut down, the task is dropped like the ones of a disposed scheduler
+                dispatched.dispose();
+            }
+        }
+
+        //after dispatch, disposes the task handed to the delegate
+        @Override
+        public void dispose() {
+            dispatched.dispose();
+            if (STATE.compareAndSet(this, PENDING, CANCELLED)) {
+                done();
+                wheel.cancelled.offer(this);
+            }
+        }
+
+        private void done() {
+            wheel.pendingTimeouts.decrementAndGet();
+            if (owner != null) {
+                owner.remove(this);
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return dispatched.isDisposed();
+        }
+    }
+
+    final class WheelWorker implements Worker {
+
+        private final Worker worker;
+        private final Disposable.Composite timeouts = Disposables.composite();
+
+        WheelWorker(Worker worker) {
+            this.worker = worker;
+        }
+
+        @Override
+        public Disposable schedule(Runnable task) {
+            return worker.schedule(task);
+        }
+
+        @Override
+        public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+            return TimerWheel.this.schedule(task, delay, unit, worker::schedule, timeouts);
+        }
+
+        //timeouts of this worker neither dispatched nor disposed yet
+        int pendingTimeouts() {
+            return timeouts.size();
+        }
+
+        @Override
+        public void dispose() {
+            timeouts.dispose();
+            worker.dispose();
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return worker.isDisposed();
+        }
+    }
+}
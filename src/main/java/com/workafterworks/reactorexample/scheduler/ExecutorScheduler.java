@@ -0,0 +1,244 @@
+package com.workafterworks.reactorexample.scheduler;
+
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Operators;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.context.Context;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/*
+ * Scheduler running its tasks on an ExecutorService, shared by VirtualThreadScheduler and BulkheadScheduler.
+ *
+ * Delays and periods are kept by one platform timer thread that only hands the task over to the executor when it
+ * is due. Workers run their tasks one at a time in submission order, as Reactor expects from a Worker, each drain
+ * of a worker is one task of the executor. A task the executor rejects fails its schedule call with the
+ * RejectedExecutionException, a worker that gets one is disposed.
+ *
+ * Subclasses see every task once, when it is scheduled, through decorate.
+ */
+public abstract class ExecutorScheduler implements Scheduler {
+
+    private final ExecutorService executor;
+    private final ScheduledExecutorService timer;
+
+    protected ExecutorScheduler(String name, ExecutorService executor) {
+        this.executor = executor;
+        this.timer = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name(name + "-timer").daemon().factory());
+    }
+
+    //called on the scheduling thread, the returned Runnable is run in place of the task
+    protected Runnable decorate(Runnable task) {
+        return task;
+    }
+
+    @Override
+    public Disposable schedule(Runnable task) {
+        Runnable decorated = decorate(task);
+        Future<?> future = executor.submit(() -> run(decorated));
+        return () -> future.cancel(true);
+    }
+
+    @Override
+    public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+        return handOffAfter(() -> schedule(task), delay, unit);
+    }
+
+    //a run that is still going when the next one is due is skipped, runs never overlap
+    @Override
+    public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        AtomicBoolean running = new AtomicBoolean();
+        Future<?> periodic = timer.scheduleAtFixedRate(() -> {
+            if (running.compareAndSet(false, true)) {
+                Runnable decorated = decorate(task);
+                try {
+                    executor.execute(() -> {
+                        try {
+                            run(decorated);
+                        } finally {
+                            running.set(false);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    //this run is lost, the next one is tried on time
+                    running.set(false);
+                    Operators.onErrorDropped(e, Context.empty());
+                }
+            }
+        }, initialDelay, period, unit);
+        return () -> periodic.cancel(false);
+    }
+
+    @Override
+    public Worker createWorker() {
+        return new SerialWorker();
+    }
+
+    @Override
+    public void dispose() {
+        timer.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return executor.isShutdown();
+    }
+
+    /*
+     * Runs handOff on the timer after delay, the returned Disposable cancels the timer and then the handed off task.
+     * The cancel handle is in place before the timer can fire, and the timer swaps the task in with replace: update
+     * disposes what it replaces, so a caller installing its handle after a timer that already fired cancelled the task.
+     */
+    private Disposable handOffAfter(Supplier<Disposable> handOff, long delay, TimeUnit unit) {
+        Disposable.Swap handoff = Disposables.swap();
+        AtomicReference<Future<?>> delayed = new AtomicReference<>();
+        handoff.replace(() -> {
+            Future<?> future = delayed.get();
+            if (future != null) {
+                future.cancel(false);
+            }
+        });
+        delayed.set(timer.schedule(() -> {
+            if (!handoff.isDisposed()) {
+                try {
+                    //disposes the task instead when the handle was disposed in the meantime
+                    handoff.replace(handOff.get());
+                } catch (RejectedExecutionException e) {
+                    Operators.onErrorDropped(e, Context.empty());
+                }
+            }
+        }, delay, unit));
+        if (handoff.isDisposed()) {
+            //disposed before the future was set
+            delayed.get().cancel(false);
+        }
+        return handoff;
+    }
+
+    static void run(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable e) {
+            Operators.onErrorDropped(e, Context.empty());
+        }
+    }
+
+    /*
+     * Queues its tasks and drains them on one executor thread at a time: a drain is started when the queue goes
+     * from empty to non-empty and runs until it is empty again.
+     */
+    final class SerialWorker implements Worker {
+
+        final Queue<WorkerTask> queue = new ConcurrentLinkedQueue<>();
+        final AtomicInteger wip = new AtomicInteger();
+        final Disposable.Composite tasks = Disposables.composite();
+
+        @Override
+        public Disposable schedule(Runnable task) {
+            WorkerTask workerTask = new WorkerTask(decorate(task));
+            if (!tasks.add(workerTask)) {
+                throw new RejectedExecutionException("Worker disposed");
+            }
+            queue.offer(workerTask);
+            if (wip.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    //no drain is coming for the queued tasks: the worker is done, later schedules fail too
+                    dispose();
+                    throw e;
+                }
+            }
+            return workerTask;
+        }
+
+        @Override
+        public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+            return handOffAfter(() -> isDisposed() ? Disposables.disposed() : schedule(task), delay, unit);
+        }
+
+        @Override
+        public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+            Future<?> periodic = timer.scheduleAtFixedRate(() -> {
+                if (!isDisposed()) {
+                    try {
+                        schedule(task);
+                    } catch (RejectedExecutionException e) {
+                        //the worker disposed itself, which cancels this timer too
+                        Operators.onErrorDropped(e, Context.empty());
+                    }
+                }
+            }, initialDelay, period, unit);
+            Disposable cancel = () -> periodic.cancel(false);
+            if (!tasks.add(cancel)) {
+                //disposed meanwhile, nothing would cancel the timer
+                cancel.dispose();
+                throw new RejectedExecutionException("Worker disposed");
+            }
+            return cancel;
+        }
+
+        @Override
+        public void dispose() {
+            tasks.dispose();
+            queue.clear();
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return tasks.isDisposed();
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                WorkerTask task;
+                while ((task = queue.poll()) != null) {
+                    task.run();
+                    tasks.remove(task);
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        final class WorkerTask implements Runnable, Disposable {
+
+            final Runnable task;
+            volatile boolean disposed;
+
+            WorkerTask(Runnable task) {
+                this.task = task;
+            }
+
+            @Override
+            public void run() {
+                if (!disposed && !SerialWorker.this.isDisposed()) {
+                    ExecutorScheduler.run(task);
+                }
+            }
+
+            @Override
+            public void dispose() {
+                disposed = true;
+            }
+
+            @Override
+            public boolean isDisposed() {
+                return disposed;
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.workafterworks.reactorexample.scheduler;
+
+import java.util.concurrent.Executors;
+
+/*
+ * Scheduler running every task on its own virtual thread, for wrapping blocking calls (JDBC, legacy SDKs):
+ *
+ * Mono.fromCallable(() -> blockingCall()).subscribeOn(virtualThreads)
+ *
+ * boundedElastic caps the number of platform threads, so at most that many blocking calls run at once and the rest
+ * queue. Virtual threads unmount while blocked, thousands of blocking subscriptions cost little more than their stacks.
+ * Code that pins the carrier (blocking inside synchronized, native calls) still occupies one carrier thread per call.
+ *
+ * Delays and periods are kept by one platform timer thread that only hands the task over to a virtual thread.
+ * Workers run their tasks one at a time in submission order, as Reactor expects from a Worker.
+ */
+public final class VirtualThreadScheduler extends ExecutorScheduler {
+
+    private VirtualThreadScheduler(String name) {
+        super(name, Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory()));
+    }
+
+    public static VirtualThreadScheduler create(String name) {
+        return new VirtualThreadScheduler(name);
+    }
+}
@@ -0,0 +1,147 @@
+package com.workafterworks.reactorexample.sink;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/*
+ * Bounded lock-free queue for many producers and one consumer, the array queue of JCTools reduced to what MpscSink uses.
+ *
+ * A producer claims a slot with a CAS on producerIndex and publishes the element with an ordered store into it.
+ * The consumer sees a claimed but not yet published slot as null and waits for the store, the queue is never
+ * inconsistent, at worst briefly behind. Producers only read consumerIndex once they run into their cached
+ * producerLimit, so in the common case an offer touches the producer line and its slot only.
+ *
+ * producerIndex, producerLimit and consumerIndex sit on cache lines of their own (the padding superclasses below,
+ * 128 bytes each side to cover adjacent line prefetching), so producers spinning on their CAS do not invalidate the
+ * line the consumer keeps writing.
+ */
+final class MpscArrayQueue<E> extends MpscArrayQueueConsumerPad {
+
+    private final AtomicReferenceArray<E> buffer;
+    private final int mask;
+
+    MpscArrayQueue(int capacity) {
+        int size = capacity < 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.producerLimit = size;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    //any thread, false when full
+    boolean offer(E e) {
+        long limit = producerLimit;
+        long index;
+        do {
+            index = producerIndex;
+            if (index >= limit) {
+                limit = consumerIndex + mask + 1;
+                if (index >= limit) {
+                    return false;
+                }
+                PRODUCER_LIMIT.lazySet(this, limit);
+            }
+        } while (!PRODUCER_INDEX.compareAndSet(this, index, index + 1));
+        buffer.lazySet((int) index & mask, e);
+        return true;
+    }
+
+    /*
+     * Consumer thread only, hands up to limit elements to the consumer and frees their slots in one store at the end.
+     * The store is also made when the consumer throws, the slots handed over so far are already nulled and a later
+     * drain starting from the old index would wait forever for a producer to fill them.
+     */
+    int drain(Consumer<? super E> consumer, int limit) {
+        long index = consumerIndex;
+        int drained = 0;
+        try {
+            while (drained < limit) {
+                int offset = (int) index & mask;
+                E e = buffer.get(offset);
+                if (e == null) {
+                    if (index == producerIndex) {
+                        break;
+                    }
+                    //claimed, the producer has not stored the element yet
+                    do {
+                        Thread.onSpinWait();
+                        e = buffer.get(offset);
+                    } while (e == null);
+                }
+                buffer.lazySet(offset, null);
+                index++;
+                drained++;
+                consumer.accept(e);
+            }
+        } finally {
+            if (drained != 0) {
+                CONSUMER_INDEX.lazySet(this, index);
+            }
+        }
+        return drained;
+    }
+
+    //consumer thread only
+    void clear() {
+        while (drain(e -> {
+        }, Integer.MAX_VALUE) != 0) {
+        }
+    }
+
+    boolean isEmpty() {
+        return consumerIndex == producerIndex;
+    }
+
+    int size() {
+        return (int) Math.max(0, Math.min(producerIndex - consumerIndex, mask + 1));
+    }
+}
+
+@SuppressWarnings("unused")
+abstract class MpscArrayQueueHeadPad {
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+abstract class MpscArrayQueueProducerIndex extends MpscArrayQueueHeadPad {
+    static final AtomicLongFieldUpdater<MpscArrayQueueProducerIndex> PRODUCER_INDEX =
+            AtomicLongFieldUpdater.newUpdater(MpscArrayQueueProducerIndex.class, "producerIndex");
+
+    volatile long producerIndex;
+}
+
+@SuppressWarnings("unused")
+abstract class MpscArrayQueueProducerPad extends MpscArrayQueueProducerIndex {
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+abstract class MpscArrayQueueProducerLimit extends MpscArrayQueueProducerPad {
+    static final AtomicLongFieldUpdater<MpscArrayQueueProducerLimit> PRODUCER_LIMIT =
+            AtomicLongFieldUpdater.newUpdater(MpscArrayQueueProducerLimit.class, "producerLimit");
+
+    volatile long producerLimit;
+}
+
+@SuppressWarnings("unused")
+abstract class MpscArrayQueueLimitPad extends MpscArrayQueueProducerLimit {
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+abstract class MpscArrayQueueConsumerIndex extends MpscArrayQueueLimitPad {
+    static final AtomicLongFieldUpdater<MpscArrayQueueConsumerIndex> CONSUMER_INDEX =
+            AtomicLongFieldUpdater.newUpdater(MpscArrayQueueConsumerIndex.class, "consumerIndex");
+
+    volatile long consumerIndex;
+}
+
+@SuppressWarnings("unused")
+abstract class MpscArrayQueueConsumerPad extends MpscArrayQueueConsumerIndex {
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+}
@@ -0,0 +1,341 @@
+package com.workafterworks.reactorexample.sink;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Operators;
+import reactor.core.publisher.Sinks;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/*
+ * Hot source for many producer threads and one subscriber:
+ *
+ * MpscSink<Event> sink = MpscSink.<Event>builder().capacity(8192).overflow(Overflow.DROP).build();
+ * sink.asFlux().subscribe(subscriber);
+ * //on any number of threads
+ * sink.tryEmitNext(event);
+ *
+ * tryEmitNext appends to a bounded lock-free MpscArrayQueue and never takes a lock. The thread that finds no drain
+ * running becomes the drainer and hands everything queued to the subscriber, in batches of up to BATCH elements
+ * per queue index update, until demand or the queue runs out. Producers arriving meanwhile only enqueue.
+ * Elements emitted before the subscriber arrives wait in the queue.
+ *
+ * Emissions are ordered per producer thread, not across them. Like Reactor's own sinks, emissions racing with
+ * tryEmitComplete or tryEmitError may be dropped: stop the producers before terminating.
+ *
+ * Each failed tryEmitNext is counted by its EmitResult (FAIL_OVERFLOW, FAIL_TERMINATED, FAIL_CANCELLED), with a
+ * MeterRegistry as reactor.sink.emit.failures tagged name=<name>, reason=overflow|terminated|cancelled.
+ */
+public final class MpscSink<T> {
+
+    static final int BATCH = 256;
+
+    public enum Overflow {
+        //the element is not emitted and tryEmitNext returns FAIL_OVERFLOW
+        DROP,
+        //as DROP, and the sink terminates with Exceptions.failWithOverflow
+        ERROR,
+        //tryEmitNext spins, yields and then parks until there is room, the subscriber's pace throttles the producers
+        BACKOFF
+    }
+
+    private final MpscArrayQueue<T> queue;
+    private final Overflow overflow;
+    private final LongAdder overflowFailures = new LongAdder();
+    private final LongAdder terminatedFailures = new LongAdder();
+    private final LongAdder cancelledFailures = new LongAdder();
+    private final SinkFlux flux = new SinkFlux();
+
+    private CoreSubscriber<? super T> actual;
+    private Consumer<T> onNext;
+    private volatile boolean done;
+    private Throwable error;
+    private volatile boolean cancelled;
+
+    private volatile int subscribed;
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<MpscSink> SUBSCRIBED =
+            AtomicIntegerFieldUpdater.newUpdater(MpscSink.class, "subscribed");
+
+    private volatile long requested;
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<MpscSink> REQUESTED =
+            AtomicLongFieldUpdater.newUpdater(MpscSink.class, "requested");
+
+    private volatile int wip;
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<MpscSink> WIP =
+            AtomicIntegerFieldUpdater.newUpdater(MpscSink.class, "wip");
+
+    private MpscSink(Builder builder) {
+        this.queue = new MpscArrayQueue<>(builder.capacity);
+        this.overflow = builder.overflow;
+        if (builder.registry != null) {
+            register(builder.name, builder.registry, "overflow", overflowFailures);
+            register(builder.name, builder.registry, "terminated", terminatedFailures);
+            register(builder.name, builder.registry, "cancelled", cancelledFailures);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private static void register(String name, MeterRegistry registry, String reason, LongAdder failures) {
+        FunctionCounter.builder("reactor.sink.emit.failures", failures, LongAdder::doubleValue)
+                .description("tryEmitNext calls that did not emit")
+                .tag("name", name)
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    //the single subscriber allowed, a second one gets an IllegalStateException
+    public Flux<T> asFlux() {
+        return flux;
+    }
+
+    public Sinks.EmitResult tryEmitNext(T value) {
+        Objects.requireNonNull(value, "value");
+        if (done) {
+            terminatedFailures.increment();
+            return Sinks.EmitResult.FAIL_TERMINATED;
+        }
+        if (cancelled) {
+            cancelledFailures.increment();
+            return Sinks.EmitResult.FAIL_CANCELLED;
+        }
+        if (!queue.offer(value)) {
+            Sinks.EmitResult result = onOverflow(value);
+            if (result != Sinks.EmitResult.OK) {
+                return result;
+            }
+        }
+        drain();
+        return Sinks.EmitResult.OK;
+    }
+
+    public Sinks.EmitResult tryEmitComplete() {
+        if (done) {
+            return Sinks.EmitResult.FAIL_TERMINATED;
+        }
+        done = true;
+        drain();
+        return Sinks.EmitResult.OK;
+    }
+
+    public Sinks.EmitResult tryEmitError(Throwable e) {
+        Objects.requireNonNull(e, "e");
+        if (done) {
+            return Sinks.EmitResult.FAIL_TERMINATED;
+        }
+        error = e;
+        done = true;
+        drain();
+        return Sinks.EmitResult.OK;
+    }
+
+    public long emitFailures(Sinks.EmitResult result) {
+        switch (result) {
+            case FAIL_OVERFLOW:
+                return overflowFailures.sum();
+            case FAIL_TERMINATED:
+                return terminatedFailures.sum();
+            case FAIL_CANCELLED:
+                return cancelledFailures.sum();
+            default:
+                return 0;
+        }
+    }
+
+    public long emitFailures() {
+        return overflowFailures.sum() + terminatedFailures.sum() + cancelledFailures.sum();
+    }
+
+    //elements queued and not delivered yet
+    public int queued() {
+        return queue.size();
+    }
+
+    public int capacity() {
+        return queue.capacity();
+    }
+
+    private Sinks.EmitResult onOverflow(T value) {
+        switch (overflow) {
+            case BACKOFF:
+                for (int attempt = 0; ; attempt++) {
+                    if (cancelled) {
+                        cancelledFailures.increment();
+                        return Sinks.EmitResult.FAIL_CANCELLED;
+                    }
+                    if (done) {
+                        terminatedFailures.increment();
+                        return Sinks.EmitResult.FAIL_TERMINATED;
+                    }
+                    //the drainer may be this thread's caller chain, or nobody when the subscriber has not requested
+                    drain();
+                    if (queue.offer(value)) {
+                        return Sinks.EmitResult.OK;
+                    }
+                    if (attempt < 100) {
+                        Thread.onSpinWait();
+                    } else if (attempt < 200) {
+                        Thread.yield();
+                    } else {
+                        LockSupport.parkNanos(10_000);
+                    }
+                }
+            case ERROR:
+                overflowFailures.increment();
+                tryEmitError(Exceptions.failWithOverflow("MpscSink queue of " + queue.capacity() + " is full"));
+                return Sinks.EmitResult.FAIL_OVERFLOW;
+            default:
+                overflowFailures.increment();
+                return Sinks.EmitResult.FAIL_OVERFLOW;
+        }
+    }
+
+    private void drain() {
+        if (WIP.getAndIncrement(this) != 0) {
+            return;
+        }
+        int missed = 1;
+        for (; ; ) {
+            CoreSubscriber<? super T> a = actual;
+            if (a != null) {
+                long r = requested;
+                long e = 0L;
+                while (e != r) {
+                    if (cancelled) {
+                        queue.clear();
+                        return;
+                    }
+                    boolean d = done;
+                    int drained;
+                    try {
+                        drained = queue.drain(onNext, (int) Math.min(r - e, BATCH));
+                    } catch (Throwable ex) {
+                        //the subscriber threw from onNext: it is gone, the throw goes back to the emitting thread
+                        cancelled = true;
+                        queue.clear();
+                        throw ex;
+                    }
+                    e += drained;
+                    if (drained == 0) {
+                        if (d) {
+                            terminate(a);
+                            return;
+                        }
+                        break;
+                    }
+                }
+                if (e == r) {
+                    if (cancelled) {
+                        queue.clear();
+                        return;
+                    }
+                    if (done && queue.isEmpty()) {
+                        terminate(a);
+                        return;
+                    }
+                }
+                if (e != 0 && r != Long.MAX_VALUE) {
+                    REQUESTED.addAndGet(this, -e);
+                }
+            } else if (cancelled) {
+                queue.clear();
+                return;
+            }
+            missed = WIP.addAndGet(this, -missed);
+            if (missed == 0) {
+                break;
+            }
+        }
+    }
+
+    private void terminate(CoreSubscriber<? super T> a) {
+        Throwable e = error;
+        if (e != null) {
+            a.onError(e);
+        } else {
+            a.onComplete();
+        }
+    }
+
+    public static final class Builder {
+
+        private int capacity = 8192;
+        private Overflow overflow = Overflow.DROP;
+        private String name;
+        private MeterRegistry registry;
+
+        private Builder() {
+        }
+
+        //rounded up to a power of two
+        public Builder capacity(int capacity) {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("capacity must be positive, was " + capacity);
+            }
+            this.capacity = capacity;
+            return this;
+        }
+
+        public Builder overflow(Overflow overflow) {
+            this.overflow = Objects.requireNonNull(overflow, "overflow");
+            return this;
+        }
+
+        public Builder metrics(String name, MeterRegistry registry) {
+            this.name = Objects.requireNonNull(name, "name");
+            this.registry = Objects.requireNonNull(registry, "registry");
+            return this;
+        }
+
+        public <T> MpscSink<T> build() {
+            return new MpscSink<>(this);
+        }
+    }
+
+    final class SinkFlux extends Flux<T> implements Subscription {
+
+        @Override
+        public void subscribe(CoreSubscriber<? super T> subscriber) {
+            if (!SUBSCRIBED.compareAndSet(MpscSink.this, 0, 1)) {
+                Operators.error(subscriber, new IllegalStateException("MpscSink allows only a single Subscriber"));
+                return;
+            }
+            onNext = subscriber::onNext;
+            subscriber.onSubscribe(this);
+            //published by the wip increment of drain
+            actual = subscriber;
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (Operators.validate(n)) {
+                Operators.addCap(REQUESTED, MpscSink.this, n);
+                drain();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            drain();
+        }
+    }
+}
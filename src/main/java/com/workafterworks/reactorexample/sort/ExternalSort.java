@@ -0,0 +1,256 @@
+package com.workafterworks.reactorexample.sort;
+
+import com.workafterworks.reactorexample.spill.SpillSerializer;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Flux.sort for streams larger than the heap:
+ *
+ * ExternalSort<Integer> sort = ExternalSort.builder(Comparator.<Integer>naturalOrder(), SpillSerializer.ints())
+ *         .memoryBudget(64 * 1024 * 1024)
+ *         .build();
+ * Flux<Integer> sorted = ExamplePipelines.fromList(numbers).transform(sort::sortExternal);
+ *
+ * Elements are collected until their estimated size (serializer.sizeOf plus ELEMENT_OVERHEAD_BYTES for the object and
+ * its reference) reaches the memory budget, then sorted and written to a temporary run file. When the source
+ * completes, the runs are merged back with a k-way merge that decodes a record per requested element, so the merge
+ * only goes as fast as the subscriber requests. A source that fits the budget is sorted on the heap and never
+ * touches the disk.
+ *
+ * More than fanIn runs are first merged in passes, fanIn consecutive runs into one, to bound the open files and the
+ * read buffers (fanIn * bufferBytes). Ties keep their arrival order, like Flux.sort.
+ *
+ * The source is consumed and the runs are written and read on the scheduler (boundedElastic by default). Run files
+ * are deleted when the sorted Flux completes, fails or is cancelled.
+ */
+public final class ExternalSort<T> {
+
+    //a reference plus a small object header, the heap cost of an element besides its serialized size
+    public static final int ELEMENT_OVERHEAD_BYTES = 32;
+
+    private final Comparator<? super T> comparator;
+    private final SpillSerializer<T> serializer;
+    private final long memoryBudget;
+    private final int fanIn;
+    private final int bufferBytes;
+    private final Path directory;
+    private final Scheduler scheduler;
+    private final LongAdder runsSpilled = new LongAdder();
+    private final LongAdder bytesSpilled = new LongAdder();
+
+    private ExternalSort(Builder<T> builder) {
+        this.comparator = builder.comparator;
+        this.serializer = builder.serializer;
+        this.memoryBudget = builder.memoryBudget;
+        this.fanIn = builder.fanIn;
+        this.bufferBytes = builder.bufferBytes;
+        this.directory = builder.directory;
+        this.scheduler = builder.scheduler;
+    }
+
+    public static <T> Builder<T> builder(Comparator<? super T> comparator, SpillSerializer<T> serializer) {
+        return new Builder<>(comparator, serializer);
+    }
+
+    //for transform: flux.transform(sort::sortExternal)
+    public Flux<T> sortExternal(Publisher<T> source) {
+        return Flux.defer(() -> {
+            Runs runs = new Runs();
+            return Flux.from(source)
+                    .publishOn(scheduler)
+                    .doOnNext(runs::add)
+                    .thenMany(Flux.defer(runs::sorted))
+                    .doFinally(signal -> runs.delete());
+        }).subscribeOn(scheduler);
+    }
+
+    //runs written to disk so far, intermediate merge passes included
+    public long runsSpilled() {
+        return runsSpilled.sum();
+    }
+
+    public long bytesSpilled() {
+        return bytesSpilled.sum();
+    }
+
+    /*
+     * The state of one subscription: the elements of the run being collected and the runs on disk.
+     * Guarded by this: delete runs on the thread that cancels, while add or sorted may be spilling on the scheduler.
+     */
+    private final class Runs {
+
+        private List<T> buffer = new ArrayList<>();
+        private long bufferedBytes;
+        private List<SortedRun> spilled = new ArrayList<>();
+        private boolean deleted;
+
+        synchronized void add(T value) {
+            if (deleted) {
+                return;
+            }
+            buffer.add(value);
+            bufferedBytes += serializer.sizeOf(value) + ELEMENT_OVERHEAD_BYTES;
+            if (bufferedBytes >= memoryBudget) {
+                spill();
+            }
+        }
+
+        private void spill() {
+            buffer.sort(comparator);
+            SortedRun.Writer<T> writer = new SortedRun.Writer<>(directory, serializer, bufferBytes);
+            try {
+                for (T value : buffer) {
+                    writer.write(value);
+                }
+                spilled.add(written(writer));
+            } catch (RuntimeException e) {
+                writer.discard();
+                throw e;
+            }
+            //a new list: the old one's array was sized for a full run, let it go while the next run grows
+            buffer = new ArrayList<>();
+            bufferedBytes = 0;
+        }
+
+        private SortedRun written(SortedRun.Writer<T> writer) {
+            SortedRun run = writer.finish();
+            runsSpilled.increment();
+            bytesSpilled.add(writer.bytes());
+            return run;
+        }
+
+        synchronized Flux<T> sorted() {
+            if (deleted) {
+                return Flux.empty();
+            }
+            if (spilled.isEmpty()) {
+                buffer.sort(comparator);
+                return Flux.fromIterable(buffer);
+            }
+            if (!buffer.isEmpty()) {
+                spill();
+            }
+            while (spilled.size() > fanIn) {
+                mergePass();
+            }
+            List<SortedRun> runs = spilled;
+            return Flux.generate(() -> new RunMerger<>(runs, comparator, serializer, bufferBytes), (merger, sink) -> {
+                T value = merger.next();
+                if (value != null) {
+                    sink.next(value);
+                } else {
+                    sink.complete();
+                }
+                return merger;
+            }, RunMerger::close);
+        }
+
+        //consecutive groups of fanIn runs merged into one each, so ties stay in arrival order
+        private void mergePass() {
+            List<SortedRun> merged = new ArrayList<>();
+            try {
+                mergeGroups(merged);
+            } catch (RuntimeException e) {
+                //the inputs are still in spilled and deleted with them
+                merged.forEach(SortedRun::delete);
+                throw e;
+            }
+            spilled = merged;
+        }
+
+        private void mergeGroups(List<SortedRun> merged) {
+            for (int from = 0; from < spilled.size(); from += fanIn) {
+                List<SortedRun> group = spilled.subList(from, Math.min(from + fanIn, spilled.size()));
+                if (group.size() == 1) {
+                    merged.add(group.get(0));
+                    continue;
+                }
+                SortedRun.Writer<T> writer = new SortedRun.Writer<>(directory, serializer, bufferBytes);
+                try (RunMerger<T> merger = new RunMerger<>(group, comparator, serializer, bufferBytes)) {
+                    merger.mergeTo(writer);
+                    merged.add(written(writer));
+                } catch (RuntimeException e) {
+                    writer.discard();
+                    throw e;
+                }
+                group.forEach(SortedRun::delete);
+            }
+        }
+
+        //waits for a spill in progress, later adds and spills are dropped
+        synchronized void delete() {
+            deleted = true;
+            buffer = new ArrayList<>();
+            spilled.forEach(SortedRun::delete);
+        }
+    }
+
+    public static final class Builder<T> {
+
+        private final Comparator<? super T> comparator;
+        private final SpillSerializer<T> serializer;
+        private long memoryBudget = 64L * 1024 * 1024;
+        private int fanIn = 64;
+        private int bufferBytes = 64 * 1024;
+        private Path directory = Paths.get(System.getProperty("java.io.tmpdir"));
+        private Scheduler scheduler = Schedulers.boundedElastic();
+
+        private Builder(Comparator<? super T> comparator, SpillSerializer<T> serializer) {
+            this.comparator = Objects.requireNonNull(comparator, "comparator");
+            this.serializer = Objects.requireNonNull(serializer, "serializer");
+        }
+
+        //estimated heap bytes of the elements of one run, 64MB by default
+        public Builder<T> memoryBudget(long memoryBudget) {
+            if (memoryBudget < 1) {
+                throw new IllegalArgumentException("memoryBudget must be positive, was " + memoryBudget);
+            }
+            this.memoryBudget = memoryBudget;
+            return this;
+        }
+
+        //runs merged at once, 64 by default
+        public Builder<T> fanIn(int fanIn) {
+            if (fanIn < 2) {
+                throw new IllegalArgumentException("fanIn must be at least 2, was " + fanIn);
+            }
+            this.fanIn = fanIn;
+            return this;
+        }
+
+        //buffer of each run file being written or read, 64KB by default
+        public Builder<T> bufferBytes(int bufferBytes) {
+            if (bufferBytes < 1) {
+                throw new IllegalArgumentException("bufferBytes must be positive, was " + bufferBytes);
+            }
+            this.bufferBytes = bufferBytes;
+            return this;
+        }
+
+        //where the run files go, java.io.tmpdir by default
+        public Builder<T> directory(Path directory) {
+            this.directory = Objects.requireNonNull(directory, "directory");
+            return this;
+        }
+
+        public Builder<T> scheduler(Scheduler scheduler) {
+            this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+            return this;
+        }
+
+        public ExternalSort<T> build() {
+            return new ExternalSort<>(this);
+        }
+    }
+}
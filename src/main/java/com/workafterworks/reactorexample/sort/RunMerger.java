@@ -0,0 +1,63 @@
+package com.workafterworks.reactorexample.sort;
+
+import com.workafterworks.reactorexample.spill.SpillSerializer;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/*
+ * k-way merge of sorted runs: a heap of one reader per run ordered by their next record, ties go to the earlier run
+ * so the merge is stable. Memory is one decoded record and one read buffer per run.
+ */
+final class RunMerger<T> implements AutoCloseable {
+
+    private final PriorityQueue<SortedRun.Reader<T>> heads;
+
+    RunMerger(List<SortedRun> runs, Comparator<? super T> comparator, SpillSerializer<T> serializer, int bufferBytes) {
+        Comparator<SortedRun.Reader<T>> byHead = (left, right) -> comparator.compare(left.head, right.head);
+        this.heads = new PriorityQueue<>(Math.max(1, runs.size()), byHead.thenComparingInt(reader -> reader.order));
+        try {
+            for (int order = 0; order < runs.size(); order++) {
+                SortedRun.Reader<T> reader = new SortedRun.Reader<>(runs.get(order), order, serializer, bufferBytes);
+                if (reader.advance()) {
+                    heads.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    //the smallest record left, null once every run is exhausted
+    T next() {
+        SortedRun.Reader<T> reader = heads.poll();
+        if (reader == null) {
+            return null;
+        }
+        T value = reader.head;
+        if (reader.advance()) {
+            heads.add(reader);
+        } else {
+            reader.close();
+        }
+        return value;
+    }
+
+    void mergeTo(SortedRun.Writer<T> writer) {
+        for (T value = next(); value != null; value = next()) {
+            writer.write(value);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (SortedRun.Reader<T> reader : heads) {
+            reader.close();
+        }
+        heads.clear();
+    }
+}
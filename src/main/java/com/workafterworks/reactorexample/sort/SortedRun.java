@@ -0,0 +1,161 @@
+package com.workafterworks.reactorexample.sort;
+
+import com.workafterworks.reactorexample.spill.SpillSerializer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/*
+ * A run on disk: count records of [int length][length bytes] in sort order, written once and read once sequentially.
+ */
+final class SortedRun {
+
+    final Path file;
+    final long count;
+
+    private SortedRun(Path file, long count) {
+        this.file = file;
+        this.count = count;
+    }
+
+    //the serializer writes into a reused heap buffer, grown to the largest record
+    static final class Writer<T> {
+
+        private final Path file;
+        private final SpillSerializer<T> serializer;
+        private final DataOutputStream out;
+        private ByteBuffer scratch = ByteBuffer.allocate(256);
+        private long count;
+        private long bytes;
+
+        Writer(Path directory, SpillSerializer<T> serializer, int bufferBytes) {
+            this.serializer = serializer;
+            try {
+                this.file = Files.createTempFile(directory, "sort-", ".run");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            try {
+                this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), bufferBytes));
+            } catch (IOException e) {
+                new SortedRun(file, 0).delete();
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void write(T value) {
+            int size = serializer.sizeOf(value);
+            if (scratch.capacity() < size) {
+                scratch = ByteBuffer.allocate(Math.max(size, scratch.capacity() * 2));
+            }
+            scratch.clear().limit(size);
+            serializer.write(value, scratch);
+            if (scratch.position() != size) {
+                throw new IllegalStateException("Serializer wrote " + scratch.position() + " bytes, sizeOf was " + size);
+            }
+            try {
+                out.writeInt(size);
+                out.write(scratch.array(), 0, size);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            count++;
+            bytes += Integer.BYTES + size;
+        }
+
+        long bytes() {
+            return bytes;
+        }
+
+        SortedRun finish() {
+            close();
+            return new SortedRun(file, count);
+        }
+
+        void close() {
+            try {
+                out.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        //after a failed write: the file is not a run, nothing refers to it but this writer
+        void discard() {
+            try {
+                out.close();
+            } catch (IOException e) {
+                //deleted anyway
+            }
+            new SortedRun(file, 0).delete();
+        }
+    }
+
+    //holds the next record of the run, decoded ahead so the merge can compare it
+    static final class Reader<T> implements AutoCloseable {
+
+        final int order;
+        private final SortedRun run;
+        private final SpillSerializer<T> serializer;
+        private final DataInputStream in;
+        private byte[] scratch = new byte[256];
+        private long remaining;
+        T head;
+
+        Reader(SortedRun run, int order, SpillSerializer<T> serializer, int bufferBytes) {
+            this.run = run;
+            this.order = order;
+            this.serializer = serializer;
+            this.remaining = run.count;
+            try {
+                this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run.file), bufferBytes));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        //false once the run is exhausted
+        boolean advance() {
+            if (remaining == 0) {
+                head = null;
+                return false;
+            }
+            try {
+                int size = in.readInt();
+                if (scratch.length < size) {
+                    scratch = new byte[Math.max(size, scratch.length * 2)];
+                }
+                in.readFully(scratch, 0, size);
+                head = serializer.read(ByteBuffer.wrap(scratch, 0, size));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Reading run " + run.file, e);
+            }
+            remaining--;
+            return true;
+        }
+
+        @Override
+        public void close() {
+            try {
+                in.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    void delete() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            file.toFile().deleteOnExit();
+        }
+    }
+}
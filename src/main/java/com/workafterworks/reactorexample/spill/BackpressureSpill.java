@@ -0,0 +1,192 @@
+package com.workafterworks.reactorexample.spill;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Operators;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/*
+ * onBackpressureSpill: an unbounded buffer between a fast producer and a slow subscriber, like onBackpressureBuffer(),
+ * that keeps only heapWindow elements on the heap and appends the overflow to memory-mapped segment files.
+ *
+ * BackpressureSpill<Integer> spill = BackpressureSpill.builder(SpillSerializer.ints()).directory(dir).build();
+ * Flux.range(1, 1_000_000).transform(spill::onBackpressureSpill).subscribe(slowSubscriber);
+ *
+ * Upstream is requested unbounded, the subscriber gets elements in arrival order as it requests them.
+ * An upstream error is delivered after everything buffered before it has been replayed, nothing is lost.
+ * Each subscription writes its own segments <directory>/<name>-<subscription>-<random>.spill and deletes them when it
+ * terminates or is cancelled. The heap stays bounded, disk use grows with the lag of the subscriber.
+ *
+ * With a MeterRegistry, tagged name=<name>:
+ * - reactor.spill.bytes: bytes written to segments
+ * - reactor.spill.lag.bytes / reactor.spill.lag.elements: spilled and not replayed yet
+ * - reactor.spill.replay.lag: time from being spilled to being replayed
+ */
+public final class BackpressureSpill<T> {
+
+    final SpillSerializer<T> serializer;
+    final Path directory;
+    final int heapWindow;
+    final int segmentBytes;
+    final int freeSegments;
+    private final String name;
+
+    private final AtomicInteger subscriptions = new AtomicInteger();
+    private final LongAdder bytesSpilled = new LongAdder();
+    private final AtomicLong lagBytes = new AtomicLong();
+    private final AtomicLong lagElements = new AtomicLong();
+    private final Timer replayLag;
+
+    private BackpressureSpill(Builder<T> builder) {
+        this.serializer = builder.serializer;
+        this.heapWindow = builder.heapWindow;
+        this.segmentBytes = builder.segmentBytes;
+        this.freeSegments = builder.freeSegments;
+        this.name = builder.name;
+        try {
+            this.directory = builder.directory != null ? Files.createDirectories(builder.directory) : Files.createTempDirectory("spill");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        MeterRegistry registry = builder.registry;
+        if (registry == null) {
+            this.replayLag = null;
+            return;
+        }
+        FunctionCounter.builder("reactor.spill.bytes", bytesSpilled, LongAdder::doubleValue)
+                .description("bytes written to spill segments")
+                .baseUnit("bytes")
+                .tag("name", name)
+                .register(registry);
+        Gauge.builder("reactor.spill.lag.bytes", lagBytes, AtomicLong::get)
+                .description("bytes spilled and not replayed yet")
+                .baseUnit("bytes")
+                .tag("name", name)
+                .register(registry);
+        Gauge.builder("reactor.spill.lag.elements", lagElements, AtomicLong::get)
+                .description("elements spilled and not replayed yet")
+                .tag("name", name)
+                .register(registry);
+        this.replayLag = Timer.builder("reactor.spill.replay.lag")
+                .description("time from being spilled to being replayed")
+                .tag("name", name)
+                .register(registry);
+    }
+
+    public static <T> Builder<T> builder(SpillSerializer<T> serializer) {
+        return new Builder<>(serializer);
+    }
+
+    //for transform: flux.transform(spill::onBackpressureSpill)
+    public Publisher<T> onBackpressureSpill(Publisher<T> source) {
+        Function<? super Publisher<T>, ? extends Publisher<T>> lift = Operators.lift((scannable, actual) ->
+                new SpillSubscriber<>(actual, new SpillBuffer<>(this, name + "-" + subscriptions.incrementAndGet())));
+        return lift.apply(source);
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    public long bytesSpilled() {
+        return bytesSpilled.sum();
+    }
+
+    public long lagBytes() {
+        return lagBytes.get();
+    }
+
+    public long lagElements() {
+        return lagElements.get();
+    }
+
+    void spilled(int bytes) {
+        bytesSpilled.add(bytes);
+        lagBytes.addAndGet(bytes);
+        lagElements.incrementAndGet();
+    }
+
+    void replayed(int bytes, long lagNanos) {
+        lagBytes.addAndGet(-bytes);
+        lagElements.decrementAndGet();
+        if (replayLag != null) {
+            replayLag.record(lagNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    void discarded(long elements, long bytes) {
+        lagBytes.addAndGet(-bytes);
+        lagElements.addAndGet(-elements);
+    }
+
+    public static final class Builder<T> {
+
+        private final SpillSerializer<T> serializer;
+        private Path directory;
+        private int heapWindow = 256;
+        private int segmentBytes = 1 << 20;
+        private int freeSegments = 2;
+        private String name = "spill";
+        private MeterRegistry registry;
+
+        private Builder(SpillSerializer<T> serializer) {
+            this.serializer = Objects.requireNonNull(serializer, "serializer");
+        }
+
+        //a temporary directory when not set
+        public Builder<T> directory(Path directory) {
+            this.directory = Objects.requireNonNull(directory, "directory");
+            return this;
+        }
+
+        //elements kept on the heap before spilling starts
+        public Builder<T> heapWindow(int heapWindow) {
+            if (heapWindow < 0) {
+                throw new IllegalArgumentException("heapWindow must not be negative, was " + heapWindow);
+            }
+            this.heapWindow = heapWindow;
+            return this;
+        }
+
+        //size of one segment file, the largest record it can hold is 12 bytes less
+        public Builder<T> segmentBytes(int segmentBytes) {
+            if (segmentBytes <= SpillBuffer.HEADER_BYTES) {
+                throw new IllegalArgumentException("segmentBytes must be larger than " + SpillBuffer.HEADER_BYTES + ", was " + segmentBytes);
+            }
+            this.segmentBytes = segmentBytes;
+            return this;
+        }
+
+        //drained segments kept per subscription for reuse, the others are deleted
+        public Builder<T> freeSegments(int freeSegments) {
+            if (freeSegments < 0) {
+                throw new IllegalArgumentException("freeSegments must not be negative, was " + freeSegments);
+            }
+            this.freeSegments = freeSegments;
+            return this;
+        }
+
+        public Builder<T> metrics(String name, MeterRegistry registry) {
+            this.name = Objects.requireNonNull(name, "name");
+            this.registry = Objects.requireNonNull(registry, "registry");
+            return this;
+        }
+
+        public BackpressureSpill<T> build() {
+            return new BackpressureSpill<>(this);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.workafterworks.reactorexample.spill;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/*
+ * The buffer of one subscription: a bounded on-heap window in front of a chain of memory-mapped segments.
+ *
+ * Elements go to the window while nothing is spilled and it has room, otherwise they are appended to the last
+ * segment. Polling takes the window first, then the segments from the oldest one, so the order is the arrival order.
+ * Records are [int length][long spilledAt nanos][length bytes], a record never spans two segments.
+ *
+ * A drained segment that is not the one being written goes to a free list and is written again from the start,
+ * only freeSegments of them are kept, the others are deleted.
+ *
+ * offer runs on the producing thread and poll on the draining one, both hold the monitor of the buffer.
+ */
+final class SpillBuffer<T> {
+
+    static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+
+    private final BackpressureSpill<T> spill;
+    private final String prefix;
+    private final ArrayDeque<T> window;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final Deque<Segment> free = new ArrayDeque<>();
+
+    private int segmentsCreated;
+    private long spilledElements;
+    private long spilledBytes;
+    private boolean closed;
+
+    SpillBuffer(BackpressureSpill<T> spill, String prefix) {
+        this.spill = spill;
+        this.prefix = prefix;
+        this.window = new ArrayDeque<>(Math.min(spill.heapWindow, 1024));
+    }
+
+    //false once closed, the element is dropped
+    synchronized boolean offer(T value) {
+        if (closed) {
+            return false;
+        }
+        if (spilledElements == 0 && window.size() < spill.heapWindow) {
+            window.offer(value);
+            return true;
+        }
+        int size = spill.serializer.sizeOf(value);
+        int recordBytes = HEADER_BYTES + size;
+        if (recordBytes > spill.segmentBytes) {
+            throw new IllegalArgumentException("Record of " + recordBytes + " bytes does not fit a segment of " + spill.segmentBytes);
+        }
+        Segment segment = segments.peekLast();
+        if (segment == null || spill.segmentBytes - segment.writePosition < recordBytes) {
+            segment = nextSegment();
+            segments.offerLast(segment);
+        }
+        MappedByteBuffer buffer = segment.buffer;
+        int start = segment.writePosition;
+        buffer.limit(start + recordBytes).position(start + HEADER_BYTES);
+        spill.serializer.write(value, buffer);
+        if (buffer.position() != start + recordBytes) {
+            throw new IllegalStateException("Serializer wrote " + (buffer.position() - start - HEADER_BYTES) + " bytes, sizeOf was " + size);
+        }
+        buffer.clear();
+        buffer.putInt(start, size).putLong(start + Integer.BYTES, System.nanoTime());
+        segment.writePosition = start + recordBytes;
+        spilledElements++;
+        spilledBytes += recordBytes;
+        spill.spilled(recordBytes);
+        return true;
+    }
+
+    synchronized T poll() {
+        T value = window.poll();
+        if (value != null || spilledElements == 0) {
+            return value;
+        }
+        Segment segment = segments.peekFirst();
+        if (segment.readPosition == segment.writePosition) {
+            //drained, the writer has moved on to the next one
+            recycle(segments.pollFirst());
+            segment = segments.peekFirst();
+        }
+        MappedByteBuffer buffer = segment.buffer;
+        int start = segment.readPosition;
+        //absolute reads are checked against the limit left by the previous record
+        buffer.clear();
+        int size = buffer.getInt(start);
+        long spilledAt = buffer.getLong(start + Integer.BYTES);
+        int recordBytes = HEADER_BYTES + size;
+        buffer.limit(start + recordBytes).position(start + HEADER_BYTES);
+        value = spill.serializer.read(buffer);
+        segment.readPosition = start + recordBytes;
+        spilledElements--;
+        spilledBytes -= recordBytes;
+        spill.replayed(recordBytes, System.nanoTime() - spilledAt);
+        if (spilledElements == 0) {
+            //everything replayed, the segment being written starts over as well
+            segment.readPosition = 0;
+            segment.writePosition = 0;
+        }
+        return value;
+    }
+
+    synchronized boolean isEmpty() {
+        return window.isEmpty() && spilledElements == 0;
+    }
+
+    synchronized int segments() {
+        return segments.size();
+    }
+
+    synchronized int segmentsCreated() {
+        return segmentsCreated;
+    }
+
+    //releases the segments, the elements still buffered are reported as dropped to the spill's metrics
+    synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        window.clear();
+        spill.discarded(spilledElements, spilledBytes);
+        spilledElements = 0;
+        spilledBytes = 0;
+        for (Segment segment : segments) {
+            segment.delete();
+        }
+        for (Segment segment : free) {
+            segment.delete();
+        }
+        segments.clear();
+        free.clear();
+    }
+
+    private Segment nextSegment() {
+        Segment segment = free.pollFirst();
+        if (segment != null) {
+            return segment;
+        }
+        Path file;
+        try {
+            //a unique name, files left behind by a process that did not shut down cleanly are never in the way
+            file = Files.createTempFile(spill.directory, prefix + "-", ".spill");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        segmentsCreated++;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            //the mapping stays valid after the channel is closed
+            return new Segment(file, channel.map(FileChannel.MapMode.READ_WRITE, 0, spill.segmentBytes));
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void recycle(Segment segment) {
+        segment.readPosition = 0;
+        segment.writePosition = 0;
+        if (free.size() < spill.freeSegments) {
+            free.offerLast(segment);
+        } else {
+            segment.delete();
+        }
+    }
+
+    static final class Segment {
+
+        final Path file;
+        final MappedByteBuffer buffer;
+        int writePosition;
+        int readPosition;
+
+        Segment(Path file, MappedByteBuffer buffer) {
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        //the pages are released when the buffer is collected, deleting a mapped file fails on Windows only
+        void delete() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                file.toFile().deleteOnExit();
+            }
+        }
+    }
+}
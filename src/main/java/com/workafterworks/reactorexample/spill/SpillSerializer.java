@@ -0,0 +1,80 @@
+package com.workafterworks.reactorexample.spill;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Turns the elements of a spilled pipeline into bytes of a memory-mapped segment and back.
+ * EventLog and ExternalSort use it as their record codec too.
+ *
+ * write gets the segment positioned where the record starts and must put exactly sizeOf(value) bytes,
+ * read gets it positioned at the same place and limited to the end of the record.
+ */
+public interface SpillSerializer<T> {
+
+    int sizeOf(T value);
+
+    void write(T value, ByteBuffer segment);
+
+    T read(ByteBuffer segment);
+
+    static SpillSerializer<Integer> ints() {
+        return new SpillSerializer<>() {
+            @Override
+            public int sizeOf(Integer value) {
+                return Integer.BYTES;
+            }
+
+            @Override
+            public void write(Integer value, ByteBuffer segment) {
+                segment.putInt(value);
+            }
+
+            @Override
+            public Integer read(ByteBuffer segment) {
+                return segment.getInt();
+            }
+        };
+    }
+
+    static SpillSerializer<Long> longs() {
+        return new SpillSerializer<>() {
+            @Override
+            public int sizeOf(Long value) {
+                return Long.BYTES;
+            }
+
+            @Override
+            public void write(Long value, ByteBuffer segment) {
+                segment.putLong(value);
+            }
+
+            @Override
+            public Long read(ByteBuffer segment) {
+                return segment.getLong();
+            }
+        };
+    }
+
+    //encodes twice per element (sizeOf, then write), fine for the short names of the example pipelines
+    static SpillSerializer<String> utf8() {
+        return new SpillSerializer<>() {
+            @Override
+            public int sizeOf(String value) {
+                return value.getBytes(StandardCharsets.UTF_8).length;
+            }
+
+            @Override
+            public void write(String value, ByteBuffer segment) {
+                segment.put(value.getBytes(StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public String read(ByteBuffer segment) {
+                byte[] bytes = new byte[segment.remaining()];
+                segment.get(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+}
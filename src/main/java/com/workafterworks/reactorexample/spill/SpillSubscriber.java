@@ -0,0 +1,168 @@
+package com.workafterworks.reactorexample.spill;
+
+import com.workafterworks.reactorexample.subscriber.NonFusingSubscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Operators;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/*
+ * Requests upstream unbounded, buffers into a SpillBuffer and emits to the actual subscriber as it requests.
+ *
+ * onNext, request and cancel may come from different threads, only the thread that wins the wip counter drains.
+ */
+final class SpillSubscriber<T> extends NonFusingSubscriber<T> {
+
+    private final SpillBuffer<T> buffer;
+
+    private Subscription s;
+    private volatile boolean done;
+    private Throwable error;
+    private volatile boolean cancelled;
+
+    private volatile long requested;
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<SpillSubscriber> REQUESTED =
+            AtomicLongFieldUpdater.newUpdater(SpillSubscriber.class, "requested");
+
+    private volatile int wip;
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<SpillSubscriber> WIP =
+            AtomicIntegerFieldUpdater.newUpdater(SpillSubscriber.class, "wip");
+
+    SpillSubscriber(CoreSubscriber<? super T> actual, SpillBuffer<T> buffer) {
+        super(actual);
+        this.buffer = buffer;
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+        if (Operators.validate(this.s, s)) {
+            this.s = s;
+            actual.onSubscribe(this);
+            s.request(Long.MAX_VALUE);
+        }
+    }
+
+    @Override
+    public void onNext(T value) {
+        if (done) {
+            Operators.onNextDropped(value, actual.currentContext());
+            return;
+        }
+        try {
+            if (!buffer.offer(value)) {
+                Operators.onDiscard(value, actual.currentContext());
+                return;
+            }
+        } catch (Throwable e) {
+            onError(Operators.onOperatorError(s, e, value, actual.currentContext()));
+            return;
+        }
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        if (done) {
+            Operators.onErrorDropped(t, actual.currentContext());
+            return;
+        }
+        error = t;
+        done = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        if (done) {
+            return;
+        }
+        done = true;
+        drain();
+    }
+
+    @Override
+    public void request(long n) {
+        if (Operators.validate(n)) {
+            Operators.addCap(REQUESTED, this, n);
+            drain();
+        }
+    }
+
+    @Override
+    public void cancel() {
+        if (cancelled) {
+            return;
+        }
+        cancelled = true;
+        s.cancel();
+        if (WIP.getAndIncrement(this) == 0) {
+            buffer.close();
+        }
+    }
+
+    private void drain() {
+        if (WIP.getAndIncrement(this) != 0) {
+            return;
+        }
+        int missed = 1;
+        for (; ; ) {
+            long r = requested;
+            long e = 0L;
+            while (e != r) {
+                boolean d = done;
+                T value;
+                try {
+                    value = buffer.poll();
+                } catch (Throwable ex) {
+                    Exceptions.throwIfFatal(ex);
+                    s.cancel();
+                    buffer.close();
+                    actual.onError(Operators.onOperatorError(ex, actual.currentContext()));
+                    return;
+                }
+                boolean empty = value == null;
+                if (checkTerminated(d, empty)) {
+                    return;
+                }
+                if (empty) {
+                    break;
+                }
+                actual.onNext(value);
+                e++;
+            }
+            if (e == r && checkTerminated(done, buffer.isEmpty())) {
+                return;
+            }
+            if (e != 0 && r != Long.MAX_VALUE) {
+                REQUESTED.addAndGet(this, -e);
+            }
+            missed = WIP.addAndGet(this, -missed);
+            if (missed == 0) {
+                break;
+            }
+        }
+    }
+
+    private boolean checkTerminated(boolean d, boolean empty) {
+        if (cancelled) {
+            buffer.close();
+            return true;
+        }
+        if (d && empty) {
+            buffer.close();
+            Throwable e = error;
+            if (e != null) {
+                actual.onError(e);
+            } else {
+                actual.onComplete();
+            }
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,114 @@
+package com.workafterworks.reactorexample.subscriber;
+
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/*
+ * BaseSubscriber that sizes its request(n) from what it observes, instead of the fixed requestCount = 2
+ * of fluxSubscriberBackPressure.
+ *
+ * For every element it measures
+ * - processing time: how long the consumer took for the element
+ * - arrival gap: how long it waited between finishing the previous element and receiving this one.
+ *   That covers the upstream emission time and the cost of the demand round trip.
+ *
+ * Both are kept as moving averages. Whenever demand is replenished the limit is adjusted:
+ * - waiting longer than processing means the consumer is starved, the limit doubles
+ * - waiting less than a quarter of the processing time means elements queue up, the limit shrinks by a quarter
+ *
+ * The limit stays within [minRequest, maxRequest] and demand is topped up to the limit once the outstanding
+ * count falls to a quarter of it, so there are never more than maxRequest elements in flight.
+ *
+ * The consumer runs on the onNext thread, the getters are meant to be read from it too (or after termination).
+ */
+public class AdaptiveDemandSubscriber<T> extends BaseSubscriber<T> {
+
+    //moving averages keep 1/8 of each new sample
+    private static final int EWMA_SHIFT = 3;
+
+    private final Consumer<? super T> consumer;
+    private final int minRequest;
+    private final int maxRequest;
+    private final LongSupplier clock;
+
+    private int limit;
+    private long outstanding;
+    private long lastProcessedAt;
+    private long processingNanos;
+    private long arrivalGapNanos;
+
+    public AdaptiveDemandSubscriber(Consumer<? super T> consumer, int minRequest, int maxRequest) {
+        this(consumer, minRequest, maxRequest, System::nanoTime);
+    }
+
+    AdaptiveDemandSubscriber(Consumer<? super T> consumer, int minRequest, int maxRequest, LongSupplier clock) {
+        if (minRequest < 1 || maxRequest < minRequest) {
+            throw new IllegalArgumentException("1 <= minRequest <= maxRequest required but it was " + minRequest + ", " + maxRequest);
+        }
+        this.consumer = Objects.requireNonNull(consumer, "consumer");
+        this.minRequest = minRequest;
+        this.maxRequest = maxRequest;
+        this.clock = clock;
+        this.limit = minRequest;
+    }
+
+    @Override
+    protected void hookOnSubscribe(Subscription subscription) {
+        outstanding = limit;
+        lastProcessedAt = clock.getAsLong();
+        request(limit);
+    }
+
+    @Override
+    protected void hookOnNext(T value) {
+        long arrivedAt = clock.getAsLong();
+        consumer.accept(value);
+        long processedAt = clock.getAsLong();
+
+        arrivalGapNanos = average(arrivalGapNanos, arrivedAt - lastProcessedAt);
+        processingNanos = average(processingNanos, processedAt - arrivedAt);
+        lastProcessedAt = processedAt;
+
+        outstanding--;
+        if (outstanding <= limit >> 2) {
+            adjustLimit();
+            long n = limit - outstanding;
+            if (n > 0) {
+                outstanding += n;
+                request(n);
+            }
+        }
+    }
+
+    private void adjustLimit() {
+        if (arrivalGapNanos > processingNanos) {
+            limit = Math.min(maxRequest, limit << 1);
+        } else if (arrivalGapNanos < processingNanos >> 2) {
+            limit = Math.max(minRequest, limit - (limit >> 2));
+        }
+    }
+
+    private static long average(long average, long sample) {
+        return average + ((sample - average) >> EWMA_SHIFT);
+    }
+
+    public int currentLimit() {
+        return limit;
+    }
+
+    public long inFlight() {
+        return outstanding;
+    }
+
+    public long averageProcessingNanos() {
+        return processingNanos;
+    }
+
+    public long averageArrivalGapNanos() {
+        return arrivalGapNanos;
+    }
+}
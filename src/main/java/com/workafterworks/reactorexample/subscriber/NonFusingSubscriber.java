@@ -0,0 +1,50 @@
+package com.workafterworks.reactorexample.subscriber;
+
+import reactor.core.CoreSubscriber;
+import reactor.core.Fuseable;
+import reactor.util.context.Context;
+
+/*
+ * Base of the subscribers that Operators.lift puts between two operators to see every signal (tracing, metrics,
+ * probes...).
+ *
+ * Operators.lift keeps the Fuseable marker of the source, so a fuseable operator downstream expects a QueueSubscription.
+ * Fusion is always refused: every element has to pass through onNext.
+ */
+public abstract class NonFusingSubscriber<T> implements CoreSubscriber<T>, Fuseable.QueueSubscription<T> {
+
+    protected final CoreSubscriber<? super T> actual;
+
+    protected NonFusingSubscriber(CoreSubscriber<? super T> actual) {
+        this.actual = actual;
+    }
+
+    @Override
+    public final int requestFusion(int requestedMode) {
+        return Fuseable.NONE;
+    }
+
+    @Override
+    public final T poll() {
+        return null;
+    }
+
+    @Override
+    public final int size() {
+        return 0;
+    }
+
+    @Override
+    public final boolean isEmpty() {
+        return true;
+    }
+
+    @Override
+    public final void clear() {
+    }
+
+    @Override
+    public Context currentContext() {
+        return actual.currentContext();
+    }
+}
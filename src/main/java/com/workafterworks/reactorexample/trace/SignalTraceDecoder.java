@@ -0,0 +1,113 @@
+package com.workafterworks.reactorexample.trace;
+
+import reactor.core.publisher.SignalType;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/*
+ * Offline decoder for SignalTracer output, prints the records the way .log() would have:
+ *
+ * 10:15:30.123 [main] INFO  fluxSubscriber#1 - | onNext(Pascal)
+ *
+ * Usage: java -cp reactor-example.jar com.workafterworks.reactorexample.trace.SignalTraceDecoder trace.bin
+ */
+public final class SignalTraceDecoder {
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+    private static final SignalType[] SIGNALS = SignalType.values();
+
+    private final Map<Integer, String> definitions = new HashMap<>();
+    private long epochMillis;
+    private long nanoBase;
+
+    private SignalTraceDecoder() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: SignalTraceDecoder <trace file>");
+            System.exit(1);
+        }
+        try (InputStream in = Files.newInputStream(Path.of(args[0]))) {
+            decode(in, System.out::println);
+        }
+    }
+
+    public static void decode(InputStream in, Consumer<String> lines) throws IOException {
+        new SignalTraceDecoder().read(new DataInputStream(new BufferedInputStream(in)), lines);
+    }
+
+    private void read(DataInputStream in, Consumer<String> lines) throws IOException {
+        if (in.readInt() != TraceFormat.MAGIC) {
+            throw new IOException("Not a signal trace");
+        }
+        short version = in.readShort();
+        if (version != TraceFormat.VERSION) {
+            throw new IOException("Unsupported signal trace version " + version);
+        }
+        for (; ; ) {
+            int tag;
+            try {
+                tag = in.readByte();
+            } catch (EOFException e) {
+                return;
+            }
+            switch (tag) {
+                case TraceFormat.CLOCK:
+                    epochMillis = in.readLong();
+                    nanoBase = in.readLong();
+                    break;
+                case TraceFormat.DEFINITION:
+                    definitions.put(in.readInt(), in.readUTF());
+                    break;
+                case TraceFormat.SIGNAL:
+                    lines.accept(format(in.readInt(), in.readLong(), in.readLong(), in.readLong(), in.readLong()));
+                    break;
+                case TraceFormat.DROPPED:
+                    long dropped = in.readLong();
+                    if (dropped > 0) {
+                        lines.accept("[" + dropped + " signal records dropped, ring buffers were full]");
+                    }
+                    break;
+                default:
+                    throw new IOException("Corrupted signal trace, unknown frame " + tag);
+            }
+        }
+    }
+
+    private String format(int threadId, long time, long ids, long signal, long payload) {
+        Instant instant = Instant.ofEpochMilli(epochMillis).plusNanos(time - nanoBase);
+        SignalType type = SIGNALS[TraceFormat.signalOrdinal(signal)];
+        return TIME.format(instant)
+                + " [" + definitions.get(threadId) + "] INFO  "
+                + definitions.get(TraceFormat.pipelineId(ids)) + "#" + TraceFormat.subscriptionId(ids)
+                + " - | " + type + "(" + argument(type, TraceFormat.kind(signal), payload) + ")";
+    }
+
+    private String argument(SignalType type, int kind, long payload) {
+        switch (kind) {
+            case TraceFormat.KIND_LONG:
+                return type == SignalType.REQUEST && payload == Long.MAX_VALUE ? "unbounded" : Long.toString(payload);
+            case TraceFormat.KIND_ASCII:
+                return TraceFormat.unpackAscii(payload);
+            case TraceFormat.KIND_HASH:
+                return "#" + Integer.toHexString((int) payload);
+            case TraceFormat.KIND_DEFINITION:
+                return definitions.get((int) payload);
+            default:
+                return "";
+        }
+    }
+}
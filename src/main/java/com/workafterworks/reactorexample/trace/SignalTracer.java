@@ -0,0 +1,209 @@
+package com.workafterworks.reactorexample.trace;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Operators;
+import reactor.core.publisher.SignalType;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/*
+ * Low overhead replacement for .log() on hot pipelines.
+ *
+ * flux.transform(tracer.trace("fluxSubscriber", 0.01)) traces 1% of the subscriptions to that pipeline.
+ * A traced subscription writes every signal (onSubscribe, request, onNext, onError, onComplete, cancel) as a fixed-size
+ * binary record into a ring buffer owned by the emitting thread: no formatting, no locks, no I/O on the pipeline thread.
+ * A single daemon thread drains all ring buffers to the output every drainInterval.
+ * Subscriptions that are not sampled are not wrapped at all.
+ *
+ * onNext values are kept when cheap to encode: integral numbers as is, ASCII strings up to 7 chars inline,
+ * anything else as its hashCode. SignalTraceDecoder turns the output back into log lines.
+ */
+public final class SignalTracer implements Closeable {
+
+    public static final int DEFAULT_BUFFER_CAPACITY = 1 << 14;
+
+    private final DataOutputStream out;
+    private final int bufferCapacity;
+    private final ScheduledExecutorService drainer;
+
+    private final Map<String, Integer> definitionIds = new ConcurrentHashMap<>();
+    private final AtomicInteger nextDefinitionId = new AtomicInteger();
+    private final Queue<Integer> pendingDefinitions = new ConcurrentLinkedQueue<>();
+    private final Map<Integer, String> definitions = new ConcurrentHashMap<>();
+
+    private final List<TraceBuffer> buffers = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<TraceBuffer> threadBuffer = ThreadLocal.withInitial(this::newBuffer);
+
+    private volatile boolean closed;
+
+    private SignalTracer(OutputStream out, Duration drainInterval, int bufferCapacity) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        this.bufferCapacity = bufferCapacity;
+        this.out.writeInt(TraceFormat.MAGIC);
+        this.out.writeShort(TraceFormat.VERSION);
+        this.out.writeByte(TraceFormat.CLOCK);
+        this.out.writeLong(System.currentTimeMillis());
+        this.out.writeLong(System.nanoTime());
+        this.drainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "signal-tracer-drain");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = drainInterval.toNanos();
+        this.drainer.scheduleWithFixedDelay(this::drainQuietly, interval, interval, TimeUnit.NANOSECONDS);
+    }
+
+    public static SignalTracer start(OutputStream out, Duration drainInterval, int bufferCapacity) {
+        try {
+            return new SignalTracer(out, drainInterval, bufferCapacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static SignalTracer start(Path file) {
+        try {
+            return start(Files.newOutputStream(file), Duration.ofMillis(100), DEFAULT_BUFFER_CAPACITY);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //sampleRate is the fraction of subscriptions traced, 1 traces all of them, 0 none
+    public <T> Function<Publisher<T>, Publisher<T>> trace(String pipelineName, double sampleRate) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("sampleRate must be between 0 and 1 but it was " + sampleRate);
+        }
+        int pipelineId = define(pipelineName);
+        AtomicInteger subscriptions = new AtomicInteger();
+        Function<? super Publisher<T>, ? extends Publisher<T>> lift = Operators.lift((scannable, actual) -> {
+            if (closed || (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+                return actual;
+            }
+            return new TracingSubscriber<>(actual, this, pipelineId, subscriptions.incrementAndGet());
+        });
+        return lift::apply;
+    }
+
+    //records lost so far because a thread produced faster than the drain
+    public long droppedRecords() {
+        long dropped = 0;
+        for (TraceBuffer buffer : buffers) {
+            dropped += buffer.dropped();
+        }
+        return dropped;
+    }
+
+    //stops the drain thread and writes out everything recorded so far, the output stream is closed
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        drainer.shutdown();
+        try {
+            drainer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (out) {
+            drain();
+            out.writeByte(TraceFormat.DROPPED);
+            out.writeLong(droppedRecords());
+            out.close();
+        }
+    }
+
+    void record(long ids, SignalType signal, int kind, long payload) {
+        threadBuffer.get().offer(System.nanoTime(), ids, TraceFormat.signal(signal.ordinal(), kind), payload);
+    }
+
+    void recordValue(long ids, SignalType signal, Object value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            record(ids, signal, TraceFormat.KIND_LONG, ((Number) value).longValue());
+        } else if (value instanceof String && TraceFormat.fitsAscii((String) value)) {
+            record(ids, signal, TraceFormat.KIND_ASCII, TraceFormat.packAscii((String) value));
+        } else {
+            record(ids, signal, TraceFormat.KIND_HASH, value.hashCode());
+        }
+    }
+
+    //pipeline names, thread names and error types: few distinct values, so they are written once and referenced by id
+    int define(String value) {
+        return definitionIds.computeIfAbsent(value, key -> {
+            int id = nextDefinitionId.getAndIncrement();
+            definitions.put(id, key);
+            pendingDefinitions.add(id);
+            return id;
+        });
+    }
+
+    private TraceBuffer newBuffer() {
+        TraceBuffer buffer = new TraceBuffer(define(Thread.currentThread().getName()), bufferCapacity);
+        buffers.add(buffer);
+        return buffer;
+    }
+
+    private void drainQuietly() {
+        try {
+            synchronized (out) {
+                drain();
+                out.flush();
+            }
+        } catch (IOException e) {
+            //tracing must never fail the traced application, stop tracing instead
+            closed = true;
+            drainer.shutdown();
+        }
+    }
+
+    private void drain() throws IOException {
+        for (TraceBuffer buffer : buffers) {
+            //a record is published after the definitions it refers to, so writing the definitions
+            //after taking the position guarantees the decoder knows every id it reads
+            long published = buffer.published();
+            writeDefinitions();
+            buffer.drain(published, this::writeRecord);
+        }
+        writeDefinitions();
+    }
+
+    private void writeDefinitions() throws IOException {
+        Integer id;
+        while ((id = pendingDefinitions.poll()) != null) {
+            out.writeByte(TraceFormat.DEFINITION);
+            out.writeInt(id);
+            out.writeUTF(definitions.get(id));
+        }
+    }
+
+    private void writeRecord(int threadId, long time, long ids, long signal, long payload) throws IOException {
+        out.writeByte(TraceFormat.SIGNAL);
+        out.writeInt(threadId);
+        out.writeLong(time);
+        out.writeLong(ids);
+        out.writeLong(signal);
+        out.writeLong(payload);
+    }
+}
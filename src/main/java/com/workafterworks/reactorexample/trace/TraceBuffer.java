@@ -0,0 +1,78 @@
+package com.workafterworks.reactorexample.trace;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Single-producer single-consumer ring of fixed-size records.
+ *
+ * The owning thread is the only producer, the drain thread the only consumer, so publishing a record is
+ * four plain stores and one ordered store of the tail. When the ring is full the record is dropped and counted,
+ * the traced pipeline never waits for the drain.
+ */
+final class TraceBuffer {
+
+    final int threadId;
+
+    private final long[] records;
+    private final int mask;
+
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    //producer side only
+    private long headCache;
+    private volatile long dropped;
+
+    TraceBuffer(int threadId, int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two but it was " + capacity);
+        }
+        this.threadId = threadId;
+        this.records = new long[capacity * TraceFormat.RECORD_LONGS];
+        this.mask = capacity - 1;
+    }
+
+    boolean offer(long time, long ids, long signal, long payload) {
+        long t = tail.get();
+        if (t - headCache > mask) {
+            headCache = head.get();
+            if (t - headCache > mask) {
+                //single writer, the increment does not need to be atomic
+                dropped++;
+                return false;
+            }
+        }
+        int offset = (int) (t & mask) * TraceFormat.RECORD_LONGS;
+        records[offset] = time;
+        records[offset + 1] = ids;
+        records[offset + 2] = signal;
+        records[offset + 3] = payload;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    //drain thread only: position up to which records are published
+    long published() {
+        return tail.get();
+    }
+
+    //drain thread only: hands over the records up to a position taken from published()
+    int drain(long t, RecordConsumer consumer) throws IOException {
+        long h = head.get();
+        for (long i = h; i != t; i++) {
+            int offset = (int) (i & mask) * TraceFormat.RECORD_LONGS;
+            consumer.accept(threadId, records[offset], records[offset + 1], records[offset + 2], records[offset + 3]);
+        }
+        head.lazySet(t);
+        return (int) (t - h);
+    }
+
+    long dropped() {
+        return dropped;
+    }
+
+    interface RecordConsumer {
+        void accept(int threadId, long time, long ids, long signal, long payload) throws IOException;
+    }
+}
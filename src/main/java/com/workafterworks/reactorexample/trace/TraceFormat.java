@@ -0,0 +1,93 @@
+package com.workafterworks.reactorexample.trace;
+
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Binary layout shared by SignalTracer (writer) and SignalTraceDecoder (reader).
+ *
+ * Stream: MAGIC, VERSION, then frames, each starting with a tag byte
+ * - CLOCK       epoch millis + System.nanoTime() taken at the same instant, to turn record times into wall clock time
+ * - DEFINITION  int id + UTF string: pipeline names, thread names and error class names, referenced by id from records
+ * - SIGNAL      int thread id + one fixed-size record of RECORD_LONGS longs
+ * - DROPPED     long, records lost because a ring buffer was full
+ *
+ * Record: [nanoTime, pipelineId << 32 | subscriptionId, kind << 8 | signal ordinal, payload]
+ */
+final class TraceFormat {
+
+    static final int MAGIC = 0x52535452; //RSTR
+    static final short VERSION = 1;
+
+    static final byte CLOCK = 'C';
+    static final byte DEFINITION = 'D';
+    static final byte SIGNAL = 'S';
+    static final byte DROPPED = 'X';
+
+    static final int RECORD_LONGS = 4;
+
+    //how the payload of a record is read
+    static final int KIND_NONE = 0;
+    static final int KIND_LONG = 1;
+    static final int KIND_ASCII = 2;
+    static final int KIND_HASH = 3;
+    static final int KIND_DEFINITION = 4;
+
+    private static final int MAX_ASCII = 7;
+
+    private TraceFormat() {
+    }
+
+    static long ids(int pipelineId, int subscriptionId) {
+        return ((long) pipelineId << 32) | (subscriptionId & 0xFFFF_FFFFL);
+    }
+
+    static int pipelineId(long ids) {
+        return (int) (ids >>> 32);
+    }
+
+    static int subscriptionId(long ids) {
+        return (int) ids;
+    }
+
+    static long signal(int signalOrdinal, int kind) {
+        return ((long) kind << 8) | signalOrdinal;
+    }
+
+    static int signalOrdinal(long signal) {
+        return (int) (signal & 0xFF);
+    }
+
+    static int kind(long signal) {
+        return (int) (signal >>> 8);
+    }
+
+    //short ASCII strings (names, codes) fit in the payload: length in the low byte, up to 7 chars above it
+    static boolean fitsAscii(String value) {
+        if (value.length() > MAX_ASCII) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static long packAscii(String value) {
+        long packed = value.length();
+        for (int i = 0; i < value.length(); i++) {
+            packed |= (long) value.charAt(i) << (8 * (i + 1));
+        }
+        return packed;
+    }
+
+    static String unpackAscii(long packed) {
+        int length = (int) (packed & 0xFF);
+        byte[] chars = new byte[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (byte) (packed >>> (8 * (i + 1)));
+        }
+        return new String(chars, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,63 @@
+package com.workafterworks.reactorexample.trace;
+
+import com.workafterworks.reactorexample.subscriber.NonFusingSubscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Operators;
+import reactor.core.publisher.SignalType;
+
+/*
+ * Sits between two operators like .log() does, but writes one binary record per signal instead of a formatted line.
+ */
+final class TracingSubscriber<T> extends NonFusingSubscriber<T> {
+
+    private final SignalTracer tracer;
+    private final long ids;
+
+    private Subscription s;
+
+    TracingSubscriber(CoreSubscriber<? super T> actual, SignalTracer tracer, int pipelineId, int subscriptionId) {
+        super(actual);
+        this.tracer = tracer;
+        this.ids = TraceFormat.ids(pipelineId, subscriptionId);
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+        if (Operators.validate(this.s, s)) {
+            this.s = s;
+            tracer.record(ids, SignalType.ON_SUBSCRIBE, TraceFormat.KIND_NONE, 0);
+            actual.onSubscribe(this);
+        }
+    }
+
+    @Override
+    public void onNext(T value) {
+        tracer.recordValue(ids, SignalType.ON_NEXT, value);
+        actual.onNext(value);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        tracer.record(ids, SignalType.ON_ERROR, TraceFormat.KIND_DEFINITION, tracer.define(t.getClass().getName()));
+        actual.onError(t);
+    }
+
+    @Override
+    public void onComplete() {
+        tracer.record(ids, SignalType.ON_COMPLETE, TraceFormat.KIND_NONE, 0);
+        actual.onComplete();
+    }
+
+    @Override
+    public void request(long n) {
+        tracer.record(ids, SignalType.REQUEST, TraceFormat.KIND_LONG, n);
+        s.request(n);
+    }
+
+    @Override
+    public void cancel() {
+        tracer.record(ids, SignalType.CANCEL, TraceFormat.KIND_NONE, 0);
+        s.cancel();
+    }
+}
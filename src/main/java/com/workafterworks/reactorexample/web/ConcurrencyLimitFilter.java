@@ -0,0 +1,86 @@
+package com.workafterworks.reactorexample.web;
+
+import com.workafterworks.reactorexample.limit.ConcurrencyLimiter;
+import com.workafterworks.reactorexample.limit.GradientLimit;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/*
+ * Adaptive concurrency limit for the requests matching reactor-example.limit.paths (the streaming endpoints).
+ *
+ * A request over the limit is answered 503 at once instead of queueing behind the others: the client can retry
+ * elsewhere or later, and the requests in progress keep their latency. Each exchange is one sample for the
+ * GradientLimit; a 5xx or an unhandled error counts as dropped.
+ *
+ * The latency of the sample runs from the filter call until the response is committed (status and headers sent),
+ * not until the body is written: an NDJSON or SSE stream stays open as long as the client reads it, its duration
+ * says nothing about the load and would only shrink the limit. The permit is still held until the body is written,
+ * so open streams count against the limit.
+ *
+ * Meters as ConcurrencyLimiter's, tagged name=http.
+ */
+@Component
+@ConditionalOnProperty(prefix = "reactor-example.limit", name = "enabled", matchIfMissing = true)
+public class ConcurrencyLimitFilter implements WebFilter {
+
+    private final ConcurrencyLimiter limiter;
+    private final List<PathPattern> paths;
+
+    public ConcurrencyLimitFilter(ConcurrencyLimitProperties properties, MeterRegistry registry) {
+        GradientLimit limit = GradientLimit.builder()
+                .initialLimit(properties.getInitialLimit())
+                .limits(properties.getMinLimit(), properties.getMaxLimit())
+                .build();
+        this.limiter = new ConcurrencyLimiter(limit, "http", registry);
+        this.paths = properties.getPaths().stream()
+                .map(PathPatternParser.defaultInstance::parse)
+                .collect(Collectors.toList());
+    }
+
+    public ConcurrencyLimiter limiter() {
+        return limiter;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (paths.stream().noneMatch(path -> path.matches(exchange.getRequest().getPath().pathWithinApplication()))) {
+            return chain.filter(exchange);
+        }
+        ConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+        if (permit == null) {
+            exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            return exchange.getResponse().setComplete();
+        }
+        exchange.getResponse().beforeCommit(() -> {
+            permit.stopClock();
+            return Mono.empty();
+        });
+        return chain.filter(exchange)
+                .doOnSuccess(done -> release(permit, exchange.getResponse().getStatusCode()))
+                .doOnError(error -> release(permit, error instanceof ResponseStatusException
+                        ? ((ResponseStatusException) error).getStatus()
+                        : HttpStatus.INTERNAL_SERVER_ERROR))
+                .doOnCancel(permit::ignore);
+    }
+
+    //errors are turned into responses after the filters, a 4xx one is still a normal sample
+    private static void release(ConcurrencyLimiter.Permit permit, HttpStatus status) {
+        if (status != null && status.is5xxServerError()) {
+            permit.dropped();
+        } else {
+            permit.success();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.workafterworks.reactorexample.web;
+
+import com.workafterworks.reactorexample.metrics.PipelineMetrics;
+import com.workafterworks.reactorexample.pipeline.ExamplePipelines;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+
+/*
+ * Serves the example pipelines as NDJSON (Accept: application/x-ndjson) or Server-Sent Events (Accept: text/event-stream).
+ *
+ * Backpressure: the Flux is handed to the HTTP encoder as is. Reactor Netty only requests more elements while the
+ * channel is writable, so a slow client stops the request(n) calls towards the pipeline instead of making the server
+ * buffer. limitRate caps how many elements a single request(n) may ask for, so the in-flight window per connection
+ * stays at StreamProperties#prefetch no matter what the write side asks for.
+ *
+ * Every endpoint is a named pipeline (streams.names, streams.numbers, streams.list) instrumented by PipelineMetrics.
+ */
+@RestController
+@RequestMapping("/streams")
+public class StreamController {
+
+    private final StreamProperties properties;
+    private final PipelineMetrics pipelineMetrics;
+
+    public StreamController(StreamProperties properties, PipelineMetrics pipelineMetrics) {
+        this.properties = properties;
+        this.pipelineMetrics = pipelineMetrics;
+    }
+
+    @GetMapping(path = "/names", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<Object> names() {
+        //declared as Object so each name goes through the JSON encoder (one quoted string per line), a Flux<String> would be written as raw concatenated text
+        return demandDriven("streams.names", ExamplePipelines.names().cast(Object.class));
+    }
+
+    @GetMapping(path = "/numbers", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<Integer> numbers(@RequestParam(defaultValue = "5") int count) {
+        if (count < 0 || count > properties.getMaxCount()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "count must be between 0 and " + properties.getMaxCount());
+        }
+        return demandDriven("streams.numbers", ExamplePipelines.numbers(count));
+    }
+
+    @GetMapping(path = "/list", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<Integer> fromList() {
+        return demandDriven("streams.list", ExamplePipelines.fromList(ExamplePipelines.NUMBERS));
+    }
+
+    private <T> Flux<T> demandDriven(String name, Flux<T> pipeline) {
+        return pipeline
+                .name(name)
+                .transform(pipelineMetrics.instrument())
+                .limitRate(properties.getPrefetch());
+    }
+}
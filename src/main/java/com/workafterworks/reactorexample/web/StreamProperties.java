@@ -0,0 +1,32 @@
+package com.workafterworks.reactorexample.web;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/*
+ * reactor-example.stream.* settings for the streaming endpoints.
+ */
+@ConfigurationProperties("reactor-example.stream")
+public class StreamProperties {
+
+    //upper bound of a single request(n) sent to the pipeline, the HTTP write side replenishes in batches of 75% of it
+    private int prefetch = 32;
+
+    //largest count a client may ask the numbers endpoint for
+    private int maxCount = 10_000_000;
+
+    public int getPrefetch() {
+        return prefetch;
+    }
+
+    public void setPrefetch(int prefetch) {
+        this.prefetch = prefetch;
+    }
+
+    public int getMaxCount() {
+        return maxCount;
+    }
+
+    public void setMaxCount(int maxCount) {
+        this.maxCount = maxCount;
+    }
+}
@@ -0,0 +1,69 @@
+package com.workafterworks.reactorexample.window;
+
+import java.util.Arrays;
+
+/*
+ * count, sum, min, max and histogram of one open window in primitive fields, reused once the window is emitted.
+ */
+final class WindowAccumulator {
+
+    private final long[] histogramBounds;
+    private final long[] histogram;
+
+    long start;
+    long end;
+    private long count;
+    private long sum;
+    private long min;
+    private long max;
+
+    WindowAccumulator(long[] histogramBounds) {
+        this.histogramBounds = histogramBounds;
+        this.histogram = new long[histogramBounds.length + 1];
+    }
+
+    WindowAccumulator open(long start, long end) {
+        this.start = start;
+        this.end = end;
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = Long.MIN_VALUE;
+        Arrays.fill(histogram, 0);
+        return this;
+    }
+
+    void add(long value) {
+        count++;
+        sum += value;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+        if (histogram.length > 1) {
+            int bucket = Arrays.binarySearch(histogramBounds, value);
+            histogram[bucket >= 0 ? bucket : -bucket - 1]++;
+        } else {
+            histogram[0]++;
+        }
+    }
+
+    //session windows bridged by an element become one
+    void merge(WindowAccumulator other) {
+        start = Math.min(start, other.start);
+        end = Math.max(end, other.end);
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] += other.histogram[i];
+        }
+    }
+
+    WindowStats stats() {
+        return new WindowStats(start, end, count, sum, min, max, histogramBounds, histogram.clone());
+    }
+}
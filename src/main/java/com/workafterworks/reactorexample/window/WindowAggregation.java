@@ -0,0 +1,194 @@
+package com.workafterworks.reactorexample.window;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/*
+ * Aggregates a numeric stream into one WindowStats (count, sum, min, max, histogram) per window:
+ *
+ * WindowAggregation<Integer> perSecond = WindowAggregation.<Integer>tumbling(Duration.ofSeconds(1))
+ *         .value(Integer::longValue)
+ *         .histogram(10, 100, 1000)
+ *         .build();
+ * Flux<WindowStats> stats = Flux.range(1, 1_000_000).transform(perSecond::aggregate);
+ *
+ * Unlike window(Duration) or buffer(Duration) there is no inner Flux or List per window, every element is added to
+ * primitive accumulators and only a closed window allocates its result.
+ *
+ * Windows:
+ * - tumbling(size): consecutive [n * size, (n + 1) * size)
+ * - sliding(size, slide): windows of size starting every slide, an element is added to size / slide of them
+ * - session(gap): elements less than gap apart share a window, it ends gap after its last element
+ *
+ * Time:
+ * - processing time (default): the scheduler's clock when the element arrives, in epoch milliseconds. Windows are also
+ *   closed by a timer every tick, so a window ends on time even when no element follows it. Empty windows emit nothing.
+ *   Windows closed by the timer and by the elements are emitted in the order they closed.
+ * - eventTime(extractor, allowedLateness): a timestamp read from the element. The watermark trails the highest
+ *   timestamp seen by allowedLateness; a window is emitted once the watermark passes its end, and an element whose
+ *   windows are all closed already is late: it is dropped and counted in lateElements().
+ *
+ * When the source completes every open window is emitted, an error is propagated without emitting them.
+ */
+public final class WindowAggregation<T> {
+
+    enum Kind {
+        TUMBLING, SLIDING, SESSION
+    }
+
+    final Kind kind;
+    //size of tumbling and sliding windows, gap of sessions
+    final long size;
+    final long slide;
+    final ToLongFunction<? super T> value;
+    final ToLongFunction<? super T> eventTime;
+    final long allowedLateness;
+    final long[] histogramBounds;
+    private final Scheduler scheduler;
+    private final Duration tick;
+    private final LongAdder lateElements = new LongAdder();
+
+    private WindowAggregation(Builder<T> builder) {
+        this.kind = builder.kind;
+        this.size = builder.size;
+        this.slide = builder.slide;
+        this.value = builder.value;
+        this.eventTime = builder.eventTime;
+        this.allowedLateness = builder.allowedLateness;
+        this.histogramBounds = builder.histogramBounds;
+        this.scheduler = builder.scheduler;
+        this.tick = builder.tick;
+    }
+
+    public static <T> Builder<T> tumbling(Duration size) {
+        long millis = positiveMillis(size, "size");
+        return new Builder<>(Kind.TUMBLING, millis, millis);
+    }
+
+    //slide must divide size, e.g. 10s windows every 1s
+    public static <T> Builder<T> sliding(Duration size, Duration slide) {
+        long sizeMillis = positiveMillis(size, "size");
+        long slideMillis = positiveMillis(slide, "slide");
+        if (slideMillis > sizeMillis || sizeMillis % slideMillis != 0) {
+            throw new IllegalArgumentException("slide must divide size, was " + slide + " for " + size);
+        }
+        return new Builder<>(Kind.SLIDING, sizeMillis, slideMillis);
+    }
+
+    public static <T> Builder<T> session(Duration gap) {
+        long millis = positiveMillis(gap, "gap");
+        return new Builder<>(Kind.SESSION, millis, millis);
+    }
+
+    private static long positiveMillis(Duration duration, String name) {
+        long millis = Objects.requireNonNull(duration, name).toMillis();
+        if (millis <= 0) {
+            throw new IllegalArgumentException(name + " must be at least 1ms, was " + duration);
+        }
+        return millis;
+    }
+
+    //for transform: flux.transform(aggregation::aggregate)
+    public Flux<WindowStats> aggregate(Publisher<T> source) {
+        return Flux.defer(() -> {
+            //resolved per subscription so that StepVerifier.withVirtualTime can replace Schedulers.parallel()
+            Scheduler clock = scheduler != null ? scheduler : Schedulers.parallel();
+            WindowState<T> state = new WindowState<>(this, clock);
+            //true each time windows closed, they are kept in state until drained
+            Flux<Boolean> closed = Flux.from(source)
+                    .map(state::add)
+                    .concatWith(Mono.fromSupplier(state::flush))
+                    .filter(Boolean::booleanValue);
+            if (eventTime == null) {
+                Sinks.Empty<Void> done = Sinks.empty();
+                Flux<Boolean> closedByTimer = Flux.interval(tick, tick, clock)
+                        .onBackpressureDrop()
+                        .map(n -> state.tick())
+                        .filter(Boolean::booleanValue)
+                        .takeUntilOther(done.asMono());
+                closed = Flux.merge(closed.doFinally(signal -> done.tryEmitEmpty()), closedByTimer);
+            }
+            //merge signals one at a time: whichever thread closed them, windows leave in the order they closed
+            return closed.flatMapIterable(signal -> state.drain());
+        });
+    }
+
+    public long lateElements() {
+        return lateElements.sum();
+    }
+
+    void late() {
+        lateElements.increment();
+    }
+
+    public static final class Builder<T> {
+
+        private final Kind kind;
+        private final long size;
+        private final long slide;
+        private ToLongFunction<? super T> value;
+        private ToLongFunction<? super T> eventTime;
+        private long allowedLateness;
+        private long[] histogramBounds = new long[0];
+        private Scheduler scheduler;
+        private Duration tick = Duration.ofMillis(100);
+
+        private Builder(Kind kind, long size, long slide) {
+            this.kind = kind;
+            this.size = size;
+            this.slide = slide;
+        }
+
+        //the number aggregated, e.g. Integer::longValue
+        public Builder<T> value(ToLongFunction<? super T> value) {
+            this.value = Objects.requireNonNull(value, "value");
+            return this;
+        }
+
+        //timestamps in milliseconds, windows and lateness are measured on them
+        public Builder<T> eventTime(ToLongFunction<? super T> timestamp, Duration allowedLateness) {
+            this.eventTime = Objects.requireNonNull(timestamp, "timestamp");
+            this.allowedLateness = Objects.requireNonNull(allowedLateness, "allowedLateness").toMillis();
+            if (this.allowedLateness < 0) {
+                throw new IllegalArgumentException("allowedLateness must not be negative, was " + allowedLateness);
+            }
+            return this;
+        }
+
+        //processing time clock and how often windows are closed without an element, defaults to Schedulers.parallel() every 100ms
+        public Builder<T> processingTime(Scheduler scheduler, Duration tick) {
+            this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+            this.tick = Objects.requireNonNull(tick, "tick");
+            return this;
+        }
+
+        //upper bounds of the histogram buckets, ascending
+        public Builder<T> histogram(long... upperBounds) {
+            long[] bounds = upperBounds.clone();
+            for (int i = 1; i < bounds.length; i++) {
+                if (bounds[i] <= bounds[i - 1]) {
+                    throw new IllegalArgumentException("histogram bounds must be ascending, was " + Arrays.toString(upperBounds));
+                }
+            }
+            this.histogramBounds = bounds;
+            return this;
+        }
+
+        public WindowAggregation<T> build() {
+            if (value == null) {
+                throw new IllegalStateException("value(...) is required");
+            }
+            return new WindowAggregation<>(this);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.workafterworks.reactorexample.window;
+
+import reactor.core.scheduler.Scheduler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * The open windows of one subscription, sorted by start (and so by end, windows of one kind never nest).
+ *
+ * add and tick run on the source's and the timer's thread, both hold the monitor. They only report whether windows
+ * closed, the closed ones are kept in the order they closed until drain takes them. Nothing is allocated per element
+ * unless a window opens (accumulators are recycled) or closes (its WindowStats and the drained list).
+ */
+final class WindowState<T> {
+
+    private final WindowAggregation<T> aggregation;
+    private final Scheduler scheduler;
+    private final ArrayList<WindowAccumulator> open = new ArrayList<>();
+    private final ArrayDeque<WindowAccumulator> free = new ArrayDeque<>();
+    private List<WindowStats> closed = new ArrayList<>(2);
+
+    //windows ending at or before the watermark are closed, elements only belonging to them are late
+    private long watermark = Long.MIN_VALUE;
+    private long maxTimestamp = Long.MIN_VALUE;
+
+    WindowState(WindowAggregation<T> aggregation, Scheduler scheduler) {
+        this.aggregation = aggregation;
+        this.scheduler = scheduler;
+    }
+
+    //true when windows closed
+    synchronized boolean add(T element) {
+        long timestamp = aggregation.eventTime != null
+                ? aggregation.eventTime.applyAsLong(element)
+                : scheduler.now(TimeUnit.MILLISECONDS);
+        long value = aggregation.value.applyAsLong(element);
+        if (!assign(timestamp, value)) {
+            aggregation.late();
+        }
+        if (timestamp > maxTimestamp) {
+            maxTimestamp = timestamp;
+            return advance(timestamp - aggregation.allowedLateness);
+        }
+        return false;
+    }
+
+    //processing time only, closes the windows that ended since the last element
+    synchronized boolean tick() {
+        return advance(scheduler.now(TimeUnit.MILLISECONDS));
+    }
+
+    //the source completed, every open window is emitted
+    synchronized boolean flush() {
+        return advance(Long.MAX_VALUE);
+    }
+
+    //the windows closed since the last drain, oldest first
+    synchronized List<WindowStats> drain() {
+        if (closed.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<WindowStats> drained = closed;
+        closed = new ArrayList<>(2);
+        return drained;
+    }
+
+    private boolean assign(long timestamp, long value) {
+        long size = aggregation.size;
+        switch (aggregation.kind) {
+            case TUMBLING: {
+                long start = Math.floorDiv(timestamp, size) * size;
+                if (start + size <= watermark) {
+                    return false;
+                }
+                window(start, start + size).add(value);
+                return true;
+            }
+            case SLIDING: {
+                long slide = aggregation.slide;
+                boolean assigned = false;
+                for (long start = Math.floorDiv(timestamp, slide) * slide; start > timestamp - size; start -= slide) {
+                    if (start + size > watermark) {
+                        window(start, start + size).add(value);
+                        assigned = true;
+                    }
+                }
+                return assigned;
+            }
+            default:
+                return session(timestamp, value);
+        }
+    }
+
+    //an element opens [timestamp, timestamp + gap), every open session it overlaps is merged into it
+    private boolean session(long timestamp, long value) {
+        long end = timestamp + aggregation.size;
+        if (end <= watermark) {
+            return false;
+        }
+        WindowAccumulator session = null;
+        for (int i = 0; i < open.size(); ) {
+            WindowAccumulator candidate = open.get(i);
+            if (candidate.start < end && candidate.end > timestamp) {
+                if (session == null) {
+                    session = candidate;
+                    i++;
+                } else {
+                    session.merge(candidate);
+                    free.offer(open.remove(i));
+                }
+            } else {
+                i++;
+            }
+        }
+        if (session == null) {
+            session = window(timestamp, end);
+        } else {
+            session.start = Math.min(session.start, timestamp);
+            session.end = Math.max(session.end, end);
+        }
+        session.add(value);
+        return true;
+    }
+
+    private WindowAccumulator window(long start, long end) {
+        int i = 0;
+        for (; i < open.size(); i++) {
+            WindowAccumulator window = open.get(i);
+            if (window.start == start) {
+                return window;
+            }
+            if (window.start > start) {
+                break;
+            }
+        }
+        WindowAccumulator recycled = free.poll();
+        WindowAccumulator window = (recycled != null ? recycled : new WindowAccumulator(aggregation.histogramBounds)).open(start, end);
+        open.add(i, window);
+        return window;
+    }
+
+    private boolean advance(long newWatermark) {
+        if (newWatermark <= watermark) {
+            return false;
+        }
+        watermark = newWatermark;
+        boolean advanced = false;
+        while (!open.isEmpty() && open.get(0).end <= newWatermark) {
+            WindowAccumulator window = open.remove(0);
+            closed.add(window.stats());
+            free.offer(window);
+            advanced = true;
+        }
+        return advanced;
+    }
+}
@@ -0,0 +1,75 @@
+package com.workafterworks.reactorexample.window;
+
+import java.util.Arrays;
+
+/*
+ * The aggregate of one closed window, emitted once per window by WindowAggregation.
+ *
+ * start and end are epoch milliseconds (processing time) or whatever unit the event time extractor returns,
+ * the window covers [start, end). histogram()[i] counts the values <= histogramBounds()[i] and > the previous bound,
+ * the last bucket the values above every bound.
+ */
+public final class WindowStats {
+
+    private final long start;
+    private final long end;
+    private final long count;
+    private final long sum;
+    private final long min;
+    private final long max;
+    private final long[] histogramBounds;
+    private final long[] histogram;
+
+    WindowStats(long start, long end, long count, long sum, long min, long max, long[] histogramBounds, long[] histogram) {
+        this.start = start;
+        this.end = end;
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.histogramBounds = histogramBounds;
+        this.histogram = histogram;
+    }
+
+    public long start() {
+        return start;
+    }
+
+    public long end() {
+        return end;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public long sum() {
+        return sum;
+    }
+
+    public long min() {
+        return min;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    public double mean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    public long[] histogramBounds() {
+        return histogramBounds.clone();
+    }
+
+    public long[] histogram() {
+        return histogram.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "WindowStats[" + start + ", " + end + ") count=" + count + " sum=" + sum + " min=" + min + " max=" + max
+                + " histogram=" + Arrays.toString(histogram);
+    }
+}
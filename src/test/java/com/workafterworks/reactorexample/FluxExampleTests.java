@@ -1,7 +1,8 @@
 package com.workafterworks.reactorexample;
 
+import com.workafterworks.reactorexample.primitive.IntFlux;
+import com.workafterworks.reactorexample.subscriber.AdaptiveDemandSubscriber;
 import org.junit.jupiter.api.Test;
-import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 import reactor.core.publisher.BaseSubscriber;
 import reactor.core.publisher.Flux;
@@ -29,7 +30,7 @@ public class FluxExampleTests {
 
     @Test
     public void fluxSubscriberNumbers(){
-        Flux<Integer> numberFlux = Flux.range(1,5)
+        Flux<Integer> numberFlux = IntFlux.range(1,5).asFlux()
                 .log();
         numberFlux.subscribe(number-> System.out.println("Number: "+number));
 
@@ -51,62 +52,53 @@ public class FluxExampleTests {
 
     @Test
     public void fluxSubscriberError(){
-        Flux<Integer> numberFlux = Flux.range(1,5)
-                .log()
+        Flux<Integer> numberFlux = IntFlux.range(1,5)
                 .map(number-> {
                     if (number == 4){
                         throw new IndexOutOfBoundsException("Out of bound exception thrown");
                     }
                     return number;
-                });
-
-
-        numberFlux.subscribe(number-> System.out.println("Number: "+number),
-                Throwable::printStackTrace, () -> System.out.println("Done "),
-                subscription -> subscription.request(3));
-
-        StepVerifier.create(numberFlux)
-                .expectNext(1, 2,3)
-                .expectError(IndexOutOfBoundsException.class)
-                .verify();
-    }
-
-    @Test
-    public void fluxSubscriberBackPressure(){
-        Flux<Integer> numberFlux = Flux.range(1,10)
+                })
+                .asFlux()
                 .log();
 
-        numberFlux.subscribe(new Subscriber<Integer>() {
-            private int count;
-            private final int requestCount = 2;
-            private Subscription subscription;
 
+        numberFlux.subscribeWith(new BaseSubscriber<Integer>() {
             @Override
-            public void onSubscribe(Subscription subscription) {
-                this.subscription = subscription;
-                subscription.request(requestCount);
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(3);
             }
 
             @Override
-            public void onNext(Integer integer) {
-                count++;
-                if (count >=2){
-                    count =0;
-                    subscription.request(requestCount);
-                }
+            protected void hookOnNext(Integer number) {
+                System.out.println("Number: "+number);
             }
 
             @Override
-            public void onError(Throwable t) {
-
+            protected void hookOnError(Throwable throwable) {
+                throwable.printStackTrace();
             }
 
             @Override
-            public void onComplete() {
-
+            protected void hookOnComplete() {
+                System.out.println("Done ");
             }
         });
 
+        StepVerifier.create(numberFlux)
+                .expectNext(1, 2,3)
+                .expectError(IndexOutOfBoundsException.class)
+                .verify();
+    }
+
+    @Test
+    public void fluxSubscriberBackPressure(){
+        Flux<Integer> numberFlux = IntFlux.range(1,10).asFlux()
+                .log();
+
+        //request(n) starts at 2 like the hand counted subscriber did, and grows up to 8 when the consumer is waiting on demand
+        numberFlux.subscribe(new AdaptiveDemandSubscriber<Integer>(number -> System.out.println("Number: "+number), 2, 8));
+
         StepVerifier.create(numberFlux)
                 .expectNext(1, 2,3,4,5,6,7,8,9,10)
                 .verifyComplete();
@@ -114,27 +106,13 @@ public class FluxExampleTests {
 
     @Test
     public void fluxSubscriberBackPressure2(){
-        Flux<Integer> numberFlux = Flux.range(1,10)
+        Flux<Integer> numberFlux = IntFlux.range(1,10).asFlux()
                 .log();
 
-        numberFlux.subscribe(new BaseSubscriber<Integer>() {
-            private int count;
-            private final int requestCount = 2;
-
-            @Override
-            protected void hookOnSubscribe(Subscription subscription) {
-                request(requestCount);
-            }
-
-            @Override
-            protected void hookOnNext(Integer value) {
-                count++;
-                if (count >=2){
-                    count =0;
-                   request(requestCount);
-                }
-            }
-        });
+        //AdaptiveDemandSubscriber is a BaseSubscriber, after the run we can check which request(n) it settled on
+        AdaptiveDemandSubscriber<Integer> subscriber = new AdaptiveDemandSubscriber<>(number -> System.out.println("Number: "+number), 2, 8);
+        numberFlux.subscribe(subscriber);
+        System.out.println("Request size: "+subscriber.currentLimit());
 
         StepVerifier.create(numberFlux)
                 .expectNext(1, 2,3,4,5,6,7,8,9,10)
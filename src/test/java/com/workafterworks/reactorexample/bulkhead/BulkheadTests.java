@@ -0,0 +1,265 @@
+package com.workafterworks.reactorexample.bulkhead;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * fluxSubscriberNumbers pipelines isolated from each other by their own bulkheads
+ */
+public class BulkheadTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    public void schedulerRunsAtMostItsThreads(){
+        BulkheadScheduler scheduler = BulkheadScheduler.builder("numbers").threads(2).metrics(registry).build();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        try {
+            Flux<String> threads = Flux.range(1, 10)
+                    .flatMap(number -> Mono.fromCallable(() -> {
+                        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        Thread.sleep(10);
+                        running.decrementAndGet();
+                        return Thread.currentThread().getName();
+                    }).subscribeOn(scheduler));
+
+            StepVerifier.create(threads)
+                    .thenConsumeWhile(thread -> thread.startsWith("numbers-"))
+                    .expectComplete()
+                    .verify(Duration.ofSeconds(5));
+            assertEquals(2, maxRunning.get());
+            assertEquals(10, registry.get("reactor.bulkhead.queue.wait").tag("bulkhead", "numbers").timer().count());
+        } finally {
+            scheduler.dispose();
+        }
+    }
+
+    @Test
+    public void fullSchedulerFailsTheSubscription() throws InterruptedException {
+        BulkheadScheduler scheduler = BulkheadScheduler.builder("numbers").threads(1).queueCapacity(1).metrics(registry).build();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            fill(scheduler, release);
+
+            StepVerifier.create(Mono.just(1).subscribeOn(scheduler))
+                    .verifyError(RejectedExecutionException.class);
+            assertEquals(1, scheduler.rejected());
+            assertEquals(1, registry.get("reactor.bulkhead.rejected").tag("type", "scheduler").functionCounter().count());
+            assertEquals(1.0, registry.get("reactor.bulkhead.saturation").tag("bulkhead", "numbers").gauge().value());
+        } finally {
+            release.countDown();
+            scheduler.dispose();
+        }
+    }
+
+    @Test
+    public void callerRunsWhenFull() throws InterruptedException {
+        BulkheadScheduler scheduler = BulkheadScheduler.builder("numbers").threads(1).queueCapacity(1)
+                .rejection(BulkheadScheduler.Rejection.CALLER_RUNS)
+                .build();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            fill(scheduler, release);
+
+            StepVerifier.create(Mono.fromCallable(() -> Thread.currentThread().getName()).subscribeOn(scheduler))
+                    .expectNext(Thread.currentThread().getName())
+                    .verifyComplete();
+            assertEquals(1, scheduler.rejected());
+        } finally {
+            release.countDown();
+            scheduler.dispose();
+        }
+    }
+
+    @Test
+    public void queueWaitIsRecordedForEveryWorkerTask() throws InterruptedException {
+        BulkheadScheduler scheduler = BulkheadScheduler.builder("numbers").threads(1).metrics(registry).build();
+        Scheduler.Worker worker = scheduler.createWorker();
+        CountDownLatch ran = new CountDownLatch(3);
+        try {
+            for (int i = 0; i < 3; i++) {
+                worker.schedule(() -> {
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    ran.countDown();
+                });
+            }
+
+            assertTrue(ran.await(5, TimeUnit.SECONDS));
+            Timer queueWait = registry.get("reactor.bulkhead.queue.wait").tag("bulkhead", "numbers").timer();
+            assertEquals(3, queueWait.count());
+            //the last task waited for the two queued before it on the worker
+            assertTrue(queueWait.max(TimeUnit.MILLISECONDS) >= 40, queueWait.max(TimeUnit.MILLISECONDS) + "ms");
+        } finally {
+            worker.dispose();
+            scheduler.dispose();
+        }
+    }
+
+    @Test
+    public void intervalsRunOnTheBulkhead(){
+        BulkheadScheduler scheduler = BulkheadScheduler.builder("ticks").threads(1).build();
+        try {
+            Flux<String> ticks = Flux.interval(Duration.ofMillis(10), scheduler)
+                    .map(tick -> tick + "-" + Thread.currentThread().getName().startsWith("ticks-"))
+                    .take(3);
+
+            StepVerifier.create(ticks)
+                    .expectNext("0-true", "1-true", "2-true")
+                    .expectComplete()
+                    .verify(Duration.ofSeconds(5));
+        } finally {
+            scheduler.dispose();
+        }
+    }
+
+    @Test
+    public void callerRunsRejectsOnceDisposed(){
+        BulkheadScheduler scheduler = BulkheadScheduler.builder("numbers")
+                .rejection(BulkheadScheduler.Rejection.CALLER_RUNS)
+                .build();
+        Scheduler.Worker worker = scheduler.createWorker();
+        scheduler.dispose();
+
+        StepVerifier.create(Mono.just(1).subscribeOn(scheduler))
+                .expectError(RejectedExecutionException.class)
+                .verify(Duration.ofSeconds(1));
+        StepVerifier.create(Flux.range(1, 3).publishOn(scheduler))
+                .expectError(RejectedExecutionException.class)
+                .verify(Duration.ofSeconds(1));
+        assertThrows(RejectedExecutionException.class, () -> worker.schedule(() -> {
+        }));
+        assertTrue(worker.isDisposed());
+        assertEquals(0, scheduler.rejected());
+    }
+
+    @Test
+    public void noisyPipelineDoesNotStarveTheOthers() throws InterruptedException {
+        BulkheadScheduler noisy = BulkheadScheduler.builder("noisy").threads(1).queueCapacity(1000).build();
+        BulkheadScheduler quiet = BulkheadScheduler.builder("quiet").threads(1).build();
+        CountDownLatch release = new CountDownLatch(1);
+        Disposable flood = Flux.range(1, 100)
+                .flatMap(number -> Mono.fromCallable(() -> release.await(5, TimeUnit.SECONDS)).subscribeOn(noisy))
+                .subscribe();
+        try {
+
+            StepVerifier.create(Flux.range(1, 5).publishOn(quiet))
+                    .expectNext(1, 2, 3, 4, 5)
+                    .expectComplete()
+                    .verify(Duration.ofSeconds(1));
+            assertTrue(noisy.queued() > 0);
+        } finally {
+            //cancelled before its scheduler goes away, so no task fails on the interrupt of noisy.dispose()
+            flood.dispose();
+            release.countDown();
+            noisy.dispose();
+            quiet.dispose();
+        }
+    }
+
+    @Test
+    public void delayedTasksFiredRightAwayAreNotCancelled() throws InterruptedException {
+        BulkheadScheduler scheduler = BulkheadScheduler.builder("delays").threads(4).queueCapacity(2000).build();
+        CountDownLatch ran = new CountDownLatch(2_000);
+        Runnable blocking = () -> {
+            try {
+                Thread.sleep(1);
+                ran.countDown();
+            } catch (InterruptedException e) {
+                //cancelled while running
+            }
+        };
+        Scheduler.Worker worker = scheduler.createWorker();
+        try {
+            for (int i = 0; i < 1_000; i++) {
+                scheduler.schedule(blocking, 0, TimeUnit.NANOSECONDS);
+                worker.schedule(blocking, 0, TimeUnit.NANOSECONDS);
+            }
+
+            assertTrue(ran.await(10, TimeUnit.SECONDS), ran.getCount() + " delayed tasks did not run");
+        } finally {
+            worker.dispose();
+            scheduler.dispose();
+        }
+    }
+
+    @Test
+    public void bulkheadQueuesThenRejects(){
+        Bulkhead bulkhead = Bulkhead.builder("numbers").maxConcurrent(2).maxQueued(1).metrics(registry).build();
+        Sinks.One<Integer> first = Sinks.one();
+        Sinks.One<Integer> second = Sinks.one();
+        Disposable holder = first.asMono().transformDeferred(bulkhead.operator()).subscribe();
+        second.asMono().transformDeferred(bulkhead.operator()).subscribe();
+        assertEquals(1.0, bulkhead.saturation());
+
+        AtomicInteger subscribed = new AtomicInteger();
+        Mono<Integer> queued = Mono.just(3).doOnSubscribe(s -> subscribed.incrementAndGet()).transformDeferred(bulkhead.operator());
+        StepVerifier.create(queued)
+                .then(() -> {
+                    assertEquals(0, subscribed.get());
+                    StepVerifier.create(Flux.range(1, 5).transformDeferred(bulkhead.operator()))
+                            .verifyError(BulkheadFullException.class);
+                    holder.dispose();
+                })
+                .expectNext(3)
+                .verifyComplete();
+
+        second.tryEmitValue(2);
+        assertEquals(0, bulkhead.active());
+        assertEquals(1, bulkhead.rejected());
+        assertEquals(3, registry.get("reactor.bulkhead.queue.wait").tag("type", "semaphore").timer().count());
+        assertEquals(0, registry.get("reactor.bulkhead.queued").tag("type", "semaphore").gauge().value());
+    }
+
+    @Test
+    public void cancelledWaitersLeaveTheQueue(){
+        Bulkhead bulkhead = Bulkhead.builder("numbers").maxConcurrent(1).maxQueued(1).build();
+        Disposable holder = Mono.never().transformDeferred(bulkhead.operator()).subscribe();
+        Disposable waiter = Mono.just(1).transformDeferred(bulkhead.operator()).subscribe();
+        waiter.dispose();
+
+        //the queue slot is free again, and the permit goes to the new waiter
+        StepVerifier.create(Mono.just(2).transformDeferred(bulkhead.operator()))
+                .then(holder::dispose)
+                .expectNext(2)
+                .verifyComplete();
+        assertEquals(0, bulkhead.active());
+        assertEquals(0, bulkhead.rejected());
+    }
+
+    //one task running until release, one queued behind it
+    private static void fill(BulkheadScheduler scheduler, CountDownLatch release) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        scheduler.schedule(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        scheduler.schedule(() -> { });
+    }
+}
@@ -0,0 +1,158 @@
+package com.workafterworks.reactorexample.cache;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * The Mono.just(name) lookups of MonoExampleTests behind a ReactiveCache, time is driven by a fake ticker
+ */
+public class ReactiveCacheTests {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final ReactiveCache<String, String> cache = ReactiveCache.builder()
+            .maximumSize(100)
+            .refreshAfterWrite(Duration.ofSeconds(30))
+            .expireAfterWrite(Duration.ofMinutes(1))
+            .staleIfError(Duration.ofMinutes(5))
+            .ticker(nanos::get)
+            .build();
+
+    private Mono<String> upperCase(String name) {
+        return Mono.fromCallable(() -> {
+            loads.incrementAndGet();
+            return name.toUpperCase();
+        });
+    }
+
+    private Mono<String> failing(String name) {
+        return Mono.error(new RuntimeException("An error occurred"));
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+
+    @Test
+    public void secondLookupIsAHit(){
+        StepVerifier.create(cache.get("Pascal", this::upperCase)).expectNext("PASCAL").verifyComplete();
+        StepVerifier.create(cache.get("Pascal", this::upperCase)).expectNext("PASCAL").verifyComplete();
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.stats().hitCount());
+    }
+
+    @Test
+    public void concurrentMissesShareOneLoad(){
+        Mono<String> slow = cache.get("Pascal", name -> upperCase(name).delayElement(Duration.ofMillis(50)));
+
+        StepVerifier.create(Flux.merge(slow, slow, slow))
+                .expectNext("PASCAL", "PASCAL", "PASCAL")
+                .verifyComplete();
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void cancelledCallerDoesNotCancelTheSharedLoad(){
+        Mono<String> slow = cache.get("Pascal", name -> upperCase(name).delayElement(Duration.ofMillis(50)));
+
+        StepVerifier.create(slow.doOnSubscribe(s -> slow.subscribe().dispose()))
+                .expectNext("PASCAL")
+                .verifyComplete();
+        assertEquals(1, loads.get());
+        StepVerifier.create(cache.get("Pascal", this::upperCase)).expectNext("PASCAL").verifyComplete();
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void cancelledCallerDoesNotCancelTheSharedReload(){
+        StepVerifier.create(cache.get("Pascal", this::upperCase)).expectNext("PASCAL").verifyComplete();
+        advance(Duration.ofMinutes(2));
+        Mono<String> slow = cache.get("Pascal", name -> Mono.just("RELOADED").delayElement(Duration.ofMillis(50)));
+
+        StepVerifier.create(slow.doOnSubscribe(s -> slow.subscribe().dispose()))
+                .expectNext("RELOADED")
+                .verifyComplete();
+    }
+
+    @Test
+    public void refreshAheadServesCurrentValueAndReloads(){
+        StepVerifier.create(cache.get("Pascal", this::upperCase)).expectNext("PASCAL").verifyComplete();
+        advance(Duration.ofSeconds(45));
+
+        StepVerifier.create(cache.get("Pascal", name -> Mono.just("REFRESHED"))).expectNext("PASCAL").verifyComplete();
+        StepVerifier.create(cache.get("Pascal", this::upperCase)).expectNext("REFRESHED").verifyComplete();
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void expiredEntryIsLoadedAgain(){
+        StepVerifier.create(cache.get("Pascal", this::upperCase)).expectNext("PASCAL").verifyComplete();
+        advance(Duration.ofMinutes(2));
+
+        StepVerifier.create(cache.get("Pascal", name -> Mono.just("RELOADED"))).expectNext("RELOADED").verifyComplete();
+    }
+
+    @Test
+    public void staleValueServedWhenReloadFails(){
+        StepVerifier.create(cache.get("Pascal", this::upperCase)).expectNext("PASCAL").verifyComplete();
+        advance(Duration.ofMinutes(2));
+
+        StepVerifier.create(cache.get("Pascal", this::failing)).expectNext("PASCAL").verifyComplete();
+        advance(Duration.ofMinutes(5));
+        StepVerifier.create(cache.get("Pascal", this::failing)).expectError(RuntimeException.class).verify();
+    }
+
+    @Test
+    public void staleValueServedToEveryCallerOfAFailedReload(){
+        StepVerifier.create(cache.get("Pascal", this::upperCase)).expectNext("PASCAL").verifyComplete();
+        advance(Duration.ofMinutes(2));
+        Mono<String> failingReload = cache.get("Pascal", name -> Mono.<String>error(new RuntimeException("An error occurred"))
+                .delaySubscription(Duration.ofMillis(50)));
+
+        //the second caller joins the reload the first one started
+        StepVerifier.create(Flux.merge(failingReload, failingReload))
+                .expectNext("PASCAL", "PASCAL")
+                .verifyComplete();
+    }
+
+    @Test
+    public void staleOnErrorPlugsIntoOnErrorResume(){
+        StepVerifier.create(cache.get("Pascal", this::upperCase)).expectNext("PASCAL").verifyComplete();
+
+        Mono<String> mono = failing("Pascal")
+                .onErrorResume(cache.staleOnError("Pascal"));
+        StepVerifier.create(mono).expectNext("PASCAL").verifyComplete();
+
+        Mono<String> unknown = failing("Martin")
+                .onErrorResume(cache.staleOnError("Martin"));
+        StepVerifier.create(unknown).expectError(RuntimeException.class).verify();
+    }
+
+    @Test
+    public void sizeIsBounded(){
+        for (int i = 0; i < 1_000; i++) {
+            cache.get("name" + i, this::upperCase).block(Duration.ofSeconds(1));
+        }
+        cache.cleanUp();
+
+        assertTrue(cache.estimatedSize() <= 100, "size " + cache.estimatedSize());
+        assertTrue(cache.stats().evictionCount() >= 900);
+    }
+
+    @Test
+    public void emptyResultIsNotCached(){
+        StepVerifier.create(cache.get("Pascal", name -> Mono.empty())).verifyComplete();
+        StepVerifier.create(cache.get("Pascal", this::upperCase)).expectNext("PASCAL").verifyComplete();
+        assertEquals(1, loads.get());
+    }
+}
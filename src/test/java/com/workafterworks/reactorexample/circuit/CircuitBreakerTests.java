@@ -0,0 +1,211 @@
+package com.workafterworks.reactorexample.circuit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * fluxSubscriberError's failing map behind a CircuitBreaker, so that repeated failures stop reaching it
+ */
+public class CircuitBreakerTests {
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger subscriptions = new AtomicInteger();
+
+    private CircuitBreaker.Builder breaker() {
+        return CircuitBreaker.builder("numbers")
+                .countWindow(10)
+                .minimumCalls(4)
+                .failureRateThreshold(50)
+                .waitInOpen(Duration.ofSeconds(1))
+                .permittedCallsInHalfOpen(2)
+                .clock(now::get);
+    }
+
+    private Flux<Integer> numbers(boolean failing) {
+        return Flux.range(1, 5)
+                .doOnSubscribe(s -> subscriptions.incrementAndGet())
+                .map(number -> {
+                    if (failing && number == 4) {
+                        throw new IndexOutOfBoundsException("Out of bound exception thrown");
+                    }
+                    return number;
+                });
+    }
+
+    @Test
+    public void opensOnceTheFailureRateReachesTheThreshold(){
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CircuitBreaker breaker = breaker().metrics(registry).build();
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(numbers(false).transformDeferred(breaker.operator()))
+                    .expectNext(1, 2, 3, 4, 5)
+                    .verifyComplete();
+        }
+        //3 failures out of 5 calls, the window reached minimumCalls at the 4th
+        StepVerifier.create(numbers(true).transformDeferred(breaker.operator()))
+                .expectNext(1, 2, 3)
+                .verifyError(IndexOutOfBoundsException.class);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        StepVerifier.create(numbers(true).transformDeferred(breaker.operator()))
+                .expectNext(1, 2, 3)
+                .verifyError(IndexOutOfBoundsException.class);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        StepVerifier.create(numbers(false).transformDeferred(breaker.operator()))
+                .verifyError(CircuitOpenException.class);
+        assertEquals(4, subscriptions.get());
+        assertEquals(2, registry.get("reactor.circuit.calls").tag("outcome", "success").functionCounter().count());
+        assertEquals(2, registry.get("reactor.circuit.calls").tag("outcome", "failure").functionCounter().count());
+        assertEquals(1, registry.get("reactor.circuit.calls").tag("outcome", "rejected").functionCounter().count());
+        assertEquals(1, registry.get("reactor.circuit.state").gauge().value());
+    }
+
+    @Test
+    public void rejectionIsTheBreakersStacklessSingleton(){
+        CircuitBreaker breaker = breaker().minimumCalls(1).build();
+        Mono<String> failing = Mono.<String>error(new IllegalStateException("down")).transformDeferred(breaker.operator());
+        StepVerifier.create(failing).verifyError(IllegalStateException.class);
+
+        Throwable[] rejections = new Throwable[2];
+        for (int i = 0; i < 2; i++) {
+            int index = i;
+            StepVerifier.create(failing)
+                    .expectErrorSatisfies(e -> rejections[index] = e)
+                    .verify();
+        }
+        assertSame(rejections[0], rejections[1]);
+        assertEquals(0, rejections[0].getStackTrace().length);
+    }
+
+    @Test
+    public void halfOpenTrialsCloseTheBreaker(){
+        CircuitBreaker breaker = breaker().minimumCalls(1).build();
+        StepVerifier.create(numbers(true).transformDeferred(breaker.operator()))
+                .expectNext(1, 2, 3)
+                .verifyError(IndexOutOfBoundsException.class);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        //two trial calls are permitted, a third one in flight is rejected
+        StepVerifier.create(numbers(false).transformDeferred(breaker.operator()), 0)
+                .then(() -> {
+                    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+                    StepVerifier.create(numbers(false).transformDeferred(breaker.operator()), 0)
+                            .then(() -> StepVerifier.create(numbers(false).transformDeferred(breaker.operator()))
+                                    .verifyError(CircuitOpenException.class))
+                            .thenRequest(5)
+                            .expectNext(1, 2, 3, 4, 5)
+                            .verifyComplete();
+                })
+                .thenRequest(5)
+                .expectNext(1, 2, 3, 4, 5)
+                .verifyComplete();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    public void failedHalfOpenTrialsOpenTheBreakerAgain(){
+        CircuitBreaker breaker = breaker().minimumCalls(1).permittedCallsInHalfOpen(1).build();
+        Mono<String> failing = Mono.<String>error(new IllegalStateException("down")).transformDeferred(breaker.operator());
+        StepVerifier.create(failing).verifyError(IllegalStateException.class);
+
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        StepVerifier.create(failing).verifyError(IllegalStateException.class);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        StepVerifier.create(failing).verifyError(CircuitOpenException.class);
+    }
+
+    @Test
+    public void cancelledTrialGivesItsPermitBack(){
+        CircuitBreaker breaker = breaker().minimumCalls(1).permittedCallsInHalfOpen(1).build();
+        StepVerifier.create(Mono.error(new IllegalStateException("down")).transformDeferred(breaker.operator()))
+                .verifyError(IllegalStateException.class);
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+
+        StepVerifier.create(Mono.never().transformDeferred(breaker.operator()))
+                .thenCancel()
+                .verify();
+        StepVerifier.create(Mono.just("ok").transformDeferred(breaker.operator()))
+                .expectNext("ok")
+                .verifyComplete();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    public void ignoredErrorsCountAsSuccesses(){
+        CircuitBreaker breaker = breaker().minimumCalls(1)
+                .recordFailure(e -> !(e instanceof IndexOutOfBoundsException))
+                .build();
+        StepVerifier.create(numbers(true).transformDeferred(breaker.operator()))
+                .expectNext(1, 2, 3)
+                .verifyError(IndexOutOfBoundsException.class);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    public void timeWindowForgetsOldFailures(){
+        CircuitBreaker breaker = breaker().timeWindow(Duration.ofSeconds(10), 10).minimumCalls(4).build();
+        Mono<String> failing = Mono.<String>error(new IllegalStateException("down")).transformDeferred(breaker.operator());
+        Mono<String> succeeding = Mono.just("ok").transformDeferred(breaker.operator());
+
+        for (int i = 0; i < 3; i++) {
+            StepVerifier.create(failing).verifyError(IllegalStateException.class);
+        }
+        //the 3 failures are out of the window by now
+        now.addAndGet(Duration.ofSeconds(11).toNanos());
+        for (int i = 0; i < 3; i++) {
+            StepVerifier.create(succeeding).expectNext("ok").verifyComplete();
+        }
+        StepVerifier.create(failing).verifyError(IllegalStateException.class);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        StepVerifier.create(failing).verifyError(IllegalStateException.class);
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        StepVerifier.create(failing).verifyError(IllegalStateException.class);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    }
+
+    @Test
+    public void countWindowTotalsStayExactUnderContention() throws InterruptedException {
+        int threads = 8;
+        int perThread = 50_000;
+        CountWindow window = new CountWindow(64);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    window.record(i % 4 == 0);
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        //64 successes evict every outcome of the race: any drift of the totals would remain
+        long snapshot = 0;
+        for (int i = 0; i < 64; i++) {
+            snapshot = window.record(false);
+        }
+        assertEquals(64, OutcomeWindow.calls(snapshot));
+        assertEquals(0, OutcomeWindow.failures(snapshot));
+        assertEquals(OutcomeWindow.snapshot(64, 0), snapshot);
+    }
+}
@@ -0,0 +1,129 @@
+package com.workafterworks.reactorexample.coalesce;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * Many concurrent subscriptions to the Mono.just(name) chain of MonoExampleTests, coalesced per name
+ */
+public class SingleFlightTests {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private Mono<String> slowUpperCase(String name) {
+        return Mono.just(name)
+                .doOnSubscribe(subscription -> loads.incrementAndGet())
+                .delayElement(Duration.ofMillis(100))
+                .map(String::toUpperCase);
+    }
+
+    @Test
+    public void concurrentLookupsShareOneLoad(){
+        Flux<String> lookups = Flux.range(0, 100)
+                .flatMap(i -> singleFlight.get("Pascal", this::slowUpperCase)
+                        .subscribeOn(Schedulers.parallel()));
+
+        StepVerifier.create(lookups)
+                .expectNextCount(100)
+                .verifyComplete();
+
+        assertEquals(1, loads.get());
+        assertEquals(1, singleFlight.loads());
+        assertEquals(99, singleFlight.coalesced());
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    public void keysAreLoadedIndependently(){
+        Flux<String> lookups = Flux.just("Pascal", "Martin", "Pascal", "james", "Martin")
+                .flatMap(name -> singleFlight.get(name, this::slowUpperCase));
+
+        StepVerifier.create(lookups.sort())
+                .expectNext("JAMES", "MARTIN", "MARTIN", "PASCAL", "PASCAL")
+                .verifyComplete();
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void nothingIsCachedAfterTheFlight(){
+        StepVerifier.create(singleFlight.get("Pascal", this::slowUpperCase))
+                .expectNext("PASCAL")
+                .verifyComplete();
+        StepVerifier.create(singleFlight.get("Pascal", this::slowUpperCase))
+                .expectNext("PASCAL")
+                .verifyComplete();
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void errorReachesEverySubscriber(){
+        Mono<String> failing = singleFlight.get("Pascal", name -> Mono.<String>error(new RuntimeException("An error occurred"))
+                .delaySubscription(Duration.ofMillis(50)));
+
+        StepVerifier.create(Flux.merge(failing.materialize(), failing.materialize()).filter(signal -> signal.isOnError()))
+                .expectNextCount(2)
+                .verifyComplete();
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    public void throwingLoaderDoesNotLeaveItsFlightBehind(){
+        StepVerifier.create(singleFlight.get("Pascal", name -> {
+                    throw new IllegalStateException("loader failed");
+                }))
+                .expectErrorMessage("loader failed")
+                .verify(Duration.ofSeconds(1));
+        StepVerifier.create(singleFlight.get("Pascal", name -> null))
+                .expectError(NullPointerException.class)
+                .verify(Duration.ofSeconds(1));
+
+        assertEquals(0, singleFlight.inFlight());
+        StepVerifier.create(singleFlight.get("Pascal", this::slowUpperCase))
+                .expectNext("PASCAL")
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    public void upstreamIsCancelledWhenEverySubscriberCancels(){
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Mono<String> never = singleFlight.get("Pascal", name -> Mono.<String>never().doOnCancel(() -> cancelled.set(true)));
+
+        StepVerifier.create(Flux.merge(never, never))
+                .expectSubscription()
+                .thenAwait(Duration.ofMillis(10))
+                .thenCancel()
+                .verify();
+
+        assertTrue(cancelled.get());
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    public void coalesceMetrics(){
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SingleFlight<String, String> measured = SingleFlight.metered("names", registry);
+        Mono<String> lookup = measured.get("Pascal", this::slowUpperCase);
+
+        StepVerifier.create(Flux.merge(lookup, lookup, lookup, lookup))
+                .expectNextCount(4)
+                .verifyComplete();
+
+        assertEquals(1, registry.get("reactor.singleflight.loads").tag("name", "names").functionCounter().count());
+        assertEquals(3, registry.get("reactor.singleflight.coalesced").tag("name", "names").functionCounter().count());
+        assertEquals(0.75, registry.get("reactor.singleflight.coalesce.ratio").tag("name", "names").gauge().value());
+    }
+}
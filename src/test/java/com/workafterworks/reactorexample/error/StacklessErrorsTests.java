@@ -0,0 +1,79 @@
+package com.workafterworks.reactorexample.error;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * fluxSubscriberError and monoSubscriberConsumerError with stackless errors
+ */
+public class StacklessErrorsTests {
+
+    @AfterEach
+    public void resetVerbose(){
+        StacklessErrors.setVerbose(false);
+    }
+
+    @Test
+    public void fluxSubscriberErrorStackless(){
+        Flux<Integer> numberFlux = Flux.range(1, 5)
+                .handle(StacklessErrors.failWhen(number -> number == 4,
+                        number -> new StacklessIndexOutOfBoundsException("Out of bound exception thrown")));
+
+        StepVerifier.create(numberFlux)
+                .expectNext(1, 2, 3)
+                .expectErrorSatisfies(error -> {
+                    assertTrue(error instanceof IndexOutOfBoundsException);
+                    assertEquals(0, error.getStackTrace().length);
+                })
+                .verify();
+    }
+
+    @Test
+    public void monoSubscriberConsumerErrorSingleton(){
+        StacklessException error = StacklessException.singleton("An error occurred");
+        Mono<String> mono = Mono.just("Pascal")
+                .handle(StacklessErrors.failWhen(name -> true, error));
+
+        StepVerifier.create(mono)
+                .expectErrorSatisfies(signalled -> assertSame(error, signalled))
+                .verify();
+        StepVerifier.create(mono)
+                .expectErrorSatisfies(signalled -> assertSame(error, signalled))
+                .verify();
+        assertEquals(0, error.getStackTrace().length);
+    }
+
+    @Test
+    public void singletonCannotBeModified(){
+        PredicateFailedException error = PredicateFailedException.SINGLETON;
+        error.addSuppressed(new IllegalStateException("suppressed"));
+
+        assertEquals(0, error.getSuppressed().length);
+        assertTrue(error.isSingleton());
+    }
+
+    @Test
+    public void verboseModeRestoresStackTraces(){
+        StacklessErrors.setVerbose(true);
+        Flux<Integer> numberFlux = Flux.range(1, 5)
+                .handle(StacklessErrors.failWhen(number -> number == 4, PredicateFailedException.SINGLETON));
+
+        StepVerifier.create(numberFlux)
+                .expectNext(1, 2, 3)
+                .expectErrorSatisfies(error -> {
+                    assertTrue(error instanceof PredicateFailedException);
+                    assertNotSame(PredicateFailedException.SINGLETON, error);
+                    assertTrue(error.getStackTrace().length > 0);
+                })
+                .verify();
+        assertTrue(new StacklessIndexOutOfBoundsException("Out of bound").getStackTrace().length > 0);
+    }
+}
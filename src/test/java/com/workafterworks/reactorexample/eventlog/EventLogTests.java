@@ -0,0 +1,208 @@
+package com.workafterworks.reactorexample.eventlog;
+
+import com.workafterworks.reactorexample.pipeline.ExamplePipelines;
+import com.workafterworks.reactorexample.spill.SpillSerializer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * fluxSubscriberNumbers written to a segmented log on disk and replayed from it
+ */
+public class EventLogTests {
+
+    //4 byte ints behind an 8 byte header
+    private static final int RECORD_BYTES = 12;
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private EventLog.Builder<Integer> log() {
+        return EventLog.builder(directory, SpillSerializer.ints())
+                .segmentBytes(4096)
+                .indexIntervalBytes(256)
+                .metrics("numbers", registry);
+    }
+
+    @Test
+    public void appendedRecordsAreReplayedAcrossSegments(){
+        EventLog<Integer> log = log().open();
+
+        StepVerifier.create(log.append(ExamplePipelines.numbers(10_000)))
+                .expectNext(10_000L)
+                .verifyComplete();
+
+        assertEquals(10_000, log.durableOffset());
+        assertTrue(log.segments() > 1);
+        StepVerifier.create(log.replay(0))
+                .expectNextSequence(Flux.range(1, 10_000).toIterable())
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+        log.dispose();
+    }
+
+    @Test
+    public void replayStartsAtAnyOffset(){
+        EventLog<Integer> log = log().open();
+        log.append(ExamplePipelines.numbers(10_000)).block(Duration.ofSeconds(10));
+
+        StepVerifier.create(log.read(7_777).take(3).map(LogRecord::offset))
+                .expectNext(7_777L, 7_778L, 7_779L)
+                .verifyComplete();
+        StepVerifier.create(log.replay(9_999))
+                .expectNext(10_000)
+                .verifyComplete();
+        StepVerifier.create(log.replay(10_000))
+                .verifyComplete();
+        log.dispose();
+    }
+
+    @Test
+    public void replayOfAFutureOffsetDuringAnAppendStartsAtThatOffset(){
+        EventLog<Integer> log = log().groupCommit(1, null).open();
+        Disposable appending = log.append(ExamplePipelines.numbers(20_000)).subscribe();
+        try {
+            //the durable end moves on between a replay's seek and its first read
+            while (log.durableOffset() < 20_000 && !appending.isDisposed()) {
+                long from = log.durableOffset() + 1;
+                List<Long> offsets = log.read(from).take(2).map(LogRecord::offset).collectList().block(Duration.ofSeconds(5));
+                if (!offsets.isEmpty()) {
+                    assertEquals(from, offsets.get(0), offsets::toString);
+                }
+            }
+        } finally {
+            appending.dispose();
+            log.dispose();
+        }
+    }
+
+    @Test
+    public void replayReadsWhatIsRequested(){
+        EventLog<Integer> log = log().open();
+        log.append(ExamplePipelines.numbers(1_000)).block(Duration.ofSeconds(10));
+
+        StepVerifier.create(log.read(0), 0)
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(50))
+                .thenRequest(2)
+                .assertNext(record -> assertEquals(0, record.offset()))
+                .assertNext(record -> assertEquals(1, record.offset()))
+                .expectNoEvent(Duration.ofMillis(50))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+        log.dispose();
+    }
+
+    @Test
+    public void reopenedLogContinuesAfterItsLastRecord(){
+        EventLog<Integer> log = log().open();
+        log.append(ExamplePipelines.numbers(1_000)).block(Duration.ofSeconds(10));
+        log.dispose();
+
+        EventLog<Integer> reopened = log().open();
+        assertEquals(1_000, reopened.nextOffset());
+        StepVerifier.create(reopened.append(Flux.range(1_001, 1_000)))
+                .expectNext(2_000L)
+                .verifyComplete();
+        StepVerifier.create(reopened.replay(0))
+                .expectNextSequence(Flux.range(1, 2_000).toIterable())
+                .verifyComplete();
+        reopened.dispose();
+    }
+
+    @Test
+    public void tornRecordIsTruncatedOnRecovery() throws IOException {
+        EventLog<Integer> log = log().segmentBytes(64 * 1024).open();
+        log.append(ExamplePipelines.numbers(100)).block(Duration.ofSeconds(10));
+        log.dispose();
+
+        //record 50 half written: its payload does not match the crc any more
+        corrupt(directory.resolve(Segment.fileName(0, ".log")), 50 * RECORD_BYTES + Segment.HEADER_BYTES);
+
+        EventLog<Integer> recovered = log().open();
+        assertEquals(50, recovered.nextOffset());
+        recovered.append(Flux.just(-1)).block(Duration.ofSeconds(10));
+        StepVerifier.create(recovered.replay(48))
+                .expectNext(49, 50, -1)
+                .verifyComplete();
+        recovered.dispose();
+    }
+
+    @Test
+    public void corruptRecordFailsTheReplay() throws IOException {
+        EventLog<Integer> log = log().open();
+        log.append(ExamplePipelines.numbers(1_000)).block(Duration.ofSeconds(10));
+
+        corrupt(directory.resolve(Segment.fileName(0, ".log")), 10 * RECORD_BYTES + Segment.HEADER_BYTES);
+
+        StepVerifier.create(log.replay(0))
+                .expectNextCount(10)
+                .expectErrorMessage("Corrupt record at offset 10 of " + directory.resolve(Segment.fileName(0, ".log")))
+                .verify(Duration.ofSeconds(5));
+        log.dispose();
+    }
+
+    @Test
+    public void groupCommitForcesOncePerFlushEveryRecords(){
+        EventLog<Integer> log = log().segmentBytes(64 * 1024)
+                .groupCommit(100, null)
+                .open();
+
+        log.append(ExamplePipelines.numbers(1_000)).block(Duration.ofSeconds(10));
+        assertEquals(10, registry.get("reactor.log.fsync").timer().count());
+
+        //the rest of an append is committed when it completes
+        log.append(ExamplePipelines.numbers(50)).block(Duration.ofSeconds(10));
+        assertEquals(11, registry.get("reactor.log.fsync").timer().count());
+        assertEquals(1_050, registry.get("reactor.log.appended").functionCounter().count());
+        log.dispose();
+    }
+
+    @Test
+    public void retentionDeletesTheOldestSegments() throws IOException {
+        EventLog<Integer> log = log().retainSegments(3).open();
+        log.append(ExamplePipelines.numbers(10_000)).block(Duration.ofSeconds(10));
+
+        assertEquals(3, log.segments());
+        assertEquals(3, registry.get("reactor.log.segments").gauge().value());
+        long start = log.startOffset();
+        assertTrue(start > 0);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(3, files.filter(file -> file.toString().endsWith(".log")).count());
+        }
+        //replaying from before the start begins at the oldest record kept
+        StepVerifier.create(log.read(0).map(LogRecord::offset))
+                .expectNext(start)
+                .expectNextCount(10_000 - start - 1)
+                .verifyComplete();
+        log.dispose();
+    }
+
+    private static void corrupt(Path file, int position) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer bytes = ByteBuffer.allocate(1);
+            channel.read(bytes, position);
+            bytes.flip();
+            bytes.put(0, (byte) ~bytes.get(0));
+            channel.write(bytes, position);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.workafterworks.reactorexample.file;
+
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/*
+ * fluxSubscriberFomList with the list in a file
+ */
+public class FileRecordsTests {
+
+    @TempDir
+    Path directory;
+
+    //multi-byte characters, so small chunks cut through them as well as through lines
+    private final List<String> names = IntStream.range(0, 1_000)
+            .mapToObj(i -> i + "-Pascal-Martin-jämes-€")
+            .collect(Collectors.toList());
+
+    private Path write(String content) throws IOException {
+        return Files.writeString(directory.resolve("names.txt"), content, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void linesMatchFilesLinesAcrossChunkBoundaries() throws IOException {
+        Path file = write(String.join("\n", names) + "\n");
+
+        StepVerifier.create(FileRecords.lines(file, 7).collectList())
+                .expectNext(Files.readAllLines(file))
+                .verifyComplete();
+        StepVerifier.create(FileRecords.lines(file).collectList())
+                .expectNext(names)
+                .verifyComplete();
+    }
+
+    @Test
+    public void lastLineWithoutNewlineAndCrLf() throws IOException {
+        Path file = write("Pascal\r\nMartin\r\n\r\njames");
+
+        StepVerifier.create(FileRecords.lines(file, 4))
+                .expectNext("Pascal", "Martin", "", "james")
+                .verifyComplete();
+    }
+
+    @Test
+    public void linesFollowDemand() throws IOException {
+        Path file = write(String.join("\n", names));
+
+        StepVerifier.create(FileRecords.lines(file, 64), 3)
+                .expectNext(names.get(0), names.get(1), names.get(2))
+                .thenAwait()
+                .thenRequest(2)
+                .expectNext(names.get(3), names.get(4))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    public void recordsAreReleasedSlices() throws IOException {
+        Path file = write(String.join(";", names));
+        UnpooledByteBufAllocator allocator = new UnpooledByteBufAllocator(true);
+        NettyDataBufferFactory factory = new NettyDataBufferFactory(allocator);
+
+        Flux<String> records = FileRecords.records(file, (byte) ';', factory, 100, 1024)
+                .map(record -> {
+                    String name = record.toString(StandardCharsets.UTF_8);
+                    DataBufferUtils.release(record);
+                    return name;
+                });
+
+        StepVerifier.create(records.collectList())
+                .expectNext(names)
+                .verifyComplete();
+        assertEquals(0, allocator.metric().usedDirectMemory());
+        assertEquals(0, allocator.metric().usedHeapMemory());
+    }
+
+    @Test
+    public void cancelReleasesTheChunks() throws IOException {
+        Path file = write(String.join(";", names));
+        UnpooledByteBufAllocator allocator = new UnpooledByteBufAllocator(true);
+        NettyDataBufferFactory factory = new NettyDataBufferFactory(allocator);
+
+        Flux<DataBuffer> records = FileRecords.records(file, (byte) ';', factory, 100, 1024)
+                .doOnNext(DataBufferUtils::release);
+
+        StepVerifier.create(records.take(10))
+                .expectNextCount(10)
+                .verifyComplete();
+        assertEquals(0, allocator.metric().usedDirectMemory());
+        assertEquals(0, allocator.metric().usedHeapMemory());
+    }
+
+    @Test
+    public void recordLongerThanTheLimitFails() throws IOException {
+        Path file = write("Pascal;" + "x".repeat(2_000) + ";james");
+        NettyDataBufferFactory factory = new NettyDataBufferFactory(new UnpooledByteBufAllocator(true));
+
+        StepVerifier.create(FileRecords.records(file, (byte) ';', factory, 256, 1024).doOnNext(DataBufferUtils::release))
+                .expectNextCount(1)
+                .expectError(DataBufferLimitException.class)
+                .verify();
+    }
+}
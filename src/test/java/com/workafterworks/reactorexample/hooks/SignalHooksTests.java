@@ -0,0 +1,222 @@
+package com.workafterworks.reactorexample.hooks;
+
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * monoDoOnMethods with SignalHooks: the callbacks must run exactly like the doOn* stack they replace
+ */
+public class SignalHooksTests {
+
+    @Test
+    public void monoDoOnMethodsWithHooks(){
+        var name = "Pascal";
+        List<String> doOnStack = new ArrayList<>();
+        Mono<Object> mono = Mono.just(name)
+                .doOnSubscribe(subscription -> doOnStack.add("subscribed"))
+                .doOnRequest(value -> doOnStack.add("request " + value))
+                .doOnNext(value -> doOnStack.add("onNext " + value))
+                .flatMap(value -> Mono.empty())
+                .doOnNext(value -> doOnStack.add("onNext " + value))
+                .doOnSuccess(value -> doOnStack.add("success " + value));
+        mono.subscribe();
+
+        List<String> hooked = new ArrayList<>();
+        Mono<Object> hookedMono = Mono.just(name)
+                .transform(SignalHooks.<String>builder()
+                        .onSubscribe(subscription -> hooked.add("subscribed"))
+                        .onRequest(value -> hooked.add("request " + value))
+                        .onNext(value -> hooked.add("onNext " + value))
+                        .build()::apply)
+                .flatMap(value -> Mono.empty())
+                .transform(SignalHooks.builder()
+                        .onNext(value -> hooked.add("onNext " + value))
+                        .onSuccess(value -> hooked.add("success " + value))
+                        .build()::apply);
+        hookedMono.subscribe();
+
+        assertEquals(doOnStack, hooked);
+    }
+
+    @Test
+    public void hooksOnMonoJustAreMacroFused(){
+        Mono<String> mono = Mono.just("Pascal")
+                .transform(SignalHooks.<String>builder().onNext(value -> { }).build()::apply);
+
+        assertTrue(mono instanceof MonoSignalHooksScalar);
+        StepVerifier.create(mono)
+                .expectNext("Pascal")
+                .verifyComplete();
+    }
+
+    @Test
+    public void stackedHooksBecomeOneOperator(){
+        List<String> signals = new ArrayList<>();
+        Mono<String> mono = Mono.just("Pascal")
+                .map(String::toUpperCase)
+                .transform(SignalHooks.<String>builder()
+                        .onNext(value -> signals.add("first onNext"))
+                        .onRequest(value -> signals.add("first request"))
+                        .build()::apply)
+                .transform(SignalHooks.<String>builder()
+                        .onNext(value -> signals.add("second onNext"))
+                        .onRequest(value -> signals.add("second request"))
+                        .build()::apply);
+
+        assertTrue(mono instanceof MonoSignalHooks);
+        assertFalse(((MonoSignalHooks<String>) mono).source() instanceof MonoSignalHooks);
+        StepVerifier.create(mono)
+                .expectNext("PASCAL")
+                .verifyComplete();
+        //request travels upstream, onNext downstream, same as two doOn* operators
+        assertEquals(List.of("second request", "first request", "first onNext", "second onNext"), signals);
+    }
+
+    @Test
+    public void fusedLayersKeepTheirOrder(){
+        for (Mono<String> source : List.of(Mono.just("Pascal"), Mono.just("Pascal").map(String::toUpperCase), Mono.<String>empty())) {
+            List<String> doOnStack = new ArrayList<>();
+            source.doOnNext(value -> doOnStack.add("inner onNext"))
+                    .doOnSuccess(value -> doOnStack.add("inner success " + value))
+                    .doOnNext(value -> doOnStack.add("outer onNext"))
+                    .doOnSuccess(value -> doOnStack.add("outer success " + value))
+                    .subscribe();
+
+            List<String> hooked = new ArrayList<>();
+            source.transform(SignalHooks.<String>builder()
+                            .onNext(value -> hooked.add("inner onNext"))
+                            .onSuccess(value -> hooked.add("inner success " + value))
+                            .build()::apply)
+                    .transform(SignalHooks.<String>builder()
+                            .onNext(value -> hooked.add("outer onNext"))
+                            .onSuccess(value -> hooked.add("outer success " + value))
+                            .build()::apply)
+                    .subscribe();
+
+            assertEquals(doOnStack, hooked);
+        }
+    }
+
+    @Test
+    public void cancelBeforeTheValueIsDeliveredRunsOnCancel(){
+        List<String> signals = new ArrayList<>();
+        AtomicReference<Subscription> subscription = new AtomicReference<>();
+        Mono<String> mono = Mono.just("Pascal")
+                .transform(SignalHooks.<String>builder()
+                        .onSubscribe(subscription::set)
+                        .onNext(value -> subscription.get().cancel())
+                        .onCancel(() -> signals.add("cancelled"))
+                        .build()::apply);
+
+        mono.subscribe(value -> signals.add("onNext " + value));
+
+        assertEquals(List.of("cancelled"), signals);
+    }
+
+    @Test
+    public void errorAfterCancelIsDropped(){
+        List<String> signals = new ArrayList<>();
+        AtomicReference<Subscription> subscription = new AtomicReference<>();
+        Mono<String> mono = Mono.just("Pascal")
+                .transform(SignalHooks.<String>builder()
+                        .onSubscribe(subscription::set)
+                        .onNext(value -> {
+                            subscription.get().cancel();
+                            throw new IllegalStateException("An error occurred");
+                        })
+                        .onError(error -> signals.add("onError hook"))
+                        .build()::apply)
+                .contextWrite(Context.of("reactor.onErrorDropped.local", (Consumer<Throwable>) error -> signals.add("dropped")));
+
+        mono.subscribe(value -> signals.add("onNext"), error -> signals.add("onError"));
+
+        assertEquals(List.of("dropped"), signals);
+    }
+
+    @Test
+    public void cancelAfterErrorDoesNotRunOnCancel(){
+        List<String> signals = new ArrayList<>();
+        Mono<String> mono = Mono.just("Pascal")
+                .transform(SignalHooks.<String>builder()
+                        .onNext(value -> {
+                            throw new IllegalStateException("An error occurred");
+                        })
+                        .onError(error -> signals.add("onError hook"))
+                        .onCancel(() -> signals.add("cancelled"))
+                        .build()::apply);
+
+        AtomicReference<Subscription> subscription = new AtomicReference<>();
+        mono.subscribe(new CoreSubscriber<String>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscription.set(s);
+                s.request(1);
+            }
+
+            @Override
+            public void onNext(String value) {
+                signals.add("onNext");
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                signals.add("onError");
+            }
+
+            @Override
+            public void onComplete() {
+                signals.add("onComplete");
+            }
+        });
+        subscription.get().cancel();
+
+        assertEquals(List.of("onError hook", "onError"), signals);
+    }
+
+    @Test
+    public void failingHookSignalsError(){
+        List<Throwable> errors = new ArrayList<>();
+        Mono<String> mono = Mono.just("Pascal")
+                .transform(SignalHooks.<String>builder()
+                        .onNext(value -> {
+                            throw new IllegalStateException("An error occurred");
+                        })
+                        .onError(errors::add)
+                        .build()::apply);
+
+        StepVerifier.create(mono)
+                .expectError(IllegalStateException.class)
+                .verify();
+        assertEquals(1, errors.size());
+    }
+
+    @Test
+    public void cancelAndEmptySuccess(){
+        List<String> signals = new ArrayList<>();
+        SignalHooks<Object> hooks = SignalHooks.builder()
+                .onSuccess(value -> signals.add("success " + value))
+                .onCancel(() -> signals.add("cancelled"))
+                .build();
+
+        StepVerifier.create(Mono.empty().transform(hooks::apply))
+                .verifyComplete();
+        StepVerifier.create(Mono.never().transform(hooks::apply))
+                .thenCancel()
+                .verify();
+
+        assertEquals(List.of("success null", "cancelled"), signals);
+    }
+}
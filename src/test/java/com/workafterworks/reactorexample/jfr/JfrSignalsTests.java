@@ -0,0 +1,172 @@
+package com.workafterworks.reactorexample.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * The pipelines of FluxExampleTests recorded into a JFR recording and read back
+ */
+public class JfrSignalsTests {
+
+    @TempDir
+    Path directory;
+
+    private Recording recording;
+
+    @BeforeEach
+    public void startRecording(){
+        recording = new Recording();
+        for (String event : List.of("Subscribe", "Request", "OnNextBatch", "Complete", "Error", "Cancel", "SchedulerHop", "ScheduledTask")) {
+            recording.enable("reactor." + event);
+        }
+        recording.start();
+    }
+
+    @AfterEach
+    public void closeRecording(){
+        JfrSignals.stopRecordingScheduledTasks();
+        recording.close();
+    }
+
+    private List<RecordedEvent> recorded() throws IOException {
+        recording.stop();
+        Path file = directory.resolve("signals.jfr");
+        recording.dump(file);
+        return RecordingFile.readAllEvents(file);
+    }
+
+    private List<RecordedEvent> events(String name) throws IOException {
+        return recorded().stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void onNextIsRecordedInBatches() throws IOException {
+        Flux<Integer> numbers = Flux.range(1, 1000).transform(JfrSignals.record("numbers"));
+
+        StepVerifier.create(numbers)
+                .expectNextCount(1000)
+                .verifyComplete();
+
+        List<RecordedEvent> batches = events("reactor.OnNextBatch");
+        assertEquals(List.of(256, 256, 256, 232), batches.stream().map(event -> event.getInt("elements")).collect(Collectors.toList()));
+        assertTrue(batches.stream().allMatch(event -> "numbers".equals(event.getString("pipeline"))));
+    }
+
+    @Test
+    public void subscribeRequestAndComplete() throws IOException {
+        Flux<String> names = Flux.just("Pascal", "Martin", "james").transform(JfrSignals.record("names"));
+
+        StepVerifier.create(names, 2)
+                .expectNextCount(2)
+                .thenRequest(1)
+                .expectNextCount(1)
+                .verifyComplete();
+
+        List<String> signals = recorded().stream()
+                .filter(event -> !event.getEventType().getName().equals("reactor.OnNextBatch"))
+                .map(event -> event.getEventType().getName() + (event.hasField("requested") ? "(" + event.getLong("requested") + ")" : ""))
+                .collect(Collectors.toList());
+        assertEquals(List.of("reactor.Subscribe", "reactor.Request(2)", "reactor.Request(1)", "reactor.Complete"), signals);
+    }
+
+    @Test
+    public void errorWithItsClassAndMessage() throws IOException {
+        Flux<Integer> numbers = Flux.range(1, 5)
+                .concatWith(Flux.error(new IllegalStateException("source failed")))
+                .transform(JfrSignals.record("numbers"));
+
+        StepVerifier.create(numbers)
+                .expectNextCount(5)
+                .verifyError(IllegalStateException.class);
+
+        RecordedEvent error = events("reactor.Error").get(0);
+        assertEquals(5, error.getLong("delivered"));
+        assertEquals("source failed", error.getString("message"));
+        assertEquals(IllegalStateException.class.getName(), error.getClass("exceptionClass").getName());
+    }
+
+    @Test
+    public void cancelAfterTake() throws IOException {
+        Flux<Integer> numbers = Flux.range(1, 100).transform(JfrSignals.record("numbers")).take(3);
+
+        StepVerifier.create(numbers)
+                .expectNextCount(3)
+                .verifyComplete();
+
+        assertEquals(3, events("reactor.Cancel").get(0).getLong("delivered"));
+    }
+
+    @Test
+    public void publishOnIsASchedulerHop() throws IOException {
+        JfrSignals.recordScheduledTasks();
+        Flux<Integer> numbers = Flux.range(1, 10)
+                .publishOn(Schedulers.single())
+                .transform(JfrSignals.record("numbers"));
+
+        StepVerifier.create(numbers)
+                .expectNextCount(10)
+                .verifyComplete();
+
+        List<RecordedEvent> events = recorded();
+        RecordedEvent hop = events.stream().filter(event -> event.getEventType().getName().equals("reactor.SchedulerHop")).findFirst().orElseThrow();
+        assertEquals(Thread.currentThread().getName(), hop.getThread("fromThread").getJavaName());
+        assertTrue(hop.getThread().getJavaName().startsWith("single-"));
+        assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("reactor.ScheduledTask")));
+    }
+
+    @Test
+    public void laterRunsOfAPeriodicTaskAreNotQueued() throws IOException, InterruptedException {
+        JfrSignals.recordScheduledTasks();
+        CountDownLatch runs = new CountDownLatch(5);
+        Disposable periodic = Schedulers.single().schedulePeriodically(runs::countDown, 0, 20, TimeUnit.MILLISECONDS);
+        try {
+            assertTrue(runs.await(5, TimeUnit.SECONDS));
+        } finally {
+            periodic.dispose();
+        }
+
+        List<Duration> queued = events("reactor.ScheduledTask").stream()
+                .map(event -> event.getDuration("queued"))
+                .collect(Collectors.toList());
+        //the run that counted down last may still be recording
+        assertTrue(queued.size() >= 4, queued::toString);
+        assertTrue(queued.subList(1, queued.size()).stream().allMatch(Duration.ZERO::equals), queued::toString);
+    }
+
+    @Test
+    public void nothingIsRecordedWhenTheBatchEventIsDisabled() throws IOException {
+        recording.disable("reactor.OnNextBatch");
+        Flux<Integer> numbers = Flux.range(1, 1000).transform(JfrSignals.record("numbers"));
+
+        StepVerifier.create(numbers)
+                .expectNextCount(1000)
+                .verifyComplete();
+
+        List<RecordedEvent> events = recorded();
+        assertTrue(events.stream().noneMatch(event -> event.getEventType().getName().equals("reactor.OnNextBatch")));
+        RecordedEvent complete = events.stream().filter(event -> event.getEventType().getName().equals("reactor.Complete")).findFirst().orElseThrow();
+        assertEquals(1000, complete.getLong("delivered"));
+    }
+}
@@ -0,0 +1,156 @@
+package com.workafterworks.reactorexample.limit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * monoDoOnMethods' flatMap with a concurrency that follows the latency of the calls instead of a fixed one
+ */
+public class ConcurrencyLimiterTests {
+
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void flatMapKeepsTheCallsInFlightWithinTheLimit(){
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(GradientLimit.builder().initialLimit(4).limits(4, 4).build());
+        AtomicInteger inflight = new AtomicInteger();
+        AtomicInteger maxInflight = new AtomicInteger();
+
+        Flux<Integer> values = Flux.range(1, 100)
+                .transform(limiter.flatMap(value -> Mono.delay(Duration.ofMillis(1))
+                        .doOnSubscribe(s -> maxInflight.accumulateAndGet(inflight.incrementAndGet(), Math::max))
+                        .doOnTerminate(inflight::decrementAndGet)
+                        .thenReturn(value)));
+
+        StepVerifier.create(values.reduce(Integer::sum))
+                .expectNext(5050)
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+        assertEquals(4, maxInflight.get());
+        assertEquals(0, limiter.inflight());
+    }
+
+    @Test
+    public void stoppedClockEndsTheSample() throws InterruptedException {
+        GradientLimit limit = GradientLimit.builder().initialLimit(100).limits(1, 200).build();
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(limit);
+        for (int i = 0; i < 10; i++) {
+            limit.onSample(MILLI, 0, false);
+        }
+        for (int i = 0; i < 59; i++) {
+            limiter.tryAcquire();
+        }
+
+        //a stream answered at once and read for 50ms: 50 times the baseline would cut the limit
+        ConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+        permit.stopClock();
+        Thread.sleep(50);
+        permit.success();
+
+        assertTrue(limiter.limit() > 100, "limit " + limiter.limit());
+    }
+
+    @Test
+    public void failedCallsReleaseTheirPermit(){
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(GradientLimit.builder().initialLimit(2).limits(1, 2).build());
+
+        Flux<Integer> values = Flux.range(1, 10)
+                .transform(limiter.flatMap(value -> {
+                    if (value == 5) {
+                        throw new IllegalStateException("mapper failed");
+                    }
+                    return Mono.just(value);
+                }));
+
+        StepVerifier.create(values)
+                .expectNext(1, 2, 3, 4)
+                .verifyError(IllegalStateException.class);
+        assertEquals(0, limiter.inflight());
+        assertEquals(1, limiter.limit());
+    }
+
+    @Test
+    public void tryAcquireRejectsAtTheLimit(){
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(GradientLimit.builder().initialLimit(2).limits(2, 2).build(), "calls", registry);
+
+        ConcurrencyLimiter.Permit first = limiter.tryAcquire();
+        ConcurrencyLimiter.Permit second = limiter.tryAcquire();
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(limiter.tryAcquire());
+        assertEquals(2, registry.get("reactor.limit.inflight").tag("name", "calls").gauge().value());
+
+        first.success();
+        first.success();
+        assertNotNull(limiter.tryAcquire());
+        assertEquals(1, registry.get("reactor.limit.rejected").tag("name", "calls").functionCounter().count());
+    }
+
+    @Test
+    public void cancelledWaitersDoNotHoldPermits(){
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(GradientLimit.builder().initialLimit(1).limits(1, 1).build());
+        ConcurrencyLimiter.Permit held = limiter.tryAcquire();
+
+        Disposable cancelled = limiter.acquire().subscribe();
+        AtomicInteger granted = new AtomicInteger();
+        limiter.acquire().subscribe(permit -> {
+            granted.incrementAndGet();
+            permit.ignore();
+        });
+        cancelled.dispose();
+        held.ignore();
+
+        assertEquals(1, granted.get());
+        assertEquals(0, limiter.inflight());
+    }
+
+    @Test
+    public void limitGrowsWhileLatencyHoldsAndShrinksWhenItRises(){
+        GradientLimit limit = GradientLimit.builder().initialLimit(10).limits(1, 100).build();
+        for (int i = 0; i < 50; i++) {
+            limit.onSample(MILLI, limit.limit(), false);
+        }
+        int grown = limit.limit();
+        assertTrue(grown > 10, "limit " + grown);
+
+        //the backend queues: latency 4 times the baseline
+        for (int i = 0; i < 20; i++) {
+            limit.onSample(4 * MILLI, limit.limit(), false);
+        }
+        assertTrue(limit.limit() < grown / 2, "limit " + limit.limit() + " after " + grown);
+    }
+
+    @Test
+    public void limitIgnoresLatencyWhileUnderused(){
+        GradientLimit limit = GradientLimit.builder().initialLimit(10).limits(1, 100).build();
+        for (int i = 0; i < 50; i++) {
+            limit.onSample(MILLI, 2, false);
+        }
+        assertEquals(10, limit.limit());
+    }
+
+    @Test
+    public void droppedCallsBackOff(){
+        GradientLimit limit = GradientLimit.builder().initialLimit(100).limits(1, 100).backoffRatio(0.5).build();
+        limit.onSample(MILLI, 100, true);
+        assertEquals(50, limit.limit());
+        for (int i = 0; i < 10; i++) {
+            limit.onSample(MILLI, 100, true);
+        }
+        assertEquals(1, limit.limit());
+    }
+}
@@ -0,0 +1,159 @@
+package com.workafterworks.reactorexample.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/*
+ * The example pipelines tagged with a name and instrumented
+ */
+public class PipelineMetricsTests {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final PipelineMetrics pipelineMetrics = new PipelineMetrics(registry);
+
+    @Test
+    public void fluxSubscriberNumbersMetrics(){
+        Flux<Integer> numberFlux = Flux.range(1, 1000)
+                .name("fluxSubscriberNumbers")
+                .transform(pipelineMetrics.instrument());
+
+        StepVerifier.create(numberFlux, 10)
+                .expectNextCount(10)
+                .thenRequest(990)
+                .expectNextCount(990)
+                .verifyComplete();
+        StepVerifier.create(numberFlux)
+                .expectNextCount(1000)
+                .verifyComplete();
+
+        assertEquals(2, count("reactor.pipeline.subscribed", "fluxSubscriberNumbers"));
+        assertEquals(1000, count("reactor.pipeline.requested", "fluxSubscriberNumbers"));
+        assertEquals(1, count("reactor.pipeline.requested.unbounded", "fluxSubscriberNumbers"));
+        assertEquals(2000, count("reactor.pipeline.onNext", "fluxSubscriberNumbers"));
+        assertEquals(2, terminated("fluxSubscriberNumbers", "completed"));
+        assertEquals(2, registry.get("reactor.pipeline.latency").tag("pipeline", "fluxSubscriberNumbers").timer().count());
+    }
+
+    @Test
+    public void fluxSubscriberErrorMetrics(){
+        Flux<Integer> numberFlux = Flux.range(1, 5)
+                .map(number -> {
+                    if (number == 4){
+                        throw new IndexOutOfBoundsException("Out of bound exception thrown");
+                    }
+                    return number;
+                })
+                .name("fluxSubscriberError")
+                .transform(pipelineMetrics.instrument());
+
+        StepVerifier.create(numberFlux)
+                .expectNext(1, 2, 3)
+                .expectError(IndexOutOfBoundsException.class)
+                .verify();
+
+        assertEquals(3, count("reactor.pipeline.onNext", "fluxSubscriberError"));
+        assertEquals(1, terminated("fluxSubscriberError", "error"));
+        assertEquals(0, terminated("fluxSubscriberError", "completed"));
+    }
+
+    @Test
+    public void cancelledMonoAndUnnamedPipeline(){
+        StepVerifier.create(Mono.never().transform(pipelineMetrics.instrument()))
+                .thenCancel()
+                .verify();
+
+        assertEquals(1, terminated(PipelineMetrics.UNNAMED, "cancelled"));
+    }
+
+    @Test
+    public void cancelFromAnotherThreadCountsEveryElementOnce(){
+        Scheduler emitting = Schedulers.newSingle("emitting");
+        AtomicLong received = new AtomicLong();
+        try {
+            for (int run = 0; run < 200; run++) {
+                long before = received.get();
+                Disposable subscription = Flux.range(1, Integer.MAX_VALUE)
+                        .name("cancelled")
+                        .transform(pipelineMetrics.instrument())
+                        .subscribeOn(emitting)
+                        .subscribe(number -> received.incrementAndGet());
+                while (received.get() - before < 1000 + run) {
+                    Thread.onSpinWait();
+                }
+                subscription.dispose();
+                //the range loop runs on the emitting thread, the next task starts once it saw the cancel
+                Mono.fromRunnable(() -> { }).subscribeOn(emitting).block(Duration.ofSeconds(5));
+            }
+        } finally {
+            emitting.dispose();
+        }
+
+        assertEquals(received.get(), count("reactor.pipeline.onNext", "cancelled"));
+        assertEquals(200, terminated("cancelled", "cancelled"));
+    }
+
+    @Test
+    public void completeRacingCancelCountsOneTermination() throws InterruptedException {
+        int runs = 2_000;
+        for (int run = 0; run < runs; run++) {
+            Sinks.Empty<Void> sink = Sinks.empty();
+            Disposable subscription = sink.asMono().name("racing").transform(pipelineMetrics.instrument()).subscribe();
+            CountDownLatch start = new CountDownLatch(1);
+            Thread completing = new Thread(() -> {
+                awaitQuietly(start);
+                sink.tryEmitEmpty();
+            });
+            completing.start();
+            start.countDown();
+            subscription.dispose();
+            completing.join();
+        }
+        assertEquals(runs, terminated("racing", "completed") + terminated("racing", "cancelled"));
+    }
+
+    @Test
+    public void pipelinesEndpoint(){
+        StepVerifier.create(Flux.just("Pascal", "Martin", "james").name("fluxSubscriber").transform(pipelineMetrics.instrument()))
+                .expectNextCount(3)
+                .verifyComplete();
+
+        PipelinesEndpoint endpoint = new PipelinesEndpoint(pipelineMetrics, registry);
+        Map<String, Object> summary = endpoint.pipelines().get("fluxSubscriber");
+
+        assertEquals(3.0, summary.get("onNext"));
+        assertEquals(1.0, summary.get("completed"));
+        assertNull(endpoint.pipeline("unknown"));
+    }
+
+    private double count(String meter, String pipeline) {
+        return registry.get(meter).tag("pipeline", pipeline).counter().count();
+    }
+
+    private double terminated(String pipeline, String status) {
+        return registry.get("reactor.pipeline.terminated").tag("pipeline", pipeline).tag("status", status).counter().count();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.workafterworks.reactorexample.persistence;
+
+import com.workafterworks.reactorexample.pipeline.ExamplePipelines;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.R2dbcException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * fluxSubscriberFomList sunk into an H2 table with multi-row inserts
+ */
+public class BatchWriterTests {
+
+    private ConnectionPool pool;
+    private NumberRepository repository;
+
+    @BeforeEach
+    public void createTable(){
+        pool = ConnectionPools.h2InMemory("numbers-" + UUID.randomUUID(), 4);
+        repository = new NumberRepository(pool, 100, Duration.ofMillis(20));
+        repository.createTable().block(Duration.ofSeconds(10));
+    }
+
+    @AfterEach
+    public void disposePool(){
+        pool.dispose();
+    }
+
+    @Test
+    public void savesFluxSubscriberFomList(){
+        StepVerifier.create(repository.saveAll(ExamplePipelines.fromList(ExamplePipelines.NUMBERS)))
+                .expectNext(5L)
+                .verifyComplete();
+
+        StepVerifier.create(repository.findAll())
+                .expectNext(1, 2, 3, 4, 5)
+                .verifyComplete();
+    }
+
+    @Test
+    public void savesEveryElementOfALargeFlux(){
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BatchWriter<Integer> writer = numbers()
+                .maxBatch(500)
+                .metrics("numbers", registry)
+                .build();
+
+        StepVerifier.create(writer.write(ExamplePipelines.numbers(20_000)))
+                .expectNext(20_000L)
+                .expectComplete()
+                .verify(Duration.ofSeconds(30));
+
+        Set<Integer> saved = repository.findAll().collect(Collectors.toSet()).block(Duration.ofSeconds(10));
+        assertEquals(IntStream.rangeClosed(1, 20_000).boxed().collect(Collectors.toSet()), saved);
+        assertEquals(40, registry.get("reactor.r2dbc.batch.size").summary().count());
+        assertEquals(20_000, registry.get("reactor.r2dbc.rows").counter().count());
+    }
+
+    @Test
+    public void partialBatchIsWrittenAfterMaxWait(){
+        Sinks.Many<Integer> numbers = Sinks.many().unicast().onBackpressureBuffer();
+        BatchWriter<Integer> writer = numbers()
+                .maxBatch(100)
+                .maxWait(Duration.ofMillis(50))
+                .build();
+
+        StepVerifier.create(writer.write(numbers.asFlux()))
+                .then(() -> {
+                    numbers.tryEmitNext(1);
+                    numbers.tryEmitNext(2);
+                    numbers.tryEmitNext(3);
+                })
+                .then(() -> awaitCount(3))
+                .then(numbers::tryEmitComplete)
+                .expectNext(3L)
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    public void demandFollowsTheFinishedInserts(){
+        List<Long> requests = new CopyOnWriteArrayList<>();
+        BatchWriter<Integer> writer = numbers()
+                .maxBatch(10)
+                .concurrency(2)
+                .build();
+
+        StepVerifier.create(writer.write(ExamplePipelines.numbers(100).doOnRequest(requests::add)))
+                .expectNext(100L)
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+
+        //two batches of credit up front, then one batch per finished insert
+        assertEquals(20L, requests.get(0));
+        assertTrue(requests.subList(1, requests.size()).stream().allMatch(n -> n == 10L), requests::toString);
+        assertTrue(requests.size() <= 1 + 10, requests::toString);
+    }
+
+    @Test
+    public void concurrencyDefaultsToThePoolSize(){
+        assertEquals(4, numbers().build().concurrency());
+    }
+
+    @Test
+    public void failedInsertCancelsTheSource(){
+        AtomicBoolean cancelled = new AtomicBoolean();
+        BatchWriter<Integer> writer = BatchWriter.<Integer>builder(pool, "missing", "number")
+                .binder((number, statement, offset) -> statement.bind(offset, number))
+                .maxBatch(10)
+                .build();
+
+        StepVerifier.create(writer.write(ExamplePipelines.numbers(1_000).doOnCancel(() -> cancelled.set(true))))
+                .expectError(R2dbcException.class)
+                .verify(Duration.ofSeconds(10));
+        assertTrue(cancelled.get());
+    }
+
+    @Test
+    public void sourceErrorIsPropagated(){
+        StepVerifier.create(repository.saveAll(ExamplePipelines.numbers(5).concatWith(Flux.error(new IllegalStateException("source failed")))))
+                .expectErrorMessage("source failed")
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    public void statementHasOnePlaceholderPerColumnAndRow(){
+        BatchWriter<Integer> writer = BatchWriter.<Integer>builder(pool, "pairs", "a", "b")
+                .binder((number, statement, offset) -> {
+                    statement.bind(offset, number);
+                    statement.bind(offset + 1, number);
+                })
+                .build();
+
+        assertEquals("INSERT INTO pairs (a, b) VALUES ($1, $2), ($3, $4)", writer.statement(2));
+    }
+
+    private BatchWriter.Builder<Integer> numbers() {
+        return BatchWriter.<Integer>builder(pool, "numbers", "number")
+                .binder((number, statement, offset) -> statement.bind(offset, number));
+    }
+
+    private void awaitCount(long expected) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (repository.count().block(Duration.ofSeconds(5)) != expected) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("count did not reach " + expected);
+            }
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.workafterworks.reactorexample.pipeline;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * fluxSubscriberFomList of FluxExampleTests, with the work spread over rails
+ */
+public class ParallelModeTests {
+
+    private final Scheduler scheduler = Schedulers.newParallel("rails", 4);
+    private final Map<String, AtomicInteger> elementsPerThread = new ConcurrentHashMap<>();
+
+    private final List<Integer> numbers = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+
+    @AfterEach
+    public void dispose(){
+        scheduler.dispose();
+    }
+
+    //element 0 is 50 times as expensive as the others
+    private int skewedDouble(int number) {
+        elementsPerThread.computeIfAbsent(Thread.currentThread().getName(), name -> new AtomicInteger()).incrementAndGet();
+        try {
+            Thread.sleep(number == 0 ? 500 : 10);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return number * 2;
+    }
+
+    @Test
+    public void orderedMergeKeepsSourceOrder(){
+        ParallelMode mode = ParallelMode.builder().rails(4).scheduler(scheduler).build();
+        Flux<Integer> doubled = ExamplePipelines.fromList(numbers, this::skewedDouble, mode);
+
+        StepVerifier.create(doubled)
+                .expectNextSequence(numbers.stream().map(n -> n * 2).collect(Collectors.toList()))
+                .verifyComplete();
+        assertEquals(4, elementsPerThread.size());
+    }
+
+    @Test
+    public void unorderedMergeEmitsAsRailsFinish(){
+        ParallelMode mode = ParallelMode.builder().rails(4).ordered(false).scheduler(scheduler).build();
+        Flux<Integer> doubled = ExamplePipelines.fromList(numbers, this::skewedDouble, mode);
+
+        //the expensive element 0 is no longer first
+        StepVerifier.create(doubled.collectList())
+                .assertNext(list -> {
+                    assertEquals(100, list.size());
+                    assertEquals(0, list.get(list.size() - 1));
+                    assertEquals(Set.copyOf(list).size(), list.size());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void skewedWorkIsRebalancedAcrossRails(){
+        ParallelMode mode = ParallelMode.builder().rails(4).ordered(false).scheduler(scheduler).build();
+        Flux<Integer> doubled = ExamplePipelines.fromList(numbers, this::skewedDouble, mode);
+
+        StepVerifier.create(doubled)
+                .expectNextCount(100)
+                .verifyComplete();
+
+        //round robin would give each rail 25 elements, the rail busy with element 0 gets (almost) nothing else
+        int fewest = elementsPerThread.values().stream().mapToInt(AtomicInteger::get).min().orElse(0);
+        assertTrue(fewest <= 2, "rail with the expensive element processed " + fewest);
+        assertEquals(100, elementsPerThread.values().stream().mapToInt(AtomicInteger::get).sum());
+    }
+
+    @Test
+    public void singleRailStillRunsOffTheCallerThread(){
+        ParallelMode mode = ParallelMode.builder().rails(1).scheduler(scheduler).build();
+        Flux<String> threads = ExamplePipelines.fromList(ExamplePipelines.NUMBERS, n -> Thread.currentThread().getName(), mode);
+
+        StepVerifier.create(threads.distinct())
+                .assertNext(thread -> assertTrue(thread.startsWith("rails")))
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,86 @@
+package com.workafterworks.reactorexample.primitive;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/*
+ * IntFlux versions of the Flux.range pipelines in FluxExampleTests
+ */
+public class IntFluxTests {
+
+    @Test
+    public void intFluxNumbers(){
+        List<Integer> received = new ArrayList<>();
+        IntFlux.range(1, 5).subscribe(received::add);
+
+        assertEquals(List.of(1, 2, 3, 4, 5), received);
+    }
+
+    @Test
+    public void intFluxMapAndFilter(){
+        Flux<Integer> numberFlux = IntFlux.range(1, 10)
+                .filter(number -> number % 2 == 0)
+                .map(number -> number * 10)
+                .asFlux();
+
+        StepVerifier.create(numberFlux)
+                .expectNext(20, 40, 60, 80, 100)
+                .verifyComplete();
+    }
+
+    @Test
+    public void intFluxReduce(){
+        StepVerifier.create(IntFlux.range(1, 100).reduce(0, Integer::sum))
+                .expectNext(5050)
+                .verifyComplete();
+    }
+
+    @Test
+    public void intFluxError(){
+        Flux<Integer> numberFlux = IntFlux.range(1, 5)
+                .map(number -> {
+                    if (number == 4){
+                        throw new IndexOutOfBoundsException("Out of bound exception thrown");
+                    }
+                    return number;
+                })
+                .asFlux();
+
+        StepVerifier.create(numberFlux)
+                .expectNext(1, 2, 3)
+                .expectError(IndexOutOfBoundsException.class)
+                .verify();
+    }
+
+    @Test
+    public void intFluxBackPressure(){
+        //filter asks for a replacement for every dropped element, so two requested means two emitted
+        Flux<Integer> numberFlux = IntFlux.range(1, 10)
+                .filter(number -> number > 3)
+                .asFlux();
+
+        StepVerifier.create(numberFlux, 2)
+                .expectNext(4, 5)
+                .thenRequest(2)
+                .expectNext(6, 7)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    public void intFluxFromFlux(){
+        IntFlux numbers = IntFlux.from(Flux.fromIterable(List.of(1, 2, 3, 4, 5)));
+
+        StepVerifier.create(numbers.map(number -> -number).asFlux())
+                .expectNext(-1, -2, -3, -4, -5)
+                .verifyComplete();
+        StepVerifier.create(IntFlux.range(0, 0).asFlux())
+                .verifyComplete();
+    }
+}
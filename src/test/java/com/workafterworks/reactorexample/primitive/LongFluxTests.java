@@ -0,0 +1,80 @@
+package com.workafterworks.reactorexample.primitive;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/*
+ * LongFlux versions of the IntFlux pipelines, with values an int can not hold
+ */
+public class LongFluxTests {
+
+    private static final long BEYOND_INT = Integer.MAX_VALUE + 1L;
+
+    @Test
+    public void longFluxNumbers(){
+        List<Long> received = new ArrayList<>();
+        LongFlux.range(BEYOND_INT, 3).subscribe(received::add);
+
+        assertEquals(List.of(BEYOND_INT, BEYOND_INT + 1, BEYOND_INT + 2), received);
+    }
+
+    @Test
+    public void longFluxMapAndFilter(){
+        Flux<Long> numberFlux = LongFlux.range(1, 10)
+                .filter(number -> number % 2 == 0)
+                .map(number -> number * BEYOND_INT)
+                .asFlux();
+
+        StepVerifier.create(numberFlux)
+                .expectNext(2 * BEYOND_INT, 4 * BEYOND_INT, 6 * BEYOND_INT, 8 * BEYOND_INT, 10 * BEYOND_INT)
+                .verifyComplete();
+    }
+
+    @Test
+    public void longFluxReduceDoesNotOverflow(){
+        StepVerifier.create(LongFlux.range(1, 100_000).reduce(0, Long::sum))
+                .expectNext(5_000_050_000L)
+                .verifyComplete();
+    }
+
+    @Test
+    public void longFluxBackPressure(){
+        Flux<Long> numberFlux = LongFlux.range(Long.MAX_VALUE - 10, 10)
+                .filter(number -> number % 2 == 0)
+                .asFlux();
+
+        StepVerifier.create(numberFlux, 2)
+                .expectNext(Long.MAX_VALUE - 9, Long.MAX_VALUE - 7)
+                .thenRequest(1)
+                .expectNext(Long.MAX_VALUE - 5)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    public void longFluxRangeEndsAtLongMaxValue(){
+        StepVerifier.create(LongFlux.range(Long.MAX_VALUE - 1, 1).asFlux())
+                .expectNext(Long.MAX_VALUE - 1)
+                .verifyComplete();
+        assertThrows(IllegalArgumentException.class, () -> LongFlux.range(Long.MAX_VALUE, 1));
+        assertThrows(IllegalArgumentException.class, () -> LongFlux.range(0, -1));
+    }
+
+    @Test
+    public void longFluxFromFlux(){
+        LongFlux numbers = LongFlux.from(Flux.just(1L, 2L, 3L));
+
+        StepVerifier.create(numbers.map(number -> -number).asFlux())
+                .expectNext(-1L, -2L, -3L)
+                .verifyComplete();
+        StepVerifier.create(LongFlux.range(0, 0).asFlux())
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,130 @@
+package com.workafterworks.reactorexample.profile;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * monoDoOnMethods without printing timestamps by hand
+ */
+public class OperatorProfilerTests {
+
+    private static String slowUpperCase(String name) {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return name.toUpperCase();
+    }
+
+    @Test
+    public void disabledProfilerOnlyAssembles(){
+        Flux<String> names = Flux.just("Pascal", "Martin", "james");
+        OperatorProfiler profiler = OperatorProfiler.disabled();
+
+        assertSame(names, profiler.profile("names", () -> names));
+        assertTrue(profiler.report().isEmpty());
+    }
+
+    @Test
+    public void selfTimeIsReportedPerOperator(){
+        try (OperatorProfiler profiler = OperatorProfiler.enabled()) {
+            Flux<String> names = profiler.profile("names", () -> Flux.just("Pascal", "Martin", "james")
+                    .map(OperatorProfilerTests::slowUpperCase)
+                    .filter(name -> !name.isEmpty()));
+
+            StepVerifier.create(names)
+                    .expectNext("PASCAL", "MARTIN", "JAMES")
+                    .verifyComplete();
+
+            List<StageProfile> report = profiler.report();
+            assertEquals(List.of("source(FluxArray)", "map", "filter", "subscriber"),
+                    report.stream().map(StageProfile::name).collect(Collectors.toList()));
+            StageProfile map = report.get(1);
+            StageProfile filter = report.get(2);
+            assertEquals(3, map.onNext());
+            assertEquals(4, map.selfTimeSamples(), "3 onNext plus the request passing through");
+            //5ms sleeps, minus the 12.5% resolution of the histogram
+            assertTrue(map.selfTimeP90() >= 4_000_000, map.toString());
+            assertTrue(filter.selfTimeP90() < map.selfTimeP90() / 10, filter.toString());
+        }
+    }
+
+    @Test
+    public void queueTimeOfAnAsynchronousOperator(){
+        try (OperatorProfiler profiler = OperatorProfiler.enabled()) {
+            Flux<String> names = profiler.profile("names", () -> Flux.range(0, 20)
+                    .map(i -> "Pascal-" + i)
+                    .publishOn(Schedulers.single())
+                    .map(OperatorProfilerTests::slowUpperCase));
+
+            StepVerifier.create(names)
+                    .expectNextCount(20)
+                    .verifyComplete();
+
+            StageProfile publishOn = profiler.report().get(2);
+            assertEquals("publishOn", publishOn.name());
+            assertEquals(20, publishOn.queueTimeSamples());
+            //range emits all 20 at once, the last one waits for the 19 slow maps before it
+            assertTrue(publishOn.queueTimeMax() >= 19 * 4_000_000, publishOn.toString());
+        }
+    }
+
+    @Test
+    public void foldedStacksNestStagesOfThePipeline() throws IOException {
+        try (OperatorProfiler profiler = OperatorProfiler.enabled()) {
+            Mono<String> name = profiler.profile("name", () -> Mono.just("Pascal").map(OperatorProfilerTests::slowUpperCase));
+
+            StepVerifier.create(name)
+                    .expectNext("PASCAL")
+                    .verifyComplete();
+
+            StringWriter folded = new StringWriter();
+            profiler.writeFolded(folded);
+            List<String> lines = folded.toString().lines().collect(Collectors.toList());
+            assertTrue(lines.stream().anyMatch(line -> line.startsWith("name;source(MonoJust);map ")), folded.toString());
+            assertTrue(lines.stream().allMatch(line -> line.matches("name;[^ ]+ \\d+")), folded.toString());
+        }
+    }
+
+    @Test
+    public void pipelinesOutsideProfileAreNotProbed(){
+        try (OperatorProfiler profiler = OperatorProfiler.enabled()) {
+            profiler.profile("installs the hook", () -> Flux.just(1));
+
+            Flux<Integer> numbers = Flux.range(1, 5).map(i -> i * 2);
+
+            assertFalse(numbers.getClass().getSimpleName().contains("Lift"), numbers.getClass().getName());
+        }
+    }
+
+    @Test
+    public void closingTheLastProfilerRemovesTheHook(){
+        OperatorProfiler first = OperatorProfiler.enabled();
+        OperatorProfiler second = OperatorProfiler.enabled();
+        first.profile("names", () -> Flux.just("Pascal"));
+        second.profile("names", () -> Flux.just("Pascal"));
+
+        first.close();
+        assertTrue(OperatorProfiler.hookInstalled());
+        Flux<String> unprobed = first.profile("closed", () -> Flux.just("Pascal").map(String::toUpperCase));
+        assertFalse(unprobed.getClass().getSimpleName().contains("Lift"), unprobed.getClass().getName());
+        assertEquals(2, first.report().size(), "the stages profiled before close are kept");
+
+        second.close();
+        assertFalse(OperatorProfiler.hookInstalled());
+    }
+}
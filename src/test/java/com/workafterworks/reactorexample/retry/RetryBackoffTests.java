@@ -0,0 +1,172 @@
+package com.workafterworks.reactorexample.retry;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * fluxSubscriberError and monoSubscriberConsumerError, retried instead of terminating on the first exception
+ */
+public class RetryBackoffTests {
+
+    private static final Duration FIRST = Duration.ofMillis(5);
+    private static final Duration MAX = Duration.ofMillis(50);
+
+    @Test
+    public void fluxSubscriberErrorRecoversWithinMaxAttempts(){
+        AtomicInteger subscriptions = new AtomicInteger();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RetryBackoff retry = RetryBackoff.builder()
+                .maxAttempts(3)
+                .backoff(FIRST, MAX)
+                .metrics("fluxSubscriberError", registry)
+                .build();
+
+        Flux<Integer> numberFlux = Flux.defer(() -> {
+                    int subscription = subscriptions.incrementAndGet();
+                    return Flux.range(1, 5)
+                            .map(number -> {
+                                if (number == 4 && subscription < 3) {
+                                    throw new IndexOutOfBoundsException("Out of bound exception thrown");
+                                }
+                                return number;
+                            });
+                })
+                .retryWhen(retry);
+
+        StepVerifier.create(numberFlux)
+                .expectNext(1, 2, 3, 1, 2, 3, 1, 2, 3, 4, 5)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(2, retry.attempts());
+        assertEquals(2, registry.get("reactor.retry.attempts").tag("name", "fluxSubscriberError").functionCounter().count());
+        assertEquals(0, registry.get("reactor.retry.give.ups").functionCounter().count());
+    }
+
+    @Test
+    public void monoSubscriberConsumerErrorGivesUp(){
+        AtomicInteger subscriptions = new AtomicInteger();
+        RetryBackoff retry = RetryBackoff.builder()
+                .maxAttempts(2)
+                .backoff(FIRST, MAX)
+                .jitter(RetryBackoff.Jitter.DECORRELATED)
+                .build();
+
+        Mono<String> mono = Mono.just("Pascal")
+                .doOnSubscribe(s -> subscriptions.incrementAndGet())
+                .<String>map(s -> {
+                    throw new RuntimeException("An error occurred");
+                })
+                .retryWhen(retry);
+
+        StepVerifier.create(mono)
+                .expectErrorSatisfies(e -> {
+                    assertTrue(Exceptions.isRetryExhausted(e));
+                    assertEquals("An error occurred", e.getCause().getMessage());
+                })
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(3, subscriptions.get());
+        assertEquals(2, retry.attempts());
+        assertEquals(1, retry.giveUps());
+    }
+
+    @Test
+    public void filteredErrorsAreNotRetried(){
+        RetryBackoff retry = RetryBackoff.builder()
+                .backoff(FIRST, MAX)
+                .filter(e -> !(e instanceof IllegalArgumentException))
+                .build();
+
+        StepVerifier.create(Mono.error(new IllegalArgumentException("bad input")).retryWhen(retry))
+                .expectError(IllegalArgumentException.class)
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(0, retry.attempts());
+        assertEquals(0, retry.giveUps());
+    }
+
+    @Test
+    public void budgetIsSharedByTheSubscriptionsOfAPipeline(){
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RetryBackoff retry = RetryBackoff.builder()
+                .maxAttempts(10)
+                .backoff(FIRST, MAX)
+                .budget(RetryBudget.of(4, 0.001))
+                .metrics("outage", registry)
+                .build();
+        Mono<String> failing = Mono.<String>error(new IllegalStateException("service down")).retryWhen(retry);
+
+        //the first subscription spends the 4 tokens, the second one fails without retrying
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(failing)
+                    .expectErrorSatisfies(e -> {
+                        assertTrue(Exceptions.isRetryExhausted(e));
+                        assertTrue(e.getMessage().startsWith("Retry budget exhausted"));
+                    })
+                    .verify(Duration.ofSeconds(5));
+        }
+
+        assertEquals(4, retry.attempts());
+        assertEquals(2, registry.get("reactor.retry.budget.exhausted").tag("name", "outage").functionCounter().count());
+        assertEquals(0, retry.giveUps());
+    }
+
+    @Test
+    public void budgetRefillsOverTime(){
+        AtomicLong now = new AtomicLong();
+        RetryBudget budget = new RetryBudget(2, 10, now::get);
+
+        assertTrue(budget.tryAcquire());
+        assertTrue(budget.tryAcquire());
+        assertFalse(budget.tryAcquire());
+        assertEquals(0, budget.available());
+
+        //10 tokens per second: one token every 100ms, never more than the capacity
+        now.addAndGet(Duration.ofMillis(100).toNanos());
+        assertEquals(1, budget.available());
+        assertTrue(budget.tryAcquire());
+        assertFalse(budget.tryAcquire());
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertEquals(2, budget.available());
+    }
+
+    @Test
+    public void delaysStayWithinTheirJitterBounds(){
+        Random random = new Random(42);
+        long first = FIRST.toNanos();
+        long max = MAX.toNanos();
+        RetryBackoff none = RetryBackoff.builder().backoff(FIRST, MAX).jitter(RetryBackoff.Jitter.NONE).build();
+        RetryBackoff full = RetryBackoff.builder().backoff(FIRST, MAX).jitter(RetryBackoff.Jitter.FULL).build();
+        RetryBackoff decorrelated = RetryBackoff.builder().backoff(FIRST, MAX).jitter(RetryBackoff.Jitter.DECORRELATED).build();
+
+        assertEquals(first, none.delayNanos(0, first, random));
+        assertEquals(first * 8, none.delayNanos(3, first, random));
+        assertEquals(max, none.delayNanos(4, first, random));
+        assertEquals(max, none.delayNanos(100, first, random));
+
+        long previous = first;
+        for (int attempt = 0; attempt < 1000; attempt++) {
+            long exponential = none.delayNanos(attempt, first, random);
+            long fullDelay = full.delayNanos(attempt, first, random);
+            assertTrue(fullDelay >= 0 && fullDelay <= exponential);
+
+            long decorrelatedDelay = decorrelated.delayNanos(attempt, previous, random);
+            assertTrue(decorrelatedDelay >= first && decorrelatedDelay <= Math.min(max, previous * 3));
+            previous = decorrelatedDelay;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.workafterworks.reactorexample.retry;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * Delays of Mono.delay and of retries run by one TimerWheel
+ */
+public class TimerWheelTests {
+
+    @Test
+    public void tasksRunAfterTheirDelay() throws InterruptedException {
+        //a wheel of 8 ticks of 5ms, the longer delays take several rounds
+        TimerWheel wheel = TimerWheel.create("test-wheel", Duration.ofMillis(5), 8, Schedulers.parallel());
+        int tasks = 200;
+        CountDownLatch done = new CountDownLatch(tasks);
+        ConcurrentLinkedQueue<String> early = new ConcurrentLinkedQueue<>();
+        try {
+            for (int i = 0; i < tasks; i++) {
+                long delayMillis = i % 100;
+                long scheduledAt = System.nanoTime();
+                wheel.schedule(() -> {
+                    long elapsed = System.nanoTime() - scheduledAt;
+                    if (elapsed < TimeUnit.MILLISECONDS.toNanos(delayMillis)) {
+                        early.add(delayMillis + "ms task ran after " + elapsed + "ns");
+                    }
+                    done.countDown();
+                }, delayMillis, TimeUnit.MILLISECONDS);
+            }
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertTrue(early.isEmpty(), early::toString);
+            assertEquals(0, wheel.pendingTimeouts());
+        } finally {
+            wheel.dispose();
+        }
+    }
+
+    @Test
+    public void disposedTimeoutsDoNotRun() throws InterruptedException {
+        TimerWheel wheel = TimerWheel.create("test-wheel", Duration.ofMillis(5), 8, Schedulers.parallel());
+        AtomicInteger ran = new AtomicInteger();
+        try {
+            Disposable cancelled = wheel.schedule(ran::incrementAndGet, 30, TimeUnit.MILLISECONDS);
+            CountDownLatch kept = new CountDownLatch(1);
+            wheel.schedule(kept::countDown, 60, TimeUnit.MILLISECONDS);
+            assertEquals(2, wheel.pendingTimeouts());
+            cancelled.dispose();
+            assertEquals(1, wheel.pendingTimeouts());
+
+            assertTrue(kept.await(5, TimeUnit.SECONDS));
+            assertEquals(0, wheel.pendingTimeouts());
+            assertEquals(0, ran.get());
+        } finally {
+            wheel.dispose();
+        }
+    }
+
+    @Test
+    public void workerForgetsDispatchedAndDisposedTimeouts() throws InterruptedException {
+        TimerWheel wheel = TimerWheel.create("test-wheel", Duration.ofMillis(5), 8, Schedulers.parallel());
+        TimerWheel.WheelWorker worker = (TimerWheel.WheelWorker) wheel.createWorker();
+        try {
+            CountDownLatch done = new CountDownLatch(100);
+            for (int i = 0; i < 100; i++) {
+                worker.schedule(done::countDown, i % 20, TimeUnit.MILLISECONDS);
+            }
+            //several rounds of the wheel away
+            Disposable cancelled = worker.schedule(() -> { }, 1, TimeUnit.SECONDS);
+            assertEquals(101, worker.pendingTimeouts());
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(1, worker.pendingTimeouts());
+            cancelled.dispose();
+            assertEquals(0, worker.pendingTimeouts());
+            assertEquals(0, wheel.pendingTimeouts());
+        } finally {
+            worker.dispose();
+            wheel.dispose();
+        }
+    }
+
+    @Test
+    public void expiredTasksRunOnTheDelegate(){
+        Scheduler delegate = Schedulers.newSingle("wheel-delegate");
+        TimerWheel wheel = TimerWheel.create("test-wheel", Duration.ofMillis(5), 8, delegate);
+        try {
+            StepVerifier.create(Mono.delay(Duration.ofMillis(20), wheel)
+                            .map(tick -> Thread.currentThread().getName()))
+                    .assertNext(thread -> assertTrue(thread.startsWith("wheel-delegate"), thread))
+                    .expectComplete()
+                    .verify(Duration.ofSeconds(5));
+        } finally {
+            wheel.dispose();
+            delegate.dispose();
+        }
+    }
+}
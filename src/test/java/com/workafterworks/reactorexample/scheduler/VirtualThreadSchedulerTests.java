@@ -0,0 +1,139 @@
+package com.workafterworks.reactorexample.scheduler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * Blocking calls bridged into a pipeline through virtual threads
+ */
+public class VirtualThreadSchedulerTests {
+
+    private final VirtualThreadScheduler scheduler = VirtualThreadScheduler.create("blocking");
+
+    private static String blockingLookup(int i) throws InterruptedException {
+        Thread.sleep(200);
+        return Thread.currentThread().isVirtual() + "-" + i;
+    }
+
+    @AfterEach
+    public void dispose(){
+        scheduler.dispose();
+    }
+
+    @Test
+    public void subscribeOnRunsOnAVirtualThread(){
+        Mono<String> lookup = Mono.fromCallable(() -> blockingLookup(1)).subscribeOn(scheduler);
+
+        StepVerifier.create(lookup)
+                .expectNext("true-1")
+                .verifyComplete();
+    }
+
+    @Test
+    public void thousandsOfBlockingCallsRunConcurrently(){
+        Flux<String> lookups = Flux.range(0, 5000)
+                .flatMap(i -> Mono.fromCallable(() -> blockingLookup(i)).subscribeOn(scheduler), 5000);
+
+        //5000 sequential sleeps of 200ms would take over 16 minutes
+        StepVerifier.create(lookups)
+                .expectNextCount(5000)
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    public void publishOnKeepsOrderOnTheWorker(){
+        List<String> threads = new ArrayList<>();
+        Flux<Integer> numbers = Flux.range(0, 1000)
+                .publishOn(scheduler, 16)
+                .doOnNext(i -> threads.add(Thread.currentThread().isVirtual() ? "virtual" : "platform"));
+
+        StepVerifier.create(numbers)
+                .expectNextSequence(Flux.range(0, 1000).toIterable())
+                .verifyComplete();
+        assertEquals(1000, threads.size());
+        assertTrue(threads.stream().allMatch("virtual"::equals));
+    }
+
+    @Test
+    public void delaysAndIntervalsRunOnVirtualThreads(){
+        Flux<Boolean> ticks = Flux.interval(Duration.ofMillis(50), Duration.ofMillis(10), scheduler)
+                .delayElements(Duration.ofMillis(5), scheduler)
+                .map(tick -> Thread.currentThread().isVirtual())
+                .take(5);
+
+        StepVerifier.create(ticks)
+                .expectNext(true, true, true, true, true)
+                .verifyComplete();
+    }
+
+    @Test
+    public void delayedTasksFiredRightAwayAreNotCancelled() throws InterruptedException {
+        //a timer firing before schedule returned used to get its handed off task cancelled by the caller
+        CountDownLatch ran = new CountDownLatch(2_000);
+        Runnable blocking = () -> {
+            try {
+                Thread.sleep(1);
+                ran.countDown();
+            } catch (InterruptedException e) {
+                //cancelled while running
+            }
+        };
+        Scheduler.Worker worker = scheduler.createWorker();
+        for (int i = 0; i < 1_000; i++) {
+            scheduler.schedule(blocking, 0, TimeUnit.NANOSECONDS);
+            worker.schedule(blocking, 0, TimeUnit.NANOSECONDS);
+        }
+
+        assertTrue(ran.await(10, TimeUnit.SECONDS), ran.getCount() + " delayed tasks did not run");
+        worker.dispose();
+    }
+
+    @Test
+    public void disposedSchedulerRejectsWork(){
+        scheduler.dispose();
+
+        assertTrue(scheduler.isDisposed());
+        StepVerifier.create(Mono.just(1).subscribeOn(scheduler))
+                .expectError()
+                .verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    public void workerRejectedByTheExecutorIsDisposed(){
+        Scheduler.Worker worker = scheduler.createWorker();
+        scheduler.dispose();
+
+        assertThrows(RejectedExecutionException.class, () -> worker.schedule(() -> {
+        }));
+        assertTrue(worker.isDisposed());
+        //used to be queued behind a drain that never came
+        assertThrows(RejectedExecutionException.class, () -> worker.schedule(() -> {
+        }));
+    }
+
+    @Test
+    public void disposedWorkerRejectsPeriodicTasks(){
+        Scheduler.Worker worker = scheduler.createWorker();
+        worker.dispose();
+
+        assertThrows(RejectedExecutionException.class,
+                () -> worker.schedulePeriodically(() -> {
+                }, 0, 10, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,206 @@
+package com.workafterworks.reactorexample.sink;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * The numbers of fluxSubscriberNumbers, pushed by many threads into one hot pipeline
+ */
+public class MpscSinkTests {
+
+    private static final int PRODUCERS = 8;
+    private static final int PER_PRODUCER = 20_000;
+
+    @Test
+    public void everyProducerIsDeliveredInItsOwnOrder(){
+        MpscSink<Long> sink = MpscSink.builder().capacity(1024).overflow(MpscSink.Overflow.BACKOFF).build();
+        ExecutorService producers = Executors.newFixedThreadPool(PRODUCERS);
+        long[] last = new long[PRODUCERS];
+        Arrays.fill(last, -1);
+
+        StepVerifier.create(sink.asFlux())
+                .then(() -> {
+                    List<Future<?>> running = new ArrayList<>();
+                    for (int p = 0; p < PRODUCERS; p++) {
+                        long producer = p;
+                        running.add(producers.submit(() -> {
+                            for (int i = 0; i < PER_PRODUCER; i++) {
+                                assertEquals(Sinks.EmitResult.OK, sink.tryEmitNext(producer << 32 | i));
+                            }
+                        }));
+                    }
+                    for (Future<?> future : running) {
+                        try {
+                            future.get();
+                        } catch (Exception e) {
+                            throw new AssertionError(e);
+                        }
+                    }
+                    sink.tryEmitComplete();
+                })
+                .thenConsumeWhile(value -> {
+                    int producer = (int) (value >>> 32);
+                    long sequence = value & 0xFFFFFFFFL;
+                    assertEquals(last[producer] + 1, sequence);
+                    last[producer] = sequence;
+                    return true;
+                })
+                .verifyComplete();
+
+        producers.shutdown();
+        for (long sequence : last) {
+            assertEquals(PER_PRODUCER - 1, sequence);
+        }
+        assertEquals(0, sink.emitFailures());
+    }
+
+    @Test
+    public void dropCountsOverflowFailures(){
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MpscSink<Integer> sink = MpscSink.builder().capacity(4).metrics("numbers", registry).build();
+
+        //nobody subscribed yet, the queue keeps the first 4
+        for (int i = 1; i <= 10; i++) {
+            sink.tryEmitNext(i);
+        }
+        sink.tryEmitComplete();
+
+        StepVerifier.create(sink.asFlux())
+                .expectNext(1, 2, 3, 4)
+                .verifyComplete();
+        assertEquals(6, sink.emitFailures(Sinks.EmitResult.FAIL_OVERFLOW));
+        assertEquals(6.0, registry.get("reactor.sink.emit.failures").tag("reason", "overflow").functionCounter().count());
+    }
+
+    @Test
+    public void errorOverflowTerminatesAfterTheQueuedElements(){
+        MpscSink<Integer> sink = MpscSink.builder().capacity(4).overflow(MpscSink.Overflow.ERROR).build();
+
+        StepVerifier.create(sink.asFlux(), 0)
+                .then(() -> {
+                    for (int i = 1; i <= 5; i++) {
+                        sink.tryEmitNext(i);
+                    }
+                    assertEquals(Sinks.EmitResult.FAIL_TERMINATED, sink.tryEmitNext(6));
+                })
+                .thenRequest(10)
+                .expectNext(1, 2, 3, 4)
+                .expectErrorMatches(Exceptions::isOverflow)
+                .verify();
+    }
+
+    @Test
+    public void cancelledSinkRejectsEmissions(){
+        MpscSink<Integer> sink = MpscSink.builder().build();
+
+        StepVerifier.create(sink.asFlux())
+                .then(() -> sink.tryEmitNext(1))
+                .expectNext(1)
+                .thenCancel()
+                .verify();
+
+        assertEquals(Sinks.EmitResult.FAIL_CANCELLED, sink.tryEmitNext(2));
+        assertEquals(1, sink.emitFailures(Sinks.EmitResult.FAIL_CANCELLED));
+    }
+
+    @Test
+    public void onlyOneSubscriberIsAllowed(){
+        MpscSink<Integer> sink = MpscSink.builder().build();
+        sink.asFlux().subscribe();
+
+        StepVerifier.create(sink.asFlux())
+                .expectError(IllegalStateException.class)
+                .verify();
+    }
+
+    @Test
+    public void queueWrapsAroundItsCapacity(){
+        MpscArrayQueue<Integer> queue = new MpscArrayQueue<>(5);
+        List<Integer> drained = new ArrayList<>();
+
+        assertEquals(8, queue.capacity());
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 8; i++) {
+                assertTrue(queue.offer(round * 8 + i));
+            }
+            assertFalse(queue.offer(-1));
+            assertEquals(3, queue.drain(drained::add, 3));
+            assertEquals(5, queue.drain(drained::add, 100));
+            assertTrue(queue.isEmpty());
+        }
+        for (int i = 0; i < drained.size(); i++) {
+            assertEquals(i, drained.get(i));
+        }
+    }
+
+    @Test
+    public void queueDrainsOnAfterTheConsumerThrew(){
+        MpscArrayQueue<Integer> queue = new MpscArrayQueue<>(8);
+        List<Integer> drained = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            queue.offer(i);
+        }
+
+        assertThrows(IllegalStateException.class, () -> queue.drain(e -> {
+            if (e == 1) {
+                throw new IllegalStateException("boom");
+            }
+        }, 100));
+
+        assertEquals(2, queue.size());
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> queue.drain(drained::add, 100));
+        assertEquals(Arrays.asList(2, 3), drained);
+    }
+
+    @Test
+    public void subscriberThrowingFromOnNextCancelsTheSink(){
+        MpscSink<Integer> sink = MpscSink.builder().build();
+        sink.asFlux().subscribe(new CoreSubscriber<Integer>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                s.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(Integer value) {
+                if (value == 2) {
+                    throw new IllegalStateException("boom");
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        assertEquals(Sinks.EmitResult.OK, sink.tryEmitNext(1));
+        assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> assertThrows(IllegalStateException.class, () -> sink.tryEmitNext(2)));
+
+        assertEquals(0, sink.queued());
+        assertEquals(Sinks.EmitResult.FAIL_CANCELLED, sink.tryEmitNext(3));
+    }
+}
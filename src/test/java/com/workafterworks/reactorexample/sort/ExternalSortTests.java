@@ -0,0 +1,198 @@
+package com.workafterworks.reactorexample.sort;
+
+import com.workafterworks.reactorexample.pipeline.ExamplePipelines;
+import com.workafterworks.reactorexample.spill.SpillSerializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * fluxSubscriberFomList sorted with runs spilled to disk instead of Flux.sort's single in-memory list
+ */
+public class ExternalSortTests {
+
+    //an int costs 4 serialized bytes plus the overhead
+    private static final int INT_BYTES = 4 + ExternalSort.ELEMENT_OVERHEAD_BYTES;
+
+    @TempDir
+    Path directory;
+
+    private ExternalSort<Integer> ints(int elementsPerRun) {
+        return ExternalSort.builder(Comparator.<Integer>naturalOrder(), SpillSerializer.ints())
+                .memoryBudget((long) elementsPerRun * INT_BYTES)
+                .fanIn(8)
+                .directory(directory)
+                .build();
+    }
+
+    private static List<Integer> shuffled(int count) {
+        List<Integer> numbers = IntStream.rangeClosed(1, count).boxed().collect(Collectors.toList());
+        Collections.shuffle(numbers, new Random(42));
+        return numbers;
+    }
+
+    private long runFiles() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Test
+    public void sourceWithinTheBudgetIsSortedOnTheHeap(){
+        ExternalSort<Integer> sort = ints(1_000);
+
+        StepVerifier.create(ExamplePipelines.fromList(List.of(5, 3, 1, 4, 2)).transform(sort::sortExternal))
+                .expectNext(1, 2, 3, 4, 5)
+                .verifyComplete();
+        assertEquals(0, sort.runsSpilled());
+    }
+
+    @Test
+    public void runsAreSpilledAndMergedBack(){
+        ExternalSort<Integer> sort = ints(1_000);
+
+        StepVerifier.create(ExamplePipelines.fromList(shuffled(100_000)).transform(sort::sortExternal))
+                .expectNextSequence(Flux.range(1, 100_000).toIterable())
+                .expectComplete()
+                .verify(Duration.ofSeconds(30));
+
+        //100 runs, merged 8 at a time into 13, then into 2 before the final merge
+        assertEquals(100 + 13 + 2, sort.runsSpilled());
+        //deleted by doFinally, right after the completion reached the verifier
+        awaitRunFiles(0);
+    }
+
+    @Test
+    public void mergeDecodesWhatIsRequested(){
+        ExternalSort<Integer> sort = ints(100);
+
+        StepVerifier.create(ExamplePipelines.fromList(shuffled(1_000)).transform(sort::sortExternal), 0)
+                .expectSubscription()
+                //the whole source is consumed up front: 10 runs, merged 8 at a time into the 2 the merge reads
+                .then(() -> awaitRunFiles(2))
+                .expectNoEvent(Duration.ofMillis(50))
+                .thenRequest(3)
+                .expectNext(1, 2, 3)
+                .expectNoEvent(Duration.ofMillis(50))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+        awaitRunFiles(0);
+    }
+
+    @Test
+    public void tiesKeepTheirArrivalOrder(){
+        ExternalSort<String> sort = ExternalSort.builder(Comparator.comparingInt(String::length), SpillSerializer.utf8())
+                .memoryBudget(2 * (6 + ExternalSort.ELEMENT_OVERHEAD_BYTES))
+                .fanIn(2)
+                .directory(directory)
+                .build();
+        List<String> names = new ArrayList<>(ExamplePipelines.NAMES);
+        names.addAll(List.of("Ana", "Bob", "Rui", "Sonia"));
+
+        StepVerifier.create(Flux.fromIterable(names).transform(sort::sortExternal))
+                .expectNext("Ana", "Bob", "Rui", "james", "Sonia", "Pascal", "Martin")
+                .verifyComplete();
+        assertTrue(sort.runsSpilled() > 1);
+    }
+
+    @Test
+    public void failedSourceDeletesItsRuns(){
+        ExternalSort<Integer> sort = ints(100);
+
+        StepVerifier.create(ExamplePipelines.fromList(shuffled(1_000))
+                        .concatWith(Flux.error(new IllegalStateException("source failed")))
+                        .transform(sort::sortExternal))
+                .expectErrorMessage("source failed")
+                .verify(Duration.ofSeconds(5));
+        assertEquals(10, sort.runsSpilled());
+        awaitRunFiles(0);
+    }
+
+    @Test
+    public void cancelWhileSpillingLeavesNoRunBehind() throws InterruptedException {
+        ExternalSort<Integer> sort = ints(100);
+        Disposable sorting = Flux.range(1, Integer.MAX_VALUE).transform(sort::sortExternal).subscribe();
+
+        awaitRunsSpilled(sort, 20);
+        sorting.dispose();
+        awaitRunFiles(0);
+        //a spill still running when the cancel came is deleted with the others, none starts after it
+        Thread.sleep(50);
+        assertEquals(0, runFiles());
+    }
+
+    @Test
+    public void failedSerializerDeletesThePartialRun(){
+        SpillSerializer<Integer> failing = new SpillSerializer<>() {
+            @Override
+            public int sizeOf(Integer value) {
+                return Integer.BYTES;
+            }
+
+            @Override
+            public void write(Integer value, ByteBuffer segment) {
+                if (value == 250) {
+                    throw new IllegalStateException("cannot write " + value);
+                }
+                segment.putInt(value);
+            }
+
+            @Override
+            public Integer read(ByteBuffer segment) {
+                return segment.getInt();
+            }
+        };
+        ExternalSort<Integer> sort = ExternalSort.builder(Comparator.<Integer>naturalOrder(), failing)
+                .memoryBudget(100L * INT_BYTES)
+                .directory(directory)
+                .build();
+
+        StepVerifier.create(Flux.range(1, 1_000).transform(sort::sortExternal))
+                .expectErrorMessage("cannot write 250")
+                .verify(Duration.ofSeconds(5));
+        assertEquals(2, sort.runsSpilled());
+        awaitRunFiles(0);
+    }
+
+    private static void awaitRunsSpilled(ExternalSort<?> sort, long runs) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (sort.runsSpilled() < runs) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError(sort.runsSpilled() + " runs spilled, expected " + runs);
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private void awaitRunFiles(long expected) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (runFiles() != expected) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError(runFiles() + " run files, expected " + expected);
+            }
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.workafterworks.reactorexample.spill;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * fluxSubscriberBackPressure of FluxExampleTests with a subscriber far behind the producer
+ */
+public class BackpressureSpillTests {
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private BackpressureSpill<Integer> spill(int heapWindow) {
+        return BackpressureSpill.builder(SpillSerializer.ints())
+                .directory(directory)
+                .heapWindow(heapWindow)
+                .segmentBytes(4096)
+                .metrics("numbers", registry)
+                .build();
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    public void overflowIsSpilledAndReplayedInOrder(){
+        BackpressureSpill<Integer> spill = spill(16);
+        Flux<Integer> numbers = Flux.range(1, 10_000).transform(spill::onBackpressureSpill);
+
+        //range pushes everything on subscribe: 2 go straight to the subscriber, 16 stay on the heap, the rest goes to disk
+        StepVerifier.create(numbers, 2)
+                .expectNext(1, 2)
+                .then(() -> {
+                    assertEquals(10_000 - 18, spill.lagElements());
+                    assertEquals((10_000 - 18) * 16L, spill.bytesSpilled());
+                    assertTrue(uncheckedSegmentFiles() > 1);
+                })
+                .thenRequest(Long.MAX_VALUE)
+                .expectNextSequence(Flux.range(3, 9_998).toIterable())
+                .verifyComplete();
+
+        assertEquals(0, spill.lagElements());
+        assertEquals(0, spill.lagBytes());
+        assertEquals(0, uncheckedSegmentFiles());
+        assertEquals((10_000 - 18) * 16.0, registry.get("reactor.spill.bytes").functionCounter().count());
+        assertEquals(10_000 - 18, registry.get("reactor.spill.replay.lag").timer().count());
+    }
+
+    @Test
+    public void slowSubscriberOnAnotherThreadGetsEveryElement(){
+        BackpressureSpill<String> spill = BackpressureSpill.builder(SpillSerializer.utf8())
+                .directory(directory)
+                .heapWindow(8)
+                .segmentBytes(256)
+                .build();
+        Flux<String> names = Flux.range(0, 2_000)
+                .map(i -> i + "-Pascal")
+                .transform(spill::onBackpressureSpill)
+                .publishOn(Schedulers.single(), 4);
+
+        List<String> expected = Flux.range(0, 2_000).map(i -> i + "-Pascal").collectList().block();
+        StepVerifier.create(names)
+                .expectNextSequence(expected)
+                .verifyComplete();
+        assertEquals(0, spill.lagElements());
+    }
+
+    @Test
+    public void errorIsDeliveredAfterTheSpilledElements(){
+        BackpressureSpill<Integer> spill = spill(4);
+        Flux<Integer> numbers = Flux.range(1, 100)
+                .concatWith(Flux.error(new IllegalStateException("source failed")))
+                .transform(spill::onBackpressureSpill);
+
+        StepVerifier.create(numbers, 0)
+                .thenRequest(100)
+                .expectNextCount(100)
+                .expectErrorMessage("source failed")
+                .verify();
+        assertEquals(0, uncheckedSegmentFiles());
+    }
+
+    @Test
+    public void cancelDeletesTheSegments(){
+        BackpressureSpill<Integer> spill = spill(4);
+        Flux<Integer> numbers = Flux.range(1, 5_000).transform(spill::onBackpressureSpill);
+
+        StepVerifier.create(numbers, 1)
+                .expectNext(1)
+                .then(() -> assertTrue(uncheckedSegmentFiles() > 0))
+                .thenCancel()
+                .verify();
+
+        assertEquals(0, uncheckedSegmentFiles());
+        assertEquals(0, spill.lagElements());
+        assertEquals(0.0, registry.get("reactor.spill.lag.bytes").gauge().value());
+    }
+
+    @Test
+    public void drainedSegmentsAreRecycled(){
+        SpillBuffer<Integer> buffer = new SpillBuffer<>(spill(0), "recycle");
+
+        //a 4096 byte segment holds 256 records of 16 bytes, the buffer never runs more than 2 segments behind
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < 300; i++) {
+                buffer.offer(round * 300 + i);
+            }
+            for (int i = 0; i < 300; i++) {
+                assertEquals(round * 300 + i, buffer.poll());
+            }
+        }
+        assertTrue(buffer.isEmpty());
+        assertTrue(buffer.segmentsCreated() <= 3, "segments created: " + buffer.segmentsCreated());
+        buffer.close();
+        assertEquals(0, uncheckedSegmentFiles());
+    }
+
+    @Test
+    public void filesLeftByAnEarlierProcessAreNotInTheWay() throws IOException {
+        //what a crashed run of the same pipeline leaves in the spill directory
+        Files.createFile(directory.resolve("numbers-1-0.spill"));
+        Files.createFile(directory.resolve("numbers-1-1.spill"));
+        BackpressureSpill<Integer> spill = spill(4);
+        Flux<Integer> numbers = Flux.range(1, 1_000).transform(spill::onBackpressureSpill);
+
+        StepVerifier.create(numbers, 0)
+                .thenRequest(Long.MAX_VALUE)
+                .expectNextSequence(Flux.range(1, 1_000).toIterable())
+                .verifyComplete();
+        assertEquals(2, segmentFiles());
+    }
+
+    private long uncheckedSegmentFiles() {
+        try {
+            return segmentFiles();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
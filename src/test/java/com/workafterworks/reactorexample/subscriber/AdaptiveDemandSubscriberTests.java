@@ -0,0 +1,76 @@
+package com.workafterworks.reactorexample.subscriber;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * The clock is simulated: doOnNext before the subscriber plays the slow upstream, the consumer plays the slow processing
+ */
+public class AdaptiveDemandSubscriberTests {
+
+    @Test
+    public void adaptiveDemandReceivesEverything(){
+        List<Integer> received = new ArrayList<>();
+        AdaptiveDemandSubscriber<Integer> subscriber = new AdaptiveDemandSubscriber<>(received::add, 2, 64);
+
+        Flux.range(1, 10).subscribe(subscriber);
+
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), received);
+    }
+
+    @Test
+    public void starvedConsumerGrowsTheRequestUpToMax(){
+        AtomicLong clock = new AtomicLong();
+        List<Long> requests = new ArrayList<>();
+        AdaptiveDemandSubscriber<Integer> subscriber =
+                new AdaptiveDemandSubscriber<>(number -> clock.addAndGet(10), 2, 32, clock::get);
+
+        Flux.range(1, 1000)
+                .doOnRequest(requests::add)
+                .doOnNext(number -> clock.addAndGet(1_000))
+                .subscribe(subscriber);
+
+        assertEquals(32, subscriber.currentLimit());
+        assertTrue(requests.stream().allMatch(n -> n <= 32), "request(n) above max: " + requests);
+        assertTrue(requests.stream().anyMatch(n -> n > 2), "request(n) never grew: " + requests);
+    }
+
+    @Test
+    public void slowConsumerKeepsTheRequestAtMin(){
+        AtomicLong clock = new AtomicLong();
+        AdaptiveDemandSubscriber<Integer> subscriber =
+                new AdaptiveDemandSubscriber<>(number -> clock.addAndGet(1_000), 2, 32, clock::get);
+
+        Flux.range(1, 1000)
+                .doOnNext(number -> clock.addAndGet(10))
+                .subscribe(subscriber);
+
+        assertEquals(2, subscriber.currentLimit());
+    }
+
+    @Test
+    public void inFlightStaysBounded(){
+        AtomicLong clock = new AtomicLong();
+        AtomicLong requested = new AtomicLong();
+        AtomicLong maxInFlight = new AtomicLong();
+        AdaptiveDemandSubscriber<Integer> subscriber =
+                new AdaptiveDemandSubscriber<>(number -> clock.addAndGet(number % 50 == 0 ? 100_000 : 1), 1, 16, clock::get);
+
+        Flux.range(1, 10_000)
+                .doOnRequest(requested::addAndGet)
+                .doOnNext(number -> {
+                    clock.addAndGet(number % 70 == 0 ? 100_000 : 50);
+                    maxInFlight.accumulateAndGet(requested.decrementAndGet() + 1, Math::max);
+                })
+                .subscribe(subscriber);
+
+        assertTrue(maxInFlight.get() <= 16, "in flight " + maxInFlight.get());
+    }
+}
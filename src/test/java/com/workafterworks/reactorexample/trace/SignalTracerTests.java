@@ -0,0 +1,119 @@
+package com.workafterworks.reactorexample.trace;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * The pipelines of FluxExampleTests and MonoExampleTests with trace(...) where they had .log()
+ */
+public class SignalTracerTests {
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private final SignalTracer tracer = SignalTracer.start(output, Duration.ofMillis(10), 1024);
+
+    @Test
+    public void fluxSubscriberTraced() throws IOException {
+        Flux<String> stringFlux = Flux.just("Pascal", "Martin", "james")
+                .transform(tracer.trace("fluxSubscriber", 1));
+
+        StepVerifier.create(stringFlux)
+                .expectNext("Pascal", "Martin", "james")
+                .verifyComplete();
+
+        List<String> lines = decode();
+        assertEquals(6, lines.size(), lines.toString());
+        assertTrue(lines.get(0).endsWith("fluxSubscriber#1 - | onSubscribe()"), lines.get(0));
+        assertTrue(lines.get(1).endsWith("| request(unbounded)"), lines.get(1));
+        assertTrue(lines.get(2).endsWith("| onNext(Pascal)"), lines.get(2));
+        assertTrue(lines.get(4).endsWith("| onNext(james)"), lines.get(4));
+        assertTrue(lines.get(5).endsWith("| onComplete()"), lines.get(5));
+        assertTrue(lines.get(0).contains("[" + Thread.currentThread().getName() + "]"), lines.get(0));
+    }
+
+    @Test
+    public void fluxSubscriberErrorTraced() throws IOException {
+        Flux<Integer> numberFlux = Flux.range(1, 5)
+                .transform(tracer.trace("fluxSubscriberError", 1))
+                .map(number -> {
+                    if (number == 4){
+                        throw new IndexOutOfBoundsException("Out of bound exception thrown");
+                    }
+                    return number;
+                });
+
+        StepVerifier.create(numberFlux, 3)
+                .expectNext(1, 2, 3)
+                .thenRequest(1)
+                .expectError(IndexOutOfBoundsException.class)
+                .verify();
+
+        List<String> lines = decode();
+        assertTrue(lines.get(1).endsWith("| request(3)"), lines.get(1));
+        assertTrue(lines.get(5).endsWith("| request(1)"), lines.get(5));
+        assertTrue(lines.get(6).endsWith("| onNext(4)"), lines.get(6));
+        assertTrue(lines.get(7).endsWith("| cancel()"), lines.get(7));
+    }
+
+    @Test
+    public void monoSubscriberErrorTraced() throws IOException {
+        Mono<String> mono = Mono.<String>error(new IllegalStateException("An error occurred"))
+                .transform(tracer.trace("monoSubscriberConsumerError", 1));
+
+        StepVerifier.create(mono)
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        List<String> lines = decode();
+        assertTrue(lines.get(lines.size() - 1).endsWith("| onError(java.lang.IllegalStateException)"), lines.toString());
+    }
+
+    @Test
+    public void unsampledSubscriptionsAreNotTraced() throws IOException {
+        Flux<Integer> numberFlux = Flux.range(1, 5)
+                .transform(tracer.trace("fluxSubscriberNumbers", 0));
+
+        StepVerifier.create(numberFlux)
+                .expectNext(1, 2, 3, 4, 5)
+                .verifyComplete();
+
+        assertTrue(decode().isEmpty());
+    }
+
+    @Test
+    public void fullRingBufferDropsInsteadOfBlocking() throws IOException {
+        ByteArrayOutputStream slowOutput = new ByteArrayOutputStream();
+        SignalTracer slowDrain = SignalTracer.start(slowOutput, Duration.ofHours(1), 16);
+        Flux<Integer> numberFlux = Flux.range(1, 100)
+                .transform(slowDrain.trace("fluxSubscriberNumbers", 1));
+
+        StepVerifier.create(numberFlux)
+                .expectNextCount(100)
+                .verifyComplete();
+
+        assertTrue(slowDrain.droppedRecords() > 0);
+        slowDrain.close();
+        List<String> lines = new ArrayList<>();
+        SignalTraceDecoder.decode(new ByteArrayInputStream(slowOutput.toByteArray()), lines::add);
+        assertEquals(17, lines.size(), lines.toString());
+        assertTrue(lines.get(16).contains("signal records dropped"));
+    }
+
+    private List<String> decode() throws IOException {
+        tracer.close();
+        List<String> lines = new ArrayList<>();
+        SignalTraceDecoder.decode(new ByteArrayInputStream(output.toByteArray()), lines::add);
+        return lines;
+    }
+}
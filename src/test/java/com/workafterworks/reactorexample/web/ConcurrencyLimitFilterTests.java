@@ -0,0 +1,78 @@
+package com.workafterworks.reactorexample.web;
+
+import com.workafterworks.reactorexample.limit.ConcurrencyLimiter;
+import com.workafterworks.reactorexample.metrics.PipelineMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/*
+ * The streaming endpoints behind the adaptive concurrency limit
+ */
+public class ConcurrencyLimitFilterTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(properties(), registry);
+    private final WebTestClient client = WebTestClient
+            .bindToController(new StreamController(new StreamProperties(), new PipelineMetrics(registry)))
+            .webFilter(filter)
+            .build();
+
+    private static ConcurrencyLimitProperties properties() {
+        ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+        properties.setInitialLimit(1);
+        properties.setMaxLimit(1);
+        return properties;
+    }
+
+    @Test
+    public void requestsWithinTheLimitAreServed(){
+        client.get().uri("/streams/numbers?count=3")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk();
+
+        assertEquals(0, filter.limiter().inflight());
+    }
+
+    @Test
+    public void requestsOverTheLimitAreRejected(){
+        ConcurrencyLimiter.Permit busy = filter.limiter().tryAcquire();
+
+        client.get().uri("/streams/names")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        busy.success();
+        client.get().uri("/streams/names")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk();
+
+        assertEquals(1, registry.get("reactor.limit.rejected").tag("name", "http").functionCounter().count());
+    }
+
+    @Test
+    public void clientErrorsAreNotDropped(){
+        ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+        properties.setInitialLimit(10);
+        ConcurrencyLimitFilter wideFilter = new ConcurrencyLimitFilter(properties, new SimpleMeterRegistry());
+        WebTestClient wideClient = WebTestClient
+                .bindToController(new StreamController(new StreamProperties(), new PipelineMetrics(registry)))
+                .webFilter(wideFilter)
+                .build();
+
+        //a 4xx is the client's fault: a dropped call would have cut the limit to 9
+        wideClient.get().uri("/streams/numbers?count=-1")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        assertEquals(10, wideFilter.limiter().limit());
+        assertEquals(0, wideFilter.limiter().inflight());
+    }
+}
@@ -0,0 +1,74 @@
+package com.workafterworks.reactorexample.web;
+
+import com.workafterworks.reactorexample.metrics.PipelineMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+/*
+ * The streaming endpoints must serve the same elements as the pipelines in FluxExampleTests
+ */
+public class StreamControllerTests {
+
+    private final WebTestClient client = WebTestClient
+            .bindToController(new StreamController(new StreamProperties(), new PipelineMetrics(new SimpleMeterRegistry())))
+            .build();
+
+    @Test
+    public void namesAsNdjson(){
+        Flux<String> names = client.get().uri("/streams/names")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(String.class)
+                .getResponseBody();
+
+        StepVerifier.create(names)
+                .expectNext("\"Pascal\"", "\"Martin\"", "\"james\"")
+                .verifyComplete();
+    }
+
+    @Test
+    public void numbersAsServerSentEvents(){
+        Flux<String> numbers = client.get().uri("/streams/numbers?count=5")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+                .getResponseBody()
+                .map(ServerSentEvent::data);
+
+        StepVerifier.create(numbers)
+                .expectNext("1", "2", "3", "4", "5")
+                .verifyComplete();
+    }
+
+    @Test
+    public void listAsNdjsonHonoursClientDemand(){
+        Flux<Integer> numbers = client.get().uri("/streams/list")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .returnResult(Integer.class)
+                .getResponseBody();
+
+        StepVerifier.create(numbers, 2)
+                .expectNext(1, 2)
+                .thenRequest(3)
+                .expectNext(3, 4, 5)
+                .verifyComplete();
+    }
+
+    @Test
+    public void numbersRejectsNegativeCount(){
+        client.get().uri("/streams/numbers?count=-1")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+}
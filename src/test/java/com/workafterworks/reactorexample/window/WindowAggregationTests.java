@@ -0,0 +1,178 @@
+package com.workafterworks.reactorexample.window;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * Per-window stats of Flux.range style streams, readings are {timestamp millis, value}
+ */
+public class WindowAggregationTests {
+
+    private static Flux<long[]> readings(long... timestamps) {
+        return Flux.range(0, timestamps.length)
+                .map(i -> new long[]{timestamps[i], i + 1});
+    }
+
+    //every 100ms from 0 to 2900, value = timestamp / 100
+    private static Flux<long[]> everyHundredMillis() {
+        return Flux.range(0, 30).map(i -> new long[]{i * 100L, i});
+    }
+
+    private static WindowAggregation.Builder<long[]> eventTime(WindowAggregation.Builder<long[]> builder, Duration allowedLateness) {
+        return builder.value(reading -> reading[1]).eventTime(reading -> reading[0], allowedLateness);
+    }
+
+    @Test
+    public void tumblingWindows(){
+        WindowAggregation<long[]> perSecond = eventTime(WindowAggregation.tumbling(Duration.ofSeconds(1)), Duration.ZERO).build();
+
+        StepVerifier.create(everyHundredMillis().transform(perSecond::aggregate))
+                .assertNext(stats -> {
+                    assertEquals(0, stats.start());
+                    assertEquals(1000, stats.end());
+                    assertEquals(10, stats.count());
+                    assertEquals(45, stats.sum());
+                    assertEquals(0, stats.min());
+                    assertEquals(9, stats.max());
+                })
+                .assertNext(stats -> assertEquals(145, stats.sum()))
+                .assertNext(stats -> {
+                    assertEquals(2000, stats.start());
+                    assertEquals(245, stats.sum());
+                    assertEquals(24.5, stats.mean());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void slidingWindows(){
+        WindowAggregation<long[]> twoSecondsEverySecond = eventTime(
+                WindowAggregation.sliding(Duration.ofSeconds(2), Duration.ofSeconds(1)), Duration.ZERO).build();
+
+        StepVerifier.create(everyHundredMillis().transform(twoSecondsEverySecond::aggregate).map(WindowStats::count))
+                .expectNext(10L, 20L, 20L, 10L)
+                .verifyComplete();
+    }
+
+    @Test
+    public void sessionWindows(){
+        WindowAggregation<long[]> sessions = eventTime(WindowAggregation.session(Duration.ofMillis(500)), Duration.ZERO).build();
+
+        StepVerifier.create(readings(0, 100, 200, 1000, 1100, 3000).transform(sessions::aggregate))
+                .assertNext(stats -> {
+                    assertEquals(0, stats.start());
+                    assertEquals(700, stats.end());
+                    assertEquals(3, stats.count());
+                })
+                .assertNext(stats -> {
+                    assertEquals(1000, stats.start());
+                    assertEquals(1600, stats.end());
+                })
+                .assertNext(stats -> assertEquals(3500, stats.end()))
+                .verifyComplete();
+    }
+
+    @Test
+    public void outOfOrderElementBridgesTwoSessions(){
+        WindowAggregation<long[]> sessions = eventTime(WindowAggregation.session(Duration.ofMillis(600)), Duration.ofSeconds(10)).build();
+
+        StepVerifier.create(readings(0, 1000, 500).transform(sessions::aggregate))
+                .assertNext(stats -> {
+                    assertEquals(0, stats.start());
+                    assertEquals(1600, stats.end());
+                    assertEquals(3, stats.count());
+                    assertEquals(6, stats.sum());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void lateElementsAreDroppedBehindTheWatermark(){
+        WindowAggregation<long[]> strict = eventTime(WindowAggregation.tumbling(Duration.ofSeconds(1)), Duration.ZERO).build();
+
+        //1200 moves the watermark past the end of [0, 1000), 800 comes too late for it
+        StepVerifier.create(readings(0, 500, 1200, 800, 1500).transform(strict::aggregate).map(WindowStats::count))
+                .expectNext(2L, 2L)
+                .verifyComplete();
+        assertEquals(1, strict.lateElements());
+
+        WindowAggregation<long[]> lenient = eventTime(WindowAggregation.tumbling(Duration.ofSeconds(1)), Duration.ofMillis(500)).build();
+        StepVerifier.create(readings(0, 500, 1200, 800, 1500).transform(lenient::aggregate).map(WindowStats::count))
+                .expectNext(3L, 2L)
+                .verifyComplete();
+        assertEquals(0, lenient.lateElements());
+    }
+
+    @Test
+    public void histogramBuckets(){
+        WindowAggregation<Integer> all = WindowAggregation.<Integer>tumbling(Duration.ofDays(1))
+                .value(Integer::longValue)
+                .eventTime(number -> 0, Duration.ZERO)
+                .histogram(10, 50)
+                .build();
+
+        StepVerifier.create(Flux.range(1, 100).transform(all::aggregate))
+                .assertNext(stats -> assertArrayEquals(new long[]{10, 40, 50}, stats.histogram()))
+                .verifyComplete();
+    }
+
+    @Test
+    public void processingTimeWindowsCloseOnTheTimer(){
+        WindowAggregation<Long> perSecond = WindowAggregation.<Long>tumbling(Duration.ofSeconds(1))
+                .value(Long::longValue)
+                .build();
+
+        //interval emits at 100, 200, ... 2500ms of virtual time
+        StepVerifier.withVirtualTime(() -> Flux.interval(Duration.ofMillis(100)).take(25).transform(perSecond::aggregate))
+                .thenAwait(Duration.ofMillis(1050))
+                .assertNext(stats -> assertEquals(9, stats.count()))
+                .thenAwait(Duration.ofSeconds(2))
+                .assertNext(stats -> assertEquals(10, stats.count()))
+                .assertNext(stats -> assertEquals(6, stats.count()))
+                .verifyComplete();
+    }
+
+    @Test
+    public void processingTimeWindowEndsWithoutAFollowingElement(){
+        WindowAggregation<Integer> perSecond = WindowAggregation.<Integer>tumbling(Duration.ofSeconds(1))
+                .value(Integer::longValue)
+                .build();
+
+        StepVerifier.withVirtualTime(() -> Flux.just(1, 2, 3).concatWith(Flux.never()).transform(perSecond::aggregate))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(900))
+                .thenAwait(Duration.ofMillis(200))
+                .assertNext(stats -> assertEquals(6, stats.sum()))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    public void processingTimeWindowsAreEmittedInOrder(){
+        //1ms windows closed both by the elements on the source's thread and by a 1ms timer on another one
+        WindowAggregation<Integer> perMilli = WindowAggregation.<Integer>tumbling(Duration.ofMillis(1))
+                .value(Integer::longValue)
+                .processingTime(Schedulers.parallel(), Duration.ofMillis(1))
+                .build();
+
+        List<WindowStats> windows = Flux.range(0, 5_000_000)
+                .subscribeOn(Schedulers.boundedElastic())
+                .transform(perMilli::aggregate)
+                .collectList()
+                .block(Duration.ofSeconds(30));
+
+        assertTrue(windows.size() > 10, windows.size() + " windows");
+        for (int i = 1; i < windows.size(); i++) {
+            assertTrue(windows.get(i - 1).end() <= windows.get(i).start(), windows.get(i - 1) + " before " + windows.get(i));
+        }
+    }
+}